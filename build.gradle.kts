@@ -1,6 +1,7 @@
 plugins {
     id("java")
     id("org.jetbrains.intellij") version "1.15.0"
+    id("me.champeau.jmh") version "0.7.2"
 }
 
 group = "com.promptly"
@@ -17,9 +18,131 @@ intellij {
     plugins.set(listOf())
 }
 
+// Load-test harness in src/loadTest/java: a local mock LLM server plus a workload driver.
+// Run with `./gradlew loadTest -PloadArgs="--provider=ANTHROPIC --concurrency=32"`.
+val loadTestSourceSet: SourceSet = sourceSets.create("loadTest") {
+    compileClasspath += sourceSets.main.get().output
+    runtimeClasspath += sourceSets.main.get().output
+}
+configurations {
+    named("loadTestImplementation") { extendsFrom(configurations.implementation.get(), configurations.compileOnly.get()) }
+    named("loadTestRuntimeOnly") { extendsFrom(configurations.runtimeOnly.get(), configurations.compileOnly.get()) }
+}
+
 dependencies {
-    implementation("com.fasterxml.jackson.core:jackson-databind:2.15.2") // For JSON handling
-    implementation("com.squareup.okhttp3:okhttp:4.10.0") // For HTTP requests to LLM APIs
+    implementation(project(":core")) // Providers, codecs, metrics and context logic without the IDE
+
+    "loadTestImplementation"("com.squareup.okhttp3:mockwebserver:4.10.0") // Local stand-in for LLM providers
+
+    testImplementation("junit:junit:4.13.2")
+    testImplementation("com.squareup.okhttp3:mockwebserver:4.10.0")
+}
+
+// The soak test in src/test/java reuses the load-test mock server and is too slow for every build.
+// Run it with `./gradlew soakTest -PsoakCycles=5000`.
+sourceSets.test {
+    compileClasspath += loadTestSourceSet.output
+    runtimeClasspath += loadTestSourceSet.output
+}
+
+tasks.test {
+    exclude("**/*SoakTest*")
+}
+
+val soakTest by tasks.registering(Test::class) {
+    group = "verification"
+    description = "Drives thousands of chat and generate-code cycles against the mock LLM server and checks for leaks"
+    testClassesDirs = sourceSets.test.get().output.classesDirs
+    classpath = sourceSets.test.get().runtimeClasspath
+    include("**/*SoakTest*")
+    systemProperty("promptly.soak.cycles", findProperty("soakCycles") ?: "2000")
+    jvmArgs("--add-opens=java.desktop/javax.swing=ALL-UNNAMED") // Counts live Swing timers
+    maxHeapSize = "2g"
+    outputs.upToDateWhen { false }
+}
+
+val loadTest by tasks.registering(JavaExec::class) {
+    group = "verification"
+    description = "Runs a concurrent workload against the local mock LLM server"
+    classpath = loadTestSourceSet.runtimeClasspath
+    mainClass.set("com.promptly.plugin.loadtest.LoadDriver")
+    args = (findProperty("loadArgs") as String?)?.split(" ")?.filter { it.isNotBlank() } ?: emptyList()
+}
+
+// JMH benchmarks live in src/jmh/java and run with `./gradlew jmh`.
+// The IDE classes are compile-only for the plugin but needed to load the services in benchmarks.
+configurations {
+    named("jmhCompileOnly") { extendsFrom(configurations.compileOnly.get()) }
+    named("jmhRuntimeOnly") { extendsFrom(configurations.compileOnly.get()) }
+}
+
+jmh {
+    profilers.add("gc")
+    resultFormat.set("JSON")
+    (findProperty("jmhInclude") as String?)?.let { includes.add(it) }
+}
+
+// Compares the last `jmh` run against the checked-in baseline. Fails when a benchmark's score or
+// normalized allocation rate regresses by more than the tolerance (-PjmhTolerance, default 0.15).
+val jmhBaseline = layout.projectDirectory.file("src/jmh/baseline.json")
+val jmhResults = layout.buildDirectory.file("results/jmh/results.json")
+
+val jmhCheckBaseline by tasks.registering {
+    group = "verification"
+    description = "Compares JMH results against src/jmh/baseline.json"
+    doLast {
+        val tolerance = (findProperty("jmhTolerance") as String?)?.toDouble() ?: 0.15
+        val baselineFile = jmhBaseline.asFile
+        if (!baselineFile.exists()) {
+            // Nothing to compare against on a fresh checkout; the baseline is recorded per machine
+            logger.warn("No JMH baseline at $baselineFile; skipping the check. Run `./gradlew jmh jmhUpdateBaseline` to record one")
+            return@doLast
+        }
+
+        fun load(file: File): Map<String, Map<String, Double>> {
+            @Suppress("UNCHECKED_CAST")
+            val runs = groovy.json.JsonSlurper().parse(file) as List<Map<String, Any?>>
+            return runs.associate { run ->
+                val params = (run["params"] as Map<*, *>?)?.entries?.sortedBy { it.key.toString() }
+                    ?.joinToString(",", "(", ")") { "${it.key}=${it.value}" } ?: ""
+                val metrics = mutableMapOf<String, Double>()
+                metrics["score"] = ((run["primaryMetric"] as Map<*, *>)["score"] as Number).toDouble()
+                (run["secondaryMetrics"] as Map<*, *>?)?.forEach { (name, metric) ->
+                    if (name.toString().endsWith("gc.alloc.rate.norm")) {
+                        metrics["alloc"] = ((metric as Map<*, *>)["score"] as Number).toDouble()
+                    }
+                }
+                "${run["benchmark"]}$params" to metrics
+            }
+        }
+
+        val baseline = load(baselineFile)
+        val current = load(jmhResults.get().asFile)
+        val regressions = mutableListOf<String>()
+        current.forEach { (benchmark, metrics) ->
+            val reference = baseline[benchmark] ?: return@forEach
+            metrics.forEach { (metric, value) ->
+                val before = reference[metric] ?: return@forEach
+                if (before > 0 && value > before * (1 + tolerance)) {
+                    regressions += "$benchmark $metric: %.3f -> %.3f (%+.1f%%)".format(
+                        before, value, (value / before - 1) * 100)
+                }
+            }
+        }
+
+        if (regressions.isNotEmpty()) {
+            throw GradleException("JMH regressions beyond ${tolerance * 100}%:\n" + regressions.joinToString("\n"))
+        }
+        logger.lifecycle("JMH results within ${tolerance * 100}% of baseline (${current.size} benchmarks)")
+    }
+}
+
+val jmhUpdateBaseline by tasks.registering(Copy::class) {
+    group = "verification"
+    description = "Replaces src/jmh/baseline.json with the last JMH results"
+    from(jmhResults)
+    into(jmhBaseline.asFile.parentFile)
+    rename { jmhBaseline.asFile.name }
 }
 
 tasks {
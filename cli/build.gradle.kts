@@ -0,0 +1,25 @@
+plugins {
+    id("application")
+}
+
+group = "com.promptly"
+version = "1.0-SNAPSHOT"
+
+repositories {
+    mavenCentral()
+}
+
+dependencies {
+    implementation(project(":core"))
+}
+
+// `./gradlew :cli:run --args="--provider=ANTHROPIC --concurrency=64 prompts.jsonl"`,
+// or `./gradlew :cli:installDist` for a standalone build/install/cli/bin/cli script.
+application {
+    mainClass.set("com.promptly.plugin.cli.PromptlyCli")
+}
+
+tasks.withType<JavaCompile> {
+    sourceCompatibility = "17"
+    targetCompatibility = "17"
+}
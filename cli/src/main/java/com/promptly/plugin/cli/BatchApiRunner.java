@@ -0,0 +1,85 @@
+package com.promptly.plugin.cli;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.promptly.plugin.batch.BatchRequest;
+import com.promptly.plugin.batch.BatchResult;
+import com.promptly.plugin.client.BatchTransport;
+import com.promptly.plugin.models.PromptlySettings;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Runs batch jobs through the provider's batch API, see {@link BatchTransport}, and writes one JSON line per job
+ * once all have finished. Slower to the first result than {@link BatchRunner}, but without its per-request
+ * round trips and rate limits.
+ */
+public class BatchApiRunner {
+    private final BatchTransport transport;
+    private final PromptlySettings settings;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private int succeeded;
+    private int failed;
+
+    public BatchApiRunner(BatchTransport transport, PromptlySettings settings) {
+        this.transport = transport;
+        this.settings = settings;
+    }
+
+    /**
+     * Submit all jobs and wait for their results.
+     */
+    public void run(List<BatchJob> jobs, Writer output) throws IOException, InterruptedException {
+        List<BatchRequest> requests = new ArrayList<>(jobs.size());
+        for (BatchJob job : jobs) {
+            requests.add(new BatchRequest(job.getId(), job.getSource(), job.getMessages(), job.getModelOverride(),
+                    job.getMaxTokensOverride()));
+        }
+        write(transport.submit(requests, settings), output);
+    }
+
+    /**
+     * Wait for a job submitted by an earlier run, or write its stored results.
+     */
+    public void resume(String jobId, Writer output) throws IOException, InterruptedException {
+        write(transport.resume(jobId, settings), output);
+    }
+
+    private void write(CompletableFuture<List<BatchResult>> future, Writer output)
+            throws IOException, InterruptedException {
+        List<BatchResult> results;
+        try {
+            results = future.get();
+        } catch (ExecutionException e) {
+            throw new IOException("Batch job failed: " + e.getCause().getMessage(), e.getCause());
+        }
+        for (BatchResult result : results) {
+            ObjectNode line = objectMapper.createObjectNode();
+            line.put("id", result.getId());
+            line.put("source", result.getSource());
+            if (result.isSuccess()) {
+                line.put("response", result.getText());
+                succeeded++;
+            } else {
+                line.put("error", result.getError());
+                failed++;
+            }
+            output.write(objectMapper.writeValueAsString(line));
+            output.write('\n');
+        }
+        output.flush();
+    }
+
+    public int getSucceeded() {
+        return succeeded;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+}
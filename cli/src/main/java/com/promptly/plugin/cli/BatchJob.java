@@ -0,0 +1,48 @@
+package com.promptly.plugin.cli;
+
+import com.promptly.plugin.models.ChatMessage;
+
+import java.util.List;
+
+/**
+ * One conversation of a batch, sent as a single request.
+ */
+public class BatchJob {
+    private final String id;
+    private final String source;
+    private final List<ChatMessage> messages;
+    private final String modelOverride;
+    private final Integer maxTokensOverride;
+
+    public BatchJob(String id, String source, List<ChatMessage> messages, String modelOverride,
+                    Integer maxTokensOverride) {
+        this.id = id;
+        this.source = source;
+        this.messages = messages;
+        this.modelOverride = modelOverride;
+        this.maxTokensOverride = maxTokensOverride;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * The file the job was read from, or the one named in its {@code source} field.
+     */
+    public String getSource() {
+        return source;
+    }
+
+    public List<ChatMessage> getMessages() {
+        return messages;
+    }
+
+    public String getModelOverride() {
+        return modelOverride;
+    }
+
+    public Integer getMaxTokensOverride() {
+        return maxTokensOverride;
+    }
+}
@@ -0,0 +1,98 @@
+package com.promptly.plugin.cli;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.promptly.plugin.models.ChatMessage;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Reads batch jobs from files.
+ * <ul>
+ *     <li>{@code .jsonl}: one job per line, {@code {"id", "system", "prompt"}} or
+ *     {@code {"id", "messages": [{"role", "content"}]}}, optionally with {@code model}, {@code maxTokens} and the
+ *     {@code source} file the job is about</li>
+ *     <li>any other file: its whole content is one user prompt, identified by the file name</li>
+ *     <li>directories: every regular file below them, in name order</li>
+ * </ul>
+ */
+public class BatchReader {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public List<BatchJob> read(List<Path> paths) throws IOException {
+        List<BatchJob> jobs = new ArrayList<>();
+        for (Path path : paths) {
+            if (Files.isDirectory(path)) {
+                List<Path> files;
+                try (Stream<Path> walk = Files.walk(path)) {
+                    files = walk.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+                }
+                for (Path file : files) {
+                    readFile(file, path.relativize(file).toString(), jobs);
+                }
+            } else {
+                readFile(path, path.getFileName().toString(), jobs);
+            }
+        }
+        return jobs;
+    }
+
+    private void readFile(Path file, String name, List<BatchJob> jobs) throws IOException {
+        if (!name.toLowerCase(Locale.ROOT).endsWith(".jsonl")) {
+            String prompt = Files.readString(file, StandardCharsets.UTF_8);
+            jobs.add(new BatchJob(name, name, List.of(new ChatMessage(ChatMessage.Role.USER, prompt)), null, null));
+            return;
+        }
+
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    jobs.add(parseJob(objectMapper.readTree(line), name + ":" + lineNumber, name));
+                } catch (IOException | IllegalArgumentException e) {
+                    throw new IOException(name + ":" + lineNumber + ": " + e.getMessage(), e);
+                }
+            }
+        }
+    }
+
+    private BatchJob parseJob(JsonNode node, String defaultId, String fileName) {
+        List<ChatMessage> messages = new ArrayList<>();
+        if (node.hasNonNull("system")) {
+            messages.add(new ChatMessage(ChatMessage.Role.SYSTEM, node.get("system").asText()));
+        }
+        if (node.has("messages")) {
+            for (JsonNode message : node.get("messages")) {
+                ChatMessage.Role role = ChatMessage.Role.valueOf(
+                        message.path("role").asText("user").toUpperCase(Locale.ROOT));
+                messages.add(new ChatMessage(role, message.path("content").asText()));
+            }
+        }
+        if (node.hasNonNull("prompt")) {
+            messages.add(new ChatMessage(ChatMessage.Role.USER, node.get("prompt").asText()));
+        }
+        if (messages.isEmpty()) {
+            throw new IllegalArgumentException("Job has neither \"prompt\" nor \"messages\"");
+        }
+
+        String id = node.hasNonNull("id") ? node.get("id").asText() : defaultId;
+        String model = node.hasNonNull("model") ? node.get("model").asText() : null;
+        Integer maxTokens = node.hasNonNull("maxTokens") ? node.get("maxTokens").asInt() : null;
+        String source = node.hasNonNull("source") ? node.get("source").asText() : fileName;
+        return new BatchJob(id, source, messages, model, maxTokens);
+    }
+}
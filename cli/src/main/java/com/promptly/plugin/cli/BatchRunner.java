@@ -0,0 +1,93 @@
+package com.promptly.plugin.cli;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.promptly.plugin.client.LLMClient;
+import com.promptly.plugin.models.PromptOptions;
+import com.promptly.plugin.models.PromptlySettings;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends batch jobs concurrently and writes one JSON line per finished job, in completion order.
+ * At most {@code concurrency} requests are in flight; the client's dispatcher must allow at least as many.
+ */
+public class BatchRunner {
+    private final LLMClient client;
+    private final PromptlySettings settings;
+    private final int concurrency;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicInteger succeeded = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+
+    public BatchRunner(LLMClient client, PromptlySettings settings, int concurrency) {
+        this.client = client;
+        this.settings = settings;
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * Run all jobs and wait until the last one has finished.
+     */
+    public void run(List<BatchJob> jobs, Writer output) throws InterruptedException {
+        Semaphore permits = new Semaphore(concurrency);
+        for (BatchJob job : jobs) {
+            permits.acquire();
+            PromptOptions options = new PromptOptions();
+            options.setModelOverride(job.getModelOverride());
+            options.setMaxTokensOverride(job.getMaxTokensOverride());
+            options.setUseSemanticCache(true);
+            String model = options.resolveModel(settings, settings.getSelectedProvider());
+            long start = System.nanoTime();
+
+            client.sendPrompt(job.getMessages(), options, settings).whenComplete((response, error) -> {
+                try {
+                    ObjectNode line = objectMapper.createObjectNode();
+                    line.put("id", job.getId());
+                    line.put("model", model);
+                    line.put("latencyMs", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                    if (error == null) {
+                        line.put("response", response);
+                        succeeded.incrementAndGet();
+                    } else {
+                        Throwable cause = error instanceof CompletionException && error.getCause() != null
+                                ? error.getCause() : error;
+                        line.put("error", String.valueOf(cause.getMessage()));
+                        failed.incrementAndGet();
+                    }
+                    write(output, objectMapper.writeValueAsString(line));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                } finally {
+                    permits.release();
+                }
+            });
+        }
+        // All permits back means every request has completed
+        permits.acquire(concurrency);
+        permits.release(concurrency);
+    }
+
+    private static void write(Writer output, String line) throws IOException {
+        synchronized (output) {
+            output.write(line);
+            output.write('\n');
+            output.flush();
+        }
+    }
+
+    public int getSucceeded() {
+        return succeeded.get();
+    }
+
+    public int getFailed() {
+        return failed.get();
+    }
+}
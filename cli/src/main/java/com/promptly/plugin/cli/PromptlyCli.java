@@ -0,0 +1,182 @@
+package com.promptly.plugin.cli;
+
+import com.promptly.plugin.batch.BatchStore;
+import com.promptly.plugin.client.BatchTransport;
+import com.promptly.plugin.client.LLMClient;
+import com.promptly.plugin.metrics.LatencyHistogram;
+import com.promptly.plugin.metrics.ModelMetrics;
+import com.promptly.plugin.models.LLMProvider;
+import com.promptly.plugin.models.PromptlySettings;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs prompt batches from files without an IDE, e.g. for nightly code-review jobs on CI agents.
+ * <p>
+ * Usage: {@code promptly [--name=value ...] <batch file or directory>...}, see {@link BatchReader} for the
+ * file formats. Results go to {@code --output} (default stdout) as JSON lines. Options:
+ * <ul>
+ *     <li>{@code provider} (OPENAI), {@code model}, {@code endpoint}, {@code maxTokens}, {@code temperature}</li>
+ *     <li>{@code maxInputTokens} (100000): jobs larger than this fail without being sent, 0 for no limit</li>
+ *     <li>{@code apiKey}, defaulting to the PROMPTLY_API_KEY or &lt;PROVIDER&gt;_API_KEY environment variable</li>
+ *     <li>{@code concurrency} (16): requests in flight at once</li>
+ *     <li>{@code metrics}: file to write the latency metrics to, as JSON</li>
+ *     <li>{@code semanticCache} (false), {@code semanticThreshold} (0.9): reuse answers to similar prompts over
+ *     the same context within the run</li>
+ *     <li>{@code cassette}, {@code record} (false): record responses to, or with {@code provider=REPLAY}
+ *     replay them from, a cassette file</li>
+ *     <li>{@code batchApi} (false): send all jobs as batch jobs of the provider's batch API (OpenAI and Anthropic)
+ *     and wait for them, polling every {@code pollSeconds} (30); the jobs are kept in {@code batchDir}
+ *     (~/.promptly/batches)</li>
+ *     <li>{@code resume}: instead of reading batch files, wait for the results of a batch job submitted by an
+ *     earlier run, by the id it logged</li>
+ * </ul>
+ * Exits with status 1 when any job failed and 2 on usage errors.
+ */
+public final class PromptlyCli {
+    private PromptlyCli() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        List<Path> inputs = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("--")) {
+                int eq = arg.indexOf('=');
+                options.put(eq > 0 ? arg.substring(2, eq) : arg.substring(2), eq > 0 ? arg.substring(eq + 1) : "true");
+            } else {
+                inputs.add(Path.of(arg));
+            }
+        }
+        String resume = options.get("resume");
+        if (inputs.isEmpty() && resume == null) {
+            System.err.println("Usage: promptly [--provider=OPENAI] [--model=...] [--concurrency=16] [--batchApi] "
+                    + "[--output=results.jsonl] <batch file or directory>...");
+            System.exit(2);
+        }
+
+        PromptlySettings settings;
+        List<BatchJob> jobs;
+        int concurrency;
+        int pollSeconds;
+        try {
+            settings = buildSettings(options);
+            concurrency = positive(options, "concurrency", 16);
+            pollSeconds = positive(options, "pollSeconds", 30);
+            jobs = resume != null ? List.of() : new BatchReader().read(inputs);
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(2);
+            return;
+        }
+
+        LLMClient client = new LLMClient(concurrency);
+        boolean batchApi = resume != null || Boolean.parseBoolean(options.getOrDefault("batchApi", "false"));
+        Path batchDir = options.containsKey("batchDir")
+                ? Path.of(options.get("batchDir")) : BatchStore.defaultDirectory();
+        BatchTransport transport = batchApi ? new BatchTransport(client, new BatchStore(batchDir),
+                Duration.ofSeconds(pollSeconds)) : null;
+        BatchRunner runner = new BatchRunner(client, settings, concurrency);
+        BatchApiRunner batchRunner = batchApi ? new BatchApiRunner(transport, settings) : null;
+        long start = System.nanoTime();
+
+        String output = options.get("output");
+        try (Writer writer = output == null
+                ? new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8))
+                : Files.newBufferedWriter(Path.of(output), StandardCharsets.UTF_8)) {
+            if (resume != null) {
+                batchRunner.resume(resume, writer);
+            } else if (batchApi) {
+                batchRunner.run(jobs, writer);
+            } else {
+                runner.run(jobs, writer);
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+        } finally {
+            if (transport != null) {
+                transport.shutdown();
+            }
+            client.shutdown();
+        }
+
+        int succeeded = batchApi ? batchRunner.getSucceeded() : runner.getSucceeded();
+        int failed = batchApi ? batchRunner.getFailed() : runner.getFailed();
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+        System.err.printf("%d jobs: %d ok, %d failed in %.1f s (%.1f jobs/s)%n", succeeded + failed,
+                succeeded, failed, elapsedSeconds, (succeeded + failed) / elapsedSeconds);
+        for (ModelMetrics modelMetrics : client.getMetrics().getModels()) {
+            LatencyHistogram latency = modelMetrics.getTotalLatency();
+            System.err.printf("%s %s: p50 %d ms, p99 %d ms%n", modelMetrics.getProvider(), modelMetrics.getModel(),
+                    TimeUnit.MICROSECONDS.toMillis(latency.getValueAtPercentile(50)),
+                    TimeUnit.MICROSECONDS.toMillis(latency.getValueAtPercentile(99)));
+        }
+
+        String metrics = options.get("metrics");
+        if (metrics != null) {
+            Files.writeString(Path.of(metrics), client.getMetrics().exportJson(), StandardCharsets.UTF_8);
+        }
+        System.exit(failed > 0 ? 1 : 0);
+    }
+
+    private static int positive(Map<String, String> options, String name, int defaultValue) {
+        int value = Integer.parseInt(options.getOrDefault(name, String.valueOf(defaultValue)));
+        if (value < 1) {
+            throw new IllegalArgumentException("--" + name + " must be at least 1, got " + value);
+        }
+        return value;
+    }
+
+    private static PromptlySettings buildSettings(Map<String, String> options) {
+        PromptlySettings settings = new PromptlySettings();
+        LLMProvider provider = LLMProvider.valueOf(options.getOrDefault("provider", "OPENAI").toUpperCase(Locale.ROOT));
+        settings.setSelectedProvider(provider);
+
+        String apiKey = options.get("apiKey");
+        if (apiKey == null) {
+            apiKey = System.getenv("PROMPTLY_API_KEY");
+        }
+        if (apiKey == null) {
+            apiKey = System.getenv(provider.name() + "_API_KEY");
+        }
+        if (apiKey != null) {
+            settings.setApiKey(provider, apiKey);
+        }
+        if (options.containsKey("model")) {
+            settings.setModelName(provider, options.get("model"));
+        }
+        if (options.containsKey("endpoint")) {
+            settings.setEndpoint(provider, options.get("endpoint"));
+        }
+        if (options.containsKey("maxTokens")) {
+            settings.setMaxTokens(Integer.parseInt(options.get("maxTokens")));
+        }
+        if (options.containsKey("maxInputTokens")) {
+            settings.setMaxInputTokens(Integer.parseInt(options.get("maxInputTokens")));
+        }
+        if (options.containsKey("temperature")) {
+            settings.setTemperature(Double.parseDouble(options.get("temperature")));
+        }
+        settings.setSemanticCacheEnabled(Boolean.parseBoolean(options.getOrDefault("semanticCache", "false")));
+        if (options.containsKey("semanticThreshold")) {
+            settings.setSemanticCacheThreshold(Double.parseDouble(options.get("semanticThreshold")));
+        }
+        settings.setCassettePath(options.getOrDefault("cassette", ""));
+        settings.setRecordingEnabled(Boolean.parseBoolean(options.getOrDefault("record", "false")));
+        return settings;
+    }
+}
@@ -0,0 +1,84 @@
+import java.security.MessageDigest
+
+plugins {
+    id("java-library")
+}
+
+group = "com.promptly"
+version = "1.0-SNAPSHOT"
+
+repositories {
+    mavenCentral()
+}
+
+dependencies {
+    api("com.fasterxml.jackson.core:jackson-databind:2.15.2") // For JSON handling
+    api("com.squareup.okhttp3:okhttp:4.10.0") // For HTTP requests to LLM APIs
+    compileOnly("org.jetbrains:annotations:24.0.1")
+
+    testImplementation("junit:junit:4.13.2")
+    testImplementation("com.squareup.okhttp3:mockwebserver:4.10.0")
+}
+
+// BPE vocabularies for the local tokenizer, fetched once and bundled as resources. Each download is checked
+// against the SHA-256 tiktoken publishes for it; a missing or altered vocabulary fails the build instead of
+// silently degrading token counts to estimates.
+val tokenizerVocabularies = mapOf(
+    "cl100k_base" to ("https://openaipublic.blob.core.windows.net/encodings/cl100k_base.tiktoken"
+            to "223921b76ee99bde995b7ff738513eef100fb51d18c93597a113bcffe865b2a7"),
+    "o200k_base" to ("https://openaipublic.blob.core.windows.net/encodings/o200k_base.tiktoken"
+            to "446a9538cb6c348e3516120d7c08b09f57c36495e2acfffe59a5bf8b0cfb1a2d")
+)
+val tokenizerResourcesDir = layout.buildDirectory.dir("generated/tokenizers")
+
+fun sha256(file: File): String {
+    val digest = MessageDigest.getInstance("SHA-256")
+    file.inputStream().use { input ->
+        val buffer = ByteArray(64 * 1024)
+        while (true) {
+            val read = input.read(buffer)
+            if (read < 0) break
+            digest.update(buffer, 0, read)
+        }
+    }
+    return digest.digest().joinToString("") { "%02x".format(it) }
+}
+
+val downloadTokenizerVocabularies by tasks.registering {
+    inputs.property("vocabularies", tokenizerVocabularies)
+    outputs.dir(tokenizerResourcesDir)
+    doLast {
+        tokenizerVocabularies.forEach { (name, source) ->
+            val (url, expectedSha256) = source
+            val target = tokenizerResourcesDir.get().file("tokenizers/$name.tiktoken").asFile
+            if (target.exists() && sha256(target) == expectedSha256) return@forEach
+            target.parentFile.mkdirs()
+            val download = File(target.parentFile, "$name.tiktoken.part")
+            try {
+                uri(url).toURL().openStream().use { input ->
+                    download.outputStream().use { output -> input.copyTo(output) }
+                }
+            } catch (e: java.io.IOException) {
+                download.delete()
+                throw GradleException("Could not download tokenizer vocabulary $name from $url: ${e.message}. " +
+                        "Place the file at $target to build offline.", e)
+            }
+            val actualSha256 = sha256(download)
+            if (actualSha256 != expectedSha256) {
+                download.delete()
+                throw GradleException("Tokenizer vocabulary $name from $url has SHA-256 $actualSha256, " +
+                        "expected $expectedSha256")
+            }
+            download.renameTo(target)
+        }
+    }
+}
+
+sourceSets.main {
+    resources.srcDir(downloadTokenizerVocabularies)
+}
+
+tasks.withType<JavaCompile> {
+    sourceCompatibility = "17"
+    targetCompatibility = "17"
+}
@@ -0,0 +1,137 @@
+package com.promptly.plugin.batch;
+
+import com.promptly.plugin.models.LLMProvider;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * What is known about a submitted batch job, kept on disk by the {@link BatchStore} so that a job outlives the
+ * process that submitted it. Requests are sent under short custom ids that every provider accepts; the record
+ * maps them back to the caller's request ids and sources.
+ */
+public class BatchRecord {
+    private String id;
+    private LLMProvider provider;
+    private String remoteId;
+    private String inputFileId;
+    private BatchStatus status = BatchStatus.SUBMITTED;
+    private String outputLocation;
+    private String errorLocation;
+    private long submittedAt;
+    private long finishedAt;
+    private Map<String, String> requestIds = new LinkedHashMap<>();
+    private Map<String, String> sources = new LinkedHashMap<>();
+
+    /**
+     * Local identifier of the job, also the name of its files in the store.
+     */
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public LLMProvider getProvider() {
+        return provider;
+    }
+
+    public void setProvider(LLMProvider provider) {
+        this.provider = provider;
+    }
+
+    /**
+     * The provider's id of the job.
+     */
+    public String getRemoteId() {
+        return remoteId;
+    }
+
+    public void setRemoteId(String remoteId) {
+        this.remoteId = remoteId;
+    }
+
+    /**
+     * The provider's id of the uploaded request file, for providers that take one.
+     */
+    public String getInputFileId() {
+        return inputFileId;
+    }
+
+    public void setInputFileId(String inputFileId) {
+        this.inputFileId = inputFileId;
+    }
+
+    public BatchStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(BatchStatus status) {
+        this.status = status;
+    }
+
+    /**
+     * Where the results are fetched from once the job is final: a file id or a URL, depending on the provider.
+     */
+    public String getOutputLocation() {
+        return outputLocation;
+    }
+
+    public void setOutputLocation(String outputLocation) {
+        this.outputLocation = outputLocation;
+    }
+
+    /**
+     * Where the failed requests are listed, for providers that report them separately.
+     */
+    public String getErrorLocation() {
+        return errorLocation;
+    }
+
+    public void setErrorLocation(String errorLocation) {
+        this.errorLocation = errorLocation;
+    }
+
+    public long getSubmittedAt() {
+        return submittedAt;
+    }
+
+    public void setSubmittedAt(long submittedAt) {
+        this.submittedAt = submittedAt;
+    }
+
+    /**
+     * When the results were stored, in epoch milliseconds; 0 before.
+     */
+    public long getFinishedAt() {
+        return finishedAt;
+    }
+
+    public void setFinishedAt(long finishedAt) {
+        this.finishedAt = finishedAt;
+    }
+
+    /**
+     * Caller's request id per custom id sent to the provider.
+     */
+    public Map<String, String> getRequestIds() {
+        return requestIds;
+    }
+
+    public void setRequestIds(Map<String, String> requestIds) {
+        this.requestIds = requestIds;
+    }
+
+    /**
+     * Request source per custom id, for the requests that have one.
+     */
+    public Map<String, String> getSources() {
+        return sources;
+    }
+
+    public void setSources(Map<String, String> sources) {
+        this.sources = sources;
+    }
+}
@@ -0,0 +1,51 @@
+package com.promptly.plugin.batch;
+
+import com.promptly.plugin.models.ChatMessage;
+
+import java.util.List;
+
+/**
+ * One request of a batch job, with the file or item it was made for.
+ */
+public final class BatchRequest {
+    private final String id;
+    private final String source;
+    private final List<ChatMessage> messages;
+    private final String modelOverride;
+    private final Integer maxTokensOverride;
+
+    /**
+     * @param id Caller's identifier, returned with the result
+     * @param source What the request is about, e.g. the path of the file to document; may be null
+     * @param modelOverride Model to use instead of the provider's configured one; may be null
+     * @param maxTokensOverride Token limit to use instead of the configured one; may be null
+     */
+    public BatchRequest(String id, String source, List<ChatMessage> messages, String modelOverride,
+                        Integer maxTokensOverride) {
+        this.id = id;
+        this.source = source;
+        this.messages = messages;
+        this.modelOverride = modelOverride;
+        this.maxTokensOverride = maxTokensOverride;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public List<ChatMessage> getMessages() {
+        return messages;
+    }
+
+    public String getModelOverride() {
+        return modelOverride;
+    }
+
+    public Integer getMaxTokensOverride() {
+        return maxTokensOverride;
+    }
+}
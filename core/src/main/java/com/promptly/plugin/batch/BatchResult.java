@@ -0,0 +1,58 @@
+package com.promptly.plugin.batch;
+
+/**
+ * The outcome of one {@link BatchRequest}: the answer text, or why there is none.
+ */
+public final class BatchResult {
+    private final String id;
+    private final String source;
+    private final String text;
+    private final String error;
+
+    public BatchResult(String id, String source, String text, String error) {
+        this.id = id;
+        this.source = source;
+        this.text = text;
+        this.error = error;
+    }
+
+    public static BatchResult success(String id, String source, String text) {
+        return new BatchResult(id, source, text, null);
+    }
+
+    public static BatchResult failure(String id, String source, String error) {
+        return new BatchResult(id, source, null, error);
+    }
+
+    /**
+     * The {@link BatchRequest#getId()} of the request this answers.
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * The {@link BatchRequest#getSource()} of the request this answers.
+     */
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * The answer text, or null if the request failed.
+     */
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * Why the request failed, or null if it succeeded.
+     */
+    public String getError() {
+        return error;
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+}
@@ -0,0 +1,23 @@
+package com.promptly.plugin.batch;
+
+/**
+ * Lifecycle of a batch job at the provider.
+ */
+public enum BatchStatus {
+    /** Created at the provider, not picked up yet. */
+    SUBMITTED,
+    IN_PROGRESS,
+    /** Every request has a result, successful or not. */
+    COMPLETED,
+    FAILED,
+    /** Not finished within the provider's completion window; some requests may have results. */
+    EXPIRED,
+    CANCELLED;
+
+    /**
+     * Whether the job will not change anymore, so its results can be fetched.
+     */
+    public boolean isFinal() {
+        return this != SUBMITTED && this != IN_PROGRESS;
+    }
+}
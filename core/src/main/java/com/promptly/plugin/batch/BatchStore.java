@@ -0,0 +1,117 @@
+package com.promptly.plugin.batch;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps batch jobs on disk: one {@code <id>.json} record per job and, once it finished, its results in
+ * {@code <id>.results.jsonl}. Files are replaced atomically, so a crash leaves either the old or the new state.
+ */
+public final class BatchStore {
+    private static final String RECORD_SUFFIX = ".json";
+    private static final String RESULTS_SUFFIX = ".results.jsonl";
+
+    private final Path directory;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public BatchStore(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Location used when no batch directory is configured.
+     */
+    public static Path defaultDirectory() {
+        return Path.of(System.getProperty("user.home"), ".promptly", "batches");
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public synchronized void save(BatchRecord record) throws IOException {
+        replace(directory.resolve(record.getId() + RECORD_SUFFIX), objectMapper.writeValueAsBytes(record));
+    }
+
+    public synchronized BatchRecord load(String id) throws IOException {
+        Path file = directory.resolve(id + RECORD_SUFFIX);
+        if (!Files.exists(file)) {
+            throw new IOException("No batch job " + id + " in " + directory);
+        }
+        return objectMapper.readValue(file.toFile(), BatchRecord.class);
+    }
+
+    /**
+     * All jobs in the store, in no particular order.
+     */
+    public synchronized List<BatchRecord> list() throws IOException {
+        List<BatchRecord> records = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return records;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + RECORD_SUFFIX)) {
+            for (Path file : files) {
+                records.add(objectMapper.readValue(file.toFile(), BatchRecord.class));
+            }
+        }
+        return records;
+    }
+
+    public synchronized void saveResults(String id, List<BatchResult> results) throws IOException {
+        StringBuilder lines = new StringBuilder();
+        for (BatchResult result : results) {
+            ObjectNode line = objectMapper.createObjectNode();
+            line.put("id", result.getId());
+            line.put("source", result.getSource());
+            line.put("text", result.getText());
+            line.put("error", result.getError());
+            lines.append(objectMapper.writeValueAsString(line)).append('\n');
+        }
+        replace(directory.resolve(id + RESULTS_SUFFIX), lines.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * The stored results of a finished job, or null if there are none.
+     */
+    public synchronized List<BatchResult> loadResults(String id) throws IOException {
+        Path file = directory.resolve(id + RESULTS_SUFFIX);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        List<BatchResult> results = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                JsonNode node = objectMapper.readTree(line);
+                results.add(new BatchResult(text(node, "id"), text(node, "source"), text(node, "text"),
+                        text(node, "error")));
+            }
+        }
+        return results;
+    }
+
+    private void replace(Path file, byte[] content) throws IOException {
+        Files.createDirectories(directory);
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.write(temp, content);
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static String text(JsonNode node, String field) {
+        return node.hasNonNull(field) ? node.get(field).asText() : null;
+    }
+}
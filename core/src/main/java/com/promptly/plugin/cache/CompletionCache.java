@@ -0,0 +1,241 @@
+package com.promptly.plugin.cache;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Inline completions keyed by the document text around the caret, so a suggestion keeps being served while the
+ * user types it out and again after backspacing.
+ * <p>
+ * Each completion is stored under an anchor: a hash of the {@value #ANCHOR_CHARS} characters before the caret
+ * and the {@value #SUFFIX_CHARS} after it when the completion was requested. Completions under one anchor share a
+ * radix trie. A lookup at caret offset {@code n} tries every anchor offset {@code n - k}, with the window hashes
+ * computed in one rolling pass, and walks the {@code k} characters typed since then down that anchor's trie.
+ * Anchors are evicted least recently used first once the estimated memory exceeds the limit.
+ * Methods are synchronized; lookups cost O(longest completion + anchor window).
+ */
+public final class CompletionCache {
+    static final int ANCHOR_CHARS = 1024;
+    static final int SUFFIX_CHARS = 256;
+
+    private static final long HASH_BASE = 0x100000001B3L;
+    private static final int ANCHOR_OVERHEAD_BYTES = 120;
+    private static final int NODE_OVERHEAD_BYTES = 64;
+    private static final int STRING_OVERHEAD_BYTES = 40;
+
+    private final long maxBytes;
+    private final LinkedHashMap<Long, Anchor> anchors = new LinkedHashMap<>(64, 0.75f, true);
+    private long sizeBytes;
+    private int maxDepth;
+
+    public CompletionCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Remembers {@code completion} as the suggestion for the caret at {@code offset} in {@code text}.
+     */
+    public synchronized void put(CharSequence text, int offset, String completion) {
+        if (completion.isEmpty()) {
+            return;
+        }
+        long key = key(windowHash(text, offset), suffixHash(text, offset));
+        Anchor anchor = anchors.get(key);
+        if (anchor == null) {
+            anchor = new Anchor();
+            anchors.put(key, anchor);
+            sizeBytes += ANCHOR_OVERHEAD_BYTES;
+        }
+        long before = anchor.bytes;
+        anchor.insert(completion);
+        sizeBytes += anchor.bytes - before;
+        maxDepth = Math.max(maxDepth, completion.length());
+        evict();
+    }
+
+    /**
+     * The rest of a cached completion whose already typed part ends at {@code offset}, or null if there is none.
+     */
+    public synchronized String lookup(CharSequence text, int offset) {
+        if (anchors.isEmpty()) {
+            return null;
+        }
+        long suffixHash = suffixHash(text, offset);
+        int deepest = Math.min(maxDepth, offset);
+
+        // Polynomial hashes of all prefixes of text[from, offset), so every anchor window hash is O(1)
+        int from = Math.max(0, offset - deepest - ANCHOR_CHARS);
+        long[] prefixHashes = new long[offset - from + 1];
+        long[] powers = new long[offset - from + 1];
+        powers[0] = 1;
+        for (int i = from; i < offset; i++) {
+            prefixHashes[i - from + 1] = prefixHashes[i - from] * HASH_BASE + text.charAt(i);
+            powers[i - from + 1] = powers[i - from] * HASH_BASE;
+        }
+
+        // Prefer the most recent anchor, i.e. the least typed since
+        for (int typed = 0; typed <= deepest; typed++) {
+            int anchorOffset = offset - typed;
+            int windowStart = Math.max(0, anchorOffset - ANCHOR_CHARS);
+            long hash = prefixHashes[anchorOffset - from]
+                    - prefixHashes[windowStart - from] * powers[anchorOffset - windowStart];
+            Anchor anchor = anchors.get(key(hash, suffixHash));
+            if (anchor != null) {
+                String rest = anchor.lookup(text, anchorOffset, offset);
+                if (rest != null) {
+                    return rest;
+                }
+            }
+        }
+        return null;
+    }
+
+    public synchronized void clear() {
+        anchors.clear();
+        sizeBytes = 0;
+        maxDepth = 0;
+    }
+
+    /**
+     * Estimated retained memory of the cached completions.
+     */
+    public synchronized long getSizeBytes() {
+        return sizeBytes;
+    }
+
+    public synchronized int getAnchorCount() {
+        return anchors.size();
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<Long, Anchor>> eldest = anchors.entrySet().iterator();
+        while (sizeBytes > maxBytes && eldest.hasNext()) {
+            sizeBytes -= ANCHOR_OVERHEAD_BYTES + eldest.next().getValue().bytes;
+            eldest.remove();
+        }
+    }
+
+    private static long windowHash(CharSequence text, int end) {
+        long hash = 0;
+        for (int i = Math.max(0, end - ANCHOR_CHARS); i < end; i++) {
+            hash = hash * HASH_BASE + text.charAt(i);
+        }
+        return hash;
+    }
+
+    private static long suffixHash(CharSequence text, int start) {
+        long hash = 0;
+        int end = Math.min(text.length(), start + SUFFIX_CHARS);
+        for (int i = start; i < end; i++) {
+            hash = hash * HASH_BASE + text.charAt(i);
+        }
+        return hash;
+    }
+
+    private static long key(long windowHash, long suffixHash) {
+        long key = windowHash * 0x9E3779B97F4A7C15L + suffixHash;
+        return key ^ (key >>> 29);
+    }
+
+    /**
+     * Radix trie over the completions requested at one anchor. Every node remembers the most recent completion
+     * passing through it, which is what a lookup ending there serves.
+     */
+    private static final class Anchor {
+        final Node root = new Node("");
+        // Distinct completions, so asking for the same suggestion again neither counts nor keeps a second copy
+        final Map<String, String> completions = new HashMap<>();
+        long bytes;
+
+        void insert(String completion) {
+            String known = completions.putIfAbsent(completion, completion);
+            if (known != null) {
+                completion = known;
+            } else {
+                bytes += STRING_OVERHEAD_BYTES + 2L * completion.length();
+            }
+            Node node = root;
+            node.completion = completion;
+            int depth = 0;
+            while (depth < completion.length()) {
+                Node child = node.child(completion.charAt(depth));
+                if (child == null) {
+                    child = new Node(completion.substring(depth));
+                    node.children.add(child);
+                    bytes += NODE_OVERHEAD_BYTES + 2L * child.label.length();
+                    child.completion = completion;
+                    return;
+                }
+                int common = commonPrefix(child.label, completion, depth);
+                if (common < child.label.length()) {
+                    // Split the edge where the new completion diverges
+                    Node lower = new Node(child.label.substring(common));
+                    lower.children.addAll(child.children);
+                    lower.completion = child.completion;
+                    child.children.clear();
+                    child.children.add(lower);
+                    child.label = child.label.substring(0, common);
+                    bytes += NODE_OVERHEAD_BYTES;
+                }
+                child.completion = completion;
+                node = child;
+                depth += common;
+            }
+        }
+
+        String lookup(CharSequence text, int typedStart, int typedEnd) {
+            Node node = root;
+            int position = typedStart;
+            while (position < typedEnd) {
+                Node child = node.child(text.charAt(position));
+                if (child == null) {
+                    return null;
+                }
+                int matched = 0;
+                while (matched < child.label.length() && position < typedEnd
+                        && child.label.charAt(matched) == text.charAt(position)) {
+                    matched++;
+                    position++;
+                }
+                if (matched < child.label.length() && position < typedEnd) {
+                    return null;
+                }
+                node = child;
+            }
+            String rest = node.completion.substring(typedEnd - typedStart);
+            return rest.isEmpty() ? null : rest;
+        }
+
+        private static int commonPrefix(String label, String completion, int offset) {
+            int length = Math.min(label.length(), completion.length() - offset);
+            int i = 0;
+            while (i < length && label.charAt(i) == completion.charAt(offset + i)) {
+                i++;
+            }
+            return i;
+        }
+    }
+
+    private static final class Node {
+        String label;
+        String completion;
+        final List<Node> children = new ArrayList<>(2);
+
+        Node(String label) {
+            this.label = label;
+        }
+
+        Node child(char first) {
+            for (Node child : children) {
+                if (child.label.charAt(0) == first) {
+                    return child;
+                }
+            }
+            return null;
+        }
+    }
+}
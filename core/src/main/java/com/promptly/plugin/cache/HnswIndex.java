@@ -0,0 +1,219 @@
+package com.promptly.plugin.cache;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.function.IntPredicate;
+
+/**
+ * In-process approximate nearest-neighbour index over normalized vectors (Hierarchical Navigable Small World
+ * graph), scored by dot product. Nodes are identified by the int returned from {@link #add}. Removed nodes stay in
+ * the graph for navigation but are no longer returned. Not thread-safe.
+ */
+final class HnswIndex {
+    private static final int M = 16;
+    private static final int MAX_M0 = 2 * M;
+    private static final int EF_CONSTRUCTION = 100;
+    private static final double LEVEL_MULTIPLIER = 1 / Math.log(M);
+
+    private final List<float[]> vectors = new ArrayList<>();
+    private final List<int[][]> links = new ArrayList<>();
+    private final List<int[]> linkCounts = new ArrayList<>();
+    private boolean[] removed = new boolean[16];
+    private int[] visitedEpochs = new int[16];
+    private int epoch;
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+    private int removedCount;
+    private final Random random = new Random(42);
+
+    int add(float[] vector) {
+        int node = vectors.size();
+        int level = (int) (-Math.log(1 - random.nextDouble()) * LEVEL_MULTIPLIER);
+        vectors.add(vector);
+        int[][] nodeLinks = new int[level + 1][];
+        for (int l = 0; l <= level; l++) {
+            nodeLinks[l] = new int[(l == 0 ? MAX_M0 : M) + 1];
+        }
+        links.add(nodeLinks);
+        linkCounts.add(new int[level + 1]);
+        if (node >= removed.length) {
+            removed = Arrays.copyOf(removed, removed.length * 2);
+            visitedEpochs = Arrays.copyOf(visitedEpochs, visitedEpochs.length * 2);
+        }
+
+        if (entryPoint < 0) {
+            entryPoint = node;
+            maxLevel = level;
+            return node;
+        }
+
+        int current = entryPoint;
+        for (int l = maxLevel; l > level; l--) {
+            current = greedyClosest(vector, current, l);
+        }
+        for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+            PriorityQueue<Scored> found = searchLayer(vector, current, EF_CONSTRUCTION, l, any -> true);
+            List<Scored> best = new ArrayList<>(found);
+            best.sort(null);
+            int maxLinks = l == 0 ? MAX_M0 : M;
+            for (int i = 0; i < Math.min(M, best.size()); i++) {
+                int neighbour = best.get(i).node;
+                connect(node, neighbour, l, maxLinks);
+                connect(neighbour, node, l, maxLinks);
+            }
+            current = best.get(0).node;
+        }
+        if (level > maxLevel) {
+            entryPoint = node;
+            maxLevel = level;
+        }
+        return node;
+    }
+
+    void remove(int node) {
+        if (!removed[node]) {
+            removed[node] = true;
+            removedCount++;
+        }
+    }
+
+    int size() {
+        return vectors.size();
+    }
+
+    int getRemovedCount() {
+        return removedCount;
+    }
+
+    /**
+     * Up to {@code k} live nodes most similar to {@code query}, most similar first.
+     */
+    List<Scored> search(float[] query, int k, int ef) {
+        return search(query, k, ef, node -> true);
+    }
+
+    /**
+     * Up to {@code k} live nodes accepted by {@code filter}, most similar to {@code query} first. The filter is
+     * applied while searching: rejected nodes are still walked through but take no place among the results, so
+     * matches are found even when many closer nodes are rejected.
+     */
+    List<Scored> search(float[] query, int k, int ef, IntPredicate filter) {
+        if (entryPoint < 0) {
+            return List.of();
+        }
+        int current = entryPoint;
+        for (int l = maxLevel; l > 0; l--) {
+            current = greedyClosest(query, current, l);
+        }
+        List<Scored> results = new ArrayList<>(
+                searchLayer(query, current, Math.max(ef, k), 0, node -> !removed[node] && filter.test(node)));
+        results.sort(null);
+        return results.size() > k ? results.subList(0, k) : results;
+    }
+
+    private int greedyClosest(float[] query, int start, int level) {
+        int current = start;
+        float best = NgramEmbedder.dot(query, vectors.get(current));
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            int[] neighbours = links.get(current)[level];
+            int count = linkCounts.get(current)[level];
+            for (int i = 0; i < count; i++) {
+                float similarity = NgramEmbedder.dot(query, vectors.get(neighbours[i]));
+                if (similarity > best) {
+                    best = similarity;
+                    current = neighbours[i];
+                    improved = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Best-first search of one layer; returns up to {@code ef} nodes accepted by {@code accept} as a heap with the
+     * least similar on top. The search stops once the closest unexplored node is less similar than all of them.
+     */
+    private PriorityQueue<Scored> searchLayer(float[] query, int start, int ef, int level, IntPredicate accept) {
+        epoch++;
+        PriorityQueue<Scored> candidates = new PriorityQueue<>();
+        PriorityQueue<Scored> found = new PriorityQueue<>((a, b) -> Float.compare(a.similarity, b.similarity));
+        Scored first = new Scored(start, NgramEmbedder.dot(query, vectors.get(start)));
+        visitedEpochs[start] = epoch;
+        candidates.add(first);
+        if (accept.test(start)) {
+            found.add(first);
+        }
+
+        while (!candidates.isEmpty()) {
+            Scored candidate = candidates.poll();
+            if (found.size() >= ef && candidate.similarity < found.peek().similarity) {
+                break;
+            }
+            int[] neighbours = links.get(candidate.node)[level];
+            int count = linkCounts.get(candidate.node)[level];
+            for (int i = 0; i < count; i++) {
+                int neighbour = neighbours[i];
+                if (visitedEpochs[neighbour] == epoch) {
+                    continue;
+                }
+                visitedEpochs[neighbour] = epoch;
+                float similarity = NgramEmbedder.dot(query, vectors.get(neighbour));
+                if (found.size() < ef || similarity > found.peek().similarity) {
+                    Scored scored = new Scored(neighbour, similarity);
+                    candidates.add(scored);
+                    if (accept.test(neighbour)) {
+                        found.add(scored);
+                        if (found.size() > ef) {
+                            found.poll();
+                        }
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    private void connect(int from, int to, int level, int maxLinks) {
+        int[] neighbours = links.get(from)[level];
+        int[] counts = linkCounts.get(from);
+        neighbours[counts[level]++] = to;
+        if (counts[level] <= maxLinks) {
+            return;
+        }
+        // Over capacity: drop the least similar neighbour
+        float[] vector = vectors.get(from);
+        int worst = 0;
+        float worstSimilarity = Float.MAX_VALUE;
+        for (int i = 0; i < counts[level]; i++) {
+            float similarity = NgramEmbedder.dot(vector, vectors.get(neighbours[i]));
+            if (similarity < worstSimilarity) {
+                worstSimilarity = similarity;
+                worst = i;
+            }
+        }
+        neighbours[worst] = neighbours[--counts[level]];
+    }
+
+    static final class Scored implements Comparable<Scored> {
+        final int node;
+        final float similarity;
+
+        Scored(int node, float similarity) {
+            this.node = node;
+            this.similarity = similarity;
+        }
+
+        /**
+         * Most similar first.
+         */
+        @Override
+        public int compareTo(Scored other) {
+            return Float.compare(other.similarity, similarity);
+        }
+    }
+}
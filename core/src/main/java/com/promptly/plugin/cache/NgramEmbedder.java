@@ -0,0 +1,72 @@
+package com.promptly.plugin.cache;
+
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Cheap CPU-only text embedding: word unigrams, word bigrams and character trigrams, feature-hashed into a
+ * fixed number of signed dimensions and L2-normalized, so the dot product of two vectors is their cosine
+ * similarity. Good enough to match rephrasings that share most of their words; not a language model.
+ */
+public final class NgramEmbedder {
+    public static final int DIMENSIONS = 384;
+
+    private static final float WORD_WEIGHT = 1.0f;
+    private static final float BIGRAM_WEIGHT = 0.7f;
+    private static final float TRIGRAM_WEIGHT = 0.3f;
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "the", "this", "that", "these", "those", "is", "are", "be", "of", "to", "in", "on", "for",
+            "it", "me", "my", "you", "can", "could", "please", "i", "and", "or");
+
+    private NgramEmbedder() {
+    }
+
+    public static float[] embed(String text) {
+        float[] vector = new float[DIMENSIONS];
+        String[] words = text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}_]+");
+
+        String previous = null;
+        for (String word : words) {
+            if (word.isEmpty() || STOP_WORDS.contains(word)) {
+                continue;
+            }
+            add(vector, word, WORD_WEIGHT);
+            if (previous != null) {
+                add(vector, previous + ' ' + word, BIGRAM_WEIGHT);
+            }
+            String padded = ' ' + word + ' ';
+            for (int i = 0; i + 3 <= padded.length(); i++) {
+                add(vector, padded.substring(i, i + 3), TRIGRAM_WEIGHT);
+            }
+            previous = word;
+        }
+
+        double norm = 0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        if (norm > 0) {
+            float scale = (float) (1 / Math.sqrt(norm));
+            for (int i = 0; i < vector.length; i++) {
+                vector[i] *= scale;
+            }
+        }
+        return vector;
+    }
+
+    public static float dot(float[] a, float[] b) {
+        float sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    private static void add(float[] vector, String feature, float weight) {
+        int hash = feature.hashCode() * 0x9E3779B1;
+        hash ^= hash >>> 15;
+        int index = Math.floorMod(hash, DIMENSIONS);
+        // A sign bit independent of the index keeps collisions from adding up
+        vector[index] += (hash & 0x40000000) != 0 ? weight : -weight;
+    }
+}
@@ -0,0 +1,145 @@
+package com.promptly.plugin.cache;
+
+import com.promptly.plugin.models.ChatMessage;
+import com.promptly.plugin.replay.RecordingKey;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Answers to earlier prompts, found again for differently worded prompts over the same context.
+ * <p>
+ * The last user message is the prompt; all other messages, plus the model, are the context and must match
+ * exactly. Prompts are embedded with {@link NgramEmbedder} and indexed in an {@link HnswIndex}, which is searched
+ * only for entries of the same context; a cached answer is returned when its prompt is at least {@code threshold}
+ * similar. Entries beyond the size limit are evicted least
+ * recently used first, and the index is rebuilt once more than half of its nodes are evicted ones.
+ * Methods are synchronized.
+ */
+public final class SemanticCache {
+    private static final int EF_SEARCH = 64;
+
+    private HnswIndex index = new HnswIndex();
+    private LinkedHashMap<Integer, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    // Context of each live node, for the search filter; reading entries would reorder them
+    private Map<Integer, String> contextKeys = new HashMap<>();
+    private int maxEntries;
+
+    public SemanticCache(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Computes the lookup key of a conversation, or returns null if it has no user prompt.
+     * Cheap enough for the calling thread, and independent of later changes to {@code messages}.
+     *
+     * @param scope Identifies what produces the answers, e.g. provider and model
+     */
+    public static Key keyOf(String scope, List<ChatMessage> messages) {
+        for (int i = messages.size() - 1; i >= 0; i--) {
+            if (messages.get(i).getRole() == ChatMessage.Role.USER) {
+                List<ChatMessage> context = new ArrayList<>(messages);
+                context.remove(i);
+                return new Key(scope + '\n' + RecordingKey.of(context),
+                        NgramEmbedder.embed(messages.get(i).getContent()));
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The cached answer for a prompt at least {@code threshold} similar to the key's, in the same context,
+     * or null if there is none.
+     *
+     * @param threshold Minimum cosine similarity of the prompts, 0 to 1
+     */
+    public synchronized String lookup(Key key, double threshold) {
+        if (entries.isEmpty()) {
+            return null;
+        }
+        List<HnswIndex.Scored> best = index.search(key.vector, 1, EF_SEARCH,
+                node -> key.contextKey.equals(contextKeys.get(node)));
+        if (best.isEmpty() || best.get(0).similarity < threshold) {
+            return null;
+        }
+        return entries.get(best.get(0).node).answer;
+    }
+
+    public synchronized void put(Key key, String answer) {
+        int node = index.add(key.vector);
+        entries.put(node, new Entry(key.contextKey, answer, key.vector));
+        contextKeys.put(node, key.contextKey);
+        evict();
+    }
+
+    public synchronized void setMaxEntries(int maxEntries) {
+        this.maxEntries = maxEntries;
+        evict();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized void clear() {
+        index = new HnswIndex();
+        entries = new LinkedHashMap<>(64, 0.75f, true);
+        contextKeys = new HashMap<>();
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<Integer, Entry>> eldest = entries.entrySet().iterator();
+        while (entries.size() > maxEntries && eldest.hasNext()) {
+            int node = eldest.next().getKey();
+            index.remove(node);
+            contextKeys.remove(node);
+            eldest.remove();
+        }
+        if (index.getRemovedCount() > index.size() / 2) {
+            rebuild();
+        }
+    }
+
+    private void rebuild() {
+        HnswIndex rebuilt = new HnswIndex();
+        LinkedHashMap<Integer, Entry> renumbered = new LinkedHashMap<>(64, 0.75f, true);
+        Map<Integer, String> renumberedContexts = new HashMap<>();
+        for (Entry entry : entries.values()) {
+            int node = rebuilt.add(entry.vector);
+            renumbered.put(node, entry);
+            renumberedContexts.put(node, entry.contextKey);
+        }
+        index = rebuilt;
+        entries = renumbered;
+        contextKeys = renumberedContexts;
+    }
+
+    /**
+     * Exact context and embedded prompt of a conversation.
+     */
+    public static final class Key {
+        final String contextKey;
+        final float[] vector;
+
+        Key(String contextKey, float[] vector) {
+            this.contextKey = contextKey;
+            this.vector = vector;
+        }
+    }
+
+    private static final class Entry {
+        final String contextKey;
+        final String answer;
+        final float[] vector;
+
+        Entry(String contextKey, String answer, float[] vector) {
+            this.contextKey = contextKey;
+            this.answer = answer;
+            this.vector = vector;
+        }
+    }
+}
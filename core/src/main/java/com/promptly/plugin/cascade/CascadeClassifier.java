@@ -0,0 +1,70 @@
+package com.promptly.plugin.cascade;
+
+import com.promptly.plugin.models.ModelTier;
+
+import java.util.Locale;
+
+/**
+ * Decides which tier of the model cascade a request starts on, from cheap heuristics over the prompt, the size of
+ * the attached context and the action it comes from. Errs towards the large model: a wrong fast answer costs an
+ * escalation round trip, while a simple request sent to the large model only costs some latency.
+ */
+public final class CascadeClassifier {
+    /** Prompts longer than this describe more than a small edit. */
+    static final int MAX_FAST_PROMPT_TOKENS = 300;
+    /** Beyond this much context the small models lose track of the details. */
+    static final int MAX_FAST_CONTEXT_TOKENS = 6000;
+    /** Short chat questions without a clear hint still go to the fast model. */
+    static final int SHORT_QUESTION_TOKENS = 40;
+    /** Selections up to this size are small enough to rewrite with the fast model. */
+    static final int MAX_FAST_SELECTION_TOKENS = 800;
+
+    private static final String[] FAST_HINTS = {
+            "docstring", "javadoc", "doc comment", "comment", "rename", "explain", "what does", "what is",
+            "typo", "spelling", "format", "log message", "add logging", "type hint", "annotate", "translate"
+    };
+    private static final String[] LARGE_HINTS = {
+            "refactor", "architect", "design", "debug", "bug", "race", "concurren", "deadlock", "thread-safe",
+            "optimi", "performance", "security", "vulnerab", "migrate", "why does", "why is", "implement",
+            "algorithm", "prove", "step by step"
+    };
+
+    private CascadeClassifier() {
+    }
+
+    /**
+     * @param kind Action the request comes from
+     * @param prompt What the user typed
+     * @param promptTokens Tokens in the prompt
+     * @param contextTokens Tokens of file context or selection attached to it
+     */
+    public static ModelTier classify(RequestKind kind, String prompt, int promptTokens, int contextTokens) {
+        String text = prompt.toLowerCase(Locale.ROOT);
+        if (containsAny(text, LARGE_HINTS)
+                || promptTokens > MAX_FAST_PROMPT_TOKENS
+                || contextTokens > MAX_FAST_CONTEXT_TOKENS) {
+            return ModelTier.LARGE;
+        }
+        if (containsAny(text, FAST_HINTS)) {
+            return ModelTier.FAST;
+        }
+
+        switch (kind) {
+            case CHAT:
+                return promptTokens <= SHORT_QUESTION_TOKENS ? ModelTier.FAST : ModelTier.LARGE;
+            case GENERATE_CODE:
+                return contextTokens <= MAX_FAST_SELECTION_TOKENS ? ModelTier.FAST : ModelTier.LARGE;
+            default:
+                return ModelTier.LARGE;
+        }
+    }
+
+    private static boolean containsAny(String text, String[] hints) {
+        for (String hint : hints) {
+            if (text.contains(hint)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
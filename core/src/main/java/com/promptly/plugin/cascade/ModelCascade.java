@@ -0,0 +1,155 @@
+package com.promptly.plugin.cascade;
+
+import com.promptly.plugin.metrics.MetricsRegistry;
+import com.promptly.plugin.models.ChatMessage;
+import com.promptly.plugin.models.LLMProvider;
+import com.promptly.plugin.models.ModelTier;
+import com.promptly.plugin.models.PromptOptions;
+import com.promptly.plugin.models.PromptlySettings;
+import com.promptly.plugin.tokenizer.Tokenizer;
+import com.promptly.plugin.tokenizer.Tokenizers;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Routes requests between the selected provider's fast and large model.
+ * A request starts on the tier the {@link CascadeClassifier} picked; when the fast model fails or its answer
+ * sounds unsure, the same request is sent again to the large model. Callers escalate on signals only they see,
+ * such as generated code that does not compile or the user asking again, by starting on {@link ModelTier#LARGE}.
+ * <p>
+ * Fast tier answers are not streamed: one that is rejected would already be on screen when the large model's
+ * answer starts to stream in after it.
+ */
+public final class ModelCascade {
+    /** Answers shorter than this are taken as the fast model giving up. */
+    static final int MIN_ANSWER_CHARS = 20;
+
+    private static final String[] UNSURE_PHRASES = {
+            "i'm not sure", "i am not sure", "i'm not certain", "i am not certain", "i don't know", "i do not know",
+            "i cannot determine", "i can't determine", "without more context", "without more information",
+            "i'm unable to", "i am unable to", "it's unclear", "it is unclear"
+    };
+
+    private final MetricsRegistry metrics;
+
+    public ModelCascade(MetricsRegistry metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Whether the settings name a fast model, different from the main one, for the selected provider.
+     */
+    public static boolean isAvailable(PromptlySettings settings) {
+        LLMProvider provider = settings.getSelectedProvider();
+        String fastModel = settings.getFastModelName(provider);
+        return settings.isCascadeEnabled() && fastModel != null && !fastModel.isBlank()
+                && !fastModel.equals(settings.getModelName(provider));
+    }
+
+    /**
+     * Sends a request on the given tier, escalating to the large model if the fast one fails or sounds unsure.
+     *
+     * @param tier Tier to start on, usually from {@link CascadeClassifier#classify}; ignored without a fast model
+     * @param messages The request's messages, to account its input tokens
+     * @param options Options of the request; the fast tier sets its model override and holds back its stream listener
+     * @param send Sends the request with the given options; called once per tier tried
+     * @return CompletableFuture with the accepted answer; cancelling it cancels the attempt in flight
+     */
+    public CompletableFuture<String> send(ModelTier tier, List<ChatMessage> messages, PromptOptions options,
+                                          PromptlySettings settings,
+                                          Function<PromptOptions, CompletableFuture<String>> send) {
+        return send(tier, messages, options, settings, send, Function.identity(), answer -> !isUnsure(answer));
+    }
+
+    /**
+     * Sends a request whose result the caller checks itself, such as generated code that has to compile.
+     *
+     * @param text The answer text of a result, to account its output tokens
+     * @param acceptable Whether a fast tier result is good enough; otherwise the large model is tried
+     */
+    public <T> CompletableFuture<T> send(ModelTier tier, List<ChatMessage> messages, PromptOptions options,
+                                         PromptlySettings settings, Function<PromptOptions, CompletableFuture<T>> send,
+                                         Function<T, String> text, Predicate<T> acceptable) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        // Callers keep adding to their conversation, while the tokens are counted after the answer arrived
+        List<ChatMessage> sent = List.copyOf(messages);
+        attempt(isAvailable(settings) ? tier : ModelTier.LARGE, sent, options, settings, send, text, acceptable, result);
+        return result;
+    }
+
+    private <T> void attempt(ModelTier tier, List<ChatMessage> messages, PromptOptions options,
+                             PromptlySettings settings, Function<PromptOptions, CompletableFuture<T>> send,
+                             Function<T, String> text, Predicate<T> acceptable, CompletableFuture<T> result) {
+        if (result.isDone()) {
+            return;
+        }
+        LLMProvider provider = settings.getSelectedProvider();
+        String largeModel = options.getModelOverride();
+        Consumer<String> streamListener = options.getStreamListener();
+        if (tier == ModelTier.FAST) {
+            options.setModelOverride(settings.getFastModelName(provider));
+            options.setStreamListener(null);
+        }
+        Tokenizer tokenizer = Tokenizers.forModel(provider, options.resolveModel(settings, provider));
+
+        long start = System.nanoTime();
+        CompletableFuture<T> answer = send.apply(options);
+        result.whenComplete((value, error) -> {
+            if (result.isCancelled()) {
+                answer.cancel(true);
+            }
+        });
+        answer.whenComplete((value, error) -> {
+            if (answer.isCancelled()) {
+                result.cancel(true);
+                return;
+            }
+            if (error instanceof CancellationException || error instanceof CompletionException
+                    && error.getCause() instanceof CancellationException) {
+                // Given up on by the caller, e.g. because the editor closed; not a reason to escalate
+                result.completeExceptionally(error);
+                return;
+            }
+            options.setStreamListener(streamListener);
+            long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start);
+            int inputTokens = Tokenizers.countMessages(messages, tokenizer);
+            metrics.forTier(tier).recordAttempt(micros, error == null, inputTokens,
+                    error == null ? tokenizer.countTokens(text.apply(value)) : 0);
+
+            if (tier == ModelTier.FAST && (error != null || !acceptable.test(value))) {
+                metrics.forTier(tier).recordEscalation();
+                options.setModelOverride(largeModel);
+                attempt(ModelTier.LARGE, messages, options, settings, send, text, acceptable, result);
+            } else if (error != null) {
+                result.completeExceptionally(error);
+            } else {
+                result.complete(value);
+            }
+        });
+    }
+
+    /**
+     * Low-confidence signals in an answer: nearly empty, or hedging instead of answering.
+     */
+    static boolean isUnsure(String answer) {
+        if (answer == null || answer.strip().length() < MIN_ANSWER_CHARS) {
+            return true;
+        }
+        // Hedges that matter open the answer; later ones are usually caveats to a real answer
+        String opening = answer.substring(0, Math.min(answer.length(), 200)).toLowerCase(Locale.ROOT);
+        for (String phrase : UNSURE_PHRASES) {
+            if (opening.contains(phrase)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
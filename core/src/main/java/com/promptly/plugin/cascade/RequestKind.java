@@ -0,0 +1,11 @@
+package com.promptly.plugin.cascade;
+
+/**
+ * The action a request comes from, one of the signals the {@link CascadeClassifier} routes on.
+ */
+public enum RequestKind {
+    /** A message in the chat tool window. */
+    CHAT,
+    /** Rewriting the editor selection with Generate Code. */
+    GENERATE_CODE
+}
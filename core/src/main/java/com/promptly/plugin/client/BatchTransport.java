@@ -0,0 +1,540 @@
+package com.promptly.plugin.client;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.util.RawValue;
+import com.promptly.plugin.batch.BatchRecord;
+import com.promptly.plugin.batch.BatchRequest;
+import com.promptly.plugin.batch.BatchResult;
+import com.promptly.plugin.batch.BatchStatus;
+import com.promptly.plugin.batch.BatchStore;
+import com.promptly.plugin.models.LLMProvider;
+import com.promptly.plugin.models.PromptOptions;
+import com.promptly.plugin.models.PromptlySettings;
+import okhttp3.HttpUrl;
+import okhttp3.MediaType;
+import okhttp3.MultipartBody;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.BufferedSource;
+import okio.Utf8;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs requests through the providers' batch APIs instead of one call each, for offline workloads such as
+ * documenting a whole module. A batch job is priced lower and does not count against the interactive rate
+ * limits; the provider works through it within hours at most, usually far sooner.
+ * <ul>
+ *     <li>OpenAI: the requests are uploaded as a JSONL file, a batch is created for it and polled, and the
+ *     results are downloaded as JSONL output and error files.</li>
+ *     <li>Anthropic: the requests are posted as one message batch, polled, and the results streamed from its
+ *     results URL as JSONL.</li>
+ * </ul>
+ * Every job is recorded in a {@link BatchStore} as soon as the provider accepted it, and its results are stored
+ * once fetched, so {@link #resume} picks up jobs submitted by an earlier process.
+ * <p>
+ * Jobs are polled on one thread. Uploads and downloads, which can run to hundreds of MB, have threads of their
+ * own, so a large job does not hold up polling the others.
+ */
+public final class BatchTransport {
+    private static final Logger LOG = Logger.getLogger(BatchTransport.class.getName());
+    /** Well below every provider's limit, so that a job's upload and results stay a manageable size. */
+    static final int MAX_REQUESTS_PER_JOB = 10_000;
+    /** The providers' upload limits, 200 MB for an OpenAI batch file and 256 MB for an Anthropic batch. */
+    static final long OPENAI_MAX_BYTES_PER_JOB = 200_000_000L;
+    static final long ANTHROPIC_MAX_BYTES_PER_JOB = 256_000_000L;
+    /** Room for the custom id and the fields around each request body. */
+    private static final int BYTES_PER_REQUEST_OVERHEAD = 256;
+    private static final int MAX_POLL_FAILURES = 5;
+    private static final String OPENAI_CHAT_PATH = "/chat/completions";
+    private static final MediaType JSON = MediaType.get("application/json");
+    private static final MediaType JSONL = MediaType.get("application/jsonl");
+
+    private final LLMClient client;
+    private final BatchStore store;
+    private final long pollIntervalMillis;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Promptly batch poller");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ExecutorService transfers = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "Promptly batch transfer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * @param client Client whose connections and request formats are used
+     * @param store Where jobs and their results are kept
+     * @param pollInterval How often unfinished jobs are checked
+     */
+    public BatchTransport(LLMClient client, BatchStore store, Duration pollInterval) {
+        this.client = client;
+        this.store = store;
+        this.pollIntervalMillis = pollInterval.toMillis();
+    }
+
+    public BatchStore getStore() {
+        return store;
+    }
+
+    /**
+     * Submit requests to the selected provider's batch API and wait for their results in the background.
+     * More than {@link #MAX_REQUESTS_PER_JOB} requests, or more than the provider's upload limit, are split into
+     * several jobs. Cancelling the returned future stops polling; the jobs keep running and can be resumed.
+     *
+     * @return CompletableFuture with one result per request, in request order
+     */
+    public CompletableFuture<List<BatchResult>> submit(List<BatchRequest> requests, PromptlySettings settings) {
+        LLMProvider provider = settings.getSelectedProvider();
+        if (!provider.supportsBatch()) {
+            return CompletableFuture.failedFuture(
+                    new IllegalArgumentException(provider.getDisplayName() + " has no batch API"));
+        }
+        CompletableFuture<Void> stop = new CompletableFuture<>();
+        CompletableFuture<List<BatchResult>> all = CompletableFuture
+                .supplyAsync(() -> formatBodies(requests, settings), transfers)
+                .thenCompose(bodies -> {
+                    List<Integer> starts = jobStarts(bodies, MAX_REQUESTS_PER_JOB, maxBytesPerJob(provider));
+                    List<CompletableFuture<List<BatchResult>>> jobs = new ArrayList<>();
+                    for (int i = 0; i < starts.size(); i++) {
+                        int from = starts.get(i);
+                        int to = i + 1 < starts.size() ? starts.get(i + 1) : requests.size();
+                        jobs.add(CompletableFuture
+                                .supplyAsync(() -> create(requests.subList(from, to), bodies.subList(from, to),
+                                        settings), transfers)
+                                .thenCompose(record -> stoppable(track(record, settings), stop)));
+                    }
+                    return CompletableFuture.allOf(jobs.toArray(new CompletableFuture<?>[0])).thenApply(ignored -> {
+                        List<BatchResult> results = new ArrayList<>(requests.size());
+                        jobs.forEach(job -> results.addAll(job.join()));
+                        return results;
+                    });
+                });
+        all.whenComplete((results, error) -> {
+            if (all.isCancelled()) {
+                stop.complete(null);
+            }
+        });
+        return all;
+    }
+
+    /**
+     * Wait for a job submitted earlier, possibly by another process, or return its stored results.
+     * Cancelling the returned future stops polling.
+     *
+     * @param id The job's {@link BatchRecord#getId()}
+     * @param settings Endpoint and credentials of the job's provider
+     */
+    public CompletableFuture<List<BatchResult>> resume(String id, PromptlySettings settings) {
+        CompletableFuture<Void> stop = new CompletableFuture<>();
+        CompletableFuture<List<BatchResult>> resumed = CompletableFuture.supplyAsync(() -> {
+            try {
+                return store.load(id);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, transfers).thenCompose(record -> {
+            try {
+                List<BatchResult> stored = record.getFinishedAt() > 0 ? store.loadResults(id) : null;
+                return stored != null ? CompletableFuture.completedFuture(stored)
+                        : stoppable(track(record, settings), stop);
+            } catch (IOException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        });
+        resumed.whenComplete((results, error) -> {
+            if (resumed.isCancelled()) {
+                stop.complete(null);
+            }
+        });
+        return resumed;
+    }
+
+    /**
+     * Splits requests into jobs of at most {@code maxRequests} requests and about {@code maxBytes} of upload.
+     *
+     * @param bodies Serialized request bodies
+     * @return index of the first request of each job
+     */
+    static List<Integer> jobStarts(List<String> bodies, int maxRequests, long maxBytes) {
+        List<Integer> starts = new ArrayList<>();
+        long bytes = 0;
+        for (int i = 0; i < bodies.size(); i++) {
+            long size = Utf8.size(bodies.get(i)) + BYTES_PER_REQUEST_OVERHEAD;
+            if (starts.isEmpty() || i - starts.get(starts.size() - 1) >= maxRequests || bytes + size > maxBytes) {
+                starts.add(i);
+                bytes = 0;
+            }
+            bytes += size;
+        }
+        return starts;
+    }
+
+    static long maxBytesPerJob(LLMProvider provider) {
+        return provider == LLMProvider.OPENAI ? OPENAI_MAX_BYTES_PER_JOB : ANTHROPIC_MAX_BYTES_PER_JOB;
+    }
+
+    /**
+     * Cancels {@code tracked}, and so its polling, once {@code stop} completes.
+     */
+    private static <T> CompletableFuture<T> stoppable(CompletableFuture<T> tracked, CompletableFuture<?> stop) {
+        stop.whenComplete((ignored, error) -> tracked.cancel(true));
+        return tracked;
+    }
+
+    /**
+     * The jobs in the store whose results have not been fetched yet.
+     */
+    public List<BatchRecord> unfinished() throws IOException {
+        List<BatchRecord> unfinished = new ArrayList<>();
+        for (BatchRecord record : store.list()) {
+            if (record.getFinishedAt() == 0) {
+                unfinished.add(record);
+            }
+        }
+        return unfinished;
+    }
+
+    /**
+     * Stop polling, for callers that exit afterwards. Submitted jobs keep running at the provider.
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+        transfers.shutdownNow();
+    }
+
+    private List<String> formatBodies(List<BatchRequest> requests, PromptlySettings settings) {
+        LLMProvider provider = settings.getSelectedProvider();
+        List<String> bodies = new ArrayList<>(requests.size());
+        try {
+            for (BatchRequest request : requests) {
+                PromptOptions options = new PromptOptions();
+                options.setModelOverride(request.getModelOverride());
+                options.setMaxTokensOverride(request.getMaxTokensOverride());
+                bodies.add(client.formatRequestBody(request.getMessages(), settings, provider, options));
+            }
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        }
+        return bodies;
+    }
+
+    private BatchRecord create(List<BatchRequest> requests, List<String> bodies, PromptlySettings settings) {
+        LLMProvider provider = settings.getSelectedProvider();
+        BatchRecord record = new BatchRecord();
+        record.setId(UUID.randomUUID().toString());
+        record.setProvider(provider);
+        try {
+            // Provider-assigned formats restrict custom ids, so requests go out as r0, r1, ... and are mapped back
+            List<String> customIds = new ArrayList<>(requests.size());
+            for (int i = 0; i < requests.size(); i++) {
+                BatchRequest request = requests.get(i);
+                String customId = "r" + i;
+                customIds.add(customId);
+                record.getRequestIds().put(customId, request.getId());
+                if (request.getSource() != null) {
+                    record.getSources().put(customId, request.getSource());
+                }
+            }
+
+            if (provider == LLMProvider.OPENAI) {
+                createOpenAi(record, customIds, bodies, settings);
+            } else {
+                createAnthropic(record, customIds, bodies, settings);
+            }
+            record.setSubmittedAt(System.currentTimeMillis());
+            store.save(record);
+            LOG.info("Submitted batch job " + record.getId() + " with " + requests.size() + " requests as "
+                    + record.getRemoteId());
+            return record;
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    private void createOpenAi(BatchRecord record, List<String> customIds, List<String> bodies,
+                              PromptlySettings settings) throws IOException {
+        String endpointPath = HttpUrl.get(settings.getEndpoint(LLMProvider.OPENAI)).encodedPath();
+        StringBuilder lines = new StringBuilder();
+        for (int i = 0; i < customIds.size(); i++) {
+            ObjectNode line = objectMapper.createObjectNode();
+            line.put("custom_id", customIds.get(i));
+            line.put("method", "POST");
+            line.put("url", endpointPath);
+            // Already serialized by the client; embedded as is instead of being parsed again
+            line.putRawValue("body", new RawValue(bodies.get(i)));
+            lines.append(objectMapper.writeValueAsString(line)).append('\n');
+        }
+
+        RequestBody upload = new MultipartBody.Builder()
+                .setType(MultipartBody.FORM)
+                .addFormDataPart("purpose", "batch")
+                .addFormDataPart("file", record.getId() + ".jsonl",
+                        RequestBody.create(lines.toString().getBytes(StandardCharsets.UTF_8), JSONL))
+                .build();
+        JsonNode file = call(LLMProvider.OPENAI, settings, request(openAiBase(settings) + "/files", settings,
+                LLMProvider.OPENAI).post(upload));
+        record.setInputFileId(file.path("id").asText());
+
+        ObjectNode batch = objectMapper.createObjectNode();
+        batch.put("input_file_id", record.getInputFileId());
+        batch.put("endpoint", endpointPath);
+        batch.put("completion_window", "24h");
+        JsonNode created = call(LLMProvider.OPENAI, settings, request(openAiBase(settings) + "/batches", settings,
+                LLMProvider.OPENAI).post(RequestBody.create(objectMapper.writeValueAsBytes(batch), JSON)));
+        record.setRemoteId(created.path("id").asText());
+    }
+
+    private void createAnthropic(BatchRecord record, List<String> customIds, List<String> bodies,
+                                 PromptlySettings settings) throws IOException {
+        ObjectNode batch = objectMapper.createObjectNode();
+        ArrayNode requests = batch.putArray("requests");
+        for (int i = 0; i < customIds.size(); i++) {
+            ObjectNode request = requests.addObject();
+            request.put("custom_id", customIds.get(i));
+            request.putRawValue("params", new RawValue(bodies.get(i)));
+        }
+        JsonNode created = call(LLMProvider.ANTHROPIC, settings, request(anthropicBase(settings), settings,
+                LLMProvider.ANTHROPIC).post(RequestBody.create(objectMapper.writeValueAsBytes(batch), JSON)));
+        record.setRemoteId(created.path("id").asText());
+    }
+
+    /**
+     * Polls a job until it is final, then fetches, stores and returns its results.
+     */
+    private CompletableFuture<List<BatchResult>> track(BatchRecord record, PromptlySettings settings) {
+        CompletableFuture<List<BatchResult>> results = new CompletableFuture<>();
+        executor.schedule(new Poll(record, settings, results), pollIntervalMillis, TimeUnit.MILLISECONDS);
+        return results;
+    }
+
+    private final class Poll implements Runnable {
+        private final BatchRecord record;
+        private final PromptlySettings settings;
+        private final CompletableFuture<List<BatchResult>> results;
+        private int failures;
+
+        Poll(BatchRecord record, PromptlySettings settings, CompletableFuture<List<BatchResult>> results) {
+            this.record = record;
+            this.settings = settings;
+            this.results = results;
+        }
+
+        @Override
+        public void run() {
+            if (results.isDone()) {
+                return;
+            }
+            try {
+                BatchStatus previous = record.getStatus();
+                refresh(record, settings);
+                if (record.getStatus().isFinal()) {
+                    transfers.execute(this::finish);
+                    return;
+                }
+                if (record.getStatus() != previous) {
+                    store.save(record);
+                }
+                failures = 0;
+            } catch (Exception e) {
+                retry(e);
+                return;
+            }
+            executor.schedule(this, pollIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+
+        private void finish() {
+            if (results.isDone()) {
+                return;
+            }
+            try {
+                List<BatchResult> fetched = fetchResults(record, settings);
+                store.saveResults(record.getId(), fetched);
+                record.setFinishedAt(System.currentTimeMillis());
+                store.save(record);
+                results.complete(fetched);
+            } catch (Exception e) {
+                retry(e);
+            }
+        }
+
+        private void retry(Exception e) {
+            // Jobs run for hours; a few failed polls or downloads are no reason to give up on one
+            if (++failures >= MAX_POLL_FAILURES) {
+                results.completeExceptionally(e);
+                return;
+            }
+            LOG.log(Level.FINE, "Polling batch job " + record.getId() + " failed", e);
+            executor.schedule(this, pollIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void refresh(BatchRecord record, PromptlySettings settings) throws IOException {
+        if (record.getProvider() == LLMProvider.OPENAI) {
+            JsonNode batch = call(LLMProvider.OPENAI, settings,
+                    request(openAiBase(settings) + "/batches/" + record.getRemoteId(), settings, LLMProvider.OPENAI));
+            record.setStatus(openAiStatus(batch.path("status").asText()));
+            record.setOutputLocation(textOrNull(batch.path("output_file_id")));
+            record.setErrorLocation(textOrNull(batch.path("error_file_id")));
+        } else {
+            JsonNode batch = call(LLMProvider.ANTHROPIC, settings,
+                    request(anthropicBase(settings) + "/" + record.getRemoteId(), settings, LLMProvider.ANTHROPIC));
+            // Individual requests may still have failed; their results say so
+            record.setStatus("ended".equals(batch.path("processing_status").asText())
+                    ? BatchStatus.COMPLETED : BatchStatus.IN_PROGRESS);
+            record.setOutputLocation(textOrNull(batch.path("results_url")));
+        }
+    }
+
+    private static BatchStatus openAiStatus(String status) {
+        switch (status) {
+            case "completed":
+                return BatchStatus.COMPLETED;
+            case "failed":
+                return BatchStatus.FAILED;
+            case "expired":
+                return BatchStatus.EXPIRED;
+            case "cancelled":
+                return BatchStatus.CANCELLED;
+            case "validating":
+                return BatchStatus.SUBMITTED;
+            default:
+                // in_progress, finalizing, cancelling
+                return BatchStatus.IN_PROGRESS;
+        }
+    }
+
+    /**
+     * Downloads the results of a final job and maps them back to the caller's requests.
+     */
+    private List<BatchResult> fetchResults(BatchRecord record, PromptlySettings settings) throws IOException {
+        Map<String, BatchResult> byCustomId = new HashMap<>();
+        LLMProvider provider = record.getProvider();
+        List<String> locations = new ArrayList<>();
+        if (record.getOutputLocation() != null) {
+            locations.add(record.getOutputLocation());
+        }
+        if (record.getErrorLocation() != null) {
+            locations.add(record.getErrorLocation());
+        }
+
+        for (String location : locations) {
+            String url = provider == LLMProvider.OPENAI
+                    ? openAiBase(settings) + "/files/" + location + "/content" : location;
+            Request request = request(url, settings, provider).build();
+            try (Response response = client.httpClientFor(provider, settings).newCall(request).execute()) {
+                ResponseBody body = response.body();
+                if (!response.isSuccessful() || body == null) {
+                    throw new IOException("Unexpected response " + response);
+                }
+                // Results can be large; parsed line by line as they are downloaded
+                BufferedSource source = body.source();
+                String line;
+                while ((line = source.readUtf8Line()) != null) {
+                    if (line.isBlank()) {
+                        continue;
+                    }
+                    JsonNode node = objectMapper.readTree(line);
+                    String customId = node.path("custom_id").asText();
+                    byCustomId.put(customId, provider == LLMProvider.OPENAI
+                            ? openAiResult(record, customId, node) : anthropicResult(record, customId, node));
+                }
+            }
+        }
+
+        List<BatchResult> results = new ArrayList<>(record.getRequestIds().size());
+        for (Map.Entry<String, String> request : record.getRequestIds().entrySet()) {
+            BatchResult result = byCustomId.get(request.getKey());
+            results.add(result != null ? result : BatchResult.failure(request.getValue(),
+                    record.getSources().get(request.getKey()), "No result, batch job " + record.getStatus()));
+        }
+        return results;
+    }
+
+    private BatchResult openAiResult(BatchRecord record, String customId, JsonNode line) throws IOException {
+        String id = record.getRequestIds().get(customId);
+        String source = record.getSources().get(customId);
+        JsonNode response = line.path("response");
+        if (line.hasNonNull("error")) {
+            return BatchResult.failure(id, source, line.path("error").path("message").asText("Request failed"));
+        }
+        if (response.path("status_code").asInt() != 200) {
+            return BatchResult.failure(id, source, "HTTP " + response.path("status_code").asInt() + ": "
+                    + response.path("body").path("error").path("message").asText());
+        }
+        return BatchResult.success(id, source,
+                client.parseResponse(response.path("body"), LLMProvider.OPENAI).getText());
+    }
+
+    private BatchResult anthropicResult(BatchRecord record, String customId, JsonNode line) throws IOException {
+        String id = record.getRequestIds().get(customId);
+        String source = record.getSources().get(customId);
+        JsonNode result = line.path("result");
+        String type = result.path("type").asText();
+        if ("succeeded".equals(type)) {
+            return BatchResult.success(id, source,
+                    client.parseResponse(result.path("message"), LLMProvider.ANTHROPIC).getText());
+        }
+        JsonNode error = result.path("error").has("error") ? result.path("error").path("error") : result.path("error");
+        return BatchResult.failure(id, source, error.path("message").asText(type));
+    }
+
+    private JsonNode call(LLMProvider provider, PromptlySettings settings, Request.Builder request) throws IOException {
+        try (Response response = client.httpClientFor(provider, settings).newCall(request.build()).execute()) {
+            ResponseBody body = response.body();
+            if (!response.isSuccessful() || body == null) {
+                throw new IOException("Unexpected response " + response);
+            }
+            return objectMapper.readTree(body.byteStream());
+        }
+    }
+
+    private static Request.Builder request(String url, PromptlySettings settings, LLMProvider provider) {
+        return new Request.Builder()
+                .url(url)
+                .addHeader("Authorization", "Bearer " + settings.getApiKey(provider));
+    }
+
+    /**
+     * The API root the files and batches live under, from the configured chat completions endpoint.
+     */
+    private static String openAiBase(PromptlySettings settings) throws IOException {
+        String endpoint = settings.getEndpoint(LLMProvider.OPENAI);
+        if (!endpoint.endsWith(OPENAI_CHAT_PATH)) {
+            throw new IOException("Cannot find the batch API for endpoint " + endpoint);
+        }
+        return endpoint.substring(0, endpoint.length() - OPENAI_CHAT_PATH.length());
+    }
+
+    private static String anthropicBase(PromptlySettings settings) {
+        return settings.getEndpoint(LLMProvider.ANTHROPIC) + "/batches";
+    }
+
+    private static String textOrNull(JsonNode node) {
+        return node.isMissingNode() || node.isNull() ? null : node.asText();
+    }
+}
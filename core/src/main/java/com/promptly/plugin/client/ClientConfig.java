@@ -0,0 +1,72 @@
+package com.promptly.plugin.client;
+
+import com.promptly.plugin.models.LLMProvider;
+import com.promptly.plugin.models.PromptlySettings;
+import okhttp3.Protocol;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * The HTTP settings of one provider's client. Two configs are equal when they would build the same client,
+ * so comparing them tells whether a settings change needs a new one.
+ */
+final class ClientConfig {
+    private static final List<Protocol> HTTP_2 = List.of(Protocol.HTTP_2, Protocol.HTTP_1_1);
+    private static final List<Protocol> HTTP_1 = List.of(Protocol.HTTP_1_1);
+
+    private final int connectTimeoutSeconds;
+    private final int readTimeoutSeconds;
+    private final int maxIdleConnections;
+    private final List<Protocol> protocols;
+
+    private ClientConfig(int connectTimeoutSeconds, int readTimeoutSeconds, int maxIdleConnections,
+                         List<Protocol> protocols) {
+        this.connectTimeoutSeconds = connectTimeoutSeconds;
+        this.readTimeoutSeconds = readTimeoutSeconds;
+        this.maxIdleConnections = maxIdleConnections;
+        this.protocols = protocols;
+    }
+
+    static ClientConfig of(LLMProvider provider, PromptlySettings settings) {
+        // Local servers speak plain HTTP/1.1; cloud APIs multiplex requests over one HTTP/2 connection
+        return new ClientConfig(settings.getConnectTimeoutSeconds(), settings.getReadTimeoutSeconds(provider),
+                settings.getMaxIdleConnections(), provider.isLocal() ? HTTP_1 : HTTP_2);
+    }
+
+    int getConnectTimeoutSeconds() {
+        return connectTimeoutSeconds;
+    }
+
+    int getReadTimeoutSeconds() {
+        return readTimeoutSeconds;
+    }
+
+    int getMaxIdleConnections() {
+        return maxIdleConnections;
+    }
+
+    List<Protocol> getProtocols() {
+        return protocols;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ClientConfig)) {
+            return false;
+        }
+        ClientConfig other = (ClientConfig) o;
+        return connectTimeoutSeconds == other.connectTimeoutSeconds
+                && readTimeoutSeconds == other.readTimeoutSeconds
+                && maxIdleConnections == other.maxIdleConnections
+                && protocols.equals(other.protocols);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(connectTimeoutSeconds, readTimeoutSeconds, maxIdleConnections, protocols);
+    }
+}
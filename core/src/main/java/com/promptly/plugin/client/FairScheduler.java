@@ -0,0 +1,119 @@
+package com.promptly.plugin.client;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Limits the requests in flight and hands free slots to sessions in turn.
+ * <p>
+ * Each session has its own queue, and the sessions with queued work take turns, so a chat tab that queues up
+ * several requests (a tool loop, a burst of questions) cannot starve another tab's next question.
+ * Within a session requests start in submission order.
+ */
+final class FairScheduler {
+    private final int maxInFlight;
+    // Sessions with queued requests, in the order they get their next turn
+    private final Map<String, ArrayDeque<Ticket>> queues = new LinkedHashMap<>();
+    private int inFlight;
+
+    FairScheduler(int maxInFlight) {
+        this.maxInFlight = Math.max(1, maxInFlight);
+    }
+
+    /**
+     * Queues {@code start} for the session, running it right away if a slot is free.
+     * {@code start} is called without holding the scheduler's lock; the request it starts must call
+     * {@link Ticket#done()} once it finished, successfully or not.
+     *
+     * @param session Session to account the request to; null for requests that belong to no session
+     */
+    Ticket submit(String session, Runnable start) {
+        Ticket ticket = new Ticket(session != null ? session : "", start);
+        synchronized (this) {
+            queues.computeIfAbsent(ticket.session, key -> new ArrayDeque<>()).add(ticket);
+        }
+        dispatch();
+        return ticket;
+    }
+
+    synchronized int getQueued() {
+        return queues.values().stream().mapToInt(ArrayDeque::size).sum();
+    }
+
+    synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    private void dispatch() {
+        while (true) {
+            Ticket next;
+            synchronized (this) {
+                if (inFlight >= maxInFlight || queues.isEmpty()) {
+                    return;
+                }
+                Iterator<Map.Entry<String, ArrayDeque<Ticket>>> sessions = queues.entrySet().iterator();
+                Map.Entry<String, ArrayDeque<Ticket>> first = sessions.next();
+                next = first.getValue().poll();
+                sessions.remove();
+                // Back of the line, behind every other session waiting for a slot
+                if (!first.getValue().isEmpty()) {
+                    queues.put(first.getKey(), first.getValue());
+                }
+                next.started = true;
+                inFlight++;
+            }
+            next.start.run();
+        }
+    }
+
+    /**
+     * A request submitted to the scheduler.
+     */
+    final class Ticket {
+        private final String session;
+        private final Runnable start;
+        private boolean started;
+        private boolean done;
+
+        private Ticket(String session, Runnable start) {
+            this.session = session;
+            this.start = start;
+        }
+
+        /**
+         * Removes the request from its queue if it has not started yet.
+         *
+         * @return true if it was still queued and will now never start
+         */
+        boolean cancel() {
+            synchronized (FairScheduler.this) {
+                if (started) {
+                    return false;
+                }
+                ArrayDeque<Ticket> queue = queues.get(session);
+                if (queue != null && queue.remove(this) && queue.isEmpty()) {
+                    queues.remove(session);
+                }
+                started = true;
+                done = true;
+                return true;
+            }
+        }
+
+        /**
+         * Frees the request's slot for the next session in line. Calls after the first are ignored.
+         */
+        void done() {
+            synchronized (FairScheduler.this) {
+                if (done) {
+                    return;
+                }
+                done = true;
+                inFlight--;
+            }
+            dispatch();
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.promptly.plugin.client;
+
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Application interceptor for endpoints that turn out not to decode gzip request bodies, like Ollama and most
+ * hosted APIs: a compressed request answered with 415, or with a 400 that complains about the encoding, is sent
+ * once more uncompressed, and the endpoint is remembered so that later requests to it are not compressed at all.
+ * Other 400s, such as a prompt over the context length, are real errors and returned as they are.
+ */
+final class GzipFallbackInterceptor implements Interceptor {
+    /** Enough of an error body to find the complaint in. */
+    private static final long ERROR_PEEK_BYTES = 4096;
+
+    /**
+     * Request tag carrying the body as it was before compression.
+     */
+    static final class Tag {
+        private final byte[] uncompressed;
+
+        Tag(byte[] uncompressed) {
+            this.uncompressed = uncompressed;
+        }
+    }
+
+    private final Set<HttpUrl> rejectingEndpoints = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Whether requests to the endpoint may be compressed, i.e. it has not rejected a compressed body yet.
+     */
+    boolean accepts(String endpoint) {
+        HttpUrl url = HttpUrl.parse(endpoint);
+        return url == null || !rejectingEndpoints.contains(url);
+    }
+
+    @NotNull
+    @Override
+    public Response intercept(@NotNull Chain chain) throws IOException {
+        Request request = chain.request();
+        Tag tag = request.tag(Tag.class);
+        if (tag == null || request.body() == null) {
+            return chain.proceed(request);
+        }
+
+        Response response = chain.proceed(request);
+        if (!rejectsEncoding(response)) {
+            return response;
+        }
+        response.close();
+        rejectingEndpoints.add(request.url());
+        Request uncompressed = request.newBuilder()
+                .removeHeader("Content-Encoding")
+                .post(RequestBody.create(tag.uncompressed, request.body().contentType()))
+                .build();
+        return chain.proceed(uncompressed);
+    }
+
+    private static boolean rejectsEncoding(Response response) throws IOException {
+        if (response.code() == 415) {
+            return true;
+        }
+        if (response.code() != 400) {
+            return false;
+        }
+        String error = response.peekBody(ERROR_PEEK_BYTES).string().toLowerCase(Locale.ROOT);
+        return error.contains("encoding") || error.contains("gzip");
+    }
+}
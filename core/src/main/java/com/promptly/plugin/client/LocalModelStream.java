@@ -0,0 +1,117 @@
+package com.promptly.plugin.client;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.promptly.plugin.models.ModelReply;
+import com.promptly.plugin.tracing.Trace;
+import okio.BufferedSource;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Reads the stream of a local model server's chat endpoint, one generated piece per event. Ollama sends
+ * newline-delimited JSON, {@code {"message":{"content":"..."},"done":false}} and then a final object with
+ * {@code "done":true} and the server's counters. llama.cpp's server sends server-sent events instead:
+ * {@code data: {"choices":[{"delta":{"content":"..."}}]}} up to {@code data: [DONE]}, or
+ * {@code data: {"content":"...","stop":false}} up to {@code "stop":true} from its native endpoint.
+ */
+final class LocalModelStream {
+    private static final Logger LOG = Logger.getLogger(LocalModelStream.class.getName());
+
+    private final ObjectMapper objectMapper;
+    private final Consumer<String> listener;
+    private final StringBuilder text = new StringBuilder();
+    private long firstTokenNanos;
+    private boolean done;
+
+    /**
+     * @param listener Receives each piece of text as it arrives; may be null
+     */
+    LocalModelStream(ObjectMapper objectMapper, Consumer<String> listener) {
+        this.objectMapper = objectMapper;
+        this.listener = listener;
+    }
+
+    /**
+     * Reads the stream to its end, recording the prompt processing and generation phases into the trace.
+     */
+    ModelReply read(BufferedSource source, Trace trace) throws IOException {
+        long startNanos = System.nanoTime();
+        String line;
+        while (!done && (line = source.readUtf8Line()) != null) {
+            accept(line);
+        }
+        long endNanos = System.nanoTime();
+        if (trace != null && firstTokenNanos != 0) {
+            // Time to the first token is the prompt prefill, which a reused prompt cache skips
+            trace.record("prefill", Trace.CATEGORY_NETWORK, startNanos, firstTokenNanos);
+            trace.record("generate", Trace.CATEGORY_NETWORK, firstTokenNanos, endNanos);
+        }
+        return reply();
+    }
+
+    /**
+     * Parses a complete stream held in memory, e.g. a replayed recording.
+     */
+    ModelReply parse(String body) throws IOException {
+        for (String line : body.split("\n")) {
+            accept(line);
+        }
+        return reply();
+    }
+
+    private void accept(String line) throws IOException {
+        if (line.isBlank() || line.startsWith(":") || line.startsWith("event:")) {
+            return;
+        }
+        if (line.startsWith("data:")) {
+            line = line.substring("data:".length()).trim();
+            if (line.equals("[DONE]")) {
+                done = true;
+                return;
+            }
+        }
+        JsonNode node = objectMapper.readTree(line);
+        if (node.hasNonNull("error")) {
+            JsonNode error = node.get("error");
+            throw new IOException("Local model server error: "
+                    + (error.isObject() ? error.path("message").asText(error.toString()) : error.asText()));
+        }
+
+        String piece;
+        if (node.has("choices")) {
+            piece = node.path("choices").path(0).path("delta").path("content").asText("");
+        } else if (node.has("message")) {
+            piece = node.path("message").path("content").asText("");
+        } else {
+            piece = node.path("content").asText("");
+        }
+        if (!piece.isEmpty()) {
+            if (firstTokenNanos == 0) {
+                firstTokenNanos = System.nanoTime();
+            }
+            text.append(piece);
+            if (listener != null) {
+                listener.accept(piece);
+            }
+        }
+
+        if (node.path("stop").asBoolean()) {
+            done = true;
+        } else if (node.path("done").asBoolean()) {
+            done = true;
+            if (LOG.isLoggable(Level.FINE)) {
+                LOG.fine("Local model evaluated " + node.path("prompt_eval_count").asInt() + " prompt tokens, generated "
+                        + node.path("eval_count").asInt() + ", load " + node.path("load_duration").asLong() / 1_000_000 + " ms");
+            }
+        }
+    }
+
+    private ModelReply reply() {
+        return new ModelReply(text.toString(), List.of());
+    }
+}
@@ -0,0 +1,53 @@
+package com.promptly.plugin.client;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Pins conversations to the slots of a local model server, so each follow-up turn lands in the slot that still
+ * holds the conversation's prompt in its KV cache and only the new messages need prefill.
+ * When all slots are taken, the conversation used least recently gives up its slot.
+ */
+final class LocalSlots {
+    // Access order, least recently used first
+    private final Map<String, Integer> slotsBySession = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * @param session Conversation id, or null for one-off requests
+     * @param slots Number of slots the server has
+     * @return the slot to request, or -1 to let the server choose
+     */
+    synchronized int slotFor(String session, int slots) {
+        if (session == null || slots <= 0) {
+            return -1;
+        }
+        Integer slot = slotsBySession.get(session);
+        if (slot != null && slot < slots) {
+            return slot;
+        }
+
+        boolean[] taken = new boolean[slots];
+        for (Iterator<Integer> it = slotsBySession.values().iterator(); it.hasNext(); ) {
+            int assigned = it.next();
+            if (assigned >= slots) {
+                // The slot count was lowered
+                it.remove();
+            } else {
+                taken[assigned] = true;
+            }
+        }
+        for (int i = 0; i < slots; i++) {
+            if (!taken[i]) {
+                slotsBySession.put(session, i);
+                return i;
+            }
+        }
+
+        Iterator<Map.Entry<String, Integer>> eldest = slotsBySession.entrySet().iterator();
+        int reused = eldest.next().getValue();
+        eldest.remove();
+        slotsBySession.put(session, reused);
+        return reused;
+    }
+}
@@ -0,0 +1,56 @@
+package com.promptly.plugin.context;
+
+import com.promptly.plugin.models.ChatMessage;
+import com.promptly.plugin.tokenizer.Tokenizer;
+import com.promptly.plugin.tokenizer.Tokenizers;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decides which of a long conversation's turns to replace with a summary; the plugin's ConversationCompactor
+ * does the summarizing and swaps the result in.
+ */
+public final class CompactionPlan {
+    private CompactionPlan() {
+    }
+
+    /**
+     * Returns the oldest messages to summarize, or an empty list if the history is small enough.
+     * The last {@code keepTurns} user turns, and everything after them, are always kept verbatim.
+     *
+     * @param history The conversation, oldest first; may start with an earlier summary
+     * @param thresholdTokens Size above which the conversation gets compacted
+     */
+    public static List<ChatMessage> selectTurns(List<ChatMessage> history, Tokenizer tokenizer, int thresholdTokens,
+                                                int keepTurns) {
+        int total = Tokenizers.countMessages(history, tokenizer);
+        if (total <= thresholdTokens) {
+            return List.of();
+        }
+
+        // Walk back to the start of the oldest user turn we keep
+        int userTurns = 0;
+        int cut = history.size();
+        for (int i = history.size() - 1; i >= 0 && userTurns < Math.max(1, keepTurns); i--) {
+            if (history.get(i).getRole() == ChatMessage.Role.USER) {
+                userTurns++;
+                cut = i;
+            }
+        }
+
+        // A single summary message in front is not worth re-summarizing on its own
+        if (cut <= 1) {
+            return List.of();
+        }
+        List<ChatMessage> older = new ArrayList<>(history.subList(0, cut));
+
+        // When the kept turns alone are over the threshold, no summary gets the conversation below it. Without this
+        // check every new turn would trigger another summary; instead wait until the older part is worth one.
+        int olderTokens = Tokenizers.countMessages(older, tokenizer);
+        if (total - olderTokens >= thresholdTokens && olderTokens < thresholdTokens / 2) {
+            return List.of();
+        }
+        return older;
+    }
+}
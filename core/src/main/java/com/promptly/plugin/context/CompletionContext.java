@@ -0,0 +1,108 @@
+package com.promptly.plugin.context;
+
+import com.promptly.plugin.models.ChatMessage;
+
+import java.util.List;
+
+/**
+ * Text around the caret for inline code completion, cut to whole lines within a character budget.
+ */
+public final class CompletionContext {
+    public static final String CURSOR_MARKER = "<CURSOR>";
+
+    private static final String SYSTEM_PROMPT = "You are a code completion engine. Reply with only the code to insert at "
+            + CURSOR_MARKER + ": no explanations, no markdown, no repetition of the surrounding code. "
+            + "Prefer completing the current statement or line; reply with nothing if no completion is obvious.";
+
+    private final String filePath;
+    private final String prefix;
+    private final String suffix;
+
+    private CompletionContext(String filePath, String prefix, String suffix) {
+        this.filePath = filePath;
+        this.prefix = prefix;
+        this.suffix = suffix;
+    }
+
+    /**
+     * Takes up to {@code maxPrefixChars} before and {@code maxSuffixChars} after {@code offset}.
+     * Only copies the two windows, so it is cheap on large files.
+     */
+    public static CompletionContext around(String filePath, CharSequence text, int offset,
+                                           int maxPrefixChars, int maxSuffixChars) {
+        int start = Math.max(0, offset - maxPrefixChars);
+        if (start > 0) {
+            // Start at the next full line
+            int lineStart = indexOf(text, '\n', start, offset);
+            start = lineStart >= 0 ? lineStart + 1 : start;
+        }
+        int end = Math.min(text.length(), offset + maxSuffixChars);
+        if (end < text.length()) {
+            // End at the last full line
+            int lineEnd = lastIndexOf(text, '\n', offset, end);
+            end = lineEnd >= 0 ? lineEnd : end;
+        }
+        return new CompletionContext(filePath, text.subSequence(start, offset).toString(),
+                text.subSequence(offset, end).toString());
+    }
+
+    public String getPrefix() {
+        return prefix;
+    }
+
+    public String getSuffix() {
+        return suffix;
+    }
+
+    public List<ChatMessage> toMessages() {
+        return List.of(
+                new ChatMessage(ChatMessage.Role.SYSTEM, SYSTEM_PROMPT),
+                new ChatMessage(ChatMessage.Role.USER, "File: " + filePath + "\n```\n"
+                        + prefix + CURSOR_MARKER + suffix + "\n```"));
+    }
+
+    /**
+     * Turns a model reply into the text to insert: strips code fences and the cursor marker, and drops
+     * a trailing repetition of the line after the caret. Returns an empty string if nothing is left.
+     */
+    public String cleanCompletion(String reply) {
+        String completion = reply;
+        if (completion.startsWith("```")) {
+            int firstLineEnd = completion.indexOf('\n');
+            completion = firstLineEnd >= 0 ? completion.substring(firstLineEnd + 1) : "";
+            int fence = completion.lastIndexOf("```");
+            if (fence >= 0) {
+                completion = completion.substring(0, fence);
+            }
+        }
+        completion = completion.replace(CURSOR_MARKER, "");
+        while (completion.endsWith("\n") || completion.endsWith("\r")) {
+            completion = completion.substring(0, completion.length() - 1);
+        }
+
+        String nextLine = suffix.strip().lines().findFirst().orElse("");
+        if (!nextLine.isEmpty() && completion.stripTrailing().endsWith(nextLine)) {
+            completion = completion.stripTrailing();
+            completion = completion.substring(0, completion.length() - nextLine.length()).stripTrailing();
+        }
+        return completion.isBlank() ? "" : completion;
+    }
+
+    private static int indexOf(CharSequence text, char c, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (text.charAt(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int lastIndexOf(CharSequence text, char c, int from, int to) {
+        for (int i = to - 1; i >= from; i--) {
+            if (text.charAt(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,78 @@
+package com.promptly.plugin.context;
+
+import java.util.Map;
+
+/**
+ * Assembles the CONTEXT system message sent along with chat and code generation prompts.
+ */
+public final class ContextBuilder {
+    private ContextBuilder() {
+    }
+
+    /**
+     * Builds the context text for a file. The selection is sent when present, the whole file otherwise.
+     *
+     * @param filePath Path of the file the context comes from
+     * @param fileContent Full text of the file, may be null when only a selection is sent
+     * @param selectedText Selected text, or null/empty if there is no selection
+     */
+    public static String build(String filePath, CharSequence fileContent, String selectedText) {
+        return build(filePath, codeToSend(fileContent, selectedText), hasSelection(selectedText), false);
+    }
+
+    /**
+     * Like {@link #build(String, CharSequence, String)}, but sends the code through the {@link ContextMinifier}.
+     *
+     * @param minified Result of minifying {@link #codeToSend}
+     * @param selectedText Selected text, or null/empty if the whole file was minified
+     */
+    public static String build(String filePath, MinifiedText minified, String selectedText) {
+        return build(filePath, minified.getText(), hasSelection(selectedText), minified.getIndentUnit() > 1);
+    }
+
+    /**
+     * The code a context for this file and selection contains: the selection when present, the whole file otherwise.
+     */
+    public static CharSequence codeToSend(CharSequence fileContent, String selectedText) {
+        return hasSelection(selectedText) ? selectedText : fileContent;
+    }
+
+    /**
+     * Appends summaries of related files to a context, so the model knows what they do without their full text.
+     *
+     * @param context Context built for the current file
+     * @param summaries Summary per file path, in the order to list them
+     */
+    public static String withRelatedSummaries(String context, Map<String, String> summaries) {
+        if (summaries.isEmpty()) {
+            return context;
+        }
+        StringBuilder contextBuilder = new StringBuilder(context);
+        contextBuilder.append("Related files (summaries):\n");
+        for (Map.Entry<String, String> summary : summaries.entrySet()) {
+            contextBuilder.append("- ").append(summary.getKey()).append(": ")
+                    .append(summary.getValue().strip().replace('\n', ' ')).append("\n");
+        }
+        return contextBuilder.toString();
+    }
+
+    private static String build(String filePath, CharSequence code, boolean selection, boolean narrowed) {
+        StringBuilder contextBuilder = new StringBuilder();
+        contextBuilder.append("CONTEXT:\n");
+        contextBuilder.append("File: ").append(filePath).append("\n");
+        if (narrowed) {
+            contextBuilder.append("Indented with one space per level; answer in the same style.\n");
+        }
+        
+        if (selection) {
+            contextBuilder.append("Selected code:\n```\n").append(code).append("\n```\n");
+        } else {
+            contextBuilder.append("File content:\n```\n").append(code).append("\n```\n");
+        }
+        return contextBuilder.toString();
+    }
+
+    private static boolean hasSelection(String selectedText) {
+        return selectedText != null && !selectedText.isEmpty();
+    }
+}
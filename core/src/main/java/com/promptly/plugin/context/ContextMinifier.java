@@ -0,0 +1,331 @@
+package com.promptly.plugin.context;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Shrinks source text before it is sent as context, removing what costs tokens but tells the model little:
+ * license headers, import blocks, comment banners, trailing whitespace, runs of blank lines and wide indentation.
+ * <p>
+ * Removed lines are replaced by a one-line note naming the original line range. Code is otherwise left alone,
+ * and multi-line string literals are kept exactly. Text that an answer will replace goes through
+ * {@link #minifyForRewrite} instead, which removes nothing. Rules are chosen per file extension; {@link #register}
+ * adds or replaces them.
+ */
+public final class ContextMinifier {
+    static final String RULE_LICENSE = "license header";
+    static final String RULE_IMPORTS = "imports";
+    static final String RULE_BANNERS = "comment banners";
+    static final String RULE_TRAILING = "trailing whitespace";
+    static final String RULE_BLANK_LINES = "blank lines";
+    static final String RULE_INDENTATION = "indentation";
+
+    private static final int MIN_IMPORTS = 3;
+    private static final int MIN_BANNER_LENGTH = 8;
+    private static final Pattern DECORATION_RUN = Pattern.compile("([-=*#~+_/])\\1{3,}");
+    private static final Pattern LICENSE_WORDS = Pattern.compile("(?i).*\\b(copyright|license[ds]?|licensing)\\b.*");
+
+    private static final Map<String, LanguageRules> RULES = new ConcurrentHashMap<>();
+
+    static {
+        LanguageRules java = new LanguageRules("//", "/*", "*/",
+                Pattern.compile("\\s*import\\s+(static\\s+)?[\\w.]+(\\.\\*)?\\s*;\\s*"), true, false, "\"\"\"");
+        LanguageRules groovy = new LanguageRules("//", "/*", "*/",
+                Pattern.compile("\\s*import\\s+(static\\s+)?[\\w.]+(\\.\\*)?\\s*;\\s*"), true, false,
+                "\"\"\"", "'''");
+        LanguageRules kotlin = new LanguageRules("//", "/*", "*/",
+                Pattern.compile("\\s*import\\s+[\\w.`]+(\\.\\*)?(\\s+as\\s+\\w+)?\\s*;?\\s*"), true, false, "\"\"\"");
+        LanguageRules script = new LanguageRules("//", "/*", "*/",
+                Pattern.compile("\\s*import\\s+[^;]*\\bfrom\\s+['\"][^'\"]+['\"]\\s*;?\\s*|\\s*import\\s+['\"][^'\"]+['\"]\\s*;?\\s*"),
+                true, false, "`");
+        LanguageRules c = new LanguageRules("//", "/*", "*/",
+                Pattern.compile("\\s*#\\s*include\\s*[<\"][^>\"]+[>\"]\\s*"), true, false);
+        LanguageRules csharp = new LanguageRules("//", "/*", "*/",
+                Pattern.compile("\\s*using\\s+(static\\s+)?[\\w.]+\\s*;\\s*"), true, false, "\"\"\"");
+        LanguageRules go = new LanguageRules("//", "/*", "*/", null, false, false, "`");
+        LanguageRules cLike = new LanguageRules("//", "/*", "*/", null, true, false);
+        LanguageRules tripleQuoted = new LanguageRules("//", "/*", "*/", null, true, false, "\"\"\"", "'''");
+        LanguageRules python = new LanguageRules("#", null, null,
+                Pattern.compile("\\s*(import\\s+[\\w., ]+|from\\s+[\\w.]+\\s+import\\s+[\\w., *]+)\\s*"), true, true,
+                "\"\"\"", "'''");
+        LanguageRules hash = new LanguageRules("#", null, null, null, true, true);
+        LanguageRules xml = new LanguageRules(null, "<!--", "-->", null, true, false);
+
+        register(java, "java", "scala");
+        register(groovy, "groovy");
+        register(kotlin, "kt", "kts");
+        register(script, "js", "jsx", "ts", "tsx", "mjs");
+        register(c, "c", "h", "cc", "cpp", "hpp");
+        register(csharp, "cs");
+        register(go, "go");
+        register(cLike, "rs", "php");
+        register(tripleQuoted, "swift", "dart");
+        register(python, "py");
+        register(hash, "sh", "rb", "yaml", "yml", "toml", "properties");
+        register(xml, "xml", "html");
+    }
+
+    private ContextMinifier() {
+    }
+
+    /**
+     * Uses {@code rules} for files with the given extensions, without the dot.
+     */
+    public static void register(LanguageRules rules, String... extensions) {
+        for (String extension : extensions) {
+            RULES.put(extension.toLowerCase(Locale.ROOT), rules);
+        }
+    }
+
+    public static LanguageRules rulesFor(String filePath) {
+        int dot = filePath != null ? filePath.lastIndexOf('.') : -1;
+        if (dot < 0 || dot < filePath.lastIndexOf('/')) {
+            return LanguageRules.PLAIN;
+        }
+        return RULES.getOrDefault(filePath.substring(dot + 1).toLowerCase(Locale.ROOT), LanguageRules.PLAIN);
+    }
+
+    public static MinifiedText minify(String filePath, CharSequence text) {
+        return minify(rulesFor(filePath), text);
+    }
+
+    /**
+     * Minifies text that the answer will replace, such as the selection of a rewrite. Removing lines there would
+     * delete them from the file, so only the indentation is narrowed, which
+     * {@link MinifiedText#restoreIndentation} undoes.
+     */
+    public static MinifiedText minifyForRewrite(String filePath, CharSequence text) {
+        LanguageRules rules = rulesFor(filePath);
+        List<String> lines = new ArrayList<>(List.of(text.toString().split("\r?\n", -1)));
+        Map<String, Integer> removed = new LinkedHashMap<>();
+        BitSet verbatim = new BitSet();
+        String openText = null;
+        for (int i = 0; i < lines.size(); i++) {
+            verbatim.set(i, openText != null);
+            openText = rules.openTextAfter(lines.get(i), openText);
+        }
+        int indentUnit = rules.isNarrowIndentation() ? narrowIndentation(rules, lines, verbatim, removed) : 1;
+        return new MinifiedText(text, String.join("\n", lines), rules, indentUnit, removed);
+    }
+
+    public static MinifiedText minify(LanguageRules rules, CharSequence text) {
+        String[] lines = text.toString().split("\r?\n", -1);
+        List<String> out = new ArrayList<>(lines.length);
+        Map<String, Integer> removed = new LinkedHashMap<>();
+        BitSet verbatim = new BitSet();
+        String openText = null;
+
+        int i = 0;
+        int headerEnd = rules.hasComments() ? licenseHeaderEnd(rules, lines) : -1;
+        if (headerEnd >= 0) {
+            count(removed, RULE_LICENSE, lines, 0, headerEnd + 1);
+            out.add(rules.comment("[license header omitted, lines 1-" + (headerEnd + 1) + "]"));
+            i = headerEnd + 1;
+        }
+
+        while (i < lines.length) {
+            String line = lines[i];
+            if (openText != null) {
+                // Inside a multi-line string literal every character counts
+                verbatim.set(out.size());
+                out.add(line);
+                openText = rules.openTextAfter(line, openText);
+                i++;
+                continue;
+            }
+            String stripped = line.stripTrailing();
+            String trimmed = stripped.trim();
+
+            if (rules.isImport(stripped)) {
+                int end = importBlockEnd(rules, lines, i);
+                int imports = 0;
+                for (int j = i; j < end; j++) {
+                    imports += rules.isImport(lines[j]) ? 1 : 0;
+                }
+                if (imports >= MIN_IMPORTS) {
+                    count(removed, RULE_IMPORTS, lines, i, end);
+                    out.add(rules.comment("[" + imports + " imports omitted, lines " + (i + 1) + "-" + end + "]"));
+                    i = end;
+                    continue;
+                }
+            }
+
+            if (rules.hasComments() && isBanner(rules, trimmed)) {
+                removed.merge(RULE_BANNERS, stripped.length() + 1, Integer::sum);
+                i++;
+                continue;
+            }
+            if (rules.hasComments() && rules.isComment(trimmed)) {
+                // Shorten decorations like "// ---------- Section ----------"
+                String shortened = DECORATION_RUN.matcher(stripped).replaceAll("$1$1$1");
+                removed.merge(RULE_BANNERS, stripped.length() - shortened.length(), Integer::sum);
+                stripped = shortened;
+            }
+
+            if (trimmed.isEmpty() && (out.isEmpty() || out.get(out.size() - 1).isEmpty())) {
+                removed.merge(RULE_BLANK_LINES, 1, Integer::sum);
+                i++;
+                continue;
+            }
+            openText = rules.openTextAfter(line, null);
+            if (openText != null) {
+                // Trailing whitespace here already belongs to the string
+                out.add(line);
+            } else {
+                removed.merge(RULE_TRAILING, line.length() - line.stripTrailing().length(), Integer::sum);
+                out.add(trimmed.isEmpty() ? "" : stripped);
+            }
+            i++;
+        }
+
+        int indentUnit = rules.isNarrowIndentation() ? narrowIndentation(rules, out, verbatim, removed) : 1;
+
+        return new MinifiedText(text, String.join("\n", out), rules, indentUnit, removed);
+    }
+
+    /**
+     * Returns the last line of a leading comment that mentions a copyright or license, or -1.
+     */
+    private static int licenseHeaderEnd(LanguageRules rules, String[] lines) {
+        int start = 0;
+        while (start < lines.length && lines[start].isBlank()) {
+            start++;
+        }
+        if (start >= lines.length) {
+            return -1;
+        }
+
+        int end = -1;
+        String first = lines[start].trim();
+        if (rules.getBlockStart() != null && first.startsWith(rules.getBlockStart())) {
+            for (int i = start; i < lines.length; i++) {
+                if (lines[i].contains(rules.getBlockEnd())) {
+                    end = i;
+                    break;
+                }
+            }
+        } else if (rules.getLineComment() != null && first.startsWith(rules.getLineComment())
+                && !first.startsWith("#!")) {
+            end = start;
+            while (end + 1 < lines.length && lines[end + 1].trim().startsWith(rules.getLineComment())) {
+                end++;
+            }
+        }
+        if (end < 0) {
+            return -1;
+        }
+        for (int i = start; i <= end; i++) {
+            if (LICENSE_WORDS.matcher(lines[i]).matches()) {
+                return end;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the index after a run of import lines, which may be separated by blank lines.
+     */
+    private static int importBlockEnd(LanguageRules rules, String[] lines, int start) {
+        int end = start;
+        int i = start;
+        while (i < lines.length && (rules.isImport(lines[i]) || lines[i].isBlank())) {
+            if (rules.isImport(lines[i])) {
+                end = i + 1;
+            }
+            i++;
+        }
+        return end;
+    }
+
+    private static boolean isBanner(LanguageRules rules, String trimmed) {
+        if (trimmed.length() < MIN_BANNER_LENGTH || !rules.isComment(trimmed)) {
+            return false;
+        }
+        for (int i = 0; i < trimmed.length(); i++) {
+            if ("-=*#~+_/ ".indexOf(trimmed.charAt(i)) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reduces indentation to one space per level, in place. The level width is the narrowest indent in the text.
+     * Text is only narrowed when every indent is a whole number of levels, or one more for aligned comment
+     * continuations, so that {@link MinifiedText#restoreIndentation} can widen it back exactly. Tab-indented and
+     * mixed text, and lines inside multi-line string literals, are left alone.
+     *
+     * @return the original level width, or 1 if nothing was changed
+     */
+    private static int narrowIndentation(LanguageRules rules, List<String> lines, BitSet verbatim,
+                                         Map<String, Integer> removed) {
+        int unit = Integer.MAX_VALUE;
+        for (int i = 0; i < lines.size(); i++) {
+            if (verbatim.get(i)) {
+                continue;
+            }
+            String line = lines.get(i);
+            int indent = leadingSpaces(line);
+            if (indent < line.length() && line.charAt(indent) == '\t') {
+                return 1;
+            }
+            if (indent > 0 && !rules.isCommentContinuation(line, indent)) {
+                unit = Math.min(unit, indent);
+            }
+        }
+        if (unit == Integer.MAX_VALUE || unit < 2) {
+            return 1;
+        }
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i);
+            if (!verbatim.get(i) && levelIndent(rules, line) % unit != 0) {
+                return 1;
+            }
+        }
+
+        int saved = 0;
+        for (int i = 0; i < lines.size(); i++) {
+            if (verbatim.get(i)) {
+                continue;
+            }
+            String line = lines.get(i);
+            int indent = leadingSpaces(line);
+            int levels = levelIndent(rules, line);
+            int narrowed = indent - levels + levels / unit;
+            saved += indent - narrowed;
+            lines.set(i, " ".repeat(narrowed) + line.substring(indent));
+        }
+        removed.merge(RULE_INDENTATION, saved, Integer::sum);
+        return unit;
+    }
+
+    /**
+     * The part of a line's indent made of whole levels, without the extra space of an aligned comment continuation.
+     */
+    static int levelIndent(LanguageRules rules, String line) {
+        int indent = leadingSpaces(line);
+        return rules.isCommentContinuation(line, indent) ? indent - 1 : indent;
+    }
+
+    static int leadingSpaces(String line) {
+        int i = 0;
+        while (i < line.length() && line.charAt(i) == ' ') {
+            i++;
+        }
+        return i;
+    }
+
+    private static void count(Map<String, Integer> removed, String rule, String[] lines, int from, int to) {
+        int chars = 0;
+        for (int i = from; i < to; i++) {
+            chars += lines[i].length() + 1;
+        }
+        removed.merge(rule, chars, Integer::sum);
+    }
+}
@@ -0,0 +1,141 @@
+package com.promptly.plugin.context;
+
+import java.util.regex.Pattern;
+
+/**
+ * What the {@link ContextMinifier} may strip from a language's source: comment syntax for license headers
+ * and banners, which lines are imports, whether indentation can be narrowed, and which multi-line string
+ * literals must be left exactly as they are.
+ */
+public final class LanguageRules {
+    /**
+     * Rules for text of unknown type: only trailing whitespace and repeated blank lines are removed.
+     */
+    public static final LanguageRules PLAIN = new LanguageRules(null, null, null, null, false, true);
+
+    private final String lineComment;
+    private final String blockStart;
+    private final String blockEnd;
+    private final Pattern importLine;
+    private final boolean narrowIndentation;
+    private final boolean indentationSignificant;
+    private final String[] textDelimiters;
+
+    /**
+     * @param lineComment Line comment prefix, or null
+     * @param blockStart Block comment opener, or null
+     * @param blockEnd Block comment closer, or null
+     * @param importLine Matches a whole import line, or null to keep imports
+     * @param narrowIndentation Whether indentation may be reduced to one space per level
+     * @param indentationSignificant Whether indentation carries meaning, as in Python; no line is then taken
+     *                               for an aligned comment continuation
+     * @param textDelimiters Delimiters of string literals that may span lines, such as {@code """}
+     */
+    public LanguageRules(String lineComment, String blockStart, String blockEnd, Pattern importLine,
+                         boolean narrowIndentation, boolean indentationSignificant, String... textDelimiters) {
+        this.lineComment = lineComment;
+        this.blockStart = blockStart;
+        this.blockEnd = blockEnd;
+        this.importLine = importLine;
+        this.narrowIndentation = narrowIndentation;
+        this.indentationSignificant = indentationSignificant;
+        this.textDelimiters = textDelimiters;
+    }
+
+    public String getLineComment() {
+        return lineComment;
+    }
+
+    public String getBlockStart() {
+        return blockStart;
+    }
+
+    public String getBlockEnd() {
+        return blockEnd;
+    }
+
+    public boolean isNarrowIndentation() {
+        return narrowIndentation;
+    }
+
+    public boolean isIndentationSignificant() {
+        return indentationSignificant;
+    }
+
+    boolean isImport(String line) {
+        return importLine != null && importLine.matcher(line).matches();
+    }
+
+    /**
+     * Whether the line continues a block comment with a {@code *} aligned one space right of the opener,
+     * so that its indent is a whole number of levels plus one.
+     */
+    boolean isCommentContinuation(String line, int indent) {
+        return blockStart != null && !indentationSignificant && indent > 0 && indent < line.length()
+                && line.charAt(indent) == '*';
+    }
+
+    /**
+     * Follows multi-line string literals through one line. Delimiters in a line that is a comment are ignored.
+     *
+     * @param open Delimiter of the literal open at the start of the line, or null
+     * @return delimiter of the literal still open at the end of the line, or null
+     */
+    String openTextAfter(String line, String open) {
+        if (textDelimiters.length == 0 || open == null && isComment(line.trim())) {
+            return open;
+        }
+        int i = 0;
+        while (i < line.length()) {
+            if (open != null) {
+                int end = indexOfUnescaped(line, open, i);
+                if (end < 0) {
+                    return open;
+                }
+                i = end + open.length();
+                open = null;
+            } else {
+                int start = -1;
+                for (String delimiter : textDelimiters) {
+                    int index = indexOfUnescaped(line, delimiter, i);
+                    if (index >= 0 && (start < 0 || index < start)) {
+                        start = index;
+                        open = delimiter;
+                    }
+                }
+                if (start < 0) {
+                    return null;
+                }
+                i = start + open.length();
+            }
+        }
+        return open;
+    }
+
+    private static int indexOfUnescaped(String line, String delimiter, int from) {
+        int index = line.indexOf(delimiter, from);
+        while (index > 0 && line.charAt(index - 1) == '\\') {
+            index = line.indexOf(delimiter, index + 1);
+        }
+        return index;
+    }
+
+    boolean hasComments() {
+        return lineComment != null || blockStart != null;
+    }
+
+    /**
+     * Whether the trimmed line is, or continues, a comment.
+     */
+    boolean isComment(String trimmed) {
+        return lineComment != null && trimmed.startsWith(lineComment)
+                || blockStart != null && (trimmed.startsWith(blockStart) || trimmed.startsWith("*"));
+    }
+
+    /**
+     * A one-line comment in this language, used for the notes that replace removed lines.
+     */
+    String comment(String text) {
+        return lineComment != null ? lineComment + " " + text : blockStart + " " + text + " " + blockEnd;
+    }
+}
@@ -0,0 +1,88 @@
+package com.promptly.plugin.context;
+
+import java.util.Map;
+
+/**
+ * Output of the {@link ContextMinifier}: the shortened text and what was removed.
+ */
+public final class MinifiedText {
+    private final CharSequence original;
+    private final String text;
+    private final LanguageRules rules;
+    private final int indentUnit;
+    private final Map<String, Integer> removedChars;
+
+    MinifiedText(CharSequence original, String text, LanguageRules rules, int indentUnit,
+                 Map<String, Integer> removedChars) {
+        this.original = original;
+        this.text = text;
+        this.rules = rules;
+        this.indentUnit = indentUnit;
+        this.removedChars = removedChars;
+    }
+
+    public CharSequence getOriginal() {
+        return original;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * Original width of one indentation level, or 1 if indentation was not narrowed.
+     */
+    public int getIndentUnit() {
+        return indentUnit;
+    }
+
+    /**
+     * Characters removed per rule, in the order the rules first applied.
+     */
+    public Map<String, Integer> getRemovedChars() {
+        return removedChars;
+    }
+
+    /**
+     * Widens code written in the narrowed one-space-per-level style back to the original indentation, so that
+     * it can be inserted into the file. Code that is not indented that way is returned unchanged, and lines
+     * inside multi-line string literals are never changed.
+     */
+    public String restoreIndentation(String code) {
+        if (indentUnit <= 1) {
+            return code;
+        }
+        String[] lines = code.split("\n", -1);
+        boolean[] verbatim = new boolean[lines.length];
+        String openText = null;
+        int narrowest = Integer.MAX_VALUE;
+        for (int i = 0; i < lines.length; i++) {
+            verbatim[i] = openText != null;
+            openText = rules.openTextAfter(lines[i], openText);
+            int indent = ContextMinifier.leadingSpaces(lines[i]);
+            if (!verbatim[i] && indent > 0 && indent < lines[i].length()
+                    && !rules.isCommentContinuation(lines[i], indent)) {
+                narrowest = Math.min(narrowest, indent);
+            }
+        }
+        if (narrowest != 1) {
+            return code;
+        }
+
+        StringBuilder result = new StringBuilder(code.length() * 2);
+        for (int i = 0; i < lines.length; i++) {
+            if (verbatim[i]) {
+                result.append(lines[i]);
+            } else {
+                int indent = ContextMinifier.leadingSpaces(lines[i]);
+                int levels = ContextMinifier.levelIndent(rules, lines[i]);
+                result.append(" ".repeat(levels * indentUnit + indent - levels))
+                        .append(lines[i], indent, lines[i].length());
+            }
+            if (i < lines.length - 1) {
+                result.append('\n');
+            }
+        }
+        return result.toString();
+    }
+}
@@ -0,0 +1,201 @@
+package com.promptly.plugin.metrics;
+
+import com.promptly.plugin.tracing.Span;
+import com.promptly.plugin.tracing.Trace;
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.HttpUrl;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.List;
+
+/**
+ * OkHttp listener that fills the {@link CallTimings} tagged on each request and,
+ * when a {@link Trace} is tagged as well, records every network phase as a span.
+ */
+public final class CallTimingListener extends EventListener {
+    /**
+     * Creates a listener for calls carrying timings or a trace; other calls are not observed.
+     */
+    public static final EventListener.Factory FACTORY = call -> {
+        CallTimings timings = call.request().tag(CallTimings.class);
+        Trace trace = call.request().tag(Trace.class);
+        return timings == null && trace == null ? EventListener.NONE : new CallTimingListener(timings, trace);
+    };
+
+    private final @Nullable CallTimings timings;
+    private final @Nullable Trace trace;
+
+    // Phases of one call happen sequentially, so plain fields are enough
+    private @Nullable Span queueSpan;
+    private @Nullable Span dnsSpan;
+    private @Nullable Span connectSpan;
+    private @Nullable Span tlsSpan;
+    private @Nullable Span requestSpan;
+    private @Nullable Span waitSpan;
+    private @Nullable Span responseSpan;
+
+    private CallTimingListener(@Nullable CallTimings timings, @Nullable Trace trace) {
+        this.timings = timings;
+        this.trace = trace;
+    }
+
+    @Override
+    public void callStart(@NotNull Call call) {
+        if (timings != null) {
+            timings.markCallStart();
+        }
+        queueSpan = begin("dispatcher queue");
+    }
+
+    @Override
+    public void proxySelectStart(@NotNull Call call, @NotNull HttpUrl url) {
+        networkStart();
+    }
+
+    @Override
+    public void dnsStart(@NotNull Call call, @NotNull String domainName) {
+        networkStart();
+        dnsSpan = begin("dns " + domainName);
+    }
+
+    @Override
+    public void dnsEnd(@NotNull Call call, @NotNull String domainName, @NotNull List<InetAddress> inetAddressList) {
+        end(dnsSpan);
+    }
+
+    @Override
+    public void connectStart(@NotNull Call call, @NotNull InetSocketAddress inetSocketAddress, @NotNull Proxy proxy) {
+        networkStart();
+        connectSpan = begin("connect " + inetSocketAddress);
+    }
+
+    @Override
+    public void secureConnectStart(@NotNull Call call) {
+        tlsSpan = begin("tls handshake");
+    }
+
+    @Override
+    public void secureConnectEnd(@NotNull Call call, @Nullable Handshake handshake) {
+        end(tlsSpan);
+    }
+
+    @Override
+    public void connectEnd(@NotNull Call call, @NotNull InetSocketAddress inetSocketAddress, @NotNull Proxy proxy,
+                           @Nullable Protocol protocol) {
+        end(connectSpan);
+    }
+
+    @Override
+    public void connectFailed(@NotNull Call call, @NotNull InetSocketAddress inetSocketAddress, @NotNull Proxy proxy,
+                              @Nullable Protocol protocol, @NotNull IOException ioe) {
+        end(tlsSpan);
+        end(connectSpan);
+    }
+
+    @Override
+    public void connectionAcquired(@NotNull Call call, @NotNull Connection connection) {
+        networkStart();
+    }
+
+    @Override
+    public void requestHeadersStart(@NotNull Call call) {
+        requestSpan = begin("send request");
+    }
+
+    @Override
+    public void requestHeadersEnd(@NotNull Call call, @NotNull Request request) {
+        if (request.body() == null) {
+            endRequest();
+        }
+    }
+
+    @Override
+    public void requestBodyEnd(@NotNull Call call, long byteCount) {
+        endRequest();
+    }
+
+    @Override
+    public void responseHeadersStart(@NotNull Call call) {
+        if (timings != null) {
+            timings.markResponseHeadersStart();
+        }
+        end(waitSpan);
+        responseSpan = begin("receive response");
+    }
+
+    @Override
+    public void responseHeadersEnd(@NotNull Call call, @NotNull Response response) {
+        if (timings != null) {
+            timings.markResponseHeadersStart();
+        }
+    }
+
+    @Override
+    public void responseBodyEnd(@NotNull Call call, long byteCount) {
+        if (timings != null) {
+            timings.setResponseBytes(byteCount);
+        }
+        end(responseSpan);
+    }
+
+    @Override
+    public void callEnd(@NotNull Call call) {
+        endAll();
+    }
+
+    @Override
+    public void callFailed(@NotNull Call call, @NotNull IOException ioe) {
+        endAll();
+    }
+
+    @Override
+    public void canceled(@NotNull Call call) {
+        endAll();
+    }
+
+    private void networkStart() {
+        if (timings != null) {
+            timings.markNetworkStart();
+        }
+        end(queueSpan);
+    }
+
+    private void endRequest() {
+        end(requestSpan);
+        // Provider-side queueing and prefill show up as the gap until the first response byte
+        if (waitSpan == null) {
+            waitSpan = begin("await first byte");
+        }
+    }
+
+    private void endAll() {
+        end(queueSpan);
+        end(dnsSpan);
+        end(tlsSpan);
+        end(connectSpan);
+        end(requestSpan);
+        end(waitSpan);
+        end(responseSpan);
+    }
+
+    private @Nullable Span begin(String name) {
+        return trace == null ? null : trace.begin(name, Trace.CATEGORY_NETWORK);
+    }
+
+    private static void end(@Nullable Span span) {
+        if (span != null) {
+            span.end();
+        }
+    }
+}
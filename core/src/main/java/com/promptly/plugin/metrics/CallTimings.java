@@ -0,0 +1,81 @@
+package com.promptly.plugin.metrics;
+
+/**
+ * Timestamps of one LLM call, filled in by {@link CallTimingListener} and the service.
+ * Attached to the OkHttp request as a tag. All values are {@link System#nanoTime()} readings;
+ * unset values are 0.
+ */
+public final class CallTimings {
+    private final long submittedNanos;
+    private volatile long callStartNanos;
+    private volatile long networkStartNanos;
+    private volatile long responseHeadersStartNanos;
+    private volatile long finishedNanos;
+    private volatile long requestBytes;
+    private volatile long responseBytes = -1;
+
+    public CallTimings() {
+        this.submittedNanos = System.nanoTime();
+    }
+
+    void markCallStart() {
+        callStartNanos = System.nanoTime();
+    }
+
+    void markNetworkStart() {
+        if (networkStartNanos == 0) {
+            networkStartNanos = System.nanoTime();
+        }
+    }
+
+    void markResponseHeadersStart() {
+        if (responseHeadersStartNanos == 0) {
+            responseHeadersStartNanos = System.nanoTime();
+        }
+    }
+
+    void setResponseBytes(long responseBytes) {
+        this.responseBytes = responseBytes;
+    }
+
+    public void markFinished() {
+        finishedNanos = System.nanoTime();
+    }
+
+    public void setRequestBytes(long requestBytes) {
+        this.requestBytes = requestBytes;
+    }
+
+    public long getSubmittedNanos() {
+        return submittedNanos;
+    }
+
+    /**
+     * Time the call spent waiting for a dispatcher thread before any network work, or -1.
+     */
+    public long getQueueWaitNanos() {
+        return callStartNanos == 0 || networkStartNanos == 0 ? -1 : networkStartNanos - callStartNanos;
+    }
+
+    /**
+     * Time from submission until the provider started answering, or -1.
+     */
+    public long getTimeToFirstByteNanos() {
+        return responseHeadersStartNanos == 0 ? -1 : responseHeadersStartNanos - submittedNanos;
+    }
+
+    /**
+     * Time from submission until the response was parsed, or -1.
+     */
+    public long getTotalNanos() {
+        return finishedNanos == 0 ? -1 : finishedNanos - submittedNanos;
+    }
+
+    public long getRequestBytes() {
+        return requestBytes;
+    }
+
+    public long getResponseBytes() {
+        return responseBytes;
+    }
+}
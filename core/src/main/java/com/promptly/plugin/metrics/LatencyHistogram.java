@@ -0,0 +1,102 @@
+package com.promptly.plugin.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free log-linear histogram in the style of HdrHistogram.
+ * <p>
+ * Values below 128 get exact buckets; above that every power of two is split into 64 linear
+ * sub-buckets, so any recorded value is reproduced within about 1.5%. Recording is a couple of
+ * atomic increments, cheap enough for every request.
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int SUB_BUCKET_HALF = SUB_BUCKET_COUNT / 2;
+
+    private final long highestTrackableValue;
+    private final AtomicLongArray counts;
+    private final LongAdder totalCount = new LongAdder();
+    private final LongAdder totalSum = new LongAdder();
+    private final AtomicLong maxValue = new AtomicLong();
+
+    /**
+     * @param highestTrackableValue Values above this are clamped to it
+     */
+    public LatencyHistogram(long highestTrackableValue) {
+        this.highestTrackableValue = Math.max(SUB_BUCKET_COUNT, highestTrackableValue);
+        this.counts = new AtomicLongArray(bucketIndex(this.highestTrackableValue) + 1);
+    }
+
+    public void record(long value) {
+        long clamped = Math.min(Math.max(value, 0), highestTrackableValue);
+        counts.incrementAndGet(bucketIndex(clamped));
+        totalCount.increment();
+        totalSum.add(clamped);
+        maxValue.accumulateAndGet(clamped, Math::max);
+    }
+
+    public long getCount() {
+        return totalCount.sum();
+    }
+
+    public long getSum() {
+        return totalSum.sum();
+    }
+
+    public long getMax() {
+        return maxValue.get();
+    }
+
+    public double getMean() {
+        long count = getCount();
+        return count == 0 ? 0 : (double) getSum() / count;
+    }
+
+    /**
+     * Returns the value at the given percentile (0-100), or 0 if nothing was recorded.
+     * The result is the upper bound of the matching bucket, capped at the recorded maximum.
+     */
+    public long getValueAtPercentile(double percentile) {
+        long count = getCount();
+        if (count == 0) {
+            return 0;
+        }
+
+        long target = Math.max(1, (long) Math.ceil(count * Math.min(100, percentile) / 100.0));
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= target) {
+                return Math.min(bucketUpperBound(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    public void reset() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+        }
+        totalCount.reset();
+        totalSum.reset();
+        maxValue.set(0);
+    }
+
+    static int bucketIndex(long value) {
+        int magnitude = 64 - Long.numberOfLeadingZeros(value | (SUB_BUCKET_COUNT - 1)) - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> magnitude);
+        return magnitude == 0 ? subBucket : magnitude * SUB_BUCKET_HALF + subBucket;
+    }
+
+    static long bucketUpperBound(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int magnitude = index / SUB_BUCKET_HALF - 1;
+        long subBucket = index - (long) magnitude * SUB_BUCKET_HALF;
+        return ((subBucket + 1) << magnitude) - 1;
+    }
+}
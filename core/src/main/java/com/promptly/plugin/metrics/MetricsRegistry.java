@@ -0,0 +1,342 @@
+package com.promptly.plugin.metrics;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.promptly.plugin.models.LLMProvider;
+import com.promptly.plugin.models.ModelTier;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory performance statistics for the plugin, grouped by provider and model.
+ * Also tracks how long plugin code keeps the event dispatch thread busy.
+ */
+public final class MetricsRegistry {
+    private static final double[] EXPORTED_PERCENTILES = {50, 90, 95, 99};
+
+    private final Map<String, ModelMetrics> models = new ConcurrentHashMap<>();
+    private final LatencyHistogram edtTime = new LatencyHistogram(TimeUnit.MINUTES.toMicros(5));
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicLong minifiedContexts = new AtomicLong();
+    private final AtomicLong contextTokensBefore = new AtomicLong();
+    private final AtomicLong contextTokensAfter = new AtomicLong();
+    private final Map<String, AtomicLong> minifiedCharsByRule = new ConcurrentHashMap<>();
+    private final AtomicLong compressedRequests = new AtomicLong();
+    private final AtomicLong uncompressedBytes = new AtomicLong();
+    private final AtomicLong compressedBytes = new AtomicLong();
+    private final Map<ModelTier, TierMetrics> tiers = new EnumMap<>(ModelTier.class);
+
+    public MetricsRegistry() {
+        for (ModelTier tier : ModelTier.values()) {
+            tiers.put(tier, new TierMetrics(tier));
+        }
+    }
+
+    public ModelMetrics forModel(LLMProvider provider, String model) {
+        String name = model == null ? "" : model;
+        return models.computeIfAbsent(provider.name() + '/' + name, key -> new ModelMetrics(provider, name));
+    }
+
+    /**
+     * Returns all recorded provider/model combinations, sorted by provider then model.
+     */
+    public List<ModelMetrics> getModels() {
+        List<ModelMetrics> result = new ArrayList<>(models.values());
+        result.sort(Comparator.comparing((ModelMetrics m) -> m.getProvider().name()).thenComparing(ModelMetrics::getModel));
+        return result;
+    }
+
+    /**
+     * Statistics of the model cascade's tier; the map is filled once, so lookups need no locking.
+     */
+    public TierMetrics forTier(ModelTier tier) {
+        return tiers.get(tier);
+    }
+
+    /**
+     * Time spent by plugin code on the event dispatch thread, per measured task, in microseconds.
+     */
+    public LatencyHistogram getEdtTime() {
+        return edtTime;
+    }
+
+    /**
+     * Runs the task and records how long it took. Meant for work done on the EDT.
+     */
+    public void measureEdt(Runnable task) {
+        long start = System.nanoTime();
+        try {
+            task.run();
+        } finally {
+            edtTime.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+        }
+    }
+
+    /**
+     * Records one context sent through the minifier: its size in tokens before and after, and the characters
+     * each rule removed.
+     */
+    public void recordContextMinification(long tokensBefore, long tokensAfter, Map<String, Integer> removedChars) {
+        minifiedContexts.incrementAndGet();
+        contextTokensBefore.addAndGet(tokensBefore);
+        contextTokensAfter.addAndGet(tokensAfter);
+        removedChars.forEach((rule, chars) ->
+                minifiedCharsByRule.computeIfAbsent(rule, key -> new AtomicLong()).addAndGet(chars));
+    }
+
+    public long getMinifiedContexts() {
+        return minifiedContexts.get();
+    }
+
+    public long getContextTokensBefore() {
+        return contextTokensBefore.get();
+    }
+
+    public long getContextTokensAfter() {
+        return contextTokensAfter.get();
+    }
+
+    /**
+     * Share of context tokens the minifier saved, between 0 and 1.
+     */
+    public double getContextTokenSavings() {
+        long before = contextTokensBefore.get();
+        return before == 0 ? 0 : 1 - (double) contextTokensAfter.get() / before;
+    }
+
+    /**
+     * Records one request body sent compressed, with its size before and after compression.
+     */
+    public void recordRequestCompression(long bytesBefore, long bytesAfter) {
+        compressedRequests.incrementAndGet();
+        uncompressedBytes.addAndGet(bytesBefore);
+        compressedBytes.addAndGet(bytesAfter);
+    }
+
+    public long getCompressedRequests() {
+        return compressedRequests.get();
+    }
+
+    public long getUncompressedBytes() {
+        return uncompressedBytes.get();
+    }
+
+    public long getCompressedBytes() {
+        return compressedBytes.get();
+    }
+
+    /**
+     * Uncompressed size of the compressed request bodies divided by their size on the wire, or 0 if none.
+     */
+    public double getCompressionRatio() {
+        long after = compressedBytes.get();
+        return after == 0 ? 0 : (double) uncompressedBytes.get() / after;
+    }
+
+    public void reset() {
+        models.clear();
+        edtTime.reset();
+        minifiedContexts.set(0);
+        contextTokensBefore.set(0);
+        contextTokensAfter.set(0);
+        minifiedCharsByRule.clear();
+        compressedRequests.set(0);
+        uncompressedBytes.set(0);
+        compressedBytes.set(0);
+        tiers.values().forEach(TierMetrics::reset);
+    }
+
+    /**
+     * Exports all statistics as a JSON document.
+     */
+    public String exportJson() {
+        ObjectNode root = objectMapper.createObjectNode();
+        ArrayNode modelsNode = root.putArray("models");
+        for (ModelMetrics metrics : getModels()) {
+            ObjectNode node = modelsNode.addObject();
+            node.put("provider", metrics.getProvider().name());
+            node.put("model", metrics.getModel());
+            node.put("requests", metrics.getRequests());
+            node.put("errors", metrics.getErrors());
+            node.put("errorRate", metrics.getErrorRate());
+            node.put("cancellations", metrics.getCancellations());
+            node.put("cacheHits", metrics.getCacheHits());
+            node.put("cacheMisses", metrics.getCacheMisses());
+            node.put("cacheHitRate", metrics.getCacheHitRate());
+            putHistogram(node, "queueWaitMicros", metrics.getQueueWait());
+            putHistogram(node, "timeToFirstByteMicros", metrics.getTimeToFirstByte());
+            putHistogram(node, "totalLatencyMicros", metrics.getTotalLatency());
+            putHistogram(node, "tokensPerSecond", metrics.getTokensPerSecond());
+            putHistogram(node, "requestBytes", metrics.getRequestBytes());
+            putHistogram(node, "responseBytes", metrics.getResponseBytes());
+        }
+        putHistogram(root, "edtTimeMicros", edtTime);
+        ObjectNode minification = root.putObject("contextMinification");
+        minification.put("contexts", getMinifiedContexts());
+        minification.put("tokensBefore", getContextTokensBefore());
+        minification.put("tokensAfter", getContextTokensAfter());
+        minification.put("savings", getContextTokenSavings());
+        ObjectNode byRule = minification.putObject("removedCharsByRule");
+        minifiedCharsByRule.forEach((rule, chars) -> byRule.put(rule, chars.get()));
+        ObjectNode compression = root.putObject("requestCompression");
+        compression.put("requests", getCompressedRequests());
+        compression.put("bytesBefore", getUncompressedBytes());
+        compression.put("bytesAfter", getCompressedBytes());
+        compression.put("ratio", getCompressionRatio());
+        ArrayNode tiersNode = root.putArray("tiers");
+        for (TierMetrics tier : tiers.values()) {
+            ObjectNode node = tiersNode.addObject();
+            node.put("tier", tier.getTier().name());
+            node.put("requests", tier.getRequests());
+            node.put("failures", tier.getFailures());
+            node.put("escalations", tier.getEscalations());
+            node.put("inputTokens", tier.getInputTokens());
+            node.put("outputTokens", tier.getOutputTokens());
+            putHistogram(node, "latencyMicros", tier.getLatency());
+        }
+
+        try {
+            return objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(root);
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to export metrics", e);
+        }
+    }
+
+    /**
+     * Exports all statistics in the Prometheus text exposition format.
+     * Durations are converted to seconds, following Prometheus conventions.
+     */
+    public String exportPrometheus() {
+        StringBuilder out = new StringBuilder();
+        List<ModelMetrics> all = getModels();
+
+        counterFamily(out, "promptly_requests_total", "LLM requests sent", all, ModelMetrics::getRequests);
+        counterFamily(out, "promptly_request_errors_total", "LLM requests that failed", all, ModelMetrics::getErrors);
+        counterFamily(out, "promptly_cache_hits_total", "Responses served from cache", all, ModelMetrics::getCacheHits);
+        counterFamily(out, "promptly_cache_misses_total", "Cache lookups that missed", all, ModelMetrics::getCacheMisses);
+
+        summaryFamily(out, "promptly_queue_wait_seconds", "Time waiting for a dispatcher thread", all,
+                ModelMetrics::getQueueWait, 1e-6);
+        summaryFamily(out, "promptly_time_to_first_byte_seconds", "Time until the provider started responding", all,
+                ModelMetrics::getTimeToFirstByte, 1e-6);
+        summaryFamily(out, "promptly_request_duration_seconds", "Total request latency", all,
+                ModelMetrics::getTotalLatency, 1e-6);
+        summaryFamily(out, "promptly_tokens_per_second", "Output tokens per second", all,
+                ModelMetrics::getTokensPerSecond, 1);
+        summaryFamily(out, "promptly_request_bytes", "Request payload size", all,
+                ModelMetrics::getRequestBytes, 1);
+        summaryFamily(out, "promptly_response_bytes", "Response payload size", all,
+                ModelMetrics::getResponseBytes, 1);
+
+        out.append("# HELP promptly_edt_seconds Time plugin code spent on the event dispatch thread\n");
+        out.append("# TYPE promptly_edt_seconds summary\n");
+        summarySamples(out, "promptly_edt_seconds", "", edtTime, 1e-6);
+
+        out.append("# HELP promptly_context_tokens_total Context tokens before and after minification\n");
+        out.append("# TYPE promptly_context_tokens_total counter\n");
+        out.append("promptly_context_tokens_total{stage=\"original\"} ").append(getContextTokensBefore()).append('\n');
+        out.append("promptly_context_tokens_total{stage=\"minified\"} ").append(getContextTokensAfter()).append('\n');
+
+        out.append("# HELP promptly_compressed_request_bytes_total Size of compressed request bodies before and after compression\n");
+        out.append("# TYPE promptly_compressed_request_bytes_total counter\n");
+        out.append("promptly_compressed_request_bytes_total{stage=\"original\"} ").append(getUncompressedBytes()).append('\n');
+        out.append("promptly_compressed_request_bytes_total{stage=\"compressed\"} ").append(getCompressedBytes()).append('\n');
+
+        out.append("# HELP promptly_tier_requests_total Attempts per model cascade tier\n");
+        out.append("# TYPE promptly_tier_requests_total counter\n");
+        for (TierMetrics tier : tiers.values()) {
+            out.append("promptly_tier_requests_total{").append(tierLabel(tier)).append("} ").append(tier.getRequests()).append('\n');
+        }
+        out.append("# HELP promptly_tier_escalations_total Requests passed on to the next model cascade tier\n");
+        out.append("# TYPE promptly_tier_escalations_total counter\n");
+        for (TierMetrics tier : tiers.values()) {
+            out.append("promptly_tier_escalations_total{").append(tierLabel(tier)).append("} ").append(tier.getEscalations()).append('\n');
+        }
+        out.append("# HELP promptly_tier_tokens_total Tokens sent and received per model cascade tier\n");
+        out.append("# TYPE promptly_tier_tokens_total counter\n");
+        for (TierMetrics tier : tiers.values()) {
+            out.append("promptly_tier_tokens_total{").append(tierLabel(tier)).append(",direction=\"input\"} ").append(tier.getInputTokens()).append('\n');
+            out.append("promptly_tier_tokens_total{").append(tierLabel(tier)).append(",direction=\"output\"} ").append(tier.getOutputTokens()).append('\n');
+        }
+        out.append("# HELP promptly_tier_latency_seconds Latency of attempts per model cascade tier\n");
+        out.append("# TYPE promptly_tier_latency_seconds summary\n");
+        for (TierMetrics tier : tiers.values()) {
+            summarySamples(out, "promptly_tier_latency_seconds", tierLabel(tier), tier.getLatency(), 1e-6);
+        }
+        return out.toString();
+    }
+
+    private static String tierLabel(TierMetrics tier) {
+        return "tier=\"" + tier.getTier().name().toLowerCase(Locale.ROOT) + "\"";
+    }
+
+    private void putHistogram(ObjectNode parent, String name, LatencyHistogram histogram) {
+        ObjectNode node = parent.putObject(name);
+        node.put("count", histogram.getCount());
+        node.put("mean", histogram.getMean());
+        node.put("max", histogram.getMax());
+        for (double percentile : EXPORTED_PERCENTILES) {
+            node.put("p" + (int) percentile, histogram.getValueAtPercentile(percentile));
+        }
+    }
+
+    private interface CounterValue {
+        long get(ModelMetrics metrics);
+    }
+
+    private interface HistogramValue {
+        LatencyHistogram get(ModelMetrics metrics);
+    }
+
+    private static void counterFamily(StringBuilder out, String name, String help, List<ModelMetrics> all,
+                                      CounterValue value) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(" counter\n");
+        for (ModelMetrics metrics : all) {
+            out.append(name).append('{').append(labels(metrics)).append("} ").append(value.get(metrics)).append('\n');
+        }
+    }
+
+    private static void summaryFamily(StringBuilder out, String name, String help, List<ModelMetrics> all,
+                                      HistogramValue value, double scale) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(" summary\n");
+        for (ModelMetrics metrics : all) {
+            summarySamples(out, name, labels(metrics), value.get(metrics), scale);
+        }
+    }
+
+    private static void summarySamples(StringBuilder out, String name, String labels, LatencyHistogram histogram,
+                                       double scale) {
+        String separator = labels.isEmpty() ? "" : ",";
+        for (double percentile : EXPORTED_PERCENTILES) {
+            out.append(name).append('{').append(labels).append(separator)
+                    .append("quantile=\"").append(format(percentile / 100)).append("\"} ")
+                    .append(format(histogram.getValueAtPercentile(percentile) * scale)).append('\n');
+        }
+        String braces = labels.isEmpty() ? "" : "{" + labels + "}";
+        out.append(name).append("_sum").append(braces).append(' ').append(format(histogram.getSum() * scale)).append('\n');
+        out.append(name).append("_count").append(braces).append(' ').append(histogram.getCount()).append('\n');
+    }
+
+    private static String labels(ModelMetrics metrics) {
+        return "provider=\"" + metrics.getProvider().name() + "\",model=\"" + escape(metrics.getModel()) + "\"";
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.6g", value);
+    }
+}
@@ -0,0 +1,143 @@
+package com.promptly.plugin.metrics;
+
+import com.promptly.plugin.models.LLMProvider;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Request statistics for one provider and model combination.
+ * Durations are recorded in microseconds, sizes in bytes.
+ */
+public final class ModelMetrics {
+    private static final long MAX_DURATION_MICROS = TimeUnit.MINUTES.toMicros(30);
+    private static final long MAX_PAYLOAD_BYTES = 256L * 1024 * 1024;
+
+    private final LLMProvider provider;
+    private final String model;
+
+    private final LatencyHistogram queueWait = new LatencyHistogram(MAX_DURATION_MICROS);
+    private final LatencyHistogram timeToFirstByte = new LatencyHistogram(MAX_DURATION_MICROS);
+    private final LatencyHistogram totalLatency = new LatencyHistogram(MAX_DURATION_MICROS);
+    private final LatencyHistogram tokensPerSecond = new LatencyHistogram(100_000);
+    private final LatencyHistogram requestBytes = new LatencyHistogram(MAX_PAYLOAD_BYTES);
+    private final LatencyHistogram responseBytes = new LatencyHistogram(MAX_PAYLOAD_BYTES);
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder cancellations = new LongAdder();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
+
+    ModelMetrics(LLMProvider provider, String model) {
+        this.provider = provider;
+        this.model = model;
+    }
+
+    /**
+     * Records a finished network call.
+     */
+    public void recordCall(CallTimings timings, boolean success, int outputTokens) {
+        requests.increment();
+        if (!success) {
+            errors.increment();
+        }
+
+        if (timings.getQueueWaitNanos() >= 0) {
+            queueWait.record(TimeUnit.NANOSECONDS.toMicros(timings.getQueueWaitNanos()));
+        }
+        if (timings.getTimeToFirstByteNanos() >= 0) {
+            timeToFirstByte.record(TimeUnit.NANOSECONDS.toMicros(timings.getTimeToFirstByteNanos()));
+        }
+        long totalNanos = timings.getTotalNanos();
+        if (totalNanos >= 0) {
+            totalLatency.record(TimeUnit.NANOSECONDS.toMicros(totalNanos));
+            if (success && outputTokens > 0 && totalNanos > 0) {
+                tokensPerSecond.record(Math.round(outputTokens / (totalNanos / 1e9)));
+            }
+        }
+
+        requestBytes.record(timings.getRequestBytes());
+        if (timings.getResponseBytes() >= 0) {
+            responseBytes.record(timings.getResponseBytes());
+        }
+    }
+
+    /**
+     * Records a request abandoned by the caller, e.g. a superseded inline completion. It is neither a success
+     * nor an error, so it stays out of the request count and the latency histograms.
+     */
+    public void recordCancellation() {
+        cancellations.increment();
+    }
+
+    public void recordCacheHit() {
+        cacheHits.increment();
+    }
+
+    public void recordCacheMiss() {
+        cacheMisses.increment();
+    }
+
+    public LLMProvider getProvider() {
+        return provider;
+    }
+
+    public String getModel() {
+        return model;
+    }
+
+    public LatencyHistogram getQueueWait() {
+        return queueWait;
+    }
+
+    public LatencyHistogram getTimeToFirstByte() {
+        return timeToFirstByte;
+    }
+
+    public LatencyHistogram getTotalLatency() {
+        return totalLatency;
+    }
+
+    public LatencyHistogram getTokensPerSecond() {
+        return tokensPerSecond;
+    }
+
+    public LatencyHistogram getRequestBytes() {
+        return requestBytes;
+    }
+
+    public LatencyHistogram getResponseBytes() {
+        return responseBytes;
+    }
+
+    public long getRequests() {
+        return requests.sum();
+    }
+
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    public long getCancellations() {
+        return cancellations.sum();
+    }
+
+    public double getErrorRate() {
+        long total = getRequests();
+        return total == 0 ? 0 : (double) getErrors() / total;
+    }
+
+    public long getCacheHits() {
+        return cacheHits.sum();
+    }
+
+    public long getCacheMisses() {
+        return cacheMisses.sum();
+    }
+
+    public double getCacheHitRate() {
+        long lookups = getCacheHits() + getCacheMisses();
+        return lookups == 0 ? 0 : (double) getCacheHits() / lookups;
+    }
+}
@@ -0,0 +1,91 @@
+package com.promptly.plugin.metrics;
+
+import com.promptly.plugin.models.ModelTier;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Statistics of the requests answered on one tier of the model cascade. Latency is measured per attempt, in
+ * microseconds; input and output tokens stand in for cost, which depends on the provider's price list.
+ */
+public final class TierMetrics {
+    private static final long MAX_DURATION_MICROS = TimeUnit.MINUTES.toMicros(30);
+
+    private final ModelTier tier;
+    private final LatencyHistogram latency = new LatencyHistogram(MAX_DURATION_MICROS);
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder escalations = new LongAdder();
+    private final LongAdder inputTokens = new LongAdder();
+    private final LongAdder outputTokens = new LongAdder();
+
+    TierMetrics(ModelTier tier) {
+        this.tier = tier;
+    }
+
+    /**
+     * Records one attempt on this tier.
+     */
+    public void recordAttempt(long latencyMicros, boolean success, int inputTokens, int outputTokens) {
+        requests.increment();
+        if (!success) {
+            failures.increment();
+        }
+        latency.record(latencyMicros);
+        this.inputTokens.add(inputTokens);
+        this.outputTokens.add(outputTokens);
+    }
+
+    /**
+     * Records a request that was passed on from this tier to the next.
+     */
+    public void recordEscalation() {
+        escalations.increment();
+    }
+
+    public ModelTier getTier() {
+        return tier;
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    public long getRequests() {
+        return requests.sum();
+    }
+
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    public long getEscalations() {
+        return escalations.sum();
+    }
+
+    /**
+     * Share of requests passed on to the next tier, between 0 and 1.
+     */
+    public double getEscalationRate() {
+        long total = getRequests();
+        return total == 0 ? 0 : (double) getEscalations() / total;
+    }
+
+    public long getInputTokens() {
+        return inputTokens.sum();
+    }
+
+    public long getOutputTokens() {
+        return outputTokens.sum();
+    }
+
+    void reset() {
+        latency.reset();
+        requests.reset();
+        failures.reset();
+        escalations.reset();
+        inputTokens.reset();
+        outputTokens.reset();
+    }
+}
@@ -0,0 +1,125 @@
+package com.promptly.plugin.models;
+
+import com.promptly.plugin.tokenizer.Tokenizer;
+import com.promptly.plugin.tools.ToolCall;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Represents a single message in the chat interface.
+ */
+public class ChatMessage {
+    public enum Role {
+        USER("User"),
+        ASSISTANT("Assistant"),
+        SYSTEM("System"),
+        TOOL("Tool");
+
+        private final String displayName;
+
+        Role(String displayName) {
+            this.displayName = displayName;
+        }
+
+        public String getDisplayName() {
+            return displayName;
+        }
+    }
+
+    private final Role role;
+    private final String content;
+    private final LocalDateTime timestamp;
+    private final List<ToolCall> toolCalls;
+    private final ToolCall answeredCall;
+    private volatile TokenCount tokenCount;
+
+    public ChatMessage(Role role, String content) {
+        this(role, content, List.of(), null);
+    }
+
+    private ChatMessage(Role role, String content, List<ToolCall> toolCalls, ToolCall answeredCall) {
+        this.role = role;
+        this.content = content;
+        this.timestamp = LocalDateTime.now();
+        this.toolCalls = toolCalls;
+        this.answeredCall = answeredCall;
+    }
+
+    /**
+     * An assistant turn that asks for tools to be run, with any text the model wrote alongside.
+     */
+    public static ChatMessage toolCalls(String content, List<ToolCall> toolCalls) {
+        return new ChatMessage(Role.ASSISTANT, content, List.copyOf(toolCalls), null);
+    }
+
+    /**
+     * The output of one tool call, sent back to the model.
+     */
+    public static ChatMessage toolResult(ToolCall call, String output) {
+        return new ChatMessage(Role.TOOL, output, List.of(), call);
+    }
+
+    public Role getRole() {
+        return role;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public LocalDateTime getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Tools requested in this assistant turn; empty for ordinary messages.
+     */
+    public List<ToolCall> getToolCalls() {
+        return toolCalls;
+    }
+
+    /**
+     * For a {@link Role#TOOL} message, the call whose output it carries.
+     */
+    public ToolCall getAnsweredCall() {
+        return answeredCall;
+    }
+
+    /**
+     * Returns the number of tokens in this message's content.
+     * The count is computed once per tokenizer and memoized, since the content never changes.
+     */
+    public int getTokenCount(Tokenizer tokenizer) {
+        TokenCount cached = tokenCount;
+        if (cached != null && cached.tokenizerId.equals(tokenizer.getId())) {
+            return cached.count;
+        }
+
+        int count = tokenizer.countTokens(content);
+        tokenCount = new TokenCount(tokenizer.getId(), count);
+        return count;
+    }
+
+    /**
+     * Converts this message to a format suitable for API requests.
+     * Different LLM providers might need different formats.
+     * @return A map with role and content, suitable for JSON conversion.
+     */
+    public java.util.Map<String, String> toApiFormat() {
+        java.util.Map<String, String> map = new java.util.HashMap<>();
+        map.put("role", role.name().toLowerCase());
+        map.put("content", content);
+        return map;
+    }
+
+    private static final class TokenCount {
+        private final String tokenizerId;
+        private final int count;
+
+        private TokenCount(String tokenizerId, int count) {
+            this.tokenizerId = tokenizerId;
+            this.count = count;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.promptly.plugin.models;
+
+/**
+ * Enum representing supported LLM providers.
+ */
+public enum LLMProvider {
+    OPENAI("OpenAI", "https://api.openai.com/v1/chat/completions"),
+    ANTHROPIC("Anthropic Claude", "https://api.anthropic.com/v1/messages"),
+    GOOGLE("Google Gemini", "https://generativelanguage.googleapis.com/v1beta/models/gemini-pro:generateContent"),
+    LOCAL("Local (Ollama)", "http://localhost:11434/api/chat"),
+    CUSTOM("Custom", ""),
+    REPLAY("Replay (recorded session)", "");
+
+    private final String displayName;
+    private final String defaultEndpoint;
+
+    LLMProvider(String displayName, String defaultEndpoint) {
+        this.displayName = displayName;
+        this.defaultEndpoint = defaultEndpoint;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    public String getDefaultEndpoint() {
+        return defaultEndpoint;
+    }
+
+    /**
+     * Whether requests can offer tools for the model to call. Replays follow whatever was recorded.
+     */
+    public boolean supportsTools() {
+        return this != CUSTOM && this != LOCAL;
+    }
+
+    /**
+     * Whether the provider runs on this machine, needing no API key and keeping the prompt cache between turns.
+     */
+    public boolean isLocal() {
+        return this == LOCAL;
+    }
+
+    /**
+     * Whether one request can return several candidate answers.
+     */
+    public boolean supportsCandidates() {
+        return this == OPENAI || this == GOOGLE;
+    }
+
+    /**
+     * Whether the provider has a batch API that runs many requests as one asynchronous job, at a lower price and
+     * outside the interactive rate limits.
+     */
+    public boolean supportsBatch() {
+        return this == OPENAI || this == ANTHROPIC;
+    }
+
+    @Override
+    public String toString() {
+        return displayName;
+    }
+} 
\ No newline at end of file
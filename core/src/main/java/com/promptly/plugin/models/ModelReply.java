@@ -0,0 +1,40 @@
+package com.promptly.plugin.models;
+
+import com.promptly.plugin.tools.ToolCall;
+
+import java.util.List;
+
+/**
+ * A parsed model response: its text and any tools it asks to call before answering.
+ */
+public final class ModelReply {
+    private final String text;
+    private final List<ToolCall> toolCalls;
+    private final List<String> alternatives;
+
+    public ModelReply(String text, List<ToolCall> toolCalls) {
+        this(text, toolCalls, List.of());
+    }
+
+    /**
+     * @param alternatives Texts of the further candidates when several were requested, see
+     *                     {@link PromptOptions#getCandidates()}
+     */
+    public ModelReply(String text, List<ToolCall> toolCalls, List<String> alternatives) {
+        this.text = text;
+        this.toolCalls = toolCalls;
+        this.alternatives = alternatives;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public List<ToolCall> getToolCalls() {
+        return toolCalls;
+    }
+
+    public List<String> getAlternatives() {
+        return alternatives;
+    }
+}
@@ -0,0 +1,19 @@
+package com.promptly.plugin.models;
+
+/**
+ * Which of a provider's models a request is sent to, see {@link PromptlySettings#getFastModelName}.
+ */
+public enum ModelTier {
+    FAST("Fast"),
+    LARGE("Large");
+
+    private final String displayName;
+
+    ModelTier(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+}
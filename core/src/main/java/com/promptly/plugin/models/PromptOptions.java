@@ -0,0 +1,153 @@
+package com.promptly.plugin.models;
+
+import com.promptly.plugin.tools.ToolDefinition;
+import com.promptly.plugin.tracing.Trace;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Per-request overrides for a prompt sent through the LLM service.
+ * Values left unset fall back to the global settings.
+ */
+public class PromptOptions {
+    private String modelOverride;
+    private Integer maxTokensOverride;
+    private Trace trace;
+    private boolean useSemanticCache;
+    private List<ToolDefinition> tools = List.of();
+    private boolean toolCallsAllowed = true;
+    private String sessionId;
+    private int candidates = 1;
+    private Consumer<String> streamListener;
+
+    public String getModelOverride() {
+        return modelOverride;
+    }
+
+    public void setModelOverride(String modelOverride) {
+        this.modelOverride = modelOverride;
+    }
+
+    public Integer getMaxTokensOverride() {
+        return maxTokensOverride;
+    }
+
+    public void setMaxTokensOverride(Integer maxTokensOverride) {
+        this.maxTokensOverride = maxTokensOverride;
+    }
+
+    /**
+     * Trace to record this request's phases into. When set, the caller finishes it;
+     * otherwise the service creates and finishes a trace of its own.
+     */
+    public Trace getTrace() {
+        return trace;
+    }
+
+    public void setTrace(Trace trace) {
+        this.trace = trace;
+    }
+
+    /**
+     * Whether an answer to a similar earlier prompt in the same context may be returned instead of sending
+     * the request. Only applies when the semantic cache is enabled in the settings.
+     */
+    public boolean isUseSemanticCache() {
+        return useSemanticCache;
+    }
+
+    public void setUseSemanticCache(boolean useSemanticCache) {
+        this.useSemanticCache = useSemanticCache;
+    }
+
+    /**
+     * Tools the model may call in this request; ignored by providers without tool support.
+     */
+    public List<ToolDefinition> getTools() {
+        return tools;
+    }
+
+    public void setTools(List<ToolDefinition> tools) {
+        this.tools = tools;
+    }
+
+    /**
+     * Whether the model may call the tools in this request. When false the tools are still declared, which
+     * providers require for conversations that already contain tool calls, but the model has to answer in text.
+     */
+    public boolean isToolCallsAllowed() {
+        return toolCallsAllowed;
+    }
+
+    public void setToolCallsAllowed(boolean toolCallsAllowed) {
+        this.toolCallsAllowed = toolCallsAllowed;
+    }
+
+    /**
+     * Conversation the request belongs to. When more requests are pending than can be in flight,
+     * sessions take turns; requests without a session share one queue.
+     */
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    public void setSessionId(String sessionId) {
+        this.sessionId = sessionId;
+    }
+
+    /**
+     * Number of answers to generate in one request, for providers that support it (OpenAI's {@code n},
+     * Gemini's {@code candidateCount}). The first is the reply text, the others its alternatives.
+     */
+    public int getCandidates() {
+        return candidates;
+    }
+
+    public void setCandidates(int candidates) {
+        this.candidates = candidates;
+    }
+
+    /**
+     * Receives each piece of the answer as it arrives, on a network thread, for providers that stream.
+     * The returned future still completes with the whole answer.
+     */
+    public Consumer<String> getStreamListener() {
+        return streamListener;
+    }
+
+    public void setStreamListener(Consumer<String> streamListener) {
+        this.streamListener = streamListener;
+    }
+
+    /**
+     * A copy to adjust for one step of a request, such as a single turn of the tool loop.
+     */
+    public PromptOptions copy() {
+        PromptOptions copy = new PromptOptions();
+        copy.modelOverride = modelOverride;
+        copy.maxTokensOverride = maxTokensOverride;
+        copy.trace = trace;
+        copy.useSemanticCache = useSemanticCache;
+        copy.tools = tools;
+        copy.toolCallsAllowed = toolCallsAllowed;
+        copy.sessionId = sessionId;
+        copy.candidates = candidates;
+        copy.streamListener = streamListener;
+        return copy;
+    }
+
+    /**
+     * Resolves the model to use for the given provider.
+     */
+    public String resolveModel(PromptlySettings settings, LLMProvider provider) {
+        return modelOverride != null && !modelOverride.isEmpty() ? modelOverride : settings.getModelName(provider);
+    }
+
+    /**
+     * Resolves the completion token limit.
+     */
+    public int resolveMaxTokens(PromptlySettings settings) {
+        return maxTokensOverride != null ? maxTokensOverride : settings.getMaxTokens();
+    }
+}
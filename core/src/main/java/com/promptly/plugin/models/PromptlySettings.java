@@ -0,0 +1,503 @@
+package com.promptly.plugin.models;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Settings model for Promptly plugin.
+ * Stores API keys, preferred LLM settings, and other user preferences.
+ * The instances the settings service hands out are frozen snapshots shared between threads; setters then throw.
+ */
+public class PromptlySettings {
+    private LLMProvider selectedProvider = LLMProvider.OPENAI;
+    private Map<LLMProvider, String> apiKeys = new HashMap<>();
+    private Map<LLMProvider, String> endpoints = new HashMap<>();
+    private Map<LLMProvider, String> modelNames = new HashMap<>();
+    private Map<LLMProvider, String> summaryModelNames = new HashMap<>();
+    private Map<LLMProvider, String> fastModelNames = new HashMap<>();
+    private boolean cascadeEnabled = true;
+    private boolean sendProjectContext = true;
+    private int maxTokens = 2048;
+    private int maxInputTokens = 100_000;
+    private double temperature = 0.7;
+    private int compactionThresholdTokens = 12000;
+    private int compactionKeepTurns = 4;
+    private boolean recordingEnabled = false;
+    private String cassettePath = "";
+    private boolean replayRealTiming = true;
+    private boolean inlineCompletionEnabled = false;
+    private int completionDebounceMs = 300;
+    private int completionLatencyBudgetMs = 1500;
+    private boolean semanticCacheEnabled = false;
+    private double semanticCacheThreshold = 0.9;
+    private int semanticCacheMaxEntries = 1000;
+    private boolean projectToolsEnabled = true;
+    private int toolResultTokenBudget = 6000;
+    private int generationCandidates = 3;
+    private boolean minifyContext = true;
+    private boolean prepareWhileTyping = true;
+    private int relatedFileSummaries = 0;
+    private String localKeepAlive = "30m";
+    private int localContextLength = 8192;
+    private int localSlots = 4;
+    private Map<LLMProvider, Integer> readTimeoutSeconds = new HashMap<>();
+    private int connectTimeoutSeconds = 30;
+    private int maxIdleConnections = 5;
+    private Map<LLMProvider, Boolean> compressRequests = new HashMap<>();
+    private int compressionThresholdBytes = 32 * 1024;
+    private boolean frozen;
+
+    public PromptlySettings() {
+        // Initialize with default endpoints
+        for (LLMProvider provider : LLMProvider.values()) {
+            endpoints.put(provider, provider.getDefaultEndpoint());
+        }
+        
+        // Initialize with default model names
+        modelNames.put(LLMProvider.OPENAI, "gpt-4");
+        modelNames.put(LLMProvider.ANTHROPIC, "claude-3-sonnet-20240229");
+        modelNames.put(LLMProvider.GOOGLE, "gemini-pro");
+        modelNames.put(LLMProvider.LOCAL, "qwen2.5-coder:7b");
+        modelNames.put(LLMProvider.CUSTOM, "");
+
+        // Cheaper models used for background summarization of long conversations
+        summaryModelNames.put(LLMProvider.OPENAI, "gpt-3.5-turbo");
+        summaryModelNames.put(LLMProvider.ANTHROPIC, "claude-3-haiku-20240307");
+        summaryModelNames.put(LLMProvider.GOOGLE, "gemini-pro");
+        summaryModelNames.put(LLMProvider.LOCAL, "qwen2.5-coder:7b");
+        summaryModelNames.put(LLMProvider.CUSTOM, "");
+
+        // Small models tried first for simple requests, see ModelCascade
+        fastModelNames.put(LLMProvider.OPENAI, "gpt-4o-mini");
+        fastModelNames.put(LLMProvider.ANTHROPIC, "claude-3-haiku-20240307");
+        fastModelNames.put(LLMProvider.GOOGLE, "gemini-1.5-flash");
+        fastModelNames.put(LLMProvider.LOCAL, "");
+        fastModelNames.put(LLMProvider.CUSTOM, "");
+
+        // Local models may need minutes to load and answer on a CPU
+        for (LLMProvider provider : LLMProvider.values()) {
+            readTimeoutSeconds.put(provider, provider.isLocal() ? 300 : 30);
+        }
+
+        // The hosted APIs and local servers like Ollama reject compressed bodies; gateways in front of custom
+        // models usually accept them
+        for (LLMProvider provider : LLMProvider.values()) {
+            compressRequests.put(provider, provider == LLMProvider.CUSTOM);
+        }
+    }
+
+    /**
+     * Makes these settings read-only, so that one instance can be shared until the settings change.
+     */
+    public void freeze() {
+        frozen = true;
+        apiKeys = Collections.unmodifiableMap(apiKeys);
+        endpoints = Collections.unmodifiableMap(endpoints);
+        modelNames = Collections.unmodifiableMap(modelNames);
+        summaryModelNames = Collections.unmodifiableMap(summaryModelNames);
+        fastModelNames = Collections.unmodifiableMap(fastModelNames);
+        readTimeoutSeconds = Collections.unmodifiableMap(readTimeoutSeconds);
+        compressRequests = Collections.unmodifiableMap(compressRequests);
+    }
+
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    private void checkMutable() {
+        if (frozen) {
+            throw new IllegalStateException("Settings snapshot is read-only");
+        }
+    }
+
+    public LLMProvider getSelectedProvider() {
+        return selectedProvider;
+    }
+
+    public void setSelectedProvider(LLMProvider selectedProvider) {
+        checkMutable();
+        this.selectedProvider = selectedProvider;
+    }
+
+    public String getApiKey(LLMProvider provider) {
+        return apiKeys.getOrDefault(provider, "");
+    }
+
+    public void setApiKey(LLMProvider provider, String apiKey) {
+        checkMutable();
+        apiKeys.put(provider, apiKey);
+    }
+
+    public String getEndpoint(LLMProvider provider) {
+        return endpoints.getOrDefault(provider, provider.getDefaultEndpoint());
+    }
+
+    public void setEndpoint(LLMProvider provider, String endpoint) {
+        checkMutable();
+        endpoints.put(provider, endpoint);
+    }
+
+    public String getModelName(LLMProvider provider) {
+        return modelNames.getOrDefault(provider, "");
+    }
+
+    public void setModelName(LLMProvider provider, String modelName) {
+        checkMutable();
+        modelNames.put(provider, modelName);
+    }
+
+    public String getSummaryModelName(LLMProvider provider) {
+        return summaryModelNames.getOrDefault(provider, "");
+    }
+
+    public void setSummaryModelName(LLMProvider provider, String modelName) {
+        checkMutable();
+        summaryModelNames.put(provider, modelName);
+    }
+
+    /**
+     * Small model that simple requests are sent to first; empty to always use the main model.
+     */
+    public String getFastModelName(LLMProvider provider) {
+        return fastModelNames.getOrDefault(provider, "");
+    }
+
+    public void setFastModelName(LLMProvider provider, String modelName) {
+        checkMutable();
+        fastModelNames.put(provider, modelName);
+    }
+
+    /**
+     * Whether simple requests go to the fast model first, escalating to the main model when needed.
+     */
+    public boolean isCascadeEnabled() {
+        return cascadeEnabled;
+    }
+
+    public void setCascadeEnabled(boolean cascadeEnabled) {
+        checkMutable();
+        this.cascadeEnabled = cascadeEnabled;
+    }
+
+    public boolean isSendProjectContext() {
+        return sendProjectContext;
+    }
+
+    public void setSendProjectContext(boolean sendProjectContext) {
+        checkMutable();
+        this.sendProjectContext = sendProjectContext;
+    }
+
+    public int getMaxTokens() {
+        return maxTokens;
+    }
+
+    public void setMaxTokens(int maxTokens) {
+        checkMutable();
+        this.maxTokens = maxTokens;
+    }
+
+    /**
+     * Largest request to send, in tokens. Longer conversations lose their oldest turns; requests still over the
+     * limit are rejected before they are sent. 0 for no limit.
+     */
+    public int getMaxInputTokens() {
+        return maxInputTokens;
+    }
+
+    public void setMaxInputTokens(int maxInputTokens) {
+        checkMutable();
+        this.maxInputTokens = maxInputTokens;
+    }
+
+    public double getTemperature() {
+        return temperature;
+    }
+
+    public void setTemperature(double temperature) {
+        checkMutable();
+        this.temperature = temperature;
+    }
+
+    public int getCompactionThresholdTokens() {
+        return compactionThresholdTokens;
+    }
+
+    public void setCompactionThresholdTokens(int compactionThresholdTokens) {
+        checkMutable();
+        this.compactionThresholdTokens = compactionThresholdTokens;
+    }
+
+    public int getCompactionKeepTurns() {
+        return compactionKeepTurns;
+    }
+
+    public void setCompactionKeepTurns(int compactionKeepTurns) {
+        checkMutable();
+        this.compactionKeepTurns = compactionKeepTurns;
+    }
+
+    public boolean isRecordingEnabled() {
+        return recordingEnabled;
+    }
+
+    public void setRecordingEnabled(boolean recordingEnabled) {
+        checkMutable();
+        this.recordingEnabled = recordingEnabled;
+    }
+
+    /**
+     * Cassette file sessions are recorded to and replayed from; empty means the default location.
+     */
+    public String getCassettePath() {
+        return cassettePath;
+    }
+
+    public void setCassettePath(String cassettePath) {
+        checkMutable();
+        this.cassettePath = cassettePath;
+    }
+
+    public boolean isReplayRealTiming() {
+        return replayRealTiming;
+    }
+
+    public void setReplayRealTiming(boolean replayRealTiming) {
+        checkMutable();
+        this.replayRealTiming = replayRealTiming;
+    }
+
+    public boolean isInlineCompletionEnabled() {
+        return inlineCompletionEnabled;
+    }
+
+    public void setInlineCompletionEnabled(boolean inlineCompletionEnabled) {
+        checkMutable();
+        this.inlineCompletionEnabled = inlineCompletionEnabled;
+    }
+
+    /**
+     * Typing pause after which an inline completion is requested.
+     */
+    public int getCompletionDebounceMs() {
+        return completionDebounceMs;
+    }
+
+    public void setCompletionDebounceMs(int completionDebounceMs) {
+        checkMutable();
+        this.completionDebounceMs = completionDebounceMs;
+    }
+
+    /**
+     * Time from the end of the typing pause after which an inline completion is dropped instead of shown.
+     */
+    public int getCompletionLatencyBudgetMs() {
+        return completionLatencyBudgetMs;
+    }
+
+    public void setCompletionLatencyBudgetMs(int completionLatencyBudgetMs) {
+        checkMutable();
+        this.completionLatencyBudgetMs = completionLatencyBudgetMs;
+    }
+
+    public boolean isSemanticCacheEnabled() {
+        return semanticCacheEnabled;
+    }
+
+    public void setSemanticCacheEnabled(boolean semanticCacheEnabled) {
+        checkMutable();
+        this.semanticCacheEnabled = semanticCacheEnabled;
+    }
+
+    /**
+     * Minimum similarity (0 to 1) of a prompt to an earlier one for its cached answer to be reused.
+     */
+    public double getSemanticCacheThreshold() {
+        return semanticCacheThreshold;
+    }
+
+    public void setSemanticCacheThreshold(double semanticCacheThreshold) {
+        checkMutable();
+        this.semanticCacheThreshold = semanticCacheThreshold;
+    }
+
+    public int getSemanticCacheMaxEntries() {
+        return semanticCacheMaxEntries;
+    }
+
+    public void setSemanticCacheMaxEntries(int semanticCacheMaxEntries) {
+        checkMutable();
+        this.semanticCacheMaxEntries = semanticCacheMaxEntries;
+    }
+
+    /**
+     * Whether chat requests let the model look up symbols, usages and file contents in the project.
+     */
+    public boolean isProjectToolsEnabled() {
+        return projectToolsEnabled;
+    }
+
+    public void setProjectToolsEnabled(boolean projectToolsEnabled) {
+        checkMutable();
+        this.projectToolsEnabled = projectToolsEnabled;
+    }
+
+    /**
+     * Tokens the results of one turn's tool calls may take up together.
+     */
+    public int getToolResultTokenBudget() {
+        return toolResultTokenBudget;
+    }
+
+    public void setToolResultTokenBudget(int toolResultTokenBudget) {
+        checkMutable();
+        this.toolResultTokenBudget = toolResultTokenBudget;
+    }
+
+    /**
+     * Candidates Generate Code asks for at once; the one that parses and resolves cleanly is offered first.
+     */
+    public int getGenerationCandidates() {
+        return generationCandidates;
+    }
+
+    public void setGenerationCandidates(int generationCandidates) {
+        checkMutable();
+        this.generationCandidates = generationCandidates;
+    }
+
+    /**
+     * Whether the chat builds the context and opens the connection while the prompt is being typed, so that
+     * sending only has to add the prompt.
+     */
+    public boolean isPrepareWhileTyping() {
+        return prepareWhileTyping;
+    }
+
+    public void setPrepareWhileTyping(boolean prepareWhileTyping) {
+        checkMutable();
+        this.prepareWhileTyping = prepareWhileTyping;
+    }
+
+    /**
+     * How many summaries of files related to the current one are sent along with its context; 0 sends none.
+     * Off by default: the files are sent to the provider in the background to be summarized.
+     */
+    public int getRelatedFileSummaries() {
+        return relatedFileSummaries;
+    }
+
+    public void setRelatedFileSummaries(int relatedFileSummaries) {
+        checkMutable();
+        this.relatedFileSummaries = relatedFileSummaries;
+    }
+
+    /**
+     * Whether file context is stripped of license headers, imports, banners and wide indentation before sending.
+     */
+    public boolean isMinifyContext() {
+        return minifyContext;
+    }
+
+    public void setMinifyContext(boolean minifyContext) {
+        checkMutable();
+        this.minifyContext = minifyContext;
+    }
+
+    /**
+     * How long the local server keeps the model loaded after a request, in its duration syntax, e.g. "30m",
+     * or as a plain number of seconds; a negative value such as "-1" keeps it loaded indefinitely.
+     */
+    public String getLocalKeepAlive() {
+        return localKeepAlive;
+    }
+
+    public void setLocalKeepAlive(String localKeepAlive) {
+        checkMutable();
+        this.localKeepAlive = localKeepAlive;
+    }
+
+    /**
+     * Context window to load local models with, in tokens. Conversations that outgrow it lose their cached prefix.
+     */
+    public int getLocalContextLength() {
+        return localContextLength;
+    }
+
+    public void setLocalContextLength(int localContextLength) {
+        checkMutable();
+        this.localContextLength = localContextLength;
+    }
+
+    /**
+     * Parallel slots of the local server that conversations are pinned to; 0 lets the server choose.
+     */
+    public int getLocalSlots() {
+        return localSlots;
+    }
+
+    public void setLocalSlots(int localSlots) {
+        checkMutable();
+        this.localSlots = localSlots;
+    }
+
+    /**
+     * How long to wait for the provider's response to make progress before failing the request.
+     */
+    public int getReadTimeoutSeconds(LLMProvider provider) {
+        return readTimeoutSeconds.getOrDefault(provider, 30);
+    }
+
+    public void setReadTimeoutSeconds(LLMProvider provider, int seconds) {
+        checkMutable();
+        readTimeoutSeconds.put(provider, seconds);
+    }
+
+    public int getConnectTimeoutSeconds() {
+        return connectTimeoutSeconds;
+    }
+
+    public void setConnectTimeoutSeconds(int connectTimeoutSeconds) {
+        checkMutable();
+        this.connectTimeoutSeconds = connectTimeoutSeconds;
+    }
+
+    /**
+     * Idle connections kept open per provider for reuse by later requests.
+     */
+    public int getMaxIdleConnections() {
+        return maxIdleConnections;
+    }
+
+    public void setMaxIdleConnections(int maxIdleConnections) {
+        checkMutable();
+        this.maxIdleConnections = maxIdleConnections;
+    }
+
+    /**
+     * Whether request bodies to this provider are gzip-compressed once they reach the compression threshold.
+     * Only enable for endpoints that accept {@code Content-Encoding: gzip}; an endpoint that answers a compressed
+     * request with 400 or 415 gets it again uncompressed and is not sent compressed requests after that.
+     */
+    public boolean isCompressRequests(LLMProvider provider) {
+        return compressRequests.getOrDefault(provider, false);
+    }
+
+    public void setCompressRequests(LLMProvider provider, boolean compress) {
+        checkMutable();
+        compressRequests.put(provider, compress);
+    }
+
+    /**
+     * Smallest request body, in bytes, worth compressing.
+     */
+    public int getCompressionThresholdBytes() {
+        return compressionThresholdBytes;
+    }
+
+    public void setCompressionThresholdBytes(int compressionThresholdBytes) {
+        checkMutable();
+        this.compressionThresholdBytes = compressionThresholdBytes;
+    }
+}
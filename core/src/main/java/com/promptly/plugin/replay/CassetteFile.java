@@ -0,0 +1,108 @@
+package com.promptly.plugin.replay;
+
+import com.promptly.plugin.models.LLMProvider;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Reads and appends cassette files.
+ * <p>
+ * A cassette is a sequence of gzip members, one per interaction, so recording only ever appends.
+ * Each member holds a compact binary record: format version, key, provider, status, content type,
+ * time to first byte, then the body chunks as (delay, length, bytes).
+ */
+public final class CassetteFile {
+    private static final int FORMAT_VERSION = 1;
+    private static final Object WRITE_LOCK = new Object();
+
+    private CassetteFile() {
+    }
+
+    /**
+     * Location used when no cassette file is configured.
+     */
+    public static Path defaultPath() {
+        return Path.of(System.getProperty("user.home"), ".promptly", "session.cassette");
+    }
+
+    /**
+     * Resolves the configured cassette path, falling back to {@link #defaultPath()}.
+     */
+    public static Path resolve(String configuredPath) {
+        return configuredPath == null || configuredPath.isBlank() ? defaultPath() : Path.of(configuredPath);
+    }
+
+    public static void append(Path file, CassetteInteraction interaction) throws IOException {
+        synchronized (WRITE_LOCK) {
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            try (OutputStream fileOut = Files.newOutputStream(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(fileOut)))) {
+                out.writeByte(FORMAT_VERSION);
+                out.writeUTF(interaction.getKey());
+                out.writeUTF(interaction.getProvider().name());
+                out.writeShort(interaction.getStatusCode());
+                out.writeUTF(interaction.getContentType() == null ? "" : interaction.getContentType());
+                out.writeLong(interaction.getTimeToFirstByteMicros());
+                out.writeInt(interaction.getChunks().size());
+                for (CassetteInteraction.Chunk chunk : interaction.getChunks()) {
+                    out.writeLong(chunk.getDelayMicros());
+                    out.writeInt(chunk.getBytes().length);
+                    out.write(chunk.getBytes());
+                }
+            }
+        }
+    }
+
+    public static List<CassetteInteraction> read(Path file) throws IOException {
+        List<CassetteInteraction> interactions = new ArrayList<>();
+        // GZIPInputStream transparently reads concatenated members
+        try (InputStream fileIn = Files.newInputStream(file);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(fileIn)))) {
+            while (true) {
+                int version;
+                try {
+                    version = in.readUnsignedByte();
+                } catch (EOFException e) {
+                    break;
+                }
+                if (version != FORMAT_VERSION) {
+                    throw new IOException("Unsupported cassette format version " + version + " in " + file);
+                }
+
+                String key = in.readUTF();
+                LLMProvider provider = LLMProvider.valueOf(in.readUTF());
+                int statusCode = in.readUnsignedShort();
+                String contentType = in.readUTF();
+                long timeToFirstByteMicros = in.readLong();
+                int chunkCount = in.readInt();
+                List<CassetteInteraction.Chunk> chunks = new ArrayList<>(chunkCount);
+                for (int i = 0; i < chunkCount; i++) {
+                    long delayMicros = in.readLong();
+                    byte[] bytes = new byte[in.readInt()];
+                    in.readFully(bytes);
+                    chunks.add(new CassetteInteraction.Chunk(delayMicros, bytes));
+                }
+                interactions.add(new CassetteInteraction(key, provider, statusCode,
+                        contentType.isEmpty() ? null : contentType, timeToFirstByteMicros, chunks));
+            }
+        }
+        return interactions;
+    }
+}
@@ -0,0 +1,75 @@
+package com.promptly.plugin.replay;
+
+import com.promptly.plugin.models.LLMProvider;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One recorded request/response pair: the conversation key, the provider that answered,
+ * and the response body as it arrived, chunk by chunk with inter-chunk delays.
+ */
+public final class CassetteInteraction {
+    /**
+     * A piece of the response body and how long after the previous one it arrived.
+     */
+    public static final class Chunk {
+        private final long delayMicros;
+        private final byte[] bytes;
+
+        public Chunk(long delayMicros, byte[] bytes) {
+            this.delayMicros = delayMicros;
+            this.bytes = bytes;
+        }
+
+        public long getDelayMicros() {
+            return delayMicros;
+        }
+
+        public byte[] getBytes() {
+            return bytes;
+        }
+    }
+
+    private final String key;
+    private final LLMProvider provider;
+    private final int statusCode;
+    private final String contentType;
+    private final long timeToFirstByteMicros;
+    private final List<Chunk> chunks;
+
+    public CassetteInteraction(String key, LLMProvider provider, int statusCode, String contentType,
+                               long timeToFirstByteMicros, List<Chunk> chunks) {
+        this.key = key;
+        this.provider = provider;
+        this.statusCode = statusCode;
+        this.contentType = contentType;
+        this.timeToFirstByteMicros = timeToFirstByteMicros;
+        this.chunks = Collections.unmodifiableList(new ArrayList<>(chunks));
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public LLMProvider getProvider() {
+        return provider;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public long getTimeToFirstByteMicros() {
+        return timeToFirstByteMicros;
+    }
+
+    public List<Chunk> getChunks() {
+        return chunks;
+    }
+}
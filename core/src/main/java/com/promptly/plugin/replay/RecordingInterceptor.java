@@ -0,0 +1,120 @@
+package com.promptly.plugin.replay;
+
+import com.promptly.plugin.models.LLMProvider;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.ForwardingSource;
+import okio.Okio;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Application interceptor that tees responses of requests tagged with {@link Tag} into a cassette,
+ * keeping the arrival time of every chunk. Untagged requests pass through untouched, and so do rate limits and
+ * server errors: they say nothing about the conversation and would make its replay fail.
+ */
+public final class RecordingInterceptor implements Interceptor {
+    private static final Logger LOG = Logger.getLogger(RecordingInterceptor.class.getName());
+
+    /**
+     * Request tag asking for the response to be recorded.
+     */
+    public static final class Tag {
+        private final String key;
+        private final LLMProvider provider;
+        private final Path cassette;
+
+        public Tag(String key, LLMProvider provider, Path cassette) {
+            this.key = key;
+            this.provider = provider;
+            this.cassette = cassette;
+        }
+    }
+
+    @NotNull
+    @Override
+    public Response intercept(@NotNull Chain chain) throws IOException {
+        Tag tag = chain.request().tag(Tag.class);
+        long sentNanos = System.nanoTime();
+        Response response = chain.proceed(chain.request());
+        ResponseBody body = response.body();
+        if (tag == null || body == null || response.code() == 429 || response.code() >= 500) {
+            return response;
+        }
+
+        long timeToFirstByteMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - sentNanos);
+        MediaType contentType = body.contentType();
+        RecordingSource source = new RecordingSource(body.source(), tag, response.code(),
+                contentType == null ? null : contentType.toString(), timeToFirstByteMicros);
+        BufferedSource recorded = Okio.buffer(source);
+        return response.newBuilder()
+                .body(ResponseBody.create(recorded, contentType, body.contentLength()))
+                .build();
+    }
+
+    private static final class RecordingSource extends ForwardingSource {
+        private final Tag tag;
+        private final int statusCode;
+        private final String contentType;
+        private final long timeToFirstByteMicros;
+        private final List<CassetteInteraction.Chunk> chunks = new ArrayList<>();
+        private long lastChunkNanos = System.nanoTime();
+        private boolean saved;
+
+        RecordingSource(BufferedSource delegate, Tag tag, int statusCode, String contentType,
+                        long timeToFirstByteMicros) {
+            super(delegate);
+            this.tag = tag;
+            this.statusCode = statusCode;
+            this.contentType = contentType;
+            this.timeToFirstByteMicros = timeToFirstByteMicros;
+        }
+
+        @Override
+        public long read(@NotNull Buffer sink, long byteCount) throws IOException {
+            long read = super.read(sink, byteCount);
+            if (read > 0) {
+                long now = System.nanoTime();
+                // copyTo returns the sink itself, so the bytes are read from the copy, leaving the caller's data
+                Buffer copy = new Buffer();
+                sink.copyTo(copy, sink.size() - read, read);
+                byte[] bytes = copy.readByteArray();
+                chunks.add(new CassetteInteraction.Chunk(TimeUnit.NANOSECONDS.toMicros(now - lastChunkNanos), bytes));
+                lastChunkNanos = now;
+            } else if (read == -1) {
+                save();
+            }
+            return read;
+        }
+
+        @Override
+        public void close() throws IOException {
+            super.close();
+            save();
+        }
+
+        private void save() {
+            if (saved) {
+                return;
+            }
+            saved = true;
+            try {
+                CassetteFile.append(tag.cassette, new CassetteInteraction(tag.key, tag.provider, statusCode,
+                        contentType, timeToFirstByteMicros, chunks));
+            } catch (IOException e) {
+                LOG.log(Level.WARNING, "Failed to record interaction to " + tag.cassette, e);
+            }
+        }
+    }
+}
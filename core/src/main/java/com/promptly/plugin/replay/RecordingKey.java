@@ -0,0 +1,33 @@
+package com.promptly.plugin.replay;
+
+import com.promptly.plugin.models.ChatMessage;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Provider-independent key of a conversation, so a session recorded against one provider
+ * can be replayed whatever the request serialization looks like.
+ */
+public final class RecordingKey {
+    private RecordingKey() {
+    }
+
+    public static String of(List<ChatMessage> messages) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (ChatMessage message : messages) {
+                digest.update(message.getRole().name().getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+                digest.update(message.getContent().getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.promptly.plugin.replay;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A loaded cassette indexed by conversation key. When the same conversation was recorded
+ * several times, the recordings are served in order and then start over.
+ */
+public final class ReplayCassette {
+    private final Map<String, List<CassetteInteraction>> byKey = new HashMap<>();
+    private final Map<String, Integer> cursors = new HashMap<>();
+    private final int size;
+
+    private ReplayCassette(List<CassetteInteraction> interactions) {
+        for (CassetteInteraction interaction : interactions) {
+            byKey.computeIfAbsent(interaction.getKey(), key -> new ArrayList<>()).add(interaction);
+        }
+        this.size = interactions.size();
+    }
+
+    public static ReplayCassette load(Path file) throws IOException {
+        return new ReplayCassette(CassetteFile.read(file));
+    }
+
+    /**
+     * Returns the next recording for the conversation, or null if it was never recorded.
+     */
+    public synchronized CassetteInteraction next(String key) {
+        List<CassetteInteraction> recordings = byKey.get(key);
+        if (recordings == null) {
+            return null;
+        }
+        int cursor = cursors.getOrDefault(key, 0);
+        cursors.put(key, (cursor + 1) % recordings.size());
+        return recordings.get(cursor);
+    }
+
+    public int size() {
+        return size;
+    }
+}
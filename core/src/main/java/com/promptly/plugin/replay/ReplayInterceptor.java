@@ -0,0 +1,128 @@
+package com.promptly.plugin.replay;
+
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.Okio;
+import okio.Source;
+import okio.Timeout;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Application interceptor answering requests tagged with {@link Tag} from a cassette instead
+ * of the network. The body is emitted chunk by chunk, optionally with the recorded delays,
+ * so streaming and rendering code sees the same arrival pattern as in the original session.
+ */
+public final class ReplayInterceptor implements Interceptor {
+    /**
+     * Placeholder URL for replayed requests; never contacted.
+     */
+    public static final String REPLAY_URL = "http://replay.promptly.invalid/";
+
+    /**
+     * Request tag carrying the recording to serve.
+     */
+    public static final class Tag {
+        private final CassetteInteraction interaction;
+        private final boolean realTiming;
+
+        public Tag(CassetteInteraction interaction, boolean realTiming) {
+            this.interaction = interaction;
+            this.realTiming = realTiming;
+        }
+    }
+
+    @NotNull
+    @Override
+    public Response intercept(@NotNull Chain chain) throws IOException {
+        Tag tag = chain.request().tag(Tag.class);
+        if (tag == null) {
+            return chain.proceed(chain.request());
+        }
+
+        CassetteInteraction interaction = tag.interaction;
+        if (tag.realTiming) {
+            sleepMicros(interaction.getTimeToFirstByteMicros());
+        }
+
+        MediaType contentType = interaction.getContentType() == null
+                ? null
+                : MediaType.parse(interaction.getContentType());
+        long length = 0;
+        for (CassetteInteraction.Chunk chunk : interaction.getChunks()) {
+            length += chunk.getBytes().length;
+        }
+
+        return new Response.Builder()
+                .request(chain.request())
+                .protocol(Protocol.HTTP_1_1)
+                .code(interaction.getStatusCode())
+                .message("Replayed")
+                .body(ResponseBody.create(Okio.buffer(new ReplaySource(interaction.getChunks(), tag.realTiming)),
+                        contentType, length))
+                .build();
+    }
+
+    private static void sleepMicros(long micros) throws InterruptedIOException {
+        if (micros <= 0) {
+            return;
+        }
+        try {
+            TimeUnit.MICROSECONDS.sleep(micros);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Replay interrupted");
+        }
+    }
+
+    private static final class ReplaySource implements Source {
+        private final List<CassetteInteraction.Chunk> chunks;
+        private final boolean realTiming;
+        private int chunkIndex = 0;
+        private int offset = 0;
+
+        ReplaySource(List<CassetteInteraction.Chunk> chunks, boolean realTiming) {
+            this.chunks = chunks;
+            this.realTiming = realTiming;
+        }
+
+        @Override
+        public long read(@NotNull Buffer sink, long byteCount) throws IOException {
+            if (chunkIndex >= chunks.size()) {
+                return -1;
+            }
+
+            CassetteInteraction.Chunk chunk = chunks.get(chunkIndex);
+            if (offset == 0 && realTiming) {
+                sleepMicros(chunk.getDelayMicros());
+            }
+            int count = (int) Math.min(byteCount, chunk.getBytes().length - offset);
+            sink.write(chunk.getBytes(), offset, count);
+            offset += count;
+            if (offset >= chunk.getBytes().length) {
+                chunkIndex++;
+                offset = 0;
+            }
+            return count;
+        }
+
+        @NotNull
+        @Override
+        public Timeout timeout() {
+            return Timeout.NONE;
+        }
+
+        @Override
+        public void close() {
+            chunkIndex = chunks.size();
+        }
+    }
+}
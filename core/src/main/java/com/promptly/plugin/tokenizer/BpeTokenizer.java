@@ -0,0 +1,138 @@
+package com.promptly.plugin.tokenizer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Byte-level BPE tokenizer reading vocabularies in the tiktoken rank file format
+ * ({@code base64(token) rank} per line).
+ */
+public final class BpeTokenizer implements Tokenizer {
+    private final String id;
+    private final Pattern pretokenizer;
+    private final ByteRankTable ranks;
+
+    private BpeTokenizer(String id, Pattern pretokenizer, ByteRankTable ranks) {
+        this.id = id;
+        this.pretokenizer = pretokenizer;
+        this.ranks = ranks;
+    }
+
+    /**
+     * Loads a tokenizer from a tiktoken rank file.
+     *
+     * @param id Encoding name, e.g. {@code cl100k_base}
+     * @param pretokenizer Regex splitting text into pieces before merging
+     * @param rankFile Stream of the rank file, closed by the caller
+     */
+    public static BpeTokenizer load(String id, Pattern pretokenizer, InputStream rankFile) throws IOException {
+        ByteRankTable table = new ByteRankTable(200_000);
+        Base64.Decoder decoder = Base64.getDecoder();
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(rankFile, StandardCharsets.US_ASCII));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            int space = line.indexOf(' ');
+            if (space <= 0) {
+                continue;
+            }
+            byte[] token = decoder.decode(line.substring(0, space));
+            int rank = Integer.parseInt(line.substring(space + 1).trim());
+            table.put(token, rank);
+        }
+
+        if (table.size() == 0) {
+            throw new IOException("Empty vocabulary for " + id);
+        }
+        return new BpeTokenizer(id, pretokenizer, table);
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public int countTokens(CharSequence text) {
+        if (text == null || text.length() == 0) {
+            return 0;
+        }
+
+        int total = 0;
+        Matcher matcher = pretokenizer.matcher(text);
+        while (matcher.find()) {
+            byte[] piece = text.subSequence(matcher.start(), matcher.end())
+                    .toString()
+                    .getBytes(StandardCharsets.UTF_8);
+            if (ranks.get(piece, 0, piece.length) >= 0) {
+                total++;
+            } else {
+                total += countMerged(piece);
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Runs the byte pair merge over one piece and returns the number of resulting tokens.
+     * Mirrors tiktoken's merge loop: repeatedly join the adjacent pair with the lowest rank.
+     */
+    private int countMerged(byte[] piece) {
+        int n = piece.length;
+        if (n == 1) {
+            return 1;
+        }
+
+        // starts[i] is the start offset of the i-th part; parts end where the next one starts
+        int[] starts = new int[n + 1];
+        int[] pairRanks = new int[n + 1];
+        for (int i = 0; i <= n; i++) {
+            starts[i] = i;
+        }
+        int parts = n;
+        for (int i = 0; i < parts - 1; i++) {
+            pairRanks[i] = rankOf(piece, starts, parts, i);
+        }
+        pairRanks[parts - 1] = Integer.MAX_VALUE;
+
+        while (parts > 1) {
+            int best = -1;
+            int bestRank = Integer.MAX_VALUE;
+            for (int i = 0; i < parts - 1; i++) {
+                if (pairRanks[i] < bestRank) {
+                    bestRank = pairRanks[i];
+                    best = i;
+                }
+            }
+            if (best < 0) {
+                break;
+            }
+
+            // Merge part best+1 into part best
+            System.arraycopy(starts, best + 2, starts, best + 1, parts - best - 1);
+            System.arraycopy(pairRanks, best + 2, pairRanks, best + 1, parts - best - 2);
+            parts--;
+
+            pairRanks[parts - 1] = Integer.MAX_VALUE;
+            if (best < parts - 1) {
+                pairRanks[best] = rankOf(piece, starts, parts, best);
+            }
+            if (best > 0) {
+                pairRanks[best - 1] = rankOf(piece, starts, parts, best - 1);
+            }
+        }
+        return parts;
+    }
+
+    private int rankOf(byte[] piece, int[] starts, int parts, int index) {
+        int end = index + 2 <= parts ? starts[index + 2] : piece.length;
+        int rank = ranks.get(piece, starts[index], end);
+        return rank < 0 ? Integer.MAX_VALUE : rank;
+    }
+}
@@ -0,0 +1,110 @@
+package com.promptly.plugin.tokenizer;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash table from byte sequences to BPE merge ranks.
+ * All token bytes live in one shared pool so lookups never allocate.
+ */
+final class ByteRankTable {
+    private static final int EMPTY = -1;
+
+    private byte[] pool = new byte[1 << 20];
+    private int poolSize = 0;
+    private int[] offsets = new int[1 << 16];
+    private int[] lengths = new int[1 << 16];
+    private int[] ranks = new int[1 << 16];
+    private int count = 0;
+    private int[] slots;
+    private int mask;
+
+    ByteRankTable(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, expectedSize * 2 - 1)) << 1;
+        slots = new int[capacity];
+        Arrays.fill(slots, EMPTY);
+        mask = capacity - 1;
+    }
+
+    int size() {
+        return count;
+    }
+
+    void put(byte[] token, int rank) {
+        if (count * 2 >= slots.length) {
+            rehash(slots.length << 1);
+        }
+        ensureEntryCapacity();
+        ensurePoolCapacity(token.length);
+
+        System.arraycopy(token, 0, pool, poolSize, token.length);
+        offsets[count] = poolSize;
+        lengths[count] = token.length;
+        ranks[count] = rank;
+        poolSize += token.length;
+
+        int slot = hash(token, 0, token.length) & mask;
+        while (slots[slot] != EMPTY) {
+            slot = (slot + 1) & mask;
+        }
+        slots[slot] = count++;
+    }
+
+    /**
+     * @return the rank of {@code bytes[from, to)} or -1 if it is not a token
+     */
+    int get(byte[] bytes, int from, int to) {
+        int length = to - from;
+        int slot = hash(bytes, from, length) & mask;
+        while (true) {
+            int entry = slots[slot];
+            if (entry == EMPTY) {
+                return -1;
+            }
+            if (lengths[entry] == length
+                    && Arrays.equals(pool, offsets[entry], offsets[entry] + length, bytes, from, to)) {
+                return ranks[entry];
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private void rehash(int capacity) {
+        slots = new int[capacity];
+        Arrays.fill(slots, EMPTY);
+        mask = capacity - 1;
+        for (int entry = 0; entry < count; entry++) {
+            int slot = hash(pool, offsets[entry], lengths[entry]) & mask;
+            while (slots[slot] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = entry;
+        }
+    }
+
+    private void ensureEntryCapacity() {
+        if (count == offsets.length) {
+            offsets = Arrays.copyOf(offsets, count << 1);
+            lengths = Arrays.copyOf(lengths, count << 1);
+            ranks = Arrays.copyOf(ranks, count << 1);
+        }
+    }
+
+    private void ensurePoolCapacity(int extra) {
+        if (poolSize + extra > pool.length) {
+            pool = Arrays.copyOf(pool, Math.max(pool.length << 1, poolSize + extra));
+        }
+    }
+
+    private static int hash(byte[] bytes, int from, int length) {
+        // FNV-1a, finished with a murmur-style mix so linear probing stays short
+        int h = 0x811C9DC5;
+        for (int i = from; i < from + length; i++) {
+            h ^= bytes[i];
+            h *= 0x01000193;
+        }
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        return h;
+    }
+}
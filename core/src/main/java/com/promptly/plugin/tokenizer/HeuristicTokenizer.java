@@ -0,0 +1,55 @@
+package com.promptly.plugin.tokenizer;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Approximate token counter for model families without a public vocabulary.
+ * Splits text the same way the BPE encoders do and charges each piece by length.
+ */
+public final class HeuristicTokenizer implements Tokenizer {
+    private final String id;
+    private final Pattern pretokenizer;
+    private final double charsPerToken;
+
+    /**
+     * @param id Identifier of the estimate, e.g. {@code heuristic-3.5}
+     * @param pretokenizer Regex splitting text into pieces
+     * @param charsPerToken Average number of ASCII characters per token for this model family
+     */
+    public HeuristicTokenizer(String id, Pattern pretokenizer, double charsPerToken) {
+        this.id = id;
+        this.pretokenizer = pretokenizer;
+        this.charsPerToken = charsPerToken;
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public int countTokens(CharSequence text) {
+        if (text == null || text.length() == 0) {
+            return 0;
+        }
+
+        int total = 0;
+        Matcher matcher = pretokenizer.matcher(text);
+        while (matcher.find()) {
+            int ascii = 0;
+            int other = 0;
+            for (int i = matcher.start(); i < matcher.end(); i++) {
+                char c = text.charAt(i);
+                if (c < 0x80) {
+                    ascii++;
+                } else if (!Character.isLowSurrogate(c)) {
+                    // Non-ASCII code points rarely share a token with their neighbours
+                    other++;
+                }
+            }
+            total += other + (ascii == 0 ? 0 : Math.max(1, (int) Math.ceil(ascii / charsPerToken)));
+        }
+        return total;
+    }
+}
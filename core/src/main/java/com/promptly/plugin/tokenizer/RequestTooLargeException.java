@@ -0,0 +1,28 @@
+package com.promptly.plugin.tokenizer;
+
+import java.io.IOException;
+
+/**
+ * Thrown instead of sending a request the model could not take, even after dropping earlier turns.
+ */
+public final class RequestTooLargeException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    private final int tokens;
+    private final int limit;
+
+    public RequestTooLargeException(int tokens, int limit) {
+        super(String.format("Request of %,d tokens exceeds the limit of %,d; shorten the prompt or the context",
+                tokens, limit));
+        this.tokens = tokens;
+        this.limit = limit;
+    }
+
+    public int getTokens() {
+        return tokens;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+}
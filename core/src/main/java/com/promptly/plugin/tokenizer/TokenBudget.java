@@ -0,0 +1,64 @@
+package com.promptly.plugin.tokenizer;
+
+import com.promptly.plugin.models.ChatMessage;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fits a conversation into the model's input limit before it is sent, so an oversized request fails or shrinks
+ * locally instead of after a round trip.
+ * <p>
+ * A turn starts at a user message and runs up to the next one, including its context, tool calls and answer.
+ * Whole turns are dropped, oldest first, so tool calls never lose their results. Messages in front of the first
+ * turn, such as a summary of the earlier conversation, and the current turn are always kept.
+ */
+public final class TokenBudget {
+    private TokenBudget() {
+    }
+
+    /**
+     * Returns the messages unchanged if they fit, otherwise without as many of the oldest turns as needed.
+     *
+     * @param maxTokens Input limit including per-message overhead; 0 or less for no limit
+     * @throws RequestTooLargeException if the current turn alone is over the limit
+     */
+    public static List<ChatMessage> fit(List<ChatMessage> messages, Tokenizer tokenizer, int maxTokens)
+            throws RequestTooLargeException {
+        if (maxTokens <= 0) {
+            return messages;
+        }
+        int total = Tokenizers.countMessages(messages, tokenizer);
+        if (total <= maxTokens) {
+            return messages;
+        }
+
+        List<Integer> turnStarts = new ArrayList<>();
+        for (int i = 0; i < messages.size(); i++) {
+            if (messages.get(i).getRole() == ChatMessage.Role.USER) {
+                turnStarts.add(i);
+            }
+        }
+        if (turnStarts.size() < 2) {
+            throw new RequestTooLargeException(total, maxTokens);
+        }
+
+        int head = turnStarts.get(0);
+        int cut = head;
+        for (int turn = 1; turn < turnStarts.size() && total > maxTokens; turn++) {
+            int next = turnStarts.get(turn);
+            for (int i = cut; i < next; i++) {
+                total -= messages.get(i).getTokenCount(tokenizer) + Tokenizers.MESSAGE_OVERHEAD_TOKENS;
+            }
+            cut = next;
+        }
+        if (total > maxTokens) {
+            throw new RequestTooLargeException(total, maxTokens);
+        }
+
+        List<ChatMessage> fitted = new ArrayList<>(head + messages.size() - cut);
+        fitted.addAll(messages.subList(0, head));
+        fitted.addAll(messages.subList(cut, messages.size()));
+        return fitted;
+    }
+}
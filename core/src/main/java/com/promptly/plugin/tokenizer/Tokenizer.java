@@ -0,0 +1,16 @@
+package com.promptly.plugin.tokenizer;
+
+/**
+ * Counts tokens for a model family without contacting the provider.
+ */
+public interface Tokenizer {
+    /**
+     * Stable identifier of the encoding, used to key memoized counts.
+     */
+    String getId();
+
+    /**
+     * Returns the number of tokens the model would see for the given text.
+     */
+    int countTokens(CharSequence text);
+}
@@ -0,0 +1,96 @@
+package com.promptly.plugin.tokenizer;
+
+import com.promptly.plugin.models.ChatMessage;
+import com.promptly.plugin.models.LLMProvider;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+/**
+ * Picks and caches the tokenizer matching a provider and model.
+ * BPE vocabularies are bundled under {@code /tokenizers/<encoding>.tiktoken};
+ * when one is missing, or the provider publishes none, a calibrated heuristic is used instead.
+ */
+public final class Tokenizers {
+    private static final Logger LOG = Logger.getLogger(Tokenizers.class.getName());
+
+    /** Tokens every message costs on top of its content (role and separators). */
+    public static final int MESSAGE_OVERHEAD_TOKENS = 4;
+
+    static final Pattern CL100K_PATTERN = Pattern.compile(
+            "(?i:'s|'t|'re|'ve|'m|'ll|'d)|[^\\r\\n\\p{L}\\p{N}]?\\p{L}+|\\p{N}{1,3}"
+                    + "| ?[^\\s\\p{L}\\p{N}]+[\\r\\n]*|\\s*[\\r\\n]+|\\s+(?!\\S)|\\s+");
+
+    static final Pattern O200K_PATTERN = Pattern.compile(
+            "[^\\r\\n\\p{L}\\p{N}]?[\\p{Lu}\\p{Lt}\\p{Lm}\\p{Lo}\\p{M}]*[\\p{Ll}\\p{Lm}\\p{Lo}\\p{M}]+(?i:'s|'t|'re|'ve|'m|'ll|'d)?"
+                    + "|[^\\r\\n\\p{L}\\p{N}]?[\\p{Lu}\\p{Lt}\\p{Lm}\\p{Lo}\\p{M}]+[\\p{Ll}\\p{Lm}\\p{Lo}\\p{M}]*(?i:'s|'t|'re|'ve|'m|'ll|'d)?"
+                    + "|\\p{N}{1,3}| ?[^\\s\\p{L}\\p{N}]+[\\r\\n/]*|\\s*[\\r\\n]+|\\s+(?!\\S)|\\s+");
+
+    private static final Map<String, Tokenizer> CACHE = new ConcurrentHashMap<>();
+
+    private Tokenizers() {
+    }
+
+    /**
+     * Returns the tokenizer for the given provider and model name.
+     */
+    public static Tokenizer forModel(LLMProvider provider, String modelName) {
+        String model = modelName == null ? "" : modelName.toLowerCase();
+
+        switch (provider) {
+            case OPENAI:
+                if (model.startsWith("gpt-4o") || model.startsWith("gpt-4.1") || model.matches("^o\\d.*")) {
+                    return encoding("o200k_base", O200K_PATTERN, 4.0);
+                }
+                return encoding("cl100k_base", CL100K_PATTERN, 4.0);
+
+            case ANTHROPIC:
+                // Claude's vocabulary is not public; it runs slightly denser than cl100k on code
+                return heuristic(3.5);
+
+            case GOOGLE:
+                return heuristic(4.0);
+
+            case LOCAL:
+            case CUSTOM:
+            default:
+                return heuristic(4.0);
+        }
+    }
+
+    /**
+     * Counts the tokens of a whole conversation, reusing counts memoized on each message.
+     */
+    public static int countMessages(List<ChatMessage> messages, Tokenizer tokenizer) {
+        int total = 0;
+        for (ChatMessage message : messages) {
+            total += message.getTokenCount(tokenizer) + MESSAGE_OVERHEAD_TOKENS;
+        }
+        return total;
+    }
+
+    private static Tokenizer heuristic(double charsPerToken) {
+        String id = "heuristic-" + charsPerToken;
+        return CACHE.computeIfAbsent(id, key -> new HeuristicTokenizer(key, CL100K_PATTERN, charsPerToken));
+    }
+
+    private static Tokenizer encoding(String name, Pattern pattern, double fallbackCharsPerToken) {
+        return CACHE.computeIfAbsent(name, key -> {
+            try (InputStream stream = Tokenizers.class.getResourceAsStream("/tokenizers/" + key + ".tiktoken")) {
+                if (stream != null) {
+                    return BpeTokenizer.load(key, pattern, stream);
+                }
+                LOG.info("No bundled vocabulary for " + key + ", falling back to estimates");
+            } catch (IOException | RuntimeException e) {
+                LOG.log(Level.WARNING, "Failed to load vocabulary " + key, e);
+            }
+            return new HeuristicTokenizer("heuristic-" + key, pattern, fallbackCharsPerToken);
+        });
+    }
+}
@@ -0,0 +1,79 @@
+package com.promptly.plugin.tools;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+
+/**
+ * A tool invocation requested by the model.
+ */
+public final class ToolCall {
+    private final String id;
+    private final String name;
+    private final JsonNode arguments;
+    private final String argumentError;
+
+    /**
+     * @param id Provider-assigned id that the result must refer to; generated for providers without ids
+     * @param arguments JSON object with the arguments
+     */
+    public ToolCall(String id, String name, JsonNode arguments) {
+        this(id, name, arguments, null);
+    }
+
+    private ToolCall(String id, String name, JsonNode arguments, String argumentError) {
+        this.id = id;
+        this.name = name;
+        this.arguments = arguments;
+        this.argumentError = argumentError;
+    }
+
+    /**
+     * A call whose arguments could not be read. It is not run; its result tells the model what was wrong.
+     */
+    public static ToolCall invalid(String id, String name, String argumentError) {
+        return new ToolCall(id, name, JsonNodeFactory.instance.objectNode(), argumentError);
+    }
+
+    /**
+     * @return why the arguments could not be read, or null if they are usable
+     */
+    public String getArgumentError() {
+        return argumentError;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public JsonNode getArguments() {
+        return arguments;
+    }
+
+    public String getString(String argument) {
+        JsonNode value = arguments.get(argument);
+        return value != null && !value.isNull() ? value.asText() : null;
+    }
+
+    public int getInt(String argument, int defaultValue) {
+        JsonNode value = arguments.get(argument);
+        return value != null && value.canConvertToInt() ? value.asInt()
+                : value != null && value.isTextual() ? parseInt(value.asText(), defaultValue) : defaultValue;
+    }
+
+    private static int parseInt(String text, int defaultValue) {
+        try {
+            return Integer.parseInt(text.trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return name + arguments;
+    }
+}
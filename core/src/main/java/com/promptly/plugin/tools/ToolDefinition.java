@@ -0,0 +1,72 @@
+package com.promptly.plugin.tools;
+
+import java.util.List;
+
+/**
+ * A function the model may call, described in the provider-neutral form the request codecs translate.
+ * Parameters are strings or integers, which is all the project tools need.
+ */
+public final class ToolDefinition {
+    private final String name;
+    private final String description;
+    private final List<Parameter> parameters;
+
+    public ToolDefinition(String name, String description, List<Parameter> parameters) {
+        this.name = name;
+        this.description = description;
+        this.parameters = parameters;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public List<Parameter> getParameters() {
+        return parameters;
+    }
+
+    public static final class Parameter {
+        private final String name;
+        private final String type;
+        private final String description;
+        private final boolean required;
+
+        private Parameter(String name, String type, String description, boolean required) {
+            this.name = name;
+            this.type = type;
+            this.description = description;
+            this.required = required;
+        }
+
+        public static Parameter string(String name, String description, boolean required) {
+            return new Parameter(name, "string", description, required);
+        }
+
+        public static Parameter integer(String name, String description, boolean required) {
+            return new Parameter(name, "integer", description, required);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * JSON schema type, "string" or "integer".
+         */
+        public String getType() {
+            return type;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+
+        public boolean isRequired() {
+            return required;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.promptly.plugin.tools;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Runs the tools the model asked for in one turn.
+ */
+public interface ToolExecutor {
+    /**
+     * Runs all calls, in parallel where possible. A failing call yields an error text as its result rather than
+     * failing the whole turn.
+     *
+     * @return the results in the order of {@code calls}
+     */
+    CompletableFuture<List<String>> execute(List<ToolCall> calls);
+}
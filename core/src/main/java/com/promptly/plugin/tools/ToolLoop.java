@@ -0,0 +1,137 @@
+package com.promptly.plugin.tools;
+
+import com.promptly.plugin.client.LLMClient;
+import com.promptly.plugin.models.ChatMessage;
+import com.promptly.plugin.models.ModelReply;
+import com.promptly.plugin.models.PromptOptions;
+import com.promptly.plugin.models.PromptlySettings;
+import com.promptly.plugin.tokenizer.Tokenizer;
+import com.promptly.plugin.tokenizer.Tokenizers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Sends a conversation with tools attached and keeps answering the model's tool calls until it replies with text.
+ * Each turn's calls run through the {@link ToolExecutor} together, and their results are fitted into the tool
+ * result token budget before they are sent back. Calls with unreadable arguments are answered with an error instead
+ * of being run. After {@value #MAX_ROUNDS} rounds the remaining calls are declined and the model has to answer
+ * without tools. The semantic cache, if the options ask for it, is consulted once
+ * for the whole conversation and gets only the final answer; the individual turns bypass it.
+ */
+public final class ToolLoop {
+    static final int MAX_ROUNDS = 6;
+    static final String LIMIT_REACHED = "Not run: the limit of tool calls for this answer was reached. "
+            + "Answer with the information gathered so far.";
+
+    private final LLMClient client;
+    private final ToolExecutor executor;
+
+    public ToolLoop(LLMClient client, ToolExecutor executor) {
+        this.client = client;
+        this.executor = executor;
+    }
+
+    /**
+     * @param messages Conversation so far; copied, the tool messages are not added to it
+     * @param options Must carry the tools to offer
+     * @return CompletableFuture with the final answer text; cancelling it cancels the request or tools in flight
+     */
+    public CompletableFuture<String> run(List<ChatMessage> messages, PromptOptions options, PromptlySettings settings) {
+        List<ChatMessage> asked = List.copyOf(messages);
+        String cached = client.lookupCachedAnswer(asked, options, settings);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        PromptOptions turnOptions = options.copy();
+        turnOptions.setUseSemanticCache(false);
+        CompletableFuture<String> result = new CompletableFuture<>();
+        result.thenAccept(answer -> client.cacheAnswer(asked, options, settings, answer));
+        round(new ArrayList<>(asked), turnOptions, settings, 1, result);
+        return result;
+    }
+
+    private void round(List<ChatMessage> conversation, PromptOptions options, PromptlySettings settings, int round,
+                       CompletableFuture<String> result) {
+        if (result.isDone()) {
+            return;
+        }
+        CompletableFuture<ModelReply> turn = client.sendTurn(conversation, options, settings);
+        cancelWith(result, turn);
+        turn.whenComplete((reply, error) -> {
+            if (error != null) {
+                result.completeExceptionally(error);
+                return;
+            }
+            if (reply.getToolCalls().isEmpty() || !options.isToolCallsAllowed()) {
+                result.complete(reply.getText());
+                return;
+            }
+
+            List<ToolCall> calls = reply.getToolCalls();
+            if (round >= MAX_ROUNDS) {
+                // Force a text answer instead of returning whatever text came with the last calls, often none
+                conversation.add(ChatMessage.toolCalls(reply.getText(), calls));
+                for (ToolCall call : calls) {
+                    conversation.add(ChatMessage.toolResult(call, LIMIT_REACHED));
+                }
+                PromptOptions finalOptions = options.copy();
+                finalOptions.setToolCallsAllowed(false);
+                round(conversation, finalOptions, settings, round + 1, result);
+                return;
+            }
+
+            CompletableFuture<List<String>> tools = execute(calls);
+            cancelWith(result, tools);
+            tools.whenComplete((outputs, toolError) -> {
+                if (toolError != null) {
+                    result.completeExceptionally(toolError);
+                    return;
+                }
+                Tokenizer tokenizer = Tokenizers.forModel(settings.getSelectedProvider(),
+                        options.resolveModel(settings, settings.getSelectedProvider()));
+                List<String> fitted = ToolResultBudget.fit(outputs, settings.getToolResultTokenBudget(), tokenizer);
+
+                conversation.add(ChatMessage.toolCalls(reply.getText(), calls));
+                for (int i = 0; i < calls.size(); i++) {
+                    conversation.add(ChatMessage.toolResult(calls.get(i), fitted.get(i)));
+                }
+                round(conversation, options, settings, round + 1, result);
+            });
+        });
+    }
+
+    /**
+     * Runs the calls with usable arguments; the others get their argument error as result.
+     */
+    private CompletableFuture<List<String>> execute(List<ToolCall> calls) {
+        List<ToolCall> runnable = new ArrayList<>();
+        for (ToolCall call : calls) {
+            if (call.getArgumentError() == null) {
+                runnable.add(call);
+            }
+        }
+        CompletableFuture<List<String>> outputs = runnable.isEmpty()
+                ? CompletableFuture.completedFuture(List.of()) : executor.execute(runnable);
+        CompletableFuture<List<String>> merged = outputs.thenApply(results -> {
+            List<String> all = new ArrayList<>(calls.size());
+            int next = 0;
+            for (ToolCall call : calls) {
+                all.add(call.getArgumentError() == null ? results.get(next++) : "Error: " + call.getArgumentError());
+            }
+            return all;
+        });
+        cancelWith(merged, outputs);
+        return merged;
+    }
+
+    private static void cancelWith(CompletableFuture<?> result, CompletableFuture<?> step) {
+        result.whenComplete((value, error) -> {
+            if (result.isCancelled()) {
+                step.cancel(true);
+            }
+        });
+    }
+}
@@ -0,0 +1,50 @@
+package com.promptly.plugin.tools;
+
+import com.promptly.plugin.tokenizer.Tokenizer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Fits the results of one turn's tool calls into a token budget. Small results are kept whole and what they do
+ * not use is shared among the larger ones, which are cut at a line boundary.
+ */
+public final class ToolResultBudget {
+    private ToolResultBudget() {
+    }
+
+    public static List<String> fit(List<String> results, int budgetTokens, Tokenizer tokenizer) {
+        int[] tokens = new int[results.size()];
+        Integer[] bySize = new Integer[results.size()];
+        for (int i = 0; i < results.size(); i++) {
+            tokens[i] = tokenizer.countTokens(results.get(i));
+            bySize[i] = i;
+        }
+        Arrays.sort(bySize, Comparator.comparingInt(i -> tokens[i]));
+
+        String[] fitted = new String[results.size()];
+        int remaining = budgetTokens;
+        for (int rank = 0; rank < bySize.length; rank++) {
+            int i = bySize[rank];
+            int share = remaining / (bySize.length - rank);
+            if (tokens[i] <= share) {
+                fitted[i] = results.get(i);
+                remaining -= tokens[i];
+            } else {
+                fitted[i] = truncate(results.get(i), tokens[i], share);
+                remaining -= share;
+            }
+        }
+        return new ArrayList<>(Arrays.asList(fitted));
+    }
+
+    private static String truncate(String text, int tokens, int allowedTokens) {
+        // Proportional cut; token density is close enough to uniform within one result
+        int chars = (int) ((long) text.length() * Math.max(0, allowedTokens) / Math.max(1, tokens));
+        int lineEnd = text.lastIndexOf('\n', chars);
+        int end = lineEnd > chars / 2 ? lineEnd : chars;
+        return text.substring(0, end) + "\n[truncated " + (text.length() - end) + " more characters]";
+    }
+}
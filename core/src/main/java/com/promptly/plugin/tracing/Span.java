@@ -0,0 +1,52 @@
+package com.promptly.plugin.tracing;
+
+/**
+ * One timed phase of a traced request. Times are {@link System#nanoTime()} readings.
+ */
+public final class Span {
+    private final String name;
+    private final String category;
+    private final String threadName;
+    private final long startNanos;
+    private volatile long endNanos;
+
+    Span(String name, String category, long startNanos, long endNanos) {
+        this.name = name;
+        this.category = category;
+        this.threadName = Thread.currentThread().getName();
+        this.startNanos = startNanos;
+        this.endNanos = endNanos;
+    }
+
+    /**
+     * Ends the span now. Ending an already ended span has no effect.
+     */
+    public void end() {
+        if (endNanos == 0) {
+            endNanos = System.nanoTime();
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public String getThreadName() {
+        return threadName;
+    }
+
+    public long getStartNanos() {
+        return startNanos;
+    }
+
+    /**
+     * @return the end time, or 0 if the span is still open
+     */
+    public long getEndNanos() {
+        return endNanos;
+    }
+}
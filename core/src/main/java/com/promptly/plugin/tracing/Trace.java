@@ -0,0 +1,86 @@
+package com.promptly.plugin.tracing;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Spans of a single request, from the chat panel through the service and network to rendering.
+ * Spans may be added from any thread.
+ */
+public final class Trace {
+    public static final String CATEGORY_UI = "ui";
+    public static final String CATEGORY_CONTEXT = "context";
+    public static final String CATEGORY_CODEC = "codec";
+    public static final String CATEGORY_NETWORK = "network";
+
+    private static final AtomicLong NEXT_ID = new AtomicLong(1);
+
+    private final long id = NEXT_ID.getAndIncrement();
+    private final String label;
+    private final long startNanos = System.nanoTime();
+    private final long startEpochMillis = System.currentTimeMillis();
+    private final List<Span> spans = new ArrayList<>();
+    private volatile long endNanos;
+
+    public Trace(String label) {
+        this.label = label;
+    }
+
+    /**
+     * Opens a span starting now; call {@link Span#end()} when the phase is over.
+     */
+    public Span begin(String name, String category) {
+        return add(new Span(name, category, System.nanoTime(), 0));
+    }
+
+    /**
+     * Records a span whose start and end were measured elsewhere.
+     */
+    public Span record(String name, String category, long startNanos, long endNanos) {
+        return add(new Span(name, category, startNanos, endNanos));
+    }
+
+    private synchronized Span add(Span span) {
+        spans.add(span);
+        return span;
+    }
+
+    public synchronized List<Span> getSpans() {
+        return new ArrayList<>(spans);
+    }
+
+    void markFinished() {
+        if (endNanos == 0) {
+            endNanos = System.nanoTime();
+        }
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public long getStartNanos() {
+        return startNanos;
+    }
+
+    public long getStartEpochMillis() {
+        return startEpochMillis;
+    }
+
+    /**
+     * @return the time the trace was finished, or 0 while it is in flight
+     */
+    public long getEndNanos() {
+        return endNanos;
+    }
+
+    public long getDurationNanos() {
+        long end = endNanos;
+        return (end == 0 ? System.nanoTime() : end) - startNanos;
+    }
+}
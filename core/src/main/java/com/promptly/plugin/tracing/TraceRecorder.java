@@ -0,0 +1,97 @@
+package com.promptly.plugin.tracing;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Keeps the most recent finished traces in a fixed-size ring buffer.
+ * Traces can be written out in the Chrome Trace Event Format, which chrome://tracing,
+ * Perfetto and most profilers can open.
+ */
+public final class TraceRecorder {
+    private final Trace[] buffer;
+    private int next = 0;
+    private int size = 0;
+
+    public TraceRecorder(int capacity) {
+        this.buffer = new Trace[capacity];
+    }
+
+    /**
+     * Marks the trace as finished and stores it, evicting the oldest one when full.
+     */
+    public synchronized void finish(Trace trace) {
+        trace.markFinished();
+        buffer[next] = trace;
+        next = (next + 1) % buffer.length;
+        size = Math.min(size + 1, buffer.length);
+    }
+
+    /**
+     * Returns the stored traces, newest first.
+     */
+    public synchronized List<Trace> getTraces() {
+        List<Trace> result = new ArrayList<>(size);
+        for (int i = 1; i <= size; i++) {
+            result.add(buffer[(next - i + buffer.length) % buffer.length]);
+        }
+        return result;
+    }
+
+    public synchronized void clear() {
+        Arrays.fill(buffer, null);
+        next = 0;
+        size = 0;
+    }
+
+    /**
+     * Writes all stored traces to a file in the Chrome Trace Event Format.
+     */
+    public void dump(Path file) throws IOException {
+        try (OutputStream out = Files.newOutputStream(file)) {
+            new ObjectMapper().writeValue(out, toTraceEvents(getTraces()));
+        }
+    }
+
+    /**
+     * Converts traces to Trace Event Format; each trace becomes its own track.
+     */
+    public static ObjectNode toTraceEvents(List<Trace> traces) {
+        ObjectMapper mapper = new ObjectMapper();
+        ObjectNode root = mapper.createObjectNode();
+        root.put("displayTimeUnit", "ms");
+        ArrayNode events = root.putArray("traceEvents");
+
+        for (Trace trace : traces) {
+            ObjectNode track = events.addObject();
+            track.put("name", "thread_name");
+            track.put("ph", "M");
+            track.put("pid", 1);
+            track.put("tid", trace.getId());
+            track.putObject("args").put("name", "#" + trace.getId() + " " + trace.getLabel());
+
+            for (Span span : trace.getSpans()) {
+                long end = span.getEndNanos() == 0 ? trace.getEndNanos() : span.getEndNanos();
+                ObjectNode event = events.addObject();
+                event.put("name", span.getName());
+                event.put("cat", span.getCategory());
+                event.put("ph", "X");
+                event.put("pid", 1);
+                event.put("tid", trace.getId());
+                event.put("ts", span.getStartNanos() / 1000.0);
+                event.put("dur", Math.max(0, end - span.getStartNanos()) / 1000.0);
+                event.putObject("args").put("thread", span.getThreadName());
+            }
+        }
+        return root;
+    }
+}
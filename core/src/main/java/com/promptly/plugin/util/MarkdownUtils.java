@@ -0,0 +1,39 @@
+package com.promptly.plugin.util;
+
+/**
+ * Helpers for working with the markdown returned by LLMs.
+ */
+public final class MarkdownUtils {
+    private MarkdownUtils() {
+    }
+
+    /**
+     * Extracts the contents of all fenced code blocks, without fences or language identifiers.
+     * Returns the original text if it contains no complete code block.
+     */
+    public static String extractCodeFromMarkdown(String markdown) {
+        // Simple extraction - find code blocks between ``` markers
+        StringBuilder result = new StringBuilder();
+        
+        int codeBlockStart = markdown.indexOf("```");
+        while (codeBlockStart != -1) {
+            // Find the end of the opening ``` line
+            int lineEnd = markdown.indexOf('\n', codeBlockStart);
+            if (lineEnd == -1) break;
+            
+            // Find the closing ```
+            int codeBlockEnd = markdown.indexOf("```", lineEnd);
+            if (codeBlockEnd == -1) break;
+            
+            // Extract the code (without the backticks and language identifier)
+            String code = markdown.substring(lineEnd + 1, codeBlockEnd).trim();
+            result.append(code).append("\n\n");
+            
+            // Continue search for more code blocks
+            codeBlockStart = markdown.indexOf("```", codeBlockEnd + 3);
+        }
+        
+        // If no code blocks found, return the original text
+        return result.length() > 0 ? result.toString() : markdown;
+    }
+}
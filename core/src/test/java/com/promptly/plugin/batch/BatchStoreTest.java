@@ -0,0 +1,96 @@
+package com.promptly.plugin.batch;
+
+import com.promptly.plugin.models.LLMProvider;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class BatchStoreTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void recordsSurviveARoundTrip() throws IOException {
+        BatchStore store = new BatchStore(folder.getRoot().toPath().resolve("batches"));
+        BatchRecord record = new BatchRecord();
+        record.setId("job-1");
+        record.setProvider(LLMProvider.ANTHROPIC);
+        record.setRemoteId("msgbatch_1");
+        record.setStatus(BatchStatus.IN_PROGRESS);
+        record.setSubmittedAt(1234);
+        record.getRequestIds().put("r0", "tests-for-Foo");
+        record.getRequestIds().put("r1", "tests-for-Bar");
+        record.getSources().put("r0", "src/Foo.java");
+        store.save(record);
+
+        BatchRecord loaded = store.load("job-1");
+        assertEquals(LLMProvider.ANTHROPIC, loaded.getProvider());
+        assertEquals("msgbatch_1", loaded.getRemoteId());
+        assertEquals(BatchStatus.IN_PROGRESS, loaded.getStatus());
+        assertEquals(1234, loaded.getSubmittedAt());
+        assertEquals(Map.of("r0", "tests-for-Foo", "r1", "tests-for-Bar"), loaded.getRequestIds());
+        assertEquals(List.of("r0", "r1"), List.copyOf(loaded.getRequestIds().keySet()));
+        assertEquals(Map.of("r0", "src/Foo.java"), loaded.getSources());
+        assertEquals(1, store.list().size());
+    }
+
+    @Test
+    public void savingReplacesTheRecordWithoutLeavingTemporaryFiles() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        BatchStore store = new BatchStore(directory);
+        BatchRecord record = new BatchRecord();
+        record.setId("job-2");
+        store.save(record);
+        record.setStatus(BatchStatus.COMPLETED);
+        store.save(record);
+
+        assertEquals(BatchStatus.COMPLETED, store.load("job-2").getStatus());
+        try (Stream<Path> files = Files.list(directory)) {
+            assertTrue(files.noneMatch(file -> file.toString().endsWith(".tmp")));
+        }
+    }
+
+    @Test
+    public void resultsKeepTheirIdsSourcesAndErrors() throws IOException {
+        BatchStore store = new BatchStore(folder.getRoot().toPath());
+        assertNull(store.loadResults("job-3"));
+
+        store.saveResults("job-3", List.of(
+                BatchResult.success("a", "src/A.java", "line one\nline two"),
+                BatchResult.failure("b", null, "HTTP 400: bad request")));
+
+        List<BatchResult> results = store.loadResults("job-3");
+        assertEquals(2, results.size());
+        assertTrue(results.get(0).isSuccess());
+        assertEquals("a", results.get(0).getId());
+        assertEquals("src/A.java", results.get(0).getSource());
+        assertEquals("line one\nline two", results.get(0).getText());
+        assertFalse(results.get(1).isSuccess());
+        assertNull(results.get(1).getSource());
+        assertEquals("HTTP 400: bad request", results.get(1).getError());
+    }
+
+    @Test
+    public void missingJobsAreReported() {
+        BatchStore store = new BatchStore(folder.getRoot().toPath());
+        try {
+            store.load("unknown");
+            fail("expected an IOException");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("unknown"));
+        }
+    }
+}
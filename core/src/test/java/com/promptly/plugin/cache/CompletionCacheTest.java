@@ -0,0 +1,83 @@
+package com.promptly.plugin.cache;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class CompletionCacheTest {
+    private static final String BEFORE = "class Orders {\n    void add(Order order) {\n        ";
+    private static final String AFTER = "\n    }\n}\n";
+
+    private final CompletionCache cache = new CompletionCache(1024 * 1024);
+
+    @Test
+    public void servesTheRestWhileTypingAlong() {
+        cache.put(BEFORE + AFTER, BEFORE.length(), "orders.put(order.id(), order);");
+
+        assertEquals("orders.put(order.id(), order);", cache.lookup(BEFORE + AFTER, BEFORE.length()));
+        String typed = BEFORE + "orders.pu";
+        assertEquals("t(order.id(), order);", cache.lookup(typed + AFTER, typed.length()));
+    }
+
+    @Test
+    public void divergingInputMisses() {
+        cache.put(BEFORE + AFTER, BEFORE.length(), "orders.put(order.id(), order);");
+
+        String typed = BEFORE + "orders.remove";
+        assertNull(cache.lookup(typed + AFTER, typed.length()));
+        assertNull(cache.lookup("other" + BEFORE + AFTER, "other".length() + BEFORE.length()));
+    }
+
+    @Test
+    public void latestCompletionWinsOnASharedPrefix() {
+        cache.put(BEFORE + AFTER, BEFORE.length(), "orders.put(order.id(), order);");
+        cache.put(BEFORE + AFTER, BEFORE.length(), "orders.putIfAbsent(order.id(), order);");
+
+        String typed = BEFORE + "orders.put";
+        assertEquals("IfAbsent(order.id(), order);", cache.lookup(typed + AFTER, typed.length()));
+        typed = BEFORE + "orders.put(";
+        assertEquals("order.id(), order);", cache.lookup(typed + AFTER, typed.length()));
+    }
+
+    @Test
+    public void reinsertingACompletionDoesNotGrowTheCache() {
+        cache.put(BEFORE + AFTER, BEFORE.length(), "orders.put(order.id(), order);");
+        cache.put(BEFORE + AFTER, BEFORE.length(), "orders.clear();");
+        long size = cache.getSizeBytes();
+
+        for (int i = 0; i < 100; i++) {
+            cache.put(BEFORE + AFTER, BEFORE.length(), "orders.put(order.id(), order);");
+            cache.put(BEFORE + AFTER, BEFORE.length(), "orders.clear();");
+        }
+
+        assertEquals(size, cache.getSizeBytes());
+        assertEquals(1, cache.getAnchorCount());
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedAnchorsOverTheLimit() {
+        CompletionCache small = new CompletionCache(2048);
+        for (int i = 0; i < 50; i++) {
+            String text = "int value" + i + " = " + AFTER;
+            small.put(text, text.length() - AFTER.length(), "compute(" + i + ");");
+        }
+
+        assertTrue(small.getSizeBytes() <= 2048);
+        assertTrue(small.getAnchorCount() < 50);
+        String last = "int value49 = " + AFTER;
+        assertEquals("compute(49);", small.lookup(last, last.length() - AFTER.length()));
+        String first = "int value0 = " + AFTER;
+        assertNull(small.lookup(first, first.length() - AFTER.length()));
+    }
+
+    @Test
+    public void clearDropsEverything() {
+        cache.put(BEFORE + AFTER, BEFORE.length(), "orders.clear();");
+        cache.clear();
+
+        assertEquals(0, cache.getSizeBytes());
+        assertNull(cache.lookup(BEFORE + AFTER, BEFORE.length()));
+    }
+}
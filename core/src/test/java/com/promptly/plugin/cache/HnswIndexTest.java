@@ -0,0 +1,125 @@
+package com.promptly.plugin.cache;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class HnswIndexTest {
+    private final Random random = new Random(7);
+
+    @Test
+    public void findsTheExactNearestNeighbourMostOfTheTime() {
+        HnswIndex index = new HnswIndex();
+        List<float[]> vectors = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            float[] vector = randomVector(32);
+            vectors.add(vector);
+            assertEquals(i, index.add(vector));
+        }
+
+        int hits = 0;
+        for (int q = 0; q < 200; q++) {
+            float[] query = randomVector(32);
+            List<HnswIndex.Scored> found = index.search(query, 1, 64);
+            if (found.get(0).node == bruteForceNearest(vectors, query)) {
+                hits++;
+            }
+        }
+        assertTrue("recall@1 was " + hits + "/200", hits >= 190);
+    }
+
+    @Test
+    public void resultsAreSortedMostSimilarFirst() {
+        HnswIndex index = new HnswIndex();
+        for (int i = 0; i < 300; i++) {
+            index.add(randomVector(16));
+        }
+        List<HnswIndex.Scored> found = index.search(randomVector(16), 10, 64);
+
+        assertEquals(10, found.size());
+        for (int i = 1; i < found.size(); i++) {
+            assertTrue(found.get(i - 1).similarity >= found.get(i).similarity);
+        }
+    }
+
+    @Test
+    public void removedNodesAreNotReturned() {
+        HnswIndex index = new HnswIndex();
+        float[] target = randomVector(16);
+        int node = index.add(target);
+        for (int i = 0; i < 100; i++) {
+            index.add(randomVector(16));
+        }
+        index.remove(node);
+        index.remove(node);
+
+        assertEquals(1, index.getRemovedCount());
+        for (HnswIndex.Scored scored : index.search(target, 10, 64)) {
+            assertFalse(scored.node == node);
+        }
+    }
+
+    @Test
+    public void filterIsAppliedDuringTheSearch() {
+        HnswIndex index = new HnswIndex();
+        float[] query = randomVector(16);
+        // Many close nodes the filter rejects, and one distant node it accepts
+        for (int i = 0; i < 500; i++) {
+            index.add(nudge(query, 0.05f));
+        }
+        int wanted = index.add(randomVector(16));
+
+        List<HnswIndex.Scored> found = index.search(query, 1, 16, node -> node == wanted);
+
+        assertEquals(1, found.size());
+        assertEquals(wanted, found.get(0).node);
+    }
+
+    @Test
+    public void emptyIndexFindsNothing() {
+        assertTrue(new HnswIndex().search(randomVector(8), 5, 16).isEmpty());
+    }
+
+    private static int bruteForceNearest(List<float[]> vectors, float[] query) {
+        int best = -1;
+        float bestSimilarity = -Float.MAX_VALUE;
+        for (int i = 0; i < vectors.size(); i++) {
+            float similarity = NgramEmbedder.dot(query, vectors.get(i));
+            if (similarity > bestSimilarity) {
+                bestSimilarity = similarity;
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    private float[] nudge(float[] vector, float amount) {
+        float[] nudged = vector.clone();
+        for (int i = 0; i < nudged.length; i++) {
+            nudged[i] += (float) random.nextGaussian() * amount;
+        }
+        return normalize(nudged);
+    }
+
+    private float[] randomVector(int dimensions) {
+        float[] vector = new float[dimensions];
+        for (int i = 0; i < dimensions; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return normalize(vector);
+    }
+
+    private static float[] normalize(float[] vector) {
+        double norm = Math.sqrt(NgramEmbedder.dot(vector, vector));
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] /= norm;
+        }
+        return vector;
+    }
+}
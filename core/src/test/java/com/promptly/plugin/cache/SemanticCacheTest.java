@@ -0,0 +1,79 @@
+package com.promptly.plugin.cache;
+
+import com.promptly.plugin.models.ChatMessage;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class SemanticCacheTest {
+    private static final double THRESHOLD = 0.8;
+
+    private final SemanticCache cache = new SemanticCache(1000);
+
+    @Test
+    public void rephrasedPromptInTheSameContextHits() {
+        cache.put(key("Foo.java", "Explain what the parseOrder method does"), "It parses an order.");
+
+        assertEquals("It parses an order.", cache.lookup(key("Foo.java", "explain what parseOrder method does"),
+                THRESHOLD));
+        assertNull(cache.lookup(key("Foo.java", "Write unit tests for the OrderRepository"), THRESHOLD));
+    }
+
+    @Test
+    public void otherContextOrModelMisses() {
+        cache.put(key("Foo.java", "Explain what the parseOrder method does"), "It parses an order.");
+
+        assertNull(cache.lookup(key("Bar.java", "Explain what the parseOrder method does"), THRESHOLD));
+        assertNull(cache.lookup(SemanticCache.keyOf("other-model", messages("Foo.java",
+                "Explain what the parseOrder method does")), THRESHOLD));
+    }
+
+    @Test
+    public void findsTheMatchingContextBehindManyCloserPromptsInOtherContexts() {
+        String prompt = "Explain what the parseOrder method does";
+        for (int i = 0; i < 200; i++) {
+            cache.put(key("Other" + i + ".java", prompt), "answer " + i);
+        }
+        cache.put(key("Foo.java", "Please explain what the parseOrder method does"), "It parses an order.");
+
+        assertEquals("It parses an order.", cache.lookup(key("Foo.java", prompt), THRESHOLD));
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedEntries() {
+        SemanticCache small = new SemanticCache(2);
+        small.put(key("A.java", "Explain class A"), "a");
+        small.put(key("B.java", "Explain class B"), "b");
+        small.lookup(key("A.java", "Explain class A"), THRESHOLD);
+        small.put(key("C.java", "Explain class C"), "c");
+
+        assertEquals(2, small.size());
+        assertEquals("a", small.lookup(key("A.java", "Explain class A"), THRESHOLD));
+        assertNull(small.lookup(key("B.java", "Explain class B"), THRESHOLD));
+    }
+
+    @Test
+    public void survivesRebuildsAfterManyEvictions() {
+        SemanticCache small = new SemanticCache(10);
+        for (int i = 0; i < 100; i++) {
+            small.put(key("File" + i + ".java", "Explain class number " + i), "answer " + i);
+        }
+
+        assertEquals(10, small.size());
+        assertEquals("answer 99", small.lookup(key("File99.java", "Explain class number 99"), THRESHOLD));
+        assertNull(small.lookup(key("File0.java", "Explain class number 0"), THRESHOLD));
+    }
+
+    private static SemanticCache.Key key(String file, String prompt) {
+        return SemanticCache.keyOf("OPENAI/gpt-4o", messages(file, prompt));
+    }
+
+    private static List<ChatMessage> messages(String file, String prompt) {
+        return List.of(
+                new ChatMessage(ChatMessage.Role.SYSTEM, "CONTEXT:\nFile: " + file),
+                new ChatMessage(ChatMessage.Role.USER, prompt));
+    }
+}
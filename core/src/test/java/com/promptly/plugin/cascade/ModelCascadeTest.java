@@ -0,0 +1,68 @@
+package com.promptly.plugin.cascade;
+
+import com.promptly.plugin.metrics.MetricsRegistry;
+import com.promptly.plugin.models.ChatMessage;
+import com.promptly.plugin.models.LLMProvider;
+import com.promptly.plugin.models.ModelTier;
+import com.promptly.plugin.models.PromptOptions;
+import com.promptly.plugin.models.PromptlySettings;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class ModelCascadeTest {
+    private static final String ANSWER = "Use a StringBuilder inside the loop instead of concatenating.";
+
+    private final List<ChatMessage> messages = List.of(new ChatMessage(ChatMessage.Role.USER, "How do I join these?"));
+
+    @Test
+    public void rejectedFastAnswersAreNotStreamed() throws Exception {
+        List<String> models = new ArrayList<>();
+        List<Consumer<String>> listeners = new ArrayList<>();
+        Consumer<String> listener = chunk -> { };
+        PromptOptions options = new PromptOptions();
+        options.setStreamListener(listener);
+
+        String answer = new ModelCascade(new MetricsRegistry()).send(ModelTier.FAST, messages, options, settings(),
+                o -> {
+                    models.add(o.getModelOverride());
+                    listeners.add(o.getStreamListener());
+                    return CompletableFuture.completedFuture(models.size() == 1 ? "I'm not sure." : ANSWER);
+                }).get();
+
+        assertEquals(ANSWER, answer);
+        assertEquals("fast-model", models.get(0));
+        assertNull(listeners.get(0));
+        assertSame(listener, listeners.get(1));
+        assertSame(listener, options.getStreamListener());
+    }
+
+    @Test
+    public void acceptedFastAnswersLeaveTheOptionsAsTheyWere() throws Exception {
+        Consumer<String> listener = chunk -> { };
+        PromptOptions options = new PromptOptions();
+        options.setStreamListener(listener);
+
+        String answer = new ModelCascade(new MetricsRegistry()).send(ModelTier.FAST, messages, options, settings(),
+                o -> CompletableFuture.completedFuture(ANSWER)).get();
+
+        assertEquals(ANSWER, answer);
+        assertSame(listener, options.getStreamListener());
+    }
+
+    private static PromptlySettings settings() {
+        PromptlySettings settings = new PromptlySettings();
+        settings.setSelectedProvider(LLMProvider.OPENAI);
+        settings.setModelName(LLMProvider.OPENAI, "large-model");
+        settings.setFastModelName(LLMProvider.OPENAI, "fast-model");
+        settings.setCascadeEnabled(true);
+        return settings;
+    }
+}
@@ -0,0 +1,51 @@
+package com.promptly.plugin.client;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.promptly.plugin.models.ChatMessage;
+import com.promptly.plugin.models.LLMProvider;
+import com.promptly.plugin.models.PromptOptions;
+import com.promptly.plugin.models.PromptlySettings;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class AnthropicRequestTest {
+    private final LLMClient client = new LLMClient();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    public void systemMessagesGoToTheSystemField() throws Exception {
+        List<ChatMessage> messages = List.of(
+                new ChatMessage(ChatMessage.Role.SYSTEM, "Summary of the earlier conversation:\nRenamed Foo"),
+                new ChatMessage(ChatMessage.Role.USER, "Now add a test"),
+                new ChatMessage(ChatMessage.Role.SYSTEM, "CONTEXT:\nFile: Foo.java"));
+
+        JsonNode body = format(messages);
+
+        assertEquals("Summary of the earlier conversation:\nRenamed Foo\n\nCONTEXT:\nFile: Foo.java",
+                body.path("system").asText());
+        assertEquals(1, body.path("messages").size());
+        assertEquals("user", body.path("messages").path(0).path("role").asText());
+        assertEquals("Now add a test", body.path("messages").path(0).path("content").asText());
+    }
+
+    @Test
+    public void conversationsWithoutSystemMessagesHaveNoSystemField() throws Exception {
+        JsonNode body = format(List.of(
+                new ChatMessage(ChatMessage.Role.USER, "Hi"),
+                new ChatMessage(ChatMessage.Role.ASSISTANT, "Hello"),
+                new ChatMessage(ChatMessage.Role.USER, "Explain this")));
+
+        assertFalse(body.has("system"));
+        assertEquals("assistant", body.path("messages").path(1).path("role").asText());
+    }
+
+    private JsonNode format(List<ChatMessage> messages) throws Exception {
+        return objectMapper.readTree(client.formatRequestBody(messages, new PromptlySettings(), LLMProvider.ANTHROPIC,
+                new PromptOptions()));
+    }
+}
@@ -0,0 +1,114 @@
+package com.promptly.plugin.client;
+
+import com.promptly.plugin.batch.BatchRecord;
+import com.promptly.plugin.batch.BatchRequest;
+import com.promptly.plugin.batch.BatchResult;
+import com.promptly.plugin.batch.BatchStore;
+import com.promptly.plugin.models.ChatMessage;
+import com.promptly.plugin.models.LLMProvider;
+import com.promptly.plugin.models.PromptlySettings;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class BatchTransportTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final MockWebServer server = new MockWebServer();
+    private final LLMClient client = new LLMClient();
+    private BatchTransport transport;
+
+    @Before
+    public void setUp() throws Exception {
+        server.start();
+        transport = new BatchTransport(client, new BatchStore(folder.getRoot().toPath()), Duration.ofMillis(10));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        transport.shutdown();
+        client.shutdown();
+        server.shutdown();
+    }
+
+    @Test
+    public void jobsAreSplitByCount() {
+        List<String> bodies = Collections.nCopies(7, "{}");
+
+        assertEquals(List.of(0, 3, 6), BatchTransport.jobStarts(bodies, 3, Long.MAX_VALUE));
+    }
+
+    @Test
+    public void jobsAreSplitBySize() {
+        String body = "x".repeat(1_000);
+        List<String> bodies = Collections.nCopies(5, body);
+
+        // Two bodies and their overhead fit, a third does not
+        assertEquals(List.of(0, 2, 4), BatchTransport.jobStarts(bodies, 100, 2_600));
+        // A body larger than the limit still gets a job of its own
+        assertEquals(List.of(0, 1, 2, 3, 4), BatchTransport.jobStarts(bodies, 100, 500));
+        assertTrue(BatchTransport.jobStarts(List.of(), 100, 500).isEmpty());
+    }
+
+    @Test
+    public void resultsAreMappedBackToRequests() throws Exception {
+        server.enqueue(json("{\"id\":\"msgbatch_1\",\"processing_status\":\"in_progress\"}"));
+        server.enqueue(json("{\"id\":\"msgbatch_1\",\"processing_status\":\"ended\",\"results_url\":\""
+                + server.url("/results/msgbatch_1") + "\"}"));
+        // Out of request order, one failed, one missing
+        server.enqueue(new MockResponse().setHeader("Content-Type", "application/jsonl").setBody(
+                "{\"custom_id\":\"r2\",\"result\":{\"type\":\"errored\",\"error\":{\"type\":\"error\","
+                        + "\"error\":{\"type\":\"invalid_request_error\",\"message\":\"prompt too long\"}}}}\n"
+                        + "{\"custom_id\":\"r0\",\"result\":{\"type\":\"succeeded\",\"message\":"
+                        + "{\"content\":[{\"type\":\"text\",\"text\":\"Docs for Foo\"}]}}}\n"));
+        PromptlySettings settings = new PromptlySettings();
+        settings.setSelectedProvider(LLMProvider.ANTHROPIC);
+        settings.setEndpoint(LLMProvider.ANTHROPIC, server.url("/v1/messages").toString());
+        settings.setApiKey(LLMProvider.ANTHROPIC, "test");
+
+        List<BatchResult> results = transport.submit(List.of(
+                request("foo", "src/Foo.java"),
+                request("bar", "src/Bar.java"),
+                request("baz", null)), settings).get(30, TimeUnit.SECONDS);
+
+        assertEquals(3, results.size());
+        assertEquals("foo", results.get(0).getId());
+        assertEquals("src/Foo.java", results.get(0).getSource());
+        assertEquals("Docs for Foo", results.get(0).getText());
+        assertEquals("bar", results.get(1).getId());
+        assertFalse(results.get(1).isSuccess());
+        assertTrue(results.get(1).getError().startsWith("No result"));
+        assertEquals("baz", results.get(2).getId());
+        assertNull(results.get(2).getSource());
+        assertEquals("prompt too long", results.get(2).getError());
+
+        BatchRecord record = transport.getStore().list().get(0);
+        assertEquals("msgbatch_1", record.getRemoteId());
+        assertTrue(record.getFinishedAt() > 0);
+        assertEquals(3, transport.getStore().loadResults(record.getId()).size());
+    }
+
+    private static BatchRequest request(String id, String source) {
+        return new BatchRequest(id, source, List.of(new ChatMessage(ChatMessage.Role.USER, "Document " + id)),
+                null, null);
+    }
+
+    private static MockResponse json(String body) {
+        return new MockResponse().setHeader("Content-Type", "application/json").setBody(body);
+    }
+}
@@ -0,0 +1,81 @@
+package com.promptly.plugin.client;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class FairSchedulerTest {
+    private final List<String> started = new ArrayList<>();
+    private final Map<String, FairScheduler.Ticket> tickets = new HashMap<>();
+
+    @Test
+    public void startsRightAwayWhileSlotsAreFree() {
+        FairScheduler scheduler = new FairScheduler(2);
+        submit(scheduler, "a", "a1");
+        submit(scheduler, "a", "a2");
+        submit(scheduler, "a", "a3");
+
+        assertEquals(List.of("a1", "a2"), started);
+        assertEquals(2, scheduler.getInFlight());
+        assertEquals(1, scheduler.getQueued());
+    }
+
+    @Test
+    public void sessionsTakeTurns() {
+        FairScheduler scheduler = new FairScheduler(1);
+        submit(scheduler, "a", "a1");
+        submit(scheduler, "a", "a2");
+        submit(scheduler, "a", "a3");
+        submit(scheduler, "b", "b1");
+        submit(scheduler, null, "n1");
+
+        for (int i = 0; i < 5; i++) {
+            // Whatever started last finishes next
+            tickets.get(started.get(started.size() - 1)).done();
+        }
+
+        assertEquals(List.of("a1", "a2", "b1", "n1", "a3"), started);
+        assertEquals(0, scheduler.getInFlight());
+    }
+
+    @Test
+    public void cancelledTicketsNeverStart() {
+        FairScheduler scheduler = new FairScheduler(1);
+        FairScheduler.Ticket running = submit(scheduler, "a", "a1");
+        FairScheduler.Ticket queued = submit(scheduler, "b", "b1");
+
+        assertTrue(queued.cancel());
+        assertEquals(0, scheduler.getQueued());
+        running.done();
+
+        assertEquals(List.of("a1"), started);
+        assertFalse("a started request cannot be taken back", running.cancel());
+    }
+
+    @Test
+    public void repeatedDoneFreesOneSlot() {
+        FairScheduler scheduler = new FairScheduler(1);
+        FairScheduler.Ticket first = submit(scheduler, "a", "a1");
+        submit(scheduler, "a", "a2");
+        submit(scheduler, "a", "a3");
+
+        first.done();
+        first.done();
+
+        assertEquals(List.of("a1", "a2"), started);
+        assertEquals(1, scheduler.getInFlight());
+    }
+
+    private FairScheduler.Ticket submit(FairScheduler scheduler, String session, String name) {
+        FairScheduler.Ticket ticket = scheduler.submit(session, () -> started.add(name));
+        tickets.put(name, ticket);
+        return ticket;
+    }
+}
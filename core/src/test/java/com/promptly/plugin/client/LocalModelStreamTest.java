@@ -0,0 +1,96 @@
+package com.promptly.plugin.client;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.promptly.plugin.models.ChatMessage;
+import com.promptly.plugin.models.LLMProvider;
+import com.promptly.plugin.models.PromptOptions;
+import com.promptly.plugin.models.PromptlySettings;
+import okio.Buffer;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class LocalModelStreamTest {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    public void readsOllamaLines() throws Exception {
+        List<String> pieces = new ArrayList<>();
+        String body = "{\"message\":{\"role\":\"assistant\",\"content\":\"Hel\"},\"done\":false}\n"
+                + "{\"message\":{\"role\":\"assistant\",\"content\":\"lo\"},\"done\":false}\n"
+                + "{\"message\":{\"role\":\"assistant\",\"content\":\"\"},\"done\":true,\"eval_count\":2}\n";
+
+        String text = new LocalModelStream(objectMapper, pieces::add).read(source(body), null).getText();
+
+        assertEquals("Hello", text);
+        assertEquals(List.of("Hel", "lo"), pieces);
+    }
+
+    @Test
+    public void readsLlamaCppServerSentEvents() throws Exception {
+        String body = ": keep-alive\n\n"
+                + "data: {\"choices\":[{\"index\":0,\"delta\":{\"role\":\"assistant\"}}]}\n\n"
+                + "data: {\"choices\":[{\"index\":0,\"delta\":{\"content\":\"Hel\"}}]}\n\n"
+                + "data: {\"choices\":[{\"index\":0,\"delta\":{\"content\":\"lo\"},\"finish_reason\":\"stop\"}]}\n\n"
+                + "data: [DONE]\n\n";
+
+        assertEquals("Hello", new LocalModelStream(objectMapper, null).read(source(body), null).getText());
+    }
+
+    @Test
+    public void readsLlamaCppNativeEvents() throws Exception {
+        String body = "data: {\"content\":\"Hel\",\"stop\":false}\n\n"
+                + "data: {\"content\":\"lo\",\"stop\":false}\n\n"
+                + "data: {\"content\":\"\",\"stop\":true,\"tokens_cached\":120}\n\n";
+
+        assertEquals("Hello", new LocalModelStream(objectMapper, null).parse(body).getText());
+    }
+
+    @Test
+    public void stopsAtTheEndOfTheStream() throws Exception {
+        String body = "data: {\"choices\":[{\"delta\":{\"content\":\"Hi\"}}]}\n\ndata: [DONE]\n\nnot json\n";
+
+        assertEquals("Hi", new LocalModelStream(objectMapper, null).read(source(body), null).getText());
+    }
+
+    @Test
+    public void reportsServerErrors() {
+        for (String body : List.of("{\"error\":\"model 'x' not found\"}\n",
+                "data: {\"error\":{\"code\":500,\"message\":\"slot unavailable\"}}\n\n")) {
+            try {
+                new LocalModelStream(objectMapper, null).read(source(body), null);
+                fail("Expected an error for " + body);
+            } catch (IOException e) {
+                assertTrue(e.getMessage(), e.getMessage().contains("not found") || e.getMessage().contains("slot"));
+            }
+        }
+    }
+
+    @Test
+    public void numericKeepAliveIsSentAsANumber() throws Exception {
+        PromptlySettings settings = new PromptlySettings();
+        settings.setLocalKeepAlive("-1");
+        assertTrue(format(settings).path("keep_alive").isIntegralNumber());
+        assertEquals(-1, format(settings).path("keep_alive").asInt());
+
+        settings.setLocalKeepAlive("30m");
+        assertEquals("30m", format(settings).path("keep_alive").asText());
+    }
+
+    private JsonNode format(PromptlySettings settings) throws Exception {
+        return objectMapper.readTree(new LLMClient().formatRequestBody(
+                List.of(new ChatMessage(ChatMessage.Role.USER, "Hi")), settings, LLMProvider.LOCAL,
+                new PromptOptions()));
+    }
+
+    private static Buffer source(String body) {
+        return new Buffer().writeUtf8(body);
+    }
+}
@@ -0,0 +1,49 @@
+package com.promptly.plugin.client;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+public class LocalSlotsTest {
+    private final LocalSlots slots = new LocalSlots();
+
+    @Test
+    public void oneOffRequestsAndDisabledSlotsLetTheServerChoose() {
+        assertEquals(-1, slots.slotFor(null, 4));
+        assertEquals(-1, slots.slotFor("a", 0));
+    }
+
+    @Test
+    public void conversationsKeepTheirSlot() {
+        int a = slots.slotFor("a", 4);
+        int b = slots.slotFor("b", 4);
+
+        assertNotEquals(a, b);
+        assertEquals(a, slots.slotFor("a", 4));
+        assertEquals(b, slots.slotFor("b", 4));
+    }
+
+    @Test
+    public void leastRecentlyUsedConversationGivesUpItsSlot() {
+        int a = slots.slotFor("a", 2);
+        int b = slots.slotFor("b", 2);
+        slots.slotFor("a", 2);
+
+        assertEquals(b, slots.slotFor("c", 2));
+        assertEquals(a, slots.slotFor("a", 2));
+    }
+
+    @Test
+    public void loweringTheSlotCountReassignsSlotsOutOfRange() {
+        slots.slotFor("a", 4);
+        slots.slotFor("b", 4);
+        slots.slotFor("c", 4);
+        int c = slots.slotFor("c", 4);
+        assertEquals(2, c);
+
+        // Both remaining slots are taken, so "a", used least recently, gives up slot 0
+        assertEquals(0, slots.slotFor("c", 2));
+        assertEquals(1, slots.slotFor("b", 2));
+    }
+}
@@ -0,0 +1,127 @@
+package com.promptly.plugin.client;
+
+import com.promptly.plugin.models.ChatMessage;
+import com.promptly.plugin.models.LLMProvider;
+import com.promptly.plugin.models.PromptOptions;
+import com.promptly.plugin.models.PromptlySettings;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class RequestCompressionTest {
+    private static final String ANSWER = "{\"choices\":[{\"message\":{\"role\":\"assistant\",\"content\":\"done\"}}]}";
+
+    private final MockWebServer server = new MockWebServer();
+    private final LLMClient client = new LLMClient();
+    private final List<ChatMessage> conversation = List.of(
+            new ChatMessage(ChatMessage.Role.USER, "Review this file: " + "int x = 1;\n".repeat(5_000)));
+
+    @Before
+    public void setUp() throws Exception {
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        client.shutdown();
+        server.shutdown();
+    }
+
+    @Test
+    public void onlyCustomEndpointsAreCompressedByDefault() {
+        PromptlySettings settings = new PromptlySettings();
+
+        assertTrue(settings.isCompressRequests(LLMProvider.CUSTOM));
+        assertFalse(settings.isCompressRequests(LLMProvider.LOCAL));
+        assertFalse(settings.isCompressRequests(LLMProvider.OPENAI));
+    }
+
+    @Test
+    public void rejectedCompressionIsRetriedUncompressedAndNotUsedAgain() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(415));
+        server.enqueue(new MockResponse().setHeader("Content-Type", "application/json").setBody(ANSWER));
+        server.enqueue(new MockResponse().setHeader("Content-Type", "application/json").setBody(ANSWER));
+        PromptlySettings settings = compressingSettings();
+
+        assertEquals("done", send(settings));
+        RecordedRequest compressed = server.takeRequest();
+        RecordedRequest retried = server.takeRequest();
+        assertEquals("gzip", compressed.getHeader("Content-Encoding"));
+        assertNull(retried.getHeader("Content-Encoding"));
+        assertTrue(retried.getBody().readUtf8().contains("Review this file"));
+
+        assertEquals("done", send(settings));
+        assertNull(server.takeRequest().getHeader("Content-Encoding"));
+        assertEquals(3, server.getRequestCount());
+    }
+
+    @Test
+    public void encodingErrorsAreRetriedUncompressed() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(400)
+                .setBody("{\"error\":\"unsupported Content-Encoding: gzip\"}"));
+        server.enqueue(new MockResponse().setHeader("Content-Type", "application/json").setBody(ANSWER));
+
+        assertEquals("done", send(compressingSettings()));
+        assertEquals("gzip", server.takeRequest().getHeader("Content-Encoding"));
+        assertNull(server.takeRequest().getHeader("Content-Encoding"));
+    }
+
+    @Test
+    public void otherBadRequestsAreNotRetried() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(400)
+                .setBody("{\"error\":{\"message\":\"This model's maximum context length is 8192 tokens\"}}"));
+        server.enqueue(new MockResponse().setHeader("Content-Type", "application/json").setBody(ANSWER));
+        server.enqueue(new MockResponse().setHeader("Content-Type", "application/json").setBody(ANSWER));
+        PromptlySettings settings = compressingSettings();
+
+        try {
+            send(settings);
+            fail("A context length error must reach the caller");
+        } catch (ExecutionException expected) {
+            assertEquals(1, server.getRequestCount());
+        }
+        // Compression stays on for the endpoint
+        assertEquals("done", send(settings));
+        server.takeRequest();
+        assertEquals("gzip", server.takeRequest().getHeader("Content-Encoding"));
+    }
+
+    @Test
+    public void acceptedCompressionIsKept() throws Exception {
+        server.enqueue(new MockResponse().setHeader("Content-Type", "application/json").setBody(ANSWER));
+        server.enqueue(new MockResponse().setHeader("Content-Type", "application/json").setBody(ANSWER));
+        PromptlySettings settings = compressingSettings();
+
+        send(settings);
+        send(settings);
+
+        assertEquals("gzip", server.takeRequest().getHeader("Content-Encoding"));
+        assertEquals("gzip", server.takeRequest().getHeader("Content-Encoding"));
+    }
+
+    private PromptlySettings compressingSettings() {
+        PromptlySettings settings = new PromptlySettings();
+        settings.setSelectedProvider(LLMProvider.OPENAI);
+        settings.setEndpoint(LLMProvider.OPENAI, server.url("/v1/chat/completions").toString());
+        settings.setApiKey(LLMProvider.OPENAI, "test");
+        settings.setCompressRequests(LLMProvider.OPENAI, true);
+        return settings;
+    }
+
+    private String send(PromptlySettings settings) throws Exception {
+        return client.sendPrompt(conversation, new PromptOptions(), settings).get(30, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,130 @@
+package com.promptly.plugin.client;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.promptly.plugin.models.ChatMessage;
+import com.promptly.plugin.models.LLMProvider;
+import com.promptly.plugin.models.ModelReply;
+import com.promptly.plugin.models.PromptOptions;
+import com.promptly.plugin.models.PromptlySettings;
+import com.promptly.plugin.tools.ToolCall;
+import com.promptly.plugin.tools.ToolDefinition;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class ToolCodecTest {
+    private static final ToolDefinition FIND_CLASS = new ToolDefinition("find_class", "Finds a class",
+            List.of(ToolDefinition.Parameter.string("name", "Simple class name", true),
+                    ToolDefinition.Parameter.integer("limit", "Maximum matches", false)));
+
+    private final LLMClient client = new LLMClient();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ToolCall call = new ToolCall("call_1", "find_class",
+            new ObjectMapper().createObjectNode().put("name", "OrderService"));
+    private final List<ChatMessage> conversation = List.of(
+            new ChatMessage(ChatMessage.Role.USER, "What does OrderService do?"),
+            ChatMessage.toolCalls("", List.of(call)),
+            ChatMessage.toolResult(call, "class OrderService {}"));
+
+    @Test
+    public void openAiRequest() throws Exception {
+        JsonNode body = format(LLMProvider.OPENAI, true);
+
+        JsonNode function = body.path("tools").path(0).path("function");
+        assertEquals("find_class", function.path("name").asText());
+        assertEquals("string", function.path("parameters").path("properties").path("name").path("type").asText());
+        assertEquals("[\"name\"]", function.path("parameters").path("required").toString());
+        JsonNode calls = body.path("messages").path(1).path("tool_calls");
+        assertEquals("call_1", calls.path(0).path("id").asText());
+        assertEquals("{\"name\":\"OrderService\"}", calls.path(0).path("function").path("arguments").asText());
+        assertEquals("tool", body.path("messages").path(2).path("role").asText());
+        assertEquals("call_1", body.path("messages").path(2).path("tool_call_id").asText());
+        assertFalse(body.has("tool_choice"));
+
+        assertEquals("none", format(LLMProvider.OPENAI, false).path("tool_choice").asText());
+    }
+
+    @Test
+    public void anthropicRequest() throws Exception {
+        JsonNode body = format(LLMProvider.ANTHROPIC, true);
+
+        assertEquals("find_class", body.path("tools").path(0).path("name").asText());
+        JsonNode use = body.path("messages").path(1).path("content").path(0);
+        assertEquals("tool_use", use.path("type").asText());
+        assertEquals("OrderService", use.path("input").path("name").asText());
+        JsonNode result = body.path("messages").path(2);
+        assertEquals("user", result.path("role").asText());
+        assertEquals("tool_result", result.path("content").path(0).path("type").asText());
+        assertEquals("call_1", result.path("content").path(0).path("tool_use_id").asText());
+
+        assertEquals("none", format(LLMProvider.ANTHROPIC, false).path("tool_choice").path("type").asText());
+    }
+
+    @Test
+    public void googleRequest() throws Exception {
+        JsonNode body = format(LLMProvider.GOOGLE, true);
+
+        assertEquals("find_class",
+                body.path("tools").path(0).path("functionDeclarations").path(0).path("name").asText());
+        JsonNode functionCall = body.path("contents").path(1).path("parts").path(0).path("functionCall");
+        assertEquals("OrderService", functionCall.path("args").path("name").asText());
+        JsonNode response = body.path("contents").path(2);
+        assertEquals("function", response.path("role").asText());
+        assertEquals("class OrderService {}",
+                response.path("parts").path(0).path("functionResponse").path("response").path("content").asText());
+
+        assertEquals("NONE", format(LLMProvider.GOOGLE, false)
+                .path("toolConfig").path("functionCallingConfig").path("mode").asText());
+    }
+
+    @Test
+    public void parsesToolCallsOfEachProvider() throws Exception {
+        ModelReply openAi = client.parseResponse("{\"choices\":[{\"message\":{\"content\":null,\"tool_calls\":["
+                + "{\"id\":\"call_9\",\"type\":\"function\",\"function\":{\"name\":\"find_class\","
+                + "\"arguments\":\"{\\\"name\\\":\\\"Order\\\",\\\"limit\\\":3}\"}}]}}]}", LLMProvider.OPENAI);
+        ModelReply anthropic = client.parseResponse("{\"content\":[{\"type\":\"text\",\"text\":\"Looking.\"},"
+                + "{\"type\":\"tool_use\",\"id\":\"toolu_9\",\"name\":\"find_class\",\"input\":{\"name\":\"Order\","
+                + "\"limit\":3}}]}", LLMProvider.ANTHROPIC);
+        ModelReply google = client.parseResponse("{\"candidates\":[{\"content\":{\"parts\":[{\"functionCall\":"
+                + "{\"name\":\"find_class\",\"args\":{\"name\":\"Order\",\"limit\":\"3\"}}}]}}]}", LLMProvider.GOOGLE);
+
+        assertEquals("call_9", openAi.getToolCalls().get(0).getId());
+        assertEquals("toolu_9", anthropic.getToolCalls().get(0).getId());
+        assertEquals("Looking.", anthropic.getText());
+        assertEquals("call_0", google.getToolCalls().get(0).getId());
+        for (ModelReply reply : List.of(openAi, anthropic, google)) {
+            ToolCall parsed = reply.getToolCalls().get(0);
+            assertEquals("find_class", parsed.getName());
+            assertEquals("Order", parsed.getString("name"));
+            assertEquals(3, parsed.getInt("limit", 10));
+            assertNull(parsed.getArgumentError());
+        }
+    }
+
+    @Test
+    public void malformedOpenAiArgumentsBecomeAnInvalidCall() throws Exception {
+        for (String arguments : List.of("{\\\"name\\\": Order", "[1, 2]")) {
+            ModelReply reply = client.parseResponse("{\"choices\":[{\"message\":{\"tool_calls\":[{\"id\":\"call_1\","
+                    + "\"type\":\"function\",\"function\":{\"name\":\"find_class\",\"arguments\":\"" + arguments
+                    + "\"}}]}}]}", LLMProvider.OPENAI);
+
+            ToolCall parsed = reply.getToolCalls().get(0);
+            assertEquals("find_class", parsed.getName());
+            assertNotNull(parsed.getArgumentError());
+            assertNull(parsed.getString("name"));
+        }
+    }
+
+    private JsonNode format(LLMProvider provider, boolean toolCallsAllowed) throws Exception {
+        PromptOptions options = new PromptOptions();
+        options.setTools(List.of(FIND_CLASS));
+        options.setToolCallsAllowed(toolCallsAllowed);
+        return objectMapper.readTree(client.formatRequestBody(conversation, new PromptlySettings(), provider, options));
+    }
+}
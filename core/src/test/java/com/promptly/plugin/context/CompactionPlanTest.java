@@ -0,0 +1,74 @@
+package com.promptly.plugin.context;
+
+import com.promptly.plugin.models.ChatMessage;
+import com.promptly.plugin.tokenizer.Tokenizer;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CompactionPlanTest {
+    private static final Tokenizer CHARS = new Tokenizer() {
+        @Override
+        public String getId() {
+            return "chars";
+        }
+
+        @Override
+        public int countTokens(CharSequence text) {
+            return text.length();
+        }
+    };
+
+    @Test
+    public void smallConversationsAreKept() {
+        List<ChatMessage> history = turns(3, 100);
+
+        assertTrue(CompactionPlan.selectTurns(history, CHARS, 10_000, 2).isEmpty());
+    }
+
+    @Test
+    public void everythingBeforeTheKeptTurnsIsSummarized() {
+        List<ChatMessage> history = turns(5, 100);
+
+        List<ChatMessage> older = CompactionPlan.selectTurns(history, CHARS, 500, 2);
+
+        assertEquals(history.subList(0, 6), older);
+    }
+
+    @Test
+    public void aLoneSummaryIsNotSummarizedAgain() {
+        List<ChatMessage> history = new ArrayList<>();
+        history.add(new ChatMessage(ChatMessage.Role.SYSTEM, "s".repeat(100)));
+        history.addAll(turns(2, 1000));
+
+        assertTrue(CompactionPlan.selectTurns(history, CHARS, 500, 2).isEmpty());
+    }
+
+    @Test
+    public void keptTurnsOverTheThresholdWaitForAWorthwhileHead() {
+        // Each kept turn alone is over the threshold; one small turn in front is not worth a summary yet
+        List<ChatMessage> history = new ArrayList<>();
+        history.add(new ChatMessage(ChatMessage.Role.SYSTEM, "s".repeat(50)));
+        history.addAll(turns(1, 40));
+        history.addAll(turns(2, 2000));
+
+        assertTrue(CompactionPlan.selectTurns(history, CHARS, 1000, 2).isEmpty());
+
+        // Once the older part has grown to half the threshold it is summarized
+        history.addAll(3, turns(4, 100));
+        assertEquals(11, CompactionPlan.selectTurns(history, CHARS, 1000, 2).size());
+    }
+
+    private static List<ChatMessage> turns(int count, int answerLength) {
+        List<ChatMessage> turns = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            turns.add(new ChatMessage(ChatMessage.Role.USER, "question " + i));
+            turns.add(new ChatMessage(ChatMessage.Role.ASSISTANT, "a".repeat(answerLength)));
+        }
+        return turns;
+    }
+}
@@ -0,0 +1,172 @@
+package com.promptly.plugin.context;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ContextMinifierTest {
+    private static final String JAVA = lines(
+            "/**",
+            " * Parses orders.",
+            " */",
+            "public class OrderParser {",
+            "    /**",
+            "     * Parses one order.",
+            "     */",
+            "    public Order parse(String text) {",
+            "        if (text.isEmpty()) {",
+            "            throw new IllegalArgumentException(",
+            "                    \"empty\");",
+            "        }",
+            "        return new Order(text);",
+            "    }",
+            "}");
+
+    @Test
+    public void narrowedJavaIsRestoredExactly() {
+        MinifiedText minified = ContextMinifier.minify("src/OrderParser.java", JAVA);
+
+        assertEquals(4, minified.getIndentUnit());
+        assertTrue(minified.getText().contains("\n  * Parses one order.\n"));
+        assertTrue(minified.getText().contains("\n   throw new IllegalArgumentException(\n     \"empty\");\n"));
+        assertEquals(JAVA, minified.restoreIndentation(minified.getText()));
+    }
+
+    @Test
+    public void codeInTheOriginalStyleIsNotWidened() {
+        MinifiedText minified = ContextMinifier.minify("src/OrderParser.java", JAVA);
+
+        // The column-0 Javadoc's " * " lines must not be taken for narrowed code
+        assertEquals(JAVA, minified.restoreIndentation(JAVA));
+    }
+
+    @Test
+    public void alignedIndentationIsNotNarrowed() {
+        String aligned = lines(
+                "class Sum {",
+                "    long add(int first,",
+                "             int second) {",
+                "        return first + second;",
+                "    }",
+                "}");
+
+        MinifiedText minified = ContextMinifier.minify("Sum.java", aligned);
+
+        assertEquals(1, minified.getIndentUnit());
+        assertEquals(aligned, minified.getText());
+    }
+
+    @Test
+    public void textBlocksAreKeptExactly() {
+        String java = lines(
+                "class Query {",
+                "    String sql() {",
+                "        return \"\"\"",
+                "            SELECT *   ",
+                "",
+                "",
+                "",
+                "                FROM orders",
+                "            \"\"\";",
+                "    }",
+                "}");
+
+        MinifiedText minified = ContextMinifier.minify("Query.java", java);
+
+        assertEquals(4, minified.getIndentUnit());
+        assertTrue(minified.getText().contains(lines(
+                "  return \"\"\"",
+                "            SELECT *   ",
+                "",
+                "",
+                "",
+                "                FROM orders",
+                "            \"\"\";",
+                " }")));
+        assertEquals(java, minified.restoreIndentation(minified.getText()));
+    }
+
+    @Test
+    public void pythonDocstringsAreKeptExactly() {
+        String python = lines(
+                "def run():",
+                "    \"\"\"Runs the job.",
+                "",
+                "",
+                "      Details.   \"\"\"",
+                "    return 1");
+
+        MinifiedText minified = ContextMinifier.minify("job.py", python);
+
+        assertEquals(4, minified.getIndentUnit());
+        assertEquals(lines(
+                "def run():",
+                " \"\"\"Runs the job.",
+                "",
+                "",
+                "      Details.   \"\"\"",
+                " return 1"), minified.getText());
+        assertEquals(python, minified.restoreIndentation(minified.getText()));
+    }
+
+    @Test
+    public void removedLinesAreNamedInNotes() {
+        String java = lines(
+                "/*",
+                " * Copyright 2024 Example",
+                " */",
+                "package com.example;",
+                "",
+                "import java.util.List;",
+                "import java.util.Map;",
+                "import java.util.Set;",
+                "",
+                "",
+                "",
+                "class Holder {",
+                "}");
+
+        MinifiedText minified = ContextMinifier.minify("Holder.java", java);
+
+        assertEquals(lines(
+                "// [license header omitted, lines 1-3]",
+                "package com.example;",
+                "",
+                "// [3 imports omitted, lines 6-8]",
+                "",
+                "class Holder {",
+                "}"), minified.getText());
+    }
+
+    @Test
+    public void rewrittenSelectionsKeepEveryLine() {
+        String selection = lines(
+                "/*",
+                " * Copyright 2024 Example",
+                " */",
+                "package com.example;",
+                "",
+                "import java.util.List;",
+                "import java.util.Map;",
+                "import java.util.Set;",
+                "",
+                "",
+                "// ----------------------------------------",
+                "class Holder {",
+                "    List<String> names;",
+                "}");
+
+        MinifiedText minified = ContextMinifier.minifyForRewrite("Holder.java", selection);
+
+        assertEquals(4, minified.getIndentUnit());
+        assertEquals(selection.replace("    List", " List"), minified.getText());
+        // An answer that only changes the field keeps the header, imports and banner when it replaces the selection
+        String answer = minified.getText().replace(" List<String> names;", " List<String> names = List.of();");
+        assertEquals(selection.replace("names;", "names = List.of();"), minified.restoreIndentation(answer));
+    }
+
+    private static String lines(String... lines) {
+        return String.join("\n", lines);
+    }
+}
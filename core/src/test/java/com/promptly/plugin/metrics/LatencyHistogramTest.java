@@ -0,0 +1,102 @@
+package com.promptly.plugin.metrics;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTest {
+    @Test
+    public void emptyHistogramReportsZero() {
+        LatencyHistogram histogram = new LatencyHistogram(1_000_000);
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getValueAtPercentile(50));
+        assertEquals(0.0, histogram.getMean(), 0.0);
+    }
+
+    @Test
+    public void smallValuesAreExact() {
+        LatencyHistogram histogram = new LatencyHistogram(1_000_000);
+        for (int value = 1; value <= 100; value++) {
+            histogram.record(value);
+        }
+
+        assertEquals(50, histogram.getValueAtPercentile(50));
+        assertEquals(99, histogram.getValueAtPercentile(99));
+        assertEquals(100, histogram.getValueAtPercentile(100));
+        assertEquals(50.5, histogram.getMean(), 1e-9);
+    }
+
+    @Test
+    public void largeValuesStayWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram(10_000_000);
+        for (int value = 1; value <= 1_000_000; value++) {
+            histogram.record(value);
+        }
+
+        for (double percentile : new double[] {10, 50, 90, 99, 99.9}) {
+            long expected = (long) (1_000_000 * percentile / 100);
+            long actual = histogram.getValueAtPercentile(percentile);
+            assertTrue(percentile + ": " + actual, actual >= expected && actual <= expected * 1.016);
+        }
+        assertEquals(1_000_000, histogram.getMax());
+    }
+
+    @Test
+    public void everyValueFallsInsideItsBucket() {
+        for (long value = 0; value < 1 << 20; value += 7) {
+            int index = LatencyHistogram.bucketIndex(value);
+            assertTrue(value + " above its bucket", value <= LatencyHistogram.bucketUpperBound(index));
+            assertTrue(value + " below its bucket", index == 0 || value > LatencyHistogram.bucketUpperBound(index - 1));
+        }
+    }
+
+    @Test
+    public void valuesAboveTheLimitAreClamped() {
+        LatencyHistogram histogram = new LatencyHistogram(10_000);
+        histogram.record(-5);
+        histogram.record(50_000);
+
+        assertEquals(2, histogram.getCount());
+        assertEquals(10_000, histogram.getMax());
+        assertEquals(0, histogram.getValueAtPercentile(50));
+        assertEquals(10_000, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void resetClearsEverything() {
+        LatencyHistogram histogram = new LatencyHistogram(10_000);
+        histogram.record(500);
+        histogram.reset();
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getSum());
+        assertEquals(0, histogram.getMax());
+        assertEquals(0, histogram.getValueAtPercentile(99));
+    }
+
+    @Test
+    public void concurrentRecordsAreNotLost() throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram(1_000_000);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    histogram.record(i);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(80_000, histogram.getCount());
+        assertEquals(8L * (9_999L * 10_000 / 2), histogram.getSum());
+    }
+}
@@ -0,0 +1,95 @@
+package com.promptly.plugin.replay;
+
+import com.promptly.plugin.client.LLMClient;
+import com.promptly.plugin.models.ChatMessage;
+import com.promptly.plugin.models.LLMProvider;
+import com.promptly.plugin.models.PromptOptions;
+import com.promptly.plugin.models.PromptlySettings;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RecordReplayTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final MockWebServer server = new MockWebServer();
+    private final LLMClient client = new LLMClient();
+    private final List<ChatMessage> conversation = List.of(
+            new ChatMessage(ChatMessage.Role.USER, "Rename the method"));
+    private Path cassette;
+
+    @Before
+    public void setUp() throws Exception {
+        server.start();
+        cassette = folder.getRoot().toPath().resolve("session.cassette");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        client.shutdown();
+        server.shutdown();
+    }
+
+    @Test
+    public void recordedAnswerIsReplayed() throws Exception {
+        String answer = "Here you go: " + "renamed ".repeat(200);
+        // Throttled, so the recording sees many reads of the body
+        server.enqueue(new MockResponse()
+                .setHeader("Content-Type", "application/json")
+                .setBody("{\"choices\":[{\"message\":{\"role\":\"assistant\",\"content\":\"" + answer + "\"}}]}")
+                .throttleBody(64, 1, TimeUnit.MILLISECONDS));
+
+        assertEquals(answer, send(recordingSettings()));
+        List<CassetteInteraction> recorded = CassetteFile.read(cassette);
+        assertEquals(1, recorded.size());
+        assertTrue(recorded.get(0).getChunks().size() > 1);
+
+        PromptlySettings replay = new PromptlySettings();
+        replay.setSelectedProvider(LLMProvider.REPLAY);
+        replay.setCassettePath(cassette.toString());
+        assertEquals(answer, send(replay));
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void rateLimitsAndServerErrorsAreNotRecorded() throws Exception {
+        for (int status : new int[]{429, 503}) {
+            server.enqueue(new MockResponse().setResponseCode(status).setBody("{\"error\":{\"message\":\"busy\"}}"));
+            try {
+                send(recordingSettings());
+            } catch (ExecutionException expected) {
+                // The request fails; only the cassette matters here
+            }
+        }
+        assertFalse(Files.exists(cassette));
+    }
+
+    private PromptlySettings recordingSettings() {
+        PromptlySettings settings = new PromptlySettings();
+        settings.setSelectedProvider(LLMProvider.OPENAI);
+        settings.setEndpoint(LLMProvider.OPENAI, server.url("/v1/chat/completions").toString());
+        settings.setApiKey(LLMProvider.OPENAI, "test");
+        settings.setRecordingEnabled(true);
+        settings.setCassettePath(cassette.toString());
+        return settings;
+    }
+
+    private String send(PromptlySettings settings) throws Exception {
+        return client.sendPrompt(conversation, new PromptOptions(), settings).get(30, TimeUnit.SECONDS);
+    }
+}
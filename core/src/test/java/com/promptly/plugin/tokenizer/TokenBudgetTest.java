@@ -0,0 +1,85 @@
+package com.promptly.plugin.tokenizer;
+
+import com.promptly.plugin.models.ChatMessage;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class TokenBudgetTest {
+    // One token per character keeps the arithmetic readable
+    private static final Tokenizer CHARS = new Tokenizer() {
+        @Override
+        public String getId() {
+            return "chars";
+        }
+
+        @Override
+        public int countTokens(CharSequence text) {
+            return text.length();
+        }
+    };
+    private static final int OVERHEAD = Tokenizers.MESSAGE_OVERHEAD_TOKENS;
+
+    private final ChatMessage summary = message(ChatMessage.Role.SYSTEM, 10);
+    private final ChatMessage firstQuestion = message(ChatMessage.Role.USER, 10);
+    private final ChatMessage firstContext = message(ChatMessage.Role.SYSTEM, 100);
+    private final ChatMessage firstAnswer = message(ChatMessage.Role.ASSISTANT, 50);
+    private final ChatMessage secondQuestion = message(ChatMessage.Role.USER, 10);
+    private final ChatMessage secondContext = message(ChatMessage.Role.SYSTEM, 100);
+    private final List<ChatMessage> conversation = List.of(
+            summary, firstQuestion, firstContext, firstAnswer, secondQuestion, secondContext);
+
+    @Test
+    public void conversationsWithinTheLimitAreUntouched() throws RequestTooLargeException {
+        int size = Tokenizers.countMessages(conversation, CHARS);
+
+        assertSame(conversation, TokenBudget.fit(conversation, CHARS, size));
+        assertSame(conversation, TokenBudget.fit(conversation, CHARS, 0));
+    }
+
+    @Test
+    public void oldestTurnsAreDroppedWhole() throws RequestTooLargeException {
+        List<ChatMessage> fitted = TokenBudget.fit(conversation, CHARS, 200);
+
+        assertEquals(List.of(summary, secondQuestion, secondContext), fitted);
+    }
+
+    @Test
+    public void toolCallsLeaveWithTheirTurn() throws RequestTooLargeException {
+        List<ChatMessage> withTools = new ArrayList<>(List.of(firstQuestion,
+                message(ChatMessage.Role.ASSISTANT, 5), message(ChatMessage.Role.TOOL, 300), firstAnswer,
+                secondQuestion));
+
+        assertEquals(List.of(secondQuestion), TokenBudget.fit(withTools, CHARS, 50));
+    }
+
+    @Test
+    public void currentTurnAloneOverTheLimitIsRejected() {
+        try {
+            TokenBudget.fit(conversation, CHARS, 100);
+            fail("expected the request to be rejected");
+        } catch (RequestTooLargeException e) {
+            assertEquals(10 + 10 + 100 + 3 * OVERHEAD, e.getTokens());
+            assertEquals(100, e.getLimit());
+        }
+    }
+
+    @Test
+    public void singleTurnOverTheLimitIsRejected() {
+        try {
+            TokenBudget.fit(List.of(message(ChatMessage.Role.USER, 500)), CHARS, 100);
+            fail("expected the request to be rejected");
+        } catch (RequestTooLargeException e) {
+            assertEquals(500 + OVERHEAD, e.getTokens());
+        }
+    }
+
+    private static ChatMessage message(ChatMessage.Role role, int tokens) {
+        return new ChatMessage(role, "x".repeat(tokens));
+    }
+}
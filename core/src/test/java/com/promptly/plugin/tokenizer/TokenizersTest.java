@@ -0,0 +1,88 @@
+package com.promptly.plugin.tokenizer;
+
+import com.promptly.plugin.models.ChatMessage;
+import com.promptly.plugin.models.LLMProvider;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Known-answer counts, taken from tiktoken's own encoders for the same vocabularies.
+ */
+public class TokenizersTest {
+    private static final String[] TEXTS = {
+            "hello world",
+            "Hello, world! How are you today?",
+            "    public static void main(String[] args) {\n        System.out.println(\"Hi\");\n    }\n",
+            "Gr\u00fc\u00dfe aus M\u00fcnchen \u2013 \u6771\u4eac \ud83d\ude80",
+            "12345678901234567890",
+            "I'm sure they'll say it's fine, won't they?",
+            "   \n\n\t  trailing   spaces   \n",
+            "orders.put(order.id(), order); // keep index in sync",
+    };
+    private static final int[] CL100K_COUNTS = {2, 9, 19, 12, 7, 14, 6, 12};
+    private static final int[] O200K_COUNTS = {2, 9, 19, 9, 7, 10, 6, 12};
+
+    @Test
+    public void cl100kMatchesTiktoken() {
+        Tokenizer tokenizer = Tokenizers.forModel(LLMProvider.OPENAI, "gpt-4");
+        assertEquals("the bundled vocabulary must be used", "cl100k_base", tokenizer.getId());
+        for (int i = 0; i < TEXTS.length; i++) {
+            assertEquals(TEXTS[i], CL100K_COUNTS[i], tokenizer.countTokens(TEXTS[i]));
+        }
+    }
+
+    @Test
+    public void o200kMatchesTiktoken() {
+        Tokenizer tokenizer = Tokenizers.forModel(LLMProvider.OPENAI, "gpt-4o-mini");
+        assertEquals("the bundled vocabulary must be used", "o200k_base", tokenizer.getId());
+        for (int i = 0; i < TEXTS.length; i++) {
+            assertEquals(TEXTS[i], O200K_COUNTS[i], tokenizer.countTokens(TEXTS[i]));
+        }
+    }
+
+    @Test
+    public void tokenizersAreShared() {
+        assertSame(Tokenizers.forModel(LLMProvider.OPENAI, "gpt-4"), Tokenizers.forModel(LLMProvider.OPENAI, "gpt-4"));
+        assertSame(Tokenizers.forModel(LLMProvider.GOOGLE, "a"), Tokenizers.forModel(LLMProvider.CUSTOM, "b"));
+    }
+
+    @Test
+    public void heuristicStaysNearTheRealCountForCode() {
+        Tokenizer heuristic = Tokenizers.forModel(LLMProvider.CUSTOM, "");
+        Tokenizer exact = Tokenizers.forModel(LLMProvider.OPENAI, "gpt-4");
+        String code = TEXTS[2].repeat(50);
+
+        double ratio = (double) heuristic.countTokens(code) / exact.countTokens(code);
+        assertTrue("ratio " + ratio, ratio > 0.7 && ratio < 1.5);
+        assertEquals(0, heuristic.countTokens(""));
+    }
+
+    @Test
+    public void messageCountsAreMemoizedPerTokenizer() {
+        int[] calls = {0};
+        Tokenizer counting = new Tokenizer() {
+            @Override
+            public String getId() {
+                return "counting";
+            }
+
+            @Override
+            public int countTokens(CharSequence text) {
+                calls[0]++;
+                return text.length();
+            }
+        };
+        ChatMessage message = new ChatMessage(ChatMessage.Role.USER, "twelve chars");
+
+        assertEquals(12, message.getTokenCount(counting));
+        assertEquals(12, message.getTokenCount(counting));
+        assertEquals(1, calls[0]);
+        assertEquals(12 + Tokenizers.MESSAGE_OVERHEAD_TOKENS, Tokenizers.countMessages(List.of(message), counting));
+        assertEquals(1, calls[0]);
+    }
+}
@@ -0,0 +1,150 @@
+package com.promptly.plugin.tools;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.promptly.plugin.client.LLMClient;
+import com.promptly.plugin.models.ChatMessage;
+import com.promptly.plugin.models.LLMProvider;
+import com.promptly.plugin.models.PromptOptions;
+import com.promptly.plugin.models.PromptlySettings;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ToolLoopTest {
+    private static final ToolDefinition FIND_CLASS = new ToolDefinition("find_class", "Finds a class",
+            List.of(ToolDefinition.Parameter.string("name", "Simple class name", true)));
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final MockWebServer server = new MockWebServer();
+    private final LLMClient client = new LLMClient();
+    private final List<List<ToolCall>> executed = new ArrayList<>();
+    private final ToolLoop loop = new ToolLoop(client, calls -> {
+        executed.add(calls);
+        List<String> results = new ArrayList<>();
+        for (ToolCall call : calls) {
+            results.add("class " + call.getString("name") + " {}");
+        }
+        return CompletableFuture.completedFuture(results);
+    });
+    private PromptlySettings settings;
+
+    @Before
+    public void setUp() throws Exception {
+        server.start();
+        settings = new PromptlySettings();
+        settings.setSelectedProvider(LLMProvider.OPENAI);
+        settings.setEndpoint(LLMProvider.OPENAI, server.url("/v1/chat/completions").toString());
+        settings.setApiKey(LLMProvider.OPENAI, "test");
+        settings.setSemanticCacheEnabled(true);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        client.shutdown();
+        server.shutdown();
+    }
+
+    @Test
+    public void answersToolCallsUntilTheModelReplies() throws Exception {
+        server.enqueue(toolCallResponse("{\"name\":\"OrderService\"}"));
+        server.enqueue(textResponse("OrderService is empty."));
+
+        assertEquals("OrderService is empty.", run("What does OrderService do?"));
+        assertEquals(1, executed.size());
+        requestBody();
+        JsonNode second = requestBody();
+        assertEquals("tool", second.path("messages").path(2).path("role").asText());
+        assertEquals("class OrderService {}", second.path("messages").path(2).path("content").asText());
+    }
+
+    @Test
+    public void semanticCacheIsConsultedOnceForTheWholeLoop() throws Exception {
+        server.enqueue(toolCallResponse("{\"name\":\"OrderService\"}"));
+        server.enqueue(textResponse("OrderService is empty."));
+
+        assertEquals("OrderService is empty.", run("What does OrderService do?"));
+        assertEquals("OrderService is empty.", run("what does OrderService do"));
+
+        assertEquals(2, server.getRequestCount());
+        assertEquals(1, executed.size());
+    }
+
+    @Test
+    public void forcesATextAnswerAfterTheLastRound() throws Exception {
+        for (int i = 0; i < ToolLoop.MAX_ROUNDS; i++) {
+            server.enqueue(toolCallResponse("{\"name\":\"Class" + i + "\"}"));
+        }
+        server.enqueue(textResponse("Here is what I found."));
+
+        assertEquals("Here is what I found.", run("Map out the project"));
+        assertEquals(ToolLoop.MAX_ROUNDS - 1, executed.size());
+        for (int i = 0; i < ToolLoop.MAX_ROUNDS; i++) {
+            JsonNode body = requestBody();
+            assertFalse(body.has("tool_choice"));
+        }
+        JsonNode last = requestBody();
+        assertEquals("none", last.path("tool_choice").asText());
+        JsonNode messages = last.path("messages");
+        assertEquals(ToolLoop.LIMIT_REACHED, messages.path(messages.size() - 1).path("content").asText());
+    }
+
+    @Test
+    public void malformedArgumentsAreAnsweredWithAnError() throws Exception {
+        server.enqueue(toolCallResponse("{\"name\": OrderService"));
+        server.enqueue(textResponse("Sorry, let me answer directly."));
+
+        assertEquals("Sorry, let me answer directly.", run("What does OrderService do?"));
+        assertTrue(executed.isEmpty());
+        requestBody();
+        JsonNode result = requestBody().path("messages").path(2);
+        assertEquals("tool", result.path("role").asText());
+        assertTrue(result.path("content").asText(), result.path("content").asText().startsWith("Error: "));
+    }
+
+    private String run(String question) throws Exception {
+        PromptOptions options = new PromptOptions();
+        options.setTools(List.of(FIND_CLASS));
+        options.setUseSemanticCache(true);
+        return loop.run(List.of(new ChatMessage(ChatMessage.Role.USER, question)), options, settings)
+                .get(30, TimeUnit.SECONDS);
+    }
+
+    private JsonNode requestBody() throws Exception {
+        return objectMapper.readTree(server.takeRequest(5, TimeUnit.SECONDS).getBody().readUtf8());
+    }
+
+    private MockResponse toolCallResponse(String arguments) {
+        ObjectNode root = objectMapper.createObjectNode();
+        ObjectNode message = root.putArray("choices").addObject().putObject("message");
+        message.put("role", "assistant");
+        message.putNull("content");
+        ObjectNode call = message.putArray("tool_calls").addObject();
+        call.put("id", "call_" + server.getRequestCount());
+        call.put("type", "function");
+        call.putObject("function").put("name", "find_class").put("arguments", arguments);
+        return json(root);
+    }
+
+    private MockResponse textResponse(String text) {
+        ObjectNode root = objectMapper.createObjectNode();
+        root.putArray("choices").addObject().putObject("message").put("role", "assistant").put("content", text);
+        return json(root);
+    }
+
+    private static MockResponse json(JsonNode body) {
+        return new MockResponse().setHeader("Content-Type", "application/json").setBody(body.toString());
+    }
+}
@@ -0,0 +1,70 @@
+package com.promptly.plugin.tools;
+
+import com.promptly.plugin.models.LLMProvider;
+import com.promptly.plugin.tokenizer.Tokenizer;
+import com.promptly.plugin.tokenizer.Tokenizers;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ToolResultBudgetTest {
+    private final Tokenizer tokenizer = Tokenizers.forModel(LLMProvider.OPENAI, "gpt-4o");
+
+    @Test
+    public void resultsWithinTheBudgetAreKeptWhole() {
+        List<String> results = List.of("class A {}", "class B {}");
+
+        assertEquals(results, ToolResultBudget.fit(results, 1000, tokenizer));
+    }
+
+    @Test
+    public void smallResultsLeaveTheirShareToLargeOnes() {
+        String small = "class A {}";
+        String large = lines("    void method%d() { call%d(); }", 400);
+
+        List<String> fitted = ToolResultBudget.fit(List.of(small, large), 1000, tokenizer);
+
+        assertEquals(small, fitted.get(0));
+        assertTrue(fitted.get(1).contains("[truncated "));
+        int used = tokenizer.countTokens(fitted.get(0)) + tokenizer.countTokens(fitted.get(1));
+        assertTrue("used " + used, used <= 1000 * 1.1);
+        assertTrue("used " + used, used > 1000 * 0.8);
+    }
+
+    @Test
+    public void largeResultsShareTheBudgetAndAreCutAtALineBoundary() {
+        String first = lines("first line %d of %d", 500);
+        String second = lines("second line %d of %d", 500);
+
+        List<String> originals = List.of(first, second);
+        List<String> fitted = ToolResultBudget.fit(originals, 600, tokenizer);
+
+        for (int i = 0; i < fitted.size(); i++) {
+            String kept = fitted.get(i).substring(0, fitted.get(i).indexOf("\n[truncated "));
+            assertTrue(originals.get(i).startsWith(kept + "\n"));
+            // The cut is proportional, so the share is met only approximately
+            assertTrue(tokenizer.countTokens(kept) <= 330);
+        }
+    }
+
+    @Test
+    public void keepsTheOrderOfTheCalls() {
+        String large = lines("line %d %d", 300);
+        List<String> fitted = ToolResultBudget.fit(List.of(large, "tiny", "also tiny"), 200, tokenizer);
+
+        assertTrue(fitted.get(0).startsWith("line 0"));
+        assertEquals("tiny", fitted.get(1));
+        assertEquals("also tiny", fitted.get(2));
+    }
+
+    private static String lines(String format, int count) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            text.append(String.format(format, i, i)).append('\n');
+        }
+        return text.toString();
+    }
+}
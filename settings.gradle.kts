@@ -1 +1,5 @@
-rootProject.name = "promptly" 
\ No newline at end of file
+rootProject.name = "promptly"
+
+// core: platform-free providers, codecs, metrics and context logic
+// cli: headless batch runner on top of core
+include("core", "cli")
@@ -0,0 +1,114 @@
+package com.promptly.plugin;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.promptly.plugin.models.ChatMessage;
+import com.promptly.plugin.models.LLMProvider;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Deterministic synthetic payloads shared by the benchmarks.
+ */
+public final class BenchmarkData {
+    private static final String[] LINES = {
+            "package com.example.service;",
+            "",
+            "import java.util.List;",
+            "import java.util.Map;",
+            "/**",
+            " * Handles \"orders\" for the checkout flow.",
+            " */",
+            "public class OrderService {",
+            "    private final Map<String, Order> orders = new java.util.HashMap<>();",
+            "    public Order find(String id) {",
+            "        if (id == null || id.isEmpty()) {",
+            "            throw new IllegalArgumentException(\"id must not be empty\\n\");",
+            "        }",
+            "        return orders.get(id);",
+            "    }",
+            "    // TODO: paginate\tresults",
+            "    public List<Order> list() { return List.copyOf(orders.values()); }",
+            "}",
+    };
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * Returns Java-like source text of roughly the given size in characters.
+     */
+    public static String code(int size) {
+        StringBuilder sb = new StringBuilder(size + 128);
+        Random random = new Random(42);
+        while (sb.length() < size) {
+            sb.append(LINES[random.nextInt(LINES.length)]).append('\n');
+        }
+        sb.setLength(size);
+        return sb.toString();
+    }
+
+    /**
+     * A short conversation followed by a CONTEXT message carrying {@code contextSize} characters of code.
+     */
+    public static List<ChatMessage> conversation(int contextSize) {
+        List<ChatMessage> messages = new ArrayList<>();
+        messages.add(new ChatMessage(ChatMessage.Role.USER, "Why does find() throw for blank ids?"));
+        messages.add(new ChatMessage(ChatMessage.Role.ASSISTANT, "Because of the guard clause at the top:\n```java\n"
+                + code(400) + "\n```\nRemove it if blank ids are valid."));
+        messages.add(new ChatMessage(ChatMessage.Role.USER, "Refactor the service to paginate list()."));
+        messages.add(new ChatMessage(ChatMessage.Role.SYSTEM,
+                "CONTEXT:\nFile: /project/src/OrderService.java\nFile content:\n```\n" + code(contextSize) + "\n```\n"));
+        return messages;
+    }
+
+    /**
+     * A markdown answer mixing prose and fenced code, of roughly the given size.
+     */
+    public static String markdownAnswer(int size) {
+        StringBuilder sb = new StringBuilder(size + 256);
+        int block = 0;
+        while (sb.length() < size) {
+            sb.append("Step ").append(++block).append(": adjust the service as shown below.\n\n");
+            sb.append("```java\n").append(code(Math.min(2048, Math.max(64, size / 8)))).append("\n```\n\n");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * A successful response body in the given provider's wire format, carrying the given answer.
+     */
+    public static String responseJson(LLMProvider provider, String answer) {
+        ObjectMapper mapper = new ObjectMapper();
+        ObjectNode root = mapper.createObjectNode();
+        switch (provider) {
+            case OPENAI:
+                root.put("id", "chatcmpl-bench");
+                root.put("object", "chat.completion");
+                ObjectNode choice = root.putArray("choices").addObject();
+                choice.put("index", 0);
+                choice.putObject("message").put("role", "assistant").put("content", answer);
+                choice.put("finish_reason", "stop");
+                root.putObject("usage").put("prompt_tokens", 1000).put("completion_tokens", 500);
+                break;
+            case ANTHROPIC:
+                root.put("id", "msg_bench");
+                root.put("type", "message");
+                root.putArray("content").addObject().put("type", "text").put("text", answer);
+                root.put("stop_reason", "end_turn");
+                break;
+            case GOOGLE:
+                ObjectNode candidate = root.putArray("candidates").addObject();
+                candidate.putObject("content").put("role", "model")
+                        .putArray("parts").addObject().put("text", answer);
+                candidate.put("finishReason", "STOP");
+                break;
+            default:
+                root.put("response", answer);
+                break;
+        }
+        return root.toString();
+    }
+}
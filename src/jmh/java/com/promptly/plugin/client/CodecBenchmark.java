@@ -0,0 +1,55 @@
+package com.promptly.plugin.client;
+
+import com.promptly.plugin.BenchmarkData;
+import com.promptly.plugin.models.ChatMessage;
+import com.promptly.plugin.models.LLMProvider;
+import com.promptly.plugin.models.ModelReply;
+import com.promptly.plugin.models.PromptOptions;
+import com.promptly.plugin.models.PromptlySettings;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Request serialization and response parsing for every provider, from 1 KB to 5 MB of context.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class CodecBenchmark {
+    @Param({"OPENAI", "ANTHROPIC", "GOOGLE", "CUSTOM"})
+    public LLMProvider provider;
+
+    @Param({"1024", "65536", "1048576", "5242880"})
+    public int contextSize;
+
+    private LLMClient client;
+    private PromptlySettings settings;
+    private PromptOptions options;
+    private List<ChatMessage> messages;
+    private String responseJson;
+
+    @Setup
+    public void setUp() {
+        client = new LLMClient();
+        settings = new PromptlySettings();
+        settings.setSelectedProvider(provider);
+        options = new PromptOptions();
+        messages = BenchmarkData.conversation(contextSize);
+        responseJson = BenchmarkData.responseJson(provider, BenchmarkData.markdownAnswer(contextSize));
+    }
+
+    @Benchmark
+    public String formatRequestBody() throws Exception {
+        return client.formatRequestBody(messages, settings, provider, options);
+    }
+
+    @Benchmark
+    public ModelReply parseResponse() throws Exception {
+        return client.parseResponse(responseJson, provider);
+    }
+}
@@ -0,0 +1,42 @@
+package com.promptly.plugin.context;
+
+import com.promptly.plugin.BenchmarkData;
+import com.promptly.plugin.models.ChatMessage;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building the CONTEXT message from a file, as done on every chat turn with context enabled.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ContextAssemblyBenchmark {
+    @Param({"1024", "65536", "1048576", "5242880"})
+    public int fileSize;
+
+    private String fileContent;
+    private String selection;
+
+    @Setup
+    public void setUp() {
+        fileContent = BenchmarkData.code(fileSize);
+        selection = fileContent.substring(0, Math.min(fileSize, 2048));
+    }
+
+    @Benchmark
+    public ChatMessage wholeFile() {
+        return new ChatMessage(ChatMessage.Role.SYSTEM,
+                ContextBuilder.build("/project/src/OrderService.java", fileContent, null));
+    }
+
+    @Benchmark
+    public ChatMessage selection() {
+        return new ChatMessage(ChatMessage.Role.SYSTEM,
+                ContextBuilder.build("/project/src/OrderService.java", fileContent, selection));
+    }
+}
@@ -0,0 +1,43 @@
+package com.promptly.plugin.services;
+
+import com.promptly.plugin.models.LLMProvider;
+import com.promptly.plugin.models.PromptlySettings;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of reading settings, which happens on every prompt sent: the cached snapshot,
+ * and materializing a fresh copy from the persisted state as the snapshot is rebuilt.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class SettingsBenchmark {
+    private SettingsService settingsService;
+
+    @Setup
+    public void setUp() {
+        settingsService = new SettingsService();
+        SettingsService.State state = settingsService.getState();
+        state.selectedProvider = LLMProvider.ANTHROPIC.name();
+        for (LLMProvider provider : LLMProvider.values()) {
+            state.apiKeys.put(provider.name(), "sk-" + provider.name().toLowerCase() + "-0123456789abcdef");
+            state.endpoints.put(provider.name(), provider.getDefaultEndpoint());
+            state.modelNames.put(provider.name(), "model-" + provider.name().toLowerCase());
+        }
+    }
+
+    @Benchmark
+    public PromptlySettings getSettings() {
+        return settingsService.getSettings();
+    }
+
+    @Benchmark
+    public PromptlySettings getEditableSettings() {
+        return settingsService.getEditableSettings();
+    }
+}
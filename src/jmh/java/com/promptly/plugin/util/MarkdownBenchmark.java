@@ -0,0 +1,32 @@
+package com.promptly.plugin.util;
+
+import com.promptly.plugin.BenchmarkData;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Code block extraction used by "Apply to Editor" and code generation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class MarkdownBenchmark {
+    @Param({"1024", "65536", "1048576"})
+    public int answerSize;
+
+    private String markdown;
+
+    @Setup
+    public void setUp() {
+        markdown = BenchmarkData.markdownAnswer(answerSize);
+    }
+
+    @Benchmark
+    public String extractCodeFromMarkdown() {
+        return MarkdownUtils.extractCodeFromMarkdown(markdown);
+    }
+}
@@ -0,0 +1,247 @@
+package com.promptly.plugin.loadtest;
+
+import com.promptly.plugin.batch.BatchRequest;
+import com.promptly.plugin.batch.BatchResult;
+import com.promptly.plugin.batch.BatchStore;
+import com.promptly.plugin.client.BatchTransport;
+import com.promptly.plugin.metrics.LatencyHistogram;
+import com.promptly.plugin.metrics.ModelMetrics;
+import com.promptly.plugin.models.ChatMessage;
+import com.promptly.plugin.models.LLMProvider;
+import com.promptly.plugin.models.PromptOptions;
+import com.promptly.plugin.models.PromptlySettings;
+import com.promptly.plugin.client.LLMClient;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drives concurrent conversation workloads through {@link LLMClient} against a {@link MockLlmServer}
+ * and reports throughput, latency percentiles, socket use and heap growth.
+ * <p>
+ * Options are passed as {@code --name=value}:
+ * <ul>
+ *     <li>{@code provider} (OPENAI), {@code concurrency} (16), {@code conversations} (200), {@code turns} (5);
+ *     with LOCAL the answers stream in as server-sent events and the time to the first token is reported too</li>
+ *     <li>{@code contextSize} characters of file context per turn (16384)</li>
+ *     <li>{@code ttfbMs} (200), {@code rateLimit} probability of a 429 (0), {@code responseChars} (2000)</li>
+ *     <li>{@code json} path to write the service's metrics export to</li>
+ *     <li>{@code batch} (false): send one single-turn request per conversation through {@link BatchTransport}
+ *     instead, with jobs completing after {@code batchMs} (1000), to compare against per-request calls</li>
+ * </ul>
+ */
+public final class LoadDriver {
+    private static final long MAX_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(10);
+
+    private final LLMProvider provider;
+    private final int concurrency;
+    private final int conversations;
+    private final int turns;
+    private final int contextSize;
+
+    private final LatencyHistogram latency = new LatencyHistogram(MAX_LATENCY_MICROS);
+    private final LatencyHistogram firstToken = new LatencyHistogram(MAX_LATENCY_MICROS);
+    private final AtomicInteger succeeded = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final AtomicLong peakHeap = new AtomicLong();
+
+    private LoadDriver(Map<String, String> options) {
+        this.provider = LLMProvider.valueOf(options.getOrDefault("provider", "OPENAI"));
+        this.concurrency = Integer.parseInt(options.getOrDefault("concurrency", "16"));
+        this.conversations = Integer.parseInt(options.getOrDefault("conversations", "200"));
+        this.turns = Integer.parseInt(options.getOrDefault("turns", "5"));
+        this.contextSize = Integer.parseInt(options.getOrDefault("contextSize", "16384"));
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+
+        MockLlmServer.Behavior behavior = new MockLlmServer.Behavior();
+        behavior.timeToFirstByteMillis = Long.parseLong(options.getOrDefault("ttfbMs", "200"));
+        behavior.rateLimitProbability = Double.parseDouble(options.getOrDefault("rateLimit", "0"));
+        behavior.responseChars = Integer.parseInt(options.getOrDefault("responseChars", "2000"));
+        behavior.batchCompletionMillis = Long.parseLong(options.getOrDefault("batchMs", "1000"));
+
+        try (MockLlmServer server = new MockLlmServer(behavior)) {
+            server.start();
+            LoadDriver driver = new LoadDriver(options);
+            // OkHttp allows only 5 requests per host by default, which would cap the concurrency under test
+            LLMClient client = new LLMClient(driver.concurrency);
+            try {
+                if (Boolean.parseBoolean(options.getOrDefault("batch", "false"))) {
+                    driver.runBatch(client, server);
+                } else {
+                    driver.run(client, server);
+                }
+
+                String json = options.get("json");
+                if (json != null) {
+                    Files.writeString(Path.of(json), client.getMetrics().exportJson(), StandardCharsets.UTF_8);
+                    System.out.println("Metrics written to " + json);
+                }
+            } finally {
+                // Lets the JVM exit once the dispatcher threads are idle
+                client.shutdown();
+            }
+        }
+    }
+
+    private void run(LLMClient client, MockLlmServer server) throws InterruptedException {
+        PromptlySettings settings = settingsFor(server);
+
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long heapBefore = usedHeapAfterGc(memory);
+        int threadsBefore = ManagementFactory.getThreadMXBean().getThreadCount();
+
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+        long start = System.nanoTime();
+        for (int i = 0; i < conversations; i++) {
+            int conversation = i;
+            workers.execute(() -> runConversation(client, settings, conversation, memory));
+        }
+        workers.shutdown();
+        workers.awaitTermination(1, TimeUnit.HOURS);
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+
+        int threadsAfter = ManagementFactory.getThreadMXBean().getThreadCount();
+        long heapAfter = usedHeapAfterGc(memory);
+        ModelMetrics metrics = client.getMetrics().forModel(provider, settings.getModelName(provider));
+
+        int total = succeeded.get() + failed.get();
+        System.out.printf("Provider %s, %d conversations x %d turns, concurrency %d, context %,d chars%n",
+                provider, conversations, turns, concurrency, contextSize);
+        System.out.printf("Requests:      %,d ok, %,d failed (%,d rate limited by server) in %.1f s%n",
+                succeeded.get(), failed.get(), server.getRateLimitedCount(), elapsedSeconds);
+        System.out.printf("Throughput:    %.1f requests/s%n", total / elapsedSeconds);
+        System.out.printf("Latency:       p50 %s, p90 %s, p99 %s, max %s%n",
+                millis(latency.getValueAtPercentile(50)), millis(latency.getValueAtPercentile(90)),
+                millis(latency.getValueAtPercentile(99)), millis(latency.getMax()));
+        System.out.printf("Queue wait:    p50 %s, p99 %s%n",
+                millis(metrics.getQueueWait().getValueAtPercentile(50)),
+                millis(metrics.getQueueWait().getValueAtPercentile(99)));
+        System.out.printf("TTFB:          p50 %s, p99 %s%n",
+                millis(metrics.getTimeToFirstByte().getValueAtPercentile(50)),
+                millis(metrics.getTimeToFirstByte().getValueAtPercentile(99)));
+        if (firstToken.getCount() > 0) {
+            System.out.printf("First token:   p50 %s, p99 %s%n",
+                    millis(firstToken.getValueAtPercentile(50)), millis(firstToken.getValueAtPercentile(99)));
+        }
+        System.out.printf("Sockets:       %,d connections for %,d requests%n",
+                server.getConnectionCount(), server.getRequestCount());
+        System.out.printf("Threads:       %d before, %d after%n", threadsBefore, threadsAfter);
+        System.out.printf("Heap:          %s before, %s after GC (%+.1f MB), peak %s%n",
+                megabytes(heapBefore), megabytes(heapAfter), (heapAfter - heapBefore) / (1024.0 * 1024),
+                megabytes(peakHeap.get()));
+    }
+
+    private void runBatch(LLMClient client, MockLlmServer server) throws Exception {
+        PromptlySettings settings = settingsFor(server);
+        List<BatchRequest> requests = new ArrayList<>(conversations);
+        for (int i = 0; i < conversations; i++) {
+            String source = "/project/src/Service" + i + ".java";
+            List<ChatMessage> messages = List.of(
+                    new ChatMessage(ChatMessage.Role.USER, "Question 0 about conversation " + i),
+                    new ChatMessage(ChatMessage.Role.SYSTEM, "CONTEXT:\nFile: " + source + "\nFile content:\n```\n"
+                            + "x".repeat(contextSize) + "\n```\n"));
+            requests.add(new BatchRequest("c" + i, source, messages, null, null));
+        }
+
+        Path directory = Files.createTempDirectory("promptly-batches");
+        BatchTransport transport = new BatchTransport(client, new BatchStore(directory), Duration.ofMillis(250));
+        long start = System.nanoTime();
+        List<BatchResult> results;
+        try {
+            results = transport.submit(requests, settings).get(1, TimeUnit.HOURS);
+        } finally {
+            transport.shutdown();
+        }
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+
+        for (BatchResult result : results) {
+            (result.isSuccess() ? succeeded : failed).incrementAndGet();
+        }
+        System.out.printf("Provider %s, %d single-turn requests as batch jobs, context %,d chars%n",
+                provider, conversations, contextSize);
+        System.out.printf("Requests:      %,d ok, %,d failed in %.1f s%n", succeeded.get(), failed.get(),
+                elapsedSeconds);
+        System.out.printf("Throughput:    %.1f requests/s%n", results.size() / elapsedSeconds);
+        System.out.printf("HTTP calls:    %,d for %,d batched requests, %,d connections%n",
+                server.getRequestCount(), server.getBatchedRequestCount(), server.getConnectionCount());
+    }
+
+    private PromptlySettings settingsFor(MockLlmServer server) {
+        PromptlySettings settings = new PromptlySettings();
+        settings.setSelectedProvider(provider);
+        settings.setEndpoint(provider, server.endpoint(provider));
+        settings.setApiKey(provider, "load-test");
+        return settings;
+    }
+
+    private void runConversation(LLMClient client, PromptlySettings settings, int conversation,
+                                 MemoryMXBean memory) {
+        List<ChatMessage> history = new ArrayList<>();
+        String context = "CONTEXT:\nFile: /project/src/Service" + conversation + ".java\nFile content:\n```\n"
+                + "x".repeat(contextSize) + "\n```\n";
+
+        for (int turn = 0; turn < turns; turn++) {
+            history.add(new ChatMessage(ChatMessage.Role.USER, "Question " + turn + " about conversation " + conversation));
+            history.add(new ChatMessage(ChatMessage.Role.SYSTEM, context));
+
+            long start = System.nanoTime();
+            AtomicLong firstPiece = new AtomicLong();
+            PromptOptions options = new PromptOptions();
+            options.setStreamListener(piece -> firstPiece.compareAndSet(0, System.nanoTime()));
+            try {
+                String answer = client.sendPrompt(history, options, settings).get(5, TimeUnit.MINUTES);
+                history.add(new ChatMessage(ChatMessage.Role.ASSISTANT, answer));
+                succeeded.incrementAndGet();
+                if (firstPiece.get() != 0) {
+                    firstToken.record(TimeUnit.NANOSECONDS.toMicros(firstPiece.get() - start));
+                }
+            } catch (Exception e) {
+                failed.incrementAndGet();
+            }
+            latency.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+            peakHeap.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max);
+        }
+    }
+
+    private static long usedHeapAfterGc(MemoryMXBean memory) {
+        System.gc();
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    private static Map<String, String> parseOptions(String[] args) throws IOException {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IOException("Expected --name=value, got " + arg);
+            }
+            int equals = arg.indexOf('=');
+            options.put(arg.substring(2, equals), arg.substring(equals + 1));
+        }
+        return options;
+    }
+
+    private static String millis(long micros) {
+        return String.format("%.1f ms", micros / 1000.0);
+    }
+
+    private static String megabytes(long bytes) {
+        return String.format("%.1f MB", bytes / (1024.0 * 1024));
+    }
+}
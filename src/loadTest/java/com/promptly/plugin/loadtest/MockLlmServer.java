@@ -0,0 +1,392 @@
+package com.promptly.plugin.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.promptly.plugin.models.LLMProvider;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.GzipSink;
+import okio.GzipSource;
+import okio.Okio;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Local stand-in for the LLM providers, speaking each provider's wire format.
+ * Supports plain JSON and SSE streaming responses, simulated 429s, slow time to first byte
+ * and arbitrarily large bodies, so load can be generated without network access or API cost.
+ * The local provider is served like llama.cpp's OpenAI-compatible endpoint, always streaming.
+ * Also serves the OpenAI and Anthropic batch APIs: jobs complete {@code batchCompletionMillis} after creation.
+ */
+public final class MockLlmServer implements Closeable {
+    /**
+     * Tunable server behavior; may be changed while the server is running.
+     */
+    public static final class Behavior {
+        public volatile long timeToFirstByteMillis = 200;
+        public volatile double rateLimitProbability = 0;
+        public volatile int responseChars = 2000;
+        public volatile int streamChunks = 50;
+        public volatile long chunkDelayMillis = 10;
+        public volatile long batchCompletionMillis = 1000;
+    }
+
+    private static final class Batch {
+        final LLMProvider provider;
+        final List<String> customIds;
+        final long completesAt;
+
+        Batch(LLMProvider provider, List<String> customIds, long completesAt) {
+            this.provider = provider;
+            this.customIds = customIds;
+            this.completesAt = completesAt;
+        }
+    }
+
+    private static final String OPENAI_PATH = "/v1/chat/completions";
+    private static final String ANTHROPIC_PATH = "/v1/messages";
+    private static final String GOOGLE_PATH = "/v1beta/models/gemini-pro:generateContent";
+    private static final String GOOGLE_STREAM_PATH = "/v1beta/models/gemini-pro:streamGenerateContent";
+    private static final String CUSTOM_PATH = "/custom/generate";
+    private static final String LOCAL_PATH = "/local/v1/chat/completions";
+    private static final String OPENAI_FILES_PATH = "/v1/files";
+    private static final String OPENAI_BATCHES_PATH = "/v1/batches";
+    private static final String ANTHROPIC_BATCHES_PATH = "/v1/messages/batches";
+
+    private final MockWebServer server = new MockWebServer();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Behavior behavior;
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger connections = new AtomicInteger();
+    private final AtomicInteger rateLimited = new AtomicInteger();
+    private final AtomicInteger batchedRequests = new AtomicInteger();
+    private final AtomicInteger ids = new AtomicInteger();
+    private final Map<String, List<String>> uploadedFiles = new ConcurrentHashMap<>();
+    private final Map<String, Batch> batches = new ConcurrentHashMap<>();
+
+    public MockLlmServer(Behavior behavior) {
+        this.behavior = behavior;
+        server.setDispatcher(new Dispatcher() {
+            @NotNull
+            @Override
+            public MockResponse dispatch(@NotNull RecordedRequest request) {
+                return respond(request);
+            }
+        });
+    }
+
+    public void start() throws IOException {
+        server.start();
+    }
+
+    /**
+     * Returns the endpoint URL to configure for the given provider.
+     */
+    public String endpoint(LLMProvider provider) {
+        switch (provider) {
+            case OPENAI:
+                return server.url(OPENAI_PATH).toString();
+            case ANTHROPIC:
+                return server.url(ANTHROPIC_PATH).toString();
+            case GOOGLE:
+                return server.url(GOOGLE_PATH).toString();
+            case LOCAL:
+                return server.url(LOCAL_PATH).toString();
+            default:
+                return server.url(CUSTOM_PATH).toString();
+        }
+    }
+
+    public int getRequestCount() {
+        return requests.get();
+    }
+
+    /**
+     * Number of distinct client connections (sockets) the server has seen.
+     */
+    public int getConnectionCount() {
+        return connections.get();
+    }
+
+    public int getRateLimitedCount() {
+        return rateLimited.get();
+    }
+
+    /**
+     * Number of requests submitted inside batch jobs.
+     */
+    public int getBatchedRequestCount() {
+        return batchedRequests.get();
+    }
+
+    private MockResponse respond(RecordedRequest request) {
+        requests.incrementAndGet();
+        if (request.getSequenceNumber() == 0) {
+            connections.incrementAndGet();
+        }
+
+        String path = request.getPath() == null ? "" : request.getPath();
+        if (path.startsWith(OPENAI_FILES_PATH) || path.startsWith(OPENAI_BATCHES_PATH)
+                || path.startsWith(ANTHROPIC_BATCHES_PATH)) {
+            // Batch jobs have their own quota, so they are never rate limited
+            try {
+                return respondBatch(request, path);
+            } catch (IOException e) {
+                return new MockResponse().setResponseCode(400).setBody(e.getMessage());
+            }
+        }
+
+        if (ThreadLocalRandom.current().nextDouble() < behavior.rateLimitProbability) {
+            rateLimited.incrementAndGet();
+            return new MockResponse()
+                    .setResponseCode(429)
+                    .setHeader("Retry-After", "1")
+                    .setHeader("Content-Type", "application/json")
+                    .setBody("{\"error\":{\"type\":\"rate_limit_error\",\"message\":\"Rate limit exceeded\"}}");
+        }
+
+        LLMProvider provider = providerFor(path);
+        boolean stream = provider == LLMProvider.LOCAL || path.contains(":streamGenerateContent")
+                || requestsStream(request);
+        String answer = answer(behavior.responseChars);
+
+        MockResponse response = new MockResponse()
+                .setHeadersDelay(behavior.timeToFirstByteMillis, TimeUnit.MILLISECONDS);
+        if (!stream) {
+            response.setHeader("Content-Type", "application/json");
+            String accepted = request.getHeader("Accept-Encoding");
+            if (accepted != null && accepted.contains("gzip")) {
+                // Like the providers, so the client's streaming decompression is exercised
+                return response
+                        .setHeader("Content-Encoding", "gzip")
+                        .setBody(gzip(completeBody(provider, answer)));
+            }
+            return response.setBody(completeBody(provider, answer));
+        }
+
+        String body = streamBody(provider, answer, Math.max(1, behavior.streamChunks));
+        long bytesPerChunk = Math.max(1, body.length() / Math.max(1, behavior.streamChunks));
+        return response
+                .setHeader("Content-Type", "text/event-stream")
+                .setBody(body)
+                .throttleBody(bytesPerChunk, behavior.chunkDelayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private MockResponse respondBatch(RecordedRequest request, String path) throws IOException {
+        String method = request.getMethod();
+        if ("POST".equals(method) && path.equals(OPENAI_FILES_PATH)) {
+            // The JSONL file is the only part of the multipart body whose lines are JSON objects
+            List<String> customIds = new ArrayList<>();
+            for (String line : request.getBody().readUtf8().split("\r?\n")) {
+                if (line.startsWith("{")) {
+                    customIds.add(objectMapper.readTree(line).path("custom_id").asText());
+                }
+            }
+            String fileId = "file-" + ids.incrementAndGet();
+            uploadedFiles.put(fileId, customIds);
+            return json(objectMapper.createObjectNode().put("id", fileId).put("purpose", "batch"));
+        }
+        if ("POST".equals(method) && path.equals(OPENAI_BATCHES_PATH)) {
+            List<String> customIds = uploadedFiles.get(objectMapper.readTree(request.getBody().readUtf8())
+                    .path("input_file_id").asText());
+            if (customIds == null) {
+                return new MockResponse().setResponseCode(404);
+            }
+            return json(batchStatus(createBatch(LLMProvider.OPENAI, customIds)));
+        }
+        if ("POST".equals(method) && path.equals(ANTHROPIC_BATCHES_PATH)) {
+            List<String> customIds = new ArrayList<>();
+            for (JsonNode entry : objectMapper.readTree(request.getBody().readUtf8()).path("requests")) {
+                customIds.add(entry.path("custom_id").asText());
+            }
+            return json(batchStatus(createBatch(LLMProvider.ANTHROPIC, customIds)));
+        }
+
+        if (path.startsWith(OPENAI_FILES_PATH + "/") && path.endsWith("/content")) {
+            String fileId = path.substring(OPENAI_FILES_PATH.length() + 1, path.length() - "/content".length());
+            Batch batch = fileId.startsWith("output-") ? batches.get(fileId.substring("output-".length())) : null;
+            return batch == null ? new MockResponse().setResponseCode(404) : results(batch);
+        }
+        if (path.startsWith(ANTHROPIC_BATCHES_PATH + "/") && path.endsWith("/results")) {
+            Batch batch = batches.get(path.substring(ANTHROPIC_BATCHES_PATH.length() + 1,
+                    path.length() - "/results".length()));
+            return batch == null ? new MockResponse().setResponseCode(404) : results(batch);
+        }
+        String prefix = path.startsWith(ANTHROPIC_BATCHES_PATH) ? ANTHROPIC_BATCHES_PATH : OPENAI_BATCHES_PATH;
+        Batch batch = path.length() > prefix.length() ? batches.get(path.substring(prefix.length() + 1)) : null;
+        return batch == null ? new MockResponse().setResponseCode(404)
+                : json(batchStatus(path.substring(prefix.length() + 1)));
+    }
+
+    private String createBatch(LLMProvider provider, List<String> customIds) {
+        String batchId = "batch-" + ids.incrementAndGet();
+        batchedRequests.addAndGet(customIds.size());
+        long completesAt = System.currentTimeMillis() + behavior.batchCompletionMillis;
+        batches.put(batchId, new Batch(provider, customIds, completesAt));
+        return batchId;
+    }
+
+    private ObjectNode batchStatus(String batchId) {
+        Batch batch = batches.get(batchId);
+        boolean done = System.currentTimeMillis() >= batch.completesAt;
+        ObjectNode status = objectMapper.createObjectNode().put("id", batchId);
+        if (batch.provider == LLMProvider.OPENAI) {
+            status.put("status", done ? "completed" : "in_progress");
+            status.put("output_file_id", done ? "output-" + batchId : null);
+            status.putNull("error_file_id");
+        } else {
+            status.put("processing_status", done ? "ended" : "in_progress");
+            String resultsUrl = server.url(ANTHROPIC_BATCHES_PATH + "/" + batchId + "/results").toString();
+            status.put("results_url", done ? resultsUrl : null);
+        }
+        return status;
+    }
+
+    private MockResponse results(Batch batch) throws IOException {
+        StringBuilder lines = new StringBuilder();
+        for (String customId : batch.customIds) {
+            ObjectNode line = objectMapper.createObjectNode().put("custom_id", customId);
+            JsonNode body = objectMapper.readTree(completeBody(batch.provider, answer(behavior.responseChars)));
+            if (batch.provider == LLMProvider.OPENAI) {
+                line.putObject("response").put("status_code", 200).set("body", body);
+                line.putNull("error");
+            } else {
+                line.putObject("result").put("type", "succeeded").set("message", body);
+            }
+            lines.append(line).append('\n');
+        }
+        return new MockResponse().setHeader("Content-Type", "application/jsonl").setBody(lines.toString());
+    }
+
+    private static MockResponse json(JsonNode body) {
+        return new MockResponse().setHeader("Content-Type", "application/json").setBody(body.toString());
+    }
+
+    private static LLMProvider providerFor(String path) {
+        if (path.startsWith(OPENAI_PATH)) {
+            return LLMProvider.OPENAI;
+        } else if (path.startsWith(ANTHROPIC_PATH)) {
+            return LLMProvider.ANTHROPIC;
+        } else if (path.startsWith(GOOGLE_PATH) || path.startsWith(GOOGLE_STREAM_PATH)) {
+            return LLMProvider.GOOGLE;
+        } else if (path.startsWith(LOCAL_PATH)) {
+            return LLMProvider.LOCAL;
+        }
+        return LLMProvider.CUSTOM;
+    }
+
+    private boolean requestsStream(RecordedRequest request) {
+        try {
+            String text = "gzip".equals(request.getHeader("Content-Encoding"))
+                    ? Okio.buffer(new GzipSource(request.getBody())).readUtf8()
+                    : request.getBody().readUtf8();
+            JsonNode body = objectMapper.readTree(text);
+            return body.path("stream").asBoolean(false);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static Buffer gzip(String text) {
+        Buffer compressed = new Buffer();
+        try (BufferedSink sink = Okio.buffer(new GzipSink(compressed))) {
+            sink.writeUtf8(text);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return compressed;
+    }
+
+    private String completeBody(LLMProvider provider, String answer) {
+        ObjectNode root = objectMapper.createObjectNode();
+        switch (provider) {
+            case OPENAI:
+                root.put("id", "chatcmpl-mock");
+                ObjectNode choice = root.putArray("choices").addObject();
+                choice.putObject("message").put("role", "assistant").put("content", answer);
+                choice.put("finish_reason", "stop");
+                break;
+            case ANTHROPIC:
+                root.put("id", "msg_mock");
+                root.put("type", "message");
+                root.putArray("content").addObject().put("type", "text").put("text", answer);
+                root.put("stop_reason", "end_turn");
+                break;
+            case GOOGLE:
+                root.putArray("candidates").addObject()
+                        .putObject("content").put("role", "model")
+                        .putArray("parts").addObject().put("text", answer);
+                break;
+            default:
+                root.put("response", answer);
+                break;
+        }
+        return root.toString();
+    }
+
+    private String streamBody(LLMProvider provider, String answer, int chunks) {
+        StringBuilder sse = new StringBuilder();
+        int chunkSize = Math.max(1, (answer.length() + chunks - 1) / chunks);
+
+        if (provider == LLMProvider.ANTHROPIC) {
+            sse.append("event: message_start\ndata: {\"type\":\"message_start\",\"message\":{\"id\":\"msg_mock\"}}\n\n");
+        }
+        for (int start = 0; start < answer.length(); start += chunkSize) {
+            String delta = answer.substring(start, Math.min(answer.length(), start + chunkSize));
+            ObjectNode event = objectMapper.createObjectNode();
+            switch (provider) {
+                case ANTHROPIC:
+                    event.put("type", "content_block_delta");
+                    event.put("index", 0);
+                    event.putObject("delta").put("type", "text_delta").put("text", delta);
+                    sse.append("event: content_block_delta\n");
+                    break;
+                case GOOGLE:
+                    event.putArray("candidates").addObject()
+                            .putObject("content").put("role", "model")
+                            .putArray("parts").addObject().put("text", delta);
+                    break;
+                default:
+                    event.putArray("choices").addObject().putObject("delta").put("content", delta);
+                    break;
+            }
+            sse.append("data: ").append(event).append("\n\n");
+        }
+
+        if (provider == LLMProvider.ANTHROPIC) {
+            sse.append("event: message_stop\ndata: {\"type\":\"message_stop\"}\n\n");
+        } else if (provider != LLMProvider.GOOGLE) {
+            sse.append("data: [DONE]\n\n");
+        }
+        return sse.toString();
+    }
+
+    private static String answer(int chars) {
+        StringBuilder sb = new StringBuilder(chars + 64);
+        sb.append("Here is the change:\n```java\n");
+        while (sb.length() < chars - 4) {
+            sb.append("    orders.put(order.id(), order); // keep index in sync\n");
+        }
+        sb.setLength(Math.max(0, chars - 4));
+        return sb.append("\n```").toString();
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.shutdown();
+    }
+}
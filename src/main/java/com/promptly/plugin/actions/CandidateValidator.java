@@ -0,0 +1,143 @@
+package com.promptly.plugin.actions;
+
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.TextRange;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiErrorElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiFileFactory;
+import com.intellij.psi.PsiPolyVariantReference;
+import com.intellij.psi.PsiReference;
+import com.intellij.psi.SyntaxTraverser;
+import com.intellij.psi.impl.source.PsiFileImpl;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Checks generated code by splicing it into an in-memory copy of the file and inspecting the PSI:
+ * syntax errors and hard references that do not resolve, both counted only inside the inserted code.
+ * Works for any language with a parser; nothing is written to the real file.
+ */
+final class CandidateValidator {
+    private final Project project;
+    private final PsiFile original;
+    private final CharSequence text;
+    private final TextRange replaced;
+
+    /**
+     * @param original File the code goes into
+     * @param text Its current text
+     * @param replaced Range of {@code text} the code replaces
+     */
+    CandidateValidator(Project project, PsiFile original, CharSequence text, TextRange replaced) {
+        this.project = project;
+        this.original = original;
+        this.text = text;
+        this.replaced = replaced;
+    }
+
+    /**
+     * Validates all candidates and returns them best first: clean ones before broken ones, then by fewer
+     * problems, then in the order they were generated. Must be called in a read action.
+     */
+    List<Candidate> rank(List<String> codes) {
+        List<Candidate> candidates = new ArrayList<>();
+        for (int i = 0; i < codes.size(); i++) {
+            ProgressManager.checkCanceled();
+            candidates.add(validate(i, codes.get(i)));
+        }
+        candidates.sort(Comparator.comparingInt(Candidate::getScore).thenComparingInt(Candidate::getIndex));
+        return candidates;
+    }
+
+    private Candidate validate(int index, String code) {
+        String spliced = text.subSequence(0, replaced.getStartOffset()) + code
+                + text.subSequence(replaced.getEndOffset(), text.length());
+        PsiFile copy = PsiFileFactory.getInstance(project)
+                .createFileFromText(original.getName(), original.getLanguage(), spliced, false, false);
+        if (copy instanceof PsiFileImpl) {
+            // Resolve against the project the way the real file would
+            ((PsiFileImpl) copy).setOriginalFile(original);
+        }
+
+        TextRange inserted = TextRange.from(replaced.getStartOffset(), code.length());
+        int syntaxErrors = 0;
+        int unresolved = 0;
+        for (PsiElement element : SyntaxTraverser.psiTraverser(copy)) {
+            ProgressManager.checkCanceled();
+            if (!inserted.intersects(element.getTextRange())) {
+                continue;
+            }
+            if (element instanceof PsiErrorElement) {
+                syntaxErrors++;
+                continue;
+            }
+            for (PsiReference reference : element.getReferences()) {
+                if (!reference.isSoft() && isUnresolved(reference)) {
+                    unresolved++;
+                }
+            }
+        }
+        return new Candidate(index, code, syntaxErrors, unresolved);
+    }
+
+    private static boolean isUnresolved(PsiReference reference) {
+        if (reference instanceof PsiPolyVariantReference) {
+            return ((PsiPolyVariantReference) reference).multiResolve(false).length == 0;
+        }
+        return reference.resolve() == null;
+    }
+
+    /**
+     * A generated candidate and what validation found in it.
+     */
+    static final class Candidate {
+        private final int index;
+        private final String code;
+        private final int syntaxErrors;
+        private final int unresolvedReferences;
+
+        Candidate(int index, String code, int syntaxErrors, int unresolvedReferences) {
+            this.index = index;
+            this.code = code;
+            this.syntaxErrors = syntaxErrors;
+            this.unresolvedReferences = unresolvedReferences;
+        }
+
+        int getIndex() {
+            return index;
+        }
+
+        String getCode() {
+            return code;
+        }
+
+        boolean isValid() {
+            return syntaxErrors == 0 && unresolvedReferences == 0;
+        }
+
+        /**
+         * Lower is better; a syntax error weighs more than an unresolved name, which is often just a missing import.
+         */
+        int getScore() {
+            return syntaxErrors * 10 + unresolvedReferences;
+        }
+
+        String describe() {
+            if (isValid()) {
+                return "no problems";
+            }
+            List<String> problems = new ArrayList<>();
+            if (syntaxErrors > 0) {
+                problems.add(syntaxErrors + (syntaxErrors == 1 ? " syntax error" : " syntax errors"));
+            }
+            if (unresolvedReferences > 0) {
+                problems.add(unresolvedReferences + (unresolvedReferences == 1 ? " unresolved reference" : " unresolved references"));
+            }
+            return String.join(", ", problems);
+        }
+    }
+}
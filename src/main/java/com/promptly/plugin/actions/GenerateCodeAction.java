@@ -4,26 +4,50 @@ import com.intellij.openapi.actionSystem.AnAction;
 import com.intellij.openapi.actionSystem.AnActionEvent;
 import com.intellij.openapi.actionSystem.CommonDataKeys;
 import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ModalityState;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.command.WriteCommandAction;
 import com.intellij.openapi.editor.Document;
 import com.intellij.openapi.editor.Editor;
+import com.intellij.openapi.editor.RangeMarker;
 import com.intellij.openapi.editor.SelectionModel;
+import com.intellij.openapi.project.Project;
 import com.intellij.openapi.ui.Messages;
+import com.intellij.openapi.ui.popup.JBPopupFactory;
+import com.intellij.openapi.ui.popup.JBPopupListener;
+import com.intellij.openapi.ui.popup.LightweightWindowEvent;
+import com.intellij.openapi.util.Key;
 import com.intellij.openapi.wm.ToolWindow;
 import com.intellij.openapi.wm.ToolWindowManager;
+import com.intellij.psi.PsiFile;
+import com.intellij.ui.SimpleListCellRenderer;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import com.promptly.plugin.cascade.RequestKind;
+import com.promptly.plugin.context.ContextBuilder;
+import com.promptly.plugin.context.ContextMinifier;
+import com.promptly.plugin.context.MinifiedText;
 import com.promptly.plugin.models.ChatMessage;
-import com.promptly.plugin.models.PromptlySettings;
+import com.promptly.plugin.models.ModelTier;
+import com.promptly.plugin.models.PromptOptions;
 import com.promptly.plugin.services.LLMService;
 import com.promptly.plugin.services.SettingsService;
+import com.promptly.plugin.tracing.Span;
+import com.promptly.plugin.tracing.Trace;
+import com.promptly.plugin.util.MarkdownUtils;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
 
 /**
  * Action for generating code directly from the editor.
  */
 public class GenerateCodeAction extends AnAction {
+    // The editor's last request, to tell a retry of the same rewrite from a new one
+    private static final Key<String> LAST_REQUEST = Key.create("promptly.generateCode.lastRequest");
+
     @Override
     public void actionPerformed(@NotNull AnActionEvent e) {
         Editor editor = e.getData(CommonDataKeys.EDITOR);
@@ -51,88 +75,216 @@ public class GenerateCodeAction extends AnAction {
             return;
         }
 
+        Trace trace = new Trace("generate code");
+        Span contextSpan = trace.begin("gather context", Trace.CATEGORY_CONTEXT);
+        
         // Prepare messages
         List<ChatMessage> messages = new ArrayList<>();
         
         // Add context
         String filePath = e.getData(CommonDataKeys.VIRTUAL_FILE).getPath();
-        StringBuilder contextBuilder = new StringBuilder();
-        contextBuilder.append("CONTEXT:\n");
-        contextBuilder.append("File: ").append(filePath).append("\n");
-        contextBuilder.append("Selected code:\n```\n").append(selectedText).append("\n```\n");
-        
-        messages.add(new ChatMessage(ChatMessage.Role.SYSTEM, contextBuilder.toString()));
+        MinifiedText minified = null;
+        if (SettingsService.getInstance().getSettings().isMinifyContext()) {
+            // The answer replaces the selection, so nothing may be left out of it
+            minified = ContextMinifier.minifyForRewrite(filePath, selectedText);
+            LLMService.getInstance().reportMinification(minified);
+            messages.add(new ChatMessage(ChatMessage.Role.SYSTEM, ContextBuilder.build(filePath, minified, selectedText)));
+        } else {
+            messages.add(new ChatMessage(ChatMessage.Role.SYSTEM, ContextBuilder.build(filePath, (CharSequence) null, selectedText)));
+        }
+        MinifiedText context = minified;
         
         // Add user prompt
-        messages.add(new ChatMessage(ChatMessage.Role.USER, prompt));
+        ChatMessage userMessage = new ChatMessage(ChatMessage.Role.USER, prompt);
+        messages.add(userMessage);
+        contextSpan.end();
+
+        // Small rewrites go to the fast model first; repeating the same request means its answer was not good enough
+        String request = filePath + '\0' + selectedText + '\0' + prompt;
+        ModelTier tier = request.equals(editor.getUserData(LAST_REQUEST)) ? ModelTier.LARGE
+                : LLMService.getInstance().classify(RequestKind.GENERATE_CODE, userMessage, messages.get(0));
+        editor.putUserData(LAST_REQUEST, request);
 
         // Show a progress dialog
         Messages.showInfoMessage("Generating code... Please wait.", "Promptly");
 
         // Call LLM service
-        CompletableFuture<String> responseFuture = LLMService.getInstance().sendPrompt(messages);
-        responseFuture.thenAccept(response -> {
+        PromptOptions options = new PromptOptions();
+        options.setTrace(trace);
+        int candidates = SettingsService.getInstance().getSettings().getGenerationCandidates();
+        PsiFile psiFile = e.getData(CommonDataKeys.PSI_FILE);
+        if (candidates > 1 && psiFile != null && e.getProject() != null) {
+            generateCandidates(e.getProject(), editor, psiFile, messages, options, candidates, context, tier, trace);
+            return;
+        }
+
+        CompletableFuture<String> responseFuture = LLMService.getInstance().sendCascaded(tier, messages, options,
+                o -> LLMService.getInstance().sendPrompt(messages, o));
+        // The trace ends once the edit is applied or anything on the way fails, including extracting the code
+        CompletableFuture<Void> applied = responseFuture.thenCompose(response -> {
             // Extract code blocks from the response
-            String codeToInsert = extractCodeFromMarkdown(response);
-            
+            String codeToInsert = extractCode(response, context);
+
             // Replace selected text
+            CompletableFuture<Void> done = new CompletableFuture<>();
             ApplicationManager.getApplication().invokeLater(() -> {
-                ApplicationManager.getApplication().runWriteAction(() -> {
-                    Document document = editor.getDocument();
+                try {
                     int start = selectionModel.getSelectionStart();
                     int end = selectionModel.getSelectionEnd();
-                    document.replaceString(start, end, codeToInsert);
+                    applyCode(editor, start, end, codeToInsert, trace);
+                    done.complete(null);
+                } catch (RuntimeException ex) {
+                    done.completeExceptionally(ex);
+                }
+            });
+            return done;
+        });
+        applied.whenComplete((ignored, ex) -> {
+            LLMService.getInstance().getTraceRecorder().finish(trace);
+            if (ex != null) {
+                showError(ex);
+            } else {
+                ApplicationManager.getApplication().invokeLater(() -> showGenerated(e));
+            }
+        });
+    }
+
+    /**
+     * Asks for several candidates at once, validates each against an in-memory copy of the file and lets the
+     * user pick, best first. Saves the round trips of re-asking by hand when the first answer does not compile.
+     * If none of the fast model's candidates is clean, the main model is asked for new ones.
+     */
+    private void generateCandidates(Project project, Editor editor, PsiFile psiFile, List<ChatMessage> messages,
+                                    PromptOptions options, int count, MinifiedText context, ModelTier tier,
+                                    Trace trace) {
+        RangeMarker selection = editor.getDocument().createRangeMarker(
+                editor.getSelectionModel().getSelectionStart(), editor.getSelectionModel().getSelectionEnd());
+
+        LLMService service = LLMService.getInstance();
+        service.sendCascaded(tier, messages, options,
+                        o -> service.sendCandidates(messages, o, count).thenCompose(responses ->
+                                validate(project, editor, psiFile, selection, responses, context, trace)),
+                        ranked -> ranked.isEmpty() ? "" : ranked.get(0).getCode(),
+                        ranked -> !ranked.isEmpty() && ranked.get(0).isValid())
+                .whenComplete((ranked, ex) -> {
+                    if (ex != null) {
+                        service.getTraceRecorder().finish(trace);
+                        selection.dispose();
+                        if (!(ex instanceof CancellationException || ex.getCause() instanceof CancellationException)) {
+                            showError(ex);
+                        }
+                        return;
+                    }
+                    ApplicationManager.getApplication().invokeLater(() -> chooseCandidate(editor, selection, ranked, trace),
+                            ModalityState.defaultModalityState(), o -> !selection.isValid() || editor.isDisposed());
                 });
-                
-                // Show the generated code in a dialog
-                Messages.showInfoMessage(
-                        "Code generated and inserted.\n\nFull response available in the Promptly tool window.",
-                        "Promptly - Code Generated");
-                
-                // Open the Promptly tool window
-                ApplicationManager.getApplication().invokeLater(() -> {
-                    ToolWindow toolWindow = ToolWindowManager.getInstance(e.getProject())
-                            .getToolWindow("Promptly");
-                    if (toolWindow != null) {
-                        toolWindow.show();
+    }
+
+    /**
+     * Ranks the candidates in the background; the future is cancelled if the editor or selection goes away first.
+     */
+    private static CompletableFuture<List<CandidateValidator.Candidate>> validate(
+            Project project, Editor editor, PsiFile psiFile, RangeMarker selection, List<String> responses,
+            MinifiedText context, Trace trace) {
+        List<String> codes = new ArrayList<>();
+        for (String response : responses) {
+            codes.add(extractCode(response, context));
+        }
+        Document document = editor.getDocument();
+        CompletableFuture<List<CandidateValidator.Candidate>> ranked = new CompletableFuture<>();
+        Span validateSpan = trace.begin("validate candidates", Trace.CATEGORY_CONTEXT);
+        ReadAction.nonBlocking(() -> new CandidateValidator(project, psiFile, document.getImmutableCharSequence(),
+                        selection.getTextRange()).rank(codes))
+                .inSmartMode(project)
+                .expireWhen(() -> !selection.isValid() || editor.isDisposed())
+                .submit(AppExecutorUtil.getAppExecutorService())
+                .onProcessed(result -> {
+                    validateSpan.end();
+                    if (result != null) {
+                        ranked.complete(result);
+                    } else {
+                        ranked.cancel(false);
                     }
                 });
-            });
-        }).exceptionally(ex -> {
-            ApplicationManager.getApplication().invokeLater(() -> {
-                Messages.showErrorDialog(
-                        "Error generating code: " + ex.getMessage(),
-                        "Promptly Error"
-                );
-            });
-            return null;
-        });
+        return ranked;
     }
-    
-    private String extractCodeFromMarkdown(String markdown) {
-        // Simple extraction - find code blocks between ``` markers
-        StringBuilder result = new StringBuilder();
-        
-        int codeBlockStart = markdown.indexOf("```");
-        while (codeBlockStart != -1) {
-            // Find the end of the opening ``` line
-            int lineEnd = markdown.indexOf('\n', codeBlockStart);
-            if (lineEnd == -1) break;
-            
-            // Find the closing ```
-            int codeBlockEnd = markdown.indexOf("```", lineEnd);
-            if (codeBlockEnd == -1) break;
-            
-            // Extract the code (without the backticks and language identifier)
-            String code = markdown.substring(lineEnd + 1, codeBlockEnd).trim();
-            result.append(code).append("\n\n");
-            
-            // Continue search for more code blocks
-            codeBlockStart = markdown.indexOf("```", codeBlockEnd + 3);
+
+    private void chooseCandidate(Editor editor, RangeMarker selection, List<CandidateValidator.Candidate> ranked,
+                                 Trace trace) {
+        JBPopupFactory.getInstance()
+                .createPopupChooserBuilder(ranked)
+                .setTitle("Promptly - Choose Generated Code")
+                .setRenderer(SimpleListCellRenderer.create("", candidate ->
+                        "Candidate " + (candidate.getIndex() + 1) + " - " + candidate.describe()
+                                + " - " + firstLine(candidate.getCode())))
+                .setItemChosenCallback(candidate -> {
+                    try {
+                        applyCode(editor, selection.getStartOffset(), selection.getEndOffset(),
+                                candidate.getCode(), trace);
+                    } finally {
+                        LLMService.getInstance().getTraceRecorder().finish(trace);
+                    }
+                })
+                .addListener(new JBPopupListener() {
+                    @Override
+                    public void onClosed(@NotNull LightweightWindowEvent event) {
+                        if (!event.isOk()) {
+                            LLMService.getInstance().getTraceRecorder().finish(trace);
+                        }
+                        selection.dispose();
+                    }
+                })
+                .createPopup()
+                .showInBestPositionFor(editor);
+    }
+
+    /**
+     * Extracts the code from an answer, widening it back to the file's indentation if the context was minified.
+     */
+    private static String extractCode(String response, MinifiedText context) {
+        String code = MarkdownUtils.extractCodeFromMarkdown(response);
+        return context != null ? context.restoreIndentation(code) : code;
+    }
+
+    private static String firstLine(String code) {
+        String trimmed = code.strip();
+        int newline = trimmed.indexOf('\n');
+        return newline >= 0 ? trimmed.substring(0, newline) + " ..." : trimmed;
+    }
+
+    private static void applyCode(Editor editor, int start, int end, String codeToInsert, Trace trace) {
+        Span applySpan = trace.begin("apply edit", Trace.CATEGORY_UI);
+        try {
+            WriteCommandAction.runWriteCommandAction(editor.getProject(), "Promptly Generate Code", null, () ->
+                    editor.getDocument().replaceString(start, end, codeToInsert));
+        } finally {
+            applySpan.end();
         }
+    }
+
+    private static void showGenerated(AnActionEvent e) {
+        // Show the generated code in a dialog
+        Messages.showInfoMessage(
+                "Code generated and inserted.\n\nFull response available in the Promptly tool window.",
+                "Promptly - Code Generated");
         
-        // If no code blocks found, return the original text
-        return result.length() > 0 ? result.toString() : markdown;
+        // Open the Promptly tool window
+        ApplicationManager.getApplication().invokeLater(() -> {
+            ToolWindow toolWindow = ToolWindowManager.getInstance(e.getProject())
+                    .getToolWindow("Promptly");
+            if (toolWindow != null) {
+                toolWindow.show();
+            }
+        });
+    }
+
+    private static void showError(Throwable ex) {
+        ApplicationManager.getApplication().invokeLater(() -> {
+            Messages.showErrorDialog(
+                    "Error generating code: " + ex.getMessage(),
+                    "Promptly Error"
+            );
+        });
     }
     
     @Override
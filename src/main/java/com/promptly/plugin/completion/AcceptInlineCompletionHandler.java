@@ -0,0 +1,32 @@
+package com.promptly.plugin.completion;
+
+import com.intellij.openapi.actionSystem.DataContext;
+import com.intellij.openapi.editor.Caret;
+import com.intellij.openapi.editor.Editor;
+import com.intellij.openapi.editor.actionSystem.EditorActionHandler;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Tab inserts the inline completion shown at the caret, and indents as usual otherwise.
+ */
+public class AcceptInlineCompletionHandler extends EditorActionHandler {
+    private final EditorActionHandler originalHandler;
+
+    public AcceptInlineCompletionHandler(EditorActionHandler originalHandler) {
+        this.originalHandler = originalHandler;
+    }
+
+    @Override
+    protected boolean isEnabledForCaret(@NotNull Editor editor, @NotNull Caret caret, DataContext dataContext) {
+        return InlineCompletionService.getInstance().hasSuggestion(editor)
+                || originalHandler.isEnabled(editor, caret, dataContext);
+    }
+
+    @Override
+    protected void doExecute(@NotNull Editor editor, @Nullable Caret caret, DataContext dataContext) {
+        if (!InlineCompletionService.getInstance().accept(editor)) {
+            originalHandler.execute(editor, caret, dataContext);
+        }
+    }
+}
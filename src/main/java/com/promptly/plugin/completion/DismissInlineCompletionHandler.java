@@ -0,0 +1,34 @@
+package com.promptly.plugin.completion;
+
+import com.intellij.openapi.actionSystem.DataContext;
+import com.intellij.openapi.editor.Caret;
+import com.intellij.openapi.editor.Editor;
+import com.intellij.openapi.editor.actionSystem.EditorActionHandler;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Escape hides the inline completion shown at the caret, and does its usual job otherwise.
+ */
+public class DismissInlineCompletionHandler extends EditorActionHandler {
+    private final EditorActionHandler originalHandler;
+
+    public DismissInlineCompletionHandler(EditorActionHandler originalHandler) {
+        this.originalHandler = originalHandler;
+    }
+
+    @Override
+    protected boolean isEnabledForCaret(@NotNull Editor editor, @NotNull Caret caret, DataContext dataContext) {
+        return InlineCompletionService.getInstance().hasSuggestion(editor)
+                || originalHandler.isEnabled(editor, caret, dataContext);
+    }
+
+    @Override
+    protected void doExecute(@NotNull Editor editor, @Nullable Caret caret, DataContext dataContext) {
+        if (InlineCompletionService.getInstance().hasSuggestion(editor)) {
+            InlineCompletionService.getInstance().cancel();
+        } else {
+            originalHandler.execute(editor, caret, dataContext);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.promptly.plugin.completion;
+
+import com.intellij.openapi.editor.Editor;
+import com.intellij.openapi.editor.EditorCustomElementRenderer;
+import com.intellij.openapi.editor.Inlay;
+import com.intellij.openapi.editor.colors.EditorFontType;
+import com.intellij.openapi.editor.markup.TextAttributes;
+import com.intellij.ui.JBColor;
+import org.jetbrains.annotations.NotNull;
+
+import java.awt.*;
+
+/**
+ * Paints one line of an inline completion in grey italics.
+ */
+class GhostTextRenderer implements EditorCustomElementRenderer {
+    private final String text;
+
+    GhostTextRenderer(String text) {
+        this.text = text;
+    }
+
+    @Override
+    public int calcWidthInPixels(@NotNull Inlay inlay) {
+        Editor editor = inlay.getEditor();
+        FontMetrics metrics = editor.getContentComponent().getFontMetrics(font(editor));
+        return Math.max(1, metrics.stringWidth(expandTabs(editor)));
+    }
+
+    @Override
+    public void paint(@NotNull Inlay inlay, @NotNull Graphics g, @NotNull Rectangle targetRegion,
+                      @NotNull TextAttributes textAttributes) {
+        Editor editor = inlay.getEditor();
+        g.setColor(JBColor.GRAY);
+        g.setFont(font(editor));
+        g.drawString(expandTabs(editor), targetRegion.x, targetRegion.y + editor.getAscent());
+    }
+
+    private String expandTabs(Editor editor) {
+        int tabSize = editor.getSettings().getTabSize(editor.getProject());
+        return text.replace("\t", " ".repeat(tabSize));
+    }
+
+    private static Font font(Editor editor) {
+        return editor.getColorsScheme().getFont(EditorFontType.ITALIC);
+    }
+}
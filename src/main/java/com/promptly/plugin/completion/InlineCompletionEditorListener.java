@@ -0,0 +1,47 @@
+package com.promptly.plugin.completion;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.editor.Editor;
+import com.intellij.openapi.editor.EditorKind;
+import com.intellij.openapi.editor.event.CaretEvent;
+import com.intellij.openapi.editor.event.CaretListener;
+import com.intellij.openapi.editor.event.DocumentEvent;
+import com.intellij.openapi.editor.event.DocumentListener;
+import com.intellij.openapi.editor.event.EditorFactoryEvent;
+import com.intellij.openapi.editor.event.EditorFactoryListener;
+import com.intellij.openapi.editor.ex.util.EditorUtil;
+import com.intellij.openapi.util.Disposer;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Forwards typing and caret movement in main editors to {@link InlineCompletionService}.
+ */
+public class InlineCompletionEditorListener implements EditorFactoryListener {
+    @Override
+    public void editorCreated(@NotNull EditorFactoryEvent event) {
+        Editor editor = event.getEditor();
+        if (editor.getProject() == null || editor.isViewer() || editor.getEditorKind() != EditorKind.MAIN_EDITOR) {
+            return;
+        }
+
+        Disposable listeners = Disposer.newDisposable("Promptly inline completion");
+        EditorUtil.disposeWithEditor(editor, listeners);
+
+        editor.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void documentChanged(@NotNull DocumentEvent e) {
+                // The document is shared by all its editors; only the one being typed in reacts
+                if (editor.getContentComponent().hasFocus() && !e.getDocument().isInBulkUpdate()) {
+                    InlineCompletionService.getInstance().documentChanged(editor, e.getOffset() + e.getNewLength());
+                }
+            }
+        }, listeners);
+
+        editor.getCaretModel().addCaretListener(new CaretListener() {
+            @Override
+            public void caretPositionChanged(@NotNull CaretEvent e) {
+                InlineCompletionService.getInstance().caretMoved(editor, editor.getCaretModel().getOffset());
+            }
+        }, listeners);
+    }
+}
@@ -0,0 +1,287 @@
+package com.promptly.plugin.completion;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ModalityState;
+import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.editor.Editor;
+import com.intellij.openapi.editor.Inlay;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.util.Disposer;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.util.Alarm;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import com.promptly.plugin.cache.CompletionCache;
+import com.promptly.plugin.context.CompletionContext;
+import com.promptly.plugin.metrics.ModelMetrics;
+import com.promptly.plugin.models.LLMProvider;
+import com.promptly.plugin.models.PromptOptions;
+import com.promptly.plugin.models.PromptlySettings;
+import com.promptly.plugin.services.LLMService;
+import com.promptly.plugin.services.SettingsService;
+import com.promptly.plugin.tracing.Span;
+import com.promptly.plugin.tracing.Trace;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Requests inline completions on typing pauses and shows them as ghost text at the caret.
+ * <p>
+ * A request is sent once typing pauses for the configured delay. It is cancelled as soon as the document changes
+ * or the caret moves elsewhere, and also when it is still running at the end of the latency budget. A suggestion
+ * that arrives after the budget is dropped rather than shown. Suggestions are cached, so typing along a
+ * suggestion or backspacing within it shows the rest right away without a new request. All state is confined
+ * to the EDT.
+ */
+@Service(Service.Level.APP)
+public final class InlineCompletionService implements Disposable {
+    private static final Logger LOG = Logger.getInstance(InlineCompletionService.class);
+    private static final int MAX_PREFIX_CHARS = 6000;
+    private static final int MAX_SUFFIX_CHARS = 1500;
+    private static final int COMPLETION_MAX_TOKENS = 128;
+    private static final long CACHE_MAX_BYTES = 4L * 1024 * 1024;
+
+    private final Alarm alarm = new Alarm(Alarm.ThreadToUse.SWING_THREAD, this);
+    private final CompletionCache cache = new CompletionCache(CACHE_MAX_BYTES);
+    private PendingRequest pending;
+    private Suggestion suggestion;
+    private Editor typingEditor;
+    private int typingOffset = -1;
+    private boolean applying;
+
+    public static InlineCompletionService getInstance() {
+        return ApplicationManager.getApplication().getService(InlineCompletionService.class);
+    }
+
+    /**
+     * Called after the user changed the document of a focused editor. Shows the rest of a cached suggestion
+     * that matches what was typed, or schedules a request for the next typing pause.
+     */
+    void documentChanged(Editor editor, int caretOffsetAfterChange) {
+        if (applying) {
+            return;
+        }
+        cancel();
+
+        PromptlySettings settings = SettingsService.getInstance().getSettings();
+        if (!settings.isInlineCompletionEnabled()) {
+            return;
+        }
+        // The caret event that follows this change is part of typing, not a move away
+        typingEditor = editor;
+        typingOffset = caretOffsetAfterChange;
+
+        Document document = editor.getDocument();
+        String cached = cache.lookup(document.getImmutableCharSequence(), caretOffsetAfterChange);
+        if (cached != null) {
+            completionMetrics(settings).recordCacheHit();
+            // Inlays are not added while the document is still being changed
+            long modificationStamp = document.getModificationStamp();
+            ApplicationManager.getApplication().invokeLater(() -> {
+                if (!editor.isDisposed() && document.getModificationStamp() == modificationStamp
+                        && editor.getCaretModel().getOffset() == caretOffsetAfterChange) {
+                    showSuggestion(editor, caretOffsetAfterChange, cached);
+                }
+            }, ModalityState.stateForComponent(editor.getComponent()));
+            return;
+        }
+        alarm.addRequest(() -> request(editor, settings), settings.getCompletionDebounceMs());
+    }
+
+    /**
+     * Called when the caret of an editor moved; anything pending for another position is obsolete.
+     */
+    void caretMoved(Editor editor, int offset) {
+        if (applying || (editor == typingEditor && offset == typingOffset)) {
+            return;
+        }
+        cancel();
+    }
+
+    /**
+     * Cancels the scheduled or running request and hides the shown suggestion.
+     */
+    public void cancel() {
+        alarm.cancelAllRequests();
+        typingEditor = null;
+        typingOffset = -1;
+        if (pending != null) {
+            pending.future.cancel(true);
+            pending = null;
+        }
+        hideSuggestion();
+    }
+
+    public boolean hasSuggestion(Editor editor) {
+        return suggestion != null && suggestion.editor == editor
+                && editor.getCaretModel().getOffset() == suggestion.offset;
+    }
+
+    /**
+     * Inserts the suggestion shown in the editor.
+     *
+     * @return false if there was no suggestion at the caret
+     */
+    public boolean accept(Editor editor) {
+        if (!hasSuggestion(editor)) {
+            return false;
+        }
+        Suggestion accepted = suggestion;
+        hideSuggestion();
+
+        applying = true;
+        try {
+            WriteCommandAction.runWriteCommandAction(editor.getProject(), "Accept Promptly Completion", null, () -> {
+                editor.getDocument().insertString(accepted.offset, accepted.text);
+                editor.getCaretModel().moveToOffset(accepted.offset + accepted.text.length());
+            });
+        } finally {
+            applying = false;
+        }
+        return true;
+    }
+
+    private void request(Editor editor, PromptlySettings settings) {
+        typingEditor = null;
+        if (editor.isDisposed() || !editor.getContentComponent().hasFocus()
+                || editor.getSelectionModel().hasSelection() || editor.getCaretModel().getCaretCount() > 1) {
+            return;
+        }
+
+        Document document = editor.getDocument();
+        int offset = editor.getCaretModel().getOffset();
+        String cached = cache.lookup(document.getImmutableCharSequence(), offset);
+        if (cached != null) {
+            completionMetrics(settings).recordCacheHit();
+            showSuggestion(editor, offset, cached);
+            return;
+        }
+        completionMetrics(settings).recordCacheMiss();
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(settings.getCompletionLatencyBudgetMs());
+        Trace trace = new Trace("inline completion");
+        Span contextSpan = trace.begin("gather context", Trace.CATEGORY_CONTEXT);
+        VirtualFile file = FileDocumentManager.getInstance().getFile(document);
+        CompletionContext context = CompletionContext.around(file != null ? file.getPath() : "untitled",
+                document.getImmutableCharSequence(), offset, MAX_PREFIX_CHARS, MAX_SUFFIX_CHARS);
+        contextSpan.end();
+
+        PromptOptions options = new PromptOptions();
+        options.setMaxTokensOverride(COMPLETION_MAX_TOKENS);
+        options.setTrace(trace);
+        CompletableFuture<String> future = LLMService.getInstance().sendPrompt(context.toMessages(), options);
+        PendingRequest request = new PendingRequest(editor, offset, document.getModificationStamp(), future);
+        pending = request;
+
+        // Give up on the request once the budget is spent; its answer would be dropped anyway
+        AppExecutorUtil.getAppScheduledExecutorService().schedule(() -> future.cancel(true),
+                settings.getCompletionLatencyBudgetMs(), TimeUnit.MILLISECONDS);
+
+        future.whenComplete((reply, error) -> {
+            if (future.isCancelled()) {
+                // Superseded or over budget; kept in the timeline so cancelled requests are visible too
+                long now = System.nanoTime();
+                trace.record("cancelled", Trace.CATEGORY_UI, now, now);
+                LLMService.getInstance().getTraceRecorder().finish(trace);
+                return;
+            }
+            LLMService.getInstance().getTraceRecorder().finish(trace);
+            if (error != null) {
+                LOG.debug("Inline completion failed", error);
+                return;
+            }
+            if (System.nanoTime() > deadline) {
+                LOG.debug("Dropping inline completion that arrived after the latency budget");
+                return;
+            }
+            String completion = context.cleanCompletion(reply);
+            ApplicationManager.getApplication().invokeLater(
+                    () -> showIfCurrent(request, completion), ModalityState.stateForComponent(editor.getComponent()));
+        });
+    }
+
+    private void showIfCurrent(PendingRequest request, String completion) {
+        if (pending != request) {
+            return;
+        }
+        pending = null;
+        Editor editor = request.editor;
+        if (completion.isEmpty() || editor.isDisposed()
+                || editor.getDocument().getModificationStamp() != request.modificationStamp
+                || editor.getCaretModel().getOffset() != request.offset) {
+            return;
+        }
+        cache.put(editor.getDocument().getImmutableCharSequence(), request.offset, completion);
+        showSuggestion(editor, request.offset, completion);
+    }
+
+    private void showSuggestion(Editor editor, int offset, String text) {
+        hideSuggestion();
+        String[] lines = text.split("\n", -1);
+        List<Inlay<?>> inlays = new ArrayList<>();
+        Inlay<?> inline = editor.getInlayModel().addInlineElement(offset, true, new GhostTextRenderer(lines[0]));
+        if (inline != null) {
+            inlays.add(inline);
+        }
+        for (int i = 1; i < lines.length; i++) {
+            // Block inlays with a higher priority are shown closer to the line
+            Inlay<?> block = editor.getInlayModel().addBlockElement(offset, true, false, lines.length - i,
+                    new GhostTextRenderer(lines[i]));
+            if (block != null) {
+                inlays.add(block);
+            }
+        }
+        suggestion = new Suggestion(editor, offset, text, inlays);
+    }
+
+    private void hideSuggestion() {
+        if (suggestion != null) {
+            suggestion.inlays.forEach(Disposer::dispose);
+            suggestion = null;
+        }
+    }
+
+    private static ModelMetrics completionMetrics(PromptlySettings settings) {
+        LLMProvider provider = settings.getSelectedProvider();
+        return LLMService.getInstance().getMetrics().forModel(provider, settings.getModelName(provider));
+    }
+
+    @Override
+    public void dispose() {
+        cancel();
+    }
+
+    private static final class PendingRequest {
+        final Editor editor;
+        final int offset;
+        final long modificationStamp;
+        final CompletableFuture<String> future;
+
+        PendingRequest(Editor editor, int offset, long modificationStamp, CompletableFuture<String> future) {
+            this.editor = editor;
+            this.offset = offset;
+            this.modificationStamp = modificationStamp;
+            this.future = future;
+        }
+    }
+
+    private static final class Suggestion {
+        final Editor editor;
+        final int offset;
+        final String text;
+        final List<Inlay<?>> inlays;
+
+        Suggestion(Editor editor, int offset, String text, List<Inlay<?>> inlays) {
+            this.editor = editor;
+            this.offset = offset;
+            this.text = text;
+            this.inlays = inlays;
+        }
+    }
+}
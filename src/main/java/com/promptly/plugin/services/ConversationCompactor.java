@@ -0,0 +1,85 @@
+package com.promptly.plugin.services;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import com.promptly.plugin.context.CompactionPlan;
+import com.promptly.plugin.models.ChatMessage;
+import com.promptly.plugin.models.PromptlySettings;
+import com.promptly.plugin.tokenizer.Tokenizer;
+import com.promptly.plugin.tokenizer.Tokenizers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Keeps a conversation's request size flat by replacing older turns with a SYSTEM summary.
+ * <p>
+ * The history list is owned by the EDT. Token counting and summarization run in the background,
+ * and the result is swapped in on the EDT only if the summarized messages are still at the head
+ * of the history, so a user turn never waits for compaction.
+ */
+public class ConversationCompactor {
+    private static final Logger LOG = Logger.getInstance(ConversationCompactor.class);
+    private static final String SUMMARY_PREFIX = "Summary of the earlier conversation:\n";
+
+    private final List<ChatMessage> history;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    /**
+     * @param history The live conversation, only mutated on the EDT
+     */
+    public ConversationCompactor(List<ChatMessage> history) {
+        this.history = history;
+    }
+
+    /**
+     * Starts a background compaction if the history exceeds the configured threshold.
+     * Must be called on the EDT; does nothing while a previous compaction is still running.
+     */
+    public void scheduleIfNeeded() {
+        ApplicationManager.getApplication().assertIsDispatchThread();
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+
+        List<ChatMessage> snapshot = new ArrayList<>(history);
+        CompletableFuture
+                .supplyAsync(() -> selectTurnsToCompact(snapshot), AppExecutorUtil.getAppExecutorService())
+                .thenCompose(older -> older.isEmpty()
+                        ? CompletableFuture.<Void>completedFuture(null)
+                        : LLMService.getInstance().summarize(older).thenAccept(summary ->
+                                ApplicationManager.getApplication().invokeLater(() -> replaceHead(older, summary))))
+                .whenComplete((ignored, error) -> {
+                    if (error != null) {
+                        LOG.warn("Conversation compaction failed", error);
+                    }
+                    running.set(false);
+                });
+    }
+
+    private static List<ChatMessage> selectTurnsToCompact(List<ChatMessage> snapshot) {
+        PromptlySettings settings = SettingsService.getInstance().getSettings();
+        Tokenizer tokenizer = Tokenizers.forModel(settings.getSelectedProvider(),
+                settings.getModelName(settings.getSelectedProvider()));
+        return CompactionPlan.selectTurns(snapshot, tokenizer, settings.getCompactionThresholdTokens(),
+                settings.getCompactionKeepTurns());
+    }
+
+    private void replaceHead(List<ChatMessage> older, String summary) {
+        if (history.size() < older.size()) {
+            return;
+        }
+        for (int i = 0; i < older.size(); i++) {
+            if (history.get(i) != older.get(i)) {
+                // The conversation was cleared or rewritten meanwhile; the summary is stale
+                return;
+            }
+        }
+
+        history.subList(0, older.size()).clear();
+        history.add(0, new ChatMessage(ChatMessage.Role.SYSTEM, SUMMARY_PREFIX + summary.trim()));
+    }
+}
@@ -0,0 +1,311 @@
+package com.promptly.plugin.services;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.fileEditor.FileEditorManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.project.ProjectUtil;
+import com.intellij.openapi.roots.ProjectFileIndex;
+import com.intellij.openapi.vfs.VfsUtilCore;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.VFileContentChangeEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
+import com.intellij.util.Alarm;
+import com.intellij.util.io.EnumeratorStringDescriptor;
+import com.intellij.util.io.IOUtil;
+import com.intellij.util.io.PersistentHashMap;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Short LLM summaries of the project's source files, sent as context for the files related to the current one
+ * instead of their full text.
+ * <p>
+ * Summaries are stored on disk keyed by a hash of the file content, so they survive restarts and are only
+ * recomputed when a file actually changes. Files are summarized one at a time in the background, after a pause
+ * and on their own scheduler queue, so they never hold up a chat. Asking for a summary that is not ready
+ * queues the file and returns without it; it is included once ready.
+ */
+@Service(Service.Level.PROJECT)
+public final class FileSummaryService implements Disposable {
+    private static final Logger LOG = Logger.getInstance(FileSummaryService.class);
+    /** Part of the key, so changing the summary prompt invalidates the stored summaries. */
+    private static final String KEY_VERSION = "v1:";
+    private static final long MAX_FILE_BYTES = 256 * 1024;
+    private static final int IDLE_DELAY_MS = 2000;
+    private static final int RETRY_DELAY_MS = 60_000;
+
+    private final Project project;
+    private final Alarm alarm = new Alarm(Alarm.ThreadToUse.POOLED_THREAD, this);
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Set<VirtualFile> pending = new LinkedHashSet<>();
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final Object storageLock = new Object();
+    private PersistentHashMap<String, String> storage;
+    private boolean disposed;
+
+    public FileSummaryService(Project project) {
+        this.project = project;
+        project.getMessageBus().connect(this).subscribe(VirtualFileManager.VFS_CHANGES, new BulkFileListener() {
+            @Override
+            public void after(@NotNull List<? extends VFileEvent> events) {
+                for (VFileEvent event : events) {
+                    // Summaries are only refreshed for files that were asked for before
+                    if (event instanceof VFileContentChangeEvent && entries.remove(event.getPath()) != null) {
+                        enqueue(((VFileContentChangeEvent) event).getFile());
+                    }
+                }
+            }
+        });
+    }
+
+    public static FileSummaryService getInstance(Project project) {
+        return project.getService(FileSummaryService.class);
+    }
+
+    /**
+     * Summaries of the files related to the given one: the other open files, then its siblings of the same type.
+     * Returns the ones that are ready and queues the others. Only looks at memory, so it may run on the EDT.
+     *
+     * @param file The file the context is built from
+     * @param limit Maximum number of related files to consider
+     * @return Summary per project-relative path, closest files first
+     */
+    public Map<String, String> relatedSummaries(VirtualFile file, int limit) {
+        Map<String, String> summaries = new LinkedHashMap<>();
+        for (VirtualFile related : relatedFiles(file, limit)) {
+            Entry entry = entries.get(related.getPath());
+            if (entry != null && entry.modificationStamp == related.getModificationStamp()) {
+                if (entry.summary != null) {
+                    summaries.put(displayPath(related), entry.summary);
+                } else if (System.nanoTime() - entry.failedAt > TimeUnit.MILLISECONDS.toNanos(RETRY_DELAY_MS)) {
+                    enqueue(related);
+                }
+            } else {
+                enqueue(related);
+            }
+        }
+        return summaries;
+    }
+
+    private List<VirtualFile> relatedFiles(VirtualFile file, int limit) {
+        Set<VirtualFile> candidates = new LinkedHashSet<>(List.of(FileEditorManager.getInstance(project).getOpenFiles()));
+        VirtualFile directory = file.getParent();
+        if (directory != null) {
+            for (VirtualFile sibling : directory.getChildren()) {
+                if (sibling.getFileType() == file.getFileType()) {
+                    candidates.add(sibling);
+                }
+            }
+        }
+        candidates.remove(file);
+
+        ProjectFileIndex index = ProjectFileIndex.getInstance(project);
+        List<VirtualFile> related = new ArrayList<>();
+        for (VirtualFile candidate : candidates) {
+            if (related.size() >= limit) {
+                break;
+            }
+            if (candidate.isValid() && !candidate.isDirectory() && !candidate.getFileType().isBinary()
+                    && candidate.getLength() <= MAX_FILE_BYTES && index.isInContent(candidate)) {
+                related.add(candidate);
+            }
+        }
+        return related;
+    }
+
+    private String displayPath(VirtualFile file) {
+        VirtualFile root = ProjectUtil.guessProjectDir(project);
+        String relative = root != null ? VfsUtilCore.getRelativePath(file, root) : null;
+        return relative != null ? relative : file.getPath();
+    }
+
+    private void enqueue(VirtualFile file) {
+        synchronized (pending) {
+            if (!pending.add(file) || pending.size() > 1 || running.get()) {
+                return;
+            }
+        }
+        scheduleNext(IDLE_DELAY_MS);
+    }
+
+    private void scheduleNext(int delayMs) {
+        if (!alarm.isDisposed()) {
+            alarm.addRequest(this::processNext, delayMs);
+        }
+    }
+
+    /**
+     * Summarizes the next queued file, or takes its summary from disk if the content was summarized before.
+     */
+    private void processNext() {
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+        VirtualFile file;
+        synchronized (pending) {
+            if (pending.isEmpty()) {
+                running.set(false);
+                return;
+            }
+            file = pending.iterator().next();
+            pending.remove(file);
+        }
+
+        long modificationStamp = file.getModificationStamp();
+        String text = ReadAction.compute(() -> {
+            try {
+                return file.isValid() ? VfsUtilCore.loadText(file) : null;
+            } catch (IOException e) {
+                return null;
+            }
+        });
+        if (text == null) {
+            done(0);
+            return;
+        }
+        String key = KEY_VERSION + sha256(text);
+        String stored = read(key);
+        if (stored != null) {
+            entries.put(file.getPath(), new Entry(modificationStamp, stored));
+            done(0);
+            return;
+        }
+
+        LLMService.getInstance().getClient()
+                .summarizeFile(displayPath(file), text, SettingsService.getInstance().getSettings())
+                .whenComplete((summary, error) -> {
+                    if (error != null || summary == null || summary.isBlank()) {
+                        // Tried again once it is related to a context after the retry delay
+                        LOG.debug("Could not summarize " + file.getPath(), error);
+                        entries.put(file.getPath(), new Entry(modificationStamp, null));
+                        done(RETRY_DELAY_MS);
+                        return;
+                    }
+                    write(key, summary.strip());
+                    entries.put(file.getPath(), new Entry(modificationStamp, summary.strip()));
+                    done(IDLE_DELAY_MS);
+                });
+    }
+
+    private void done(int nextDelayMs) {
+        running.set(false);
+        synchronized (pending) {
+            if (pending.isEmpty()) {
+                return;
+            }
+        }
+        scheduleNext(nextDelayMs);
+    }
+
+    @Nullable
+    private String read(String key) {
+        synchronized (storageLock) {
+            PersistentHashMap<String, String> map = storage();
+            try {
+                return map != null ? map.get(key) : null;
+            } catch (IOException e) {
+                LOG.warn("Could not read file summary", e);
+                return null;
+            }
+        }
+    }
+
+    private void write(String key, String summary) {
+        synchronized (storageLock) {
+            PersistentHashMap<String, String> map = storage();
+            try {
+                if (map != null) {
+                    map.put(key, summary);
+                }
+            } catch (IOException e) {
+                LOG.warn("Could not store file summary", e);
+            }
+        }
+    }
+
+    /**
+     * Opens the on-disk map on first use. A corrupted map is deleted and started over; summaries can be recomputed.
+     */
+    @Nullable
+    private PersistentHashMap<String, String> storage() {
+        if (storage != null || disposed) {
+            return storage;
+        }
+        Path file = PathManager.getSystemDir().resolve("promptly").resolve("file-summaries")
+                .resolve(project.getLocationHash()).resolve("summaries");
+        try {
+            storage = open(file);
+        } catch (IOException e) {
+            LOG.info("Recreating file summary storage: " + e.getMessage());
+            IOUtil.deleteAllFilesStartingWith(file);
+            try {
+                storage = open(file);
+            } catch (IOException again) {
+                LOG.warn("Could not open file summary storage", again);
+            }
+        }
+        return storage;
+    }
+
+    private static PersistentHashMap<String, String> open(Path file) throws IOException {
+        return new PersistentHashMap<>(file, EnumeratorStringDescriptor.INSTANCE, EnumeratorStringDescriptor.INSTANCE);
+    }
+
+    private static String sha256(String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(text.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public void dispose() {
+        synchronized (storageLock) {
+            disposed = true;
+            if (storage != null) {
+                try {
+                    storage.close();
+                } catch (IOException e) {
+                    LOG.warn("Could not close file summary storage", e);
+                }
+                storage = null;
+            }
+        }
+    }
+
+    private static final class Entry {
+        final long modificationStamp;
+        /** Null if summarizing failed. */
+        final @Nullable String summary;
+        final long failedAt = System.nanoTime();
+
+        Entry(long modificationStamp, @Nullable String summary) {
+            this.modificationStamp = modificationStamp;
+            this.summary = summary;
+        }
+    }
+}
@@ -1,40 +1,89 @@
 package com.promptly.plugin.services;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ArrayNode;
-import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.intellij.openapi.Disposable;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.components.Service;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import com.promptly.plugin.cascade.CascadeClassifier;
+import com.promptly.plugin.cascade.ModelCascade;
+import com.promptly.plugin.cascade.RequestKind;
+import com.promptly.plugin.client.LLMClient;
+import com.promptly.plugin.context.MinifiedText;
+import com.promptly.plugin.metrics.MetricsRegistry;
 import com.promptly.plugin.models.ChatMessage;
 import com.promptly.plugin.models.LLMProvider;
+import com.promptly.plugin.models.ModelTier;
+import com.promptly.plugin.models.PromptOptions;
 import com.promptly.plugin.models.PromptlySettings;
-import okhttp3.*;
+import com.promptly.plugin.tokenizer.Tokenizer;
+import com.promptly.plugin.tokenizer.Tokenizers;
+import com.promptly.plugin.tools.ToolExecutor;
+import com.promptly.plugin.tools.ToolLoop;
+import com.promptly.plugin.tracing.TraceRecorder;
 
-import java.io.IOException;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
 /**
  * Service for interacting with LLM APIs.
+ * Sends requests through a shared {@link LLMClient} with the persisted settings, and reconfigures its
+ * HTTP clients when connection settings change.
  */
 @Service(Service.Level.APP)
-public final class LLMService {
-    private final OkHttpClient client;
-    private final ObjectMapper objectMapper;
+public final class LLMService implements Disposable {
+    private final LLMClient client = new LLMClient();
+    private final ModelCascade cascade = new ModelCascade(client.getMetrics());
+
+    public LLMService() {
+        ApplicationManager.getApplication().getMessageBus().connect(this)
+                .subscribe(SettingsListener.TOPIC, client::configure);
+    }
 
     public static LLMService getInstance() {
         return ApplicationManager.getApplication().getService(LLMService.class);
     }
 
-    public LLMService() {
-        this.client = new OkHttpClient.Builder()
-                .connectTimeout(30, TimeUnit.SECONDS)
-                .readTimeout(30, TimeUnit.SECONDS)
-                .writeTimeout(30, TimeUnit.SECONDS)
-                .build();
-        this.objectMapper = new ObjectMapper();
+    /**
+     * The underlying platform-independent client.
+     */
+    public LLMClient getClient() {
+        return client;
+    }
+
+    /**
+     * Latency, throughput and error statistics of the requests sent so far.
+     */
+    public MetricsRegistry getMetrics() {
+        return client.getMetrics();
+    }
+
+    /**
+     * Recent per-request traces, for the timeline view and trace dumps.
+     */
+    public TraceRecorder getTraceRecorder() {
+        return client.getTraceRecorder();
+    }
+
+    /**
+     * Counts the tokens a minified context saved, in the background, for the statistics.
+     */
+    public void reportMinification(MinifiedText minified) {
+        AppExecutorUtil.getAppExecutorService().execute(() -> {
+            PromptlySettings settings = SettingsService.getInstance().getSettings();
+            Tokenizer tokenizer = Tokenizers.forModel(settings.getSelectedProvider(),
+                    settings.getModelName(settings.getSelectedProvider()));
+            getMetrics().recordContextMinification(tokenizer.countTokens(minified.getOriginal()),
+                    tokenizer.countTokens(minified.getText()), minified.getRemovedChars());
+        });
+    }
+
+    /**
+     * Opens a connection to the selected provider in the background, ahead of a request about to be sent.
+     */
+    public void warmUp() {
+        client.warmUp(SettingsService.getInstance().getSettings());
     }
 
     /**
@@ -44,157 +93,98 @@ public final class LLMService {
      * @return CompletableFuture with the response text
      */
     public CompletableFuture<String> sendPrompt(List<ChatMessage> messages) {
-        CompletableFuture<String> future = new CompletableFuture<>();
+        return sendPrompt(messages, new PromptOptions());
+    }
+
+    /**
+     * Send a prompt with per-request overrides.
+     *
+     * @param messages List of chat messages
+     * @param options Overrides for model, token limit and similar
+     * @return CompletableFuture with the response text
+     */
+    public CompletableFuture<String> sendPrompt(List<ChatMessage> messages, PromptOptions options) {
+        return client.sendPrompt(messages, options, SettingsService.getInstance().getSettings());
+    }
+
+    /**
+     * Generate several candidate answers to the same prompt concurrently.
+     *
+     * @param messages List of chat messages
+     * @param options Overrides for model, token limit and similar
+     * @param count Number of candidates to ask for
+     * @return CompletableFuture with the candidates that arrived
+     */
+    public CompletableFuture<List<String>> sendCandidates(List<ChatMessage> messages, PromptOptions options, int count) {
+        return client.sendCandidates(messages, options, SettingsService.getInstance().getSettings(), count);
+    }
+
+    /**
+     * Send a prompt with tools attached, running the tool calls the model makes until it answers with text.
+     *
+     * @param messages List of chat messages
+     * @param options Overrides, including the tools to offer
+     * @param executor Runs the model's tool calls
+     * @return CompletableFuture with the final response text
+     */
+    public CompletableFuture<String> sendPromptWithTools(List<ChatMessage> messages, PromptOptions options,
+                                                         ToolExecutor executor) {
+        return new ToolLoop(client, executor).run(messages, options, SettingsService.getInstance().getSettings());
+    }
+
+    /**
+     * Picks the cascade tier a request starts on, see {@link CascadeClassifier}. Token counts are memoized on the
+     * messages, so counting here saves the work later.
+     *
+     * @param prompt What the user typed
+     * @param context File context or selection sent with it, if any
+     */
+    public ModelTier classify(RequestKind kind, ChatMessage prompt, ChatMessage context) {
         PromptlySettings settings = SettingsService.getInstance().getSettings();
         LLMProvider provider = settings.getSelectedProvider();
+        Tokenizer tokenizer = Tokenizers.forModel(provider, settings.getModelName(provider));
+        return CascadeClassifier.classify(kind, prompt.getContent(), prompt.getTokenCount(tokenizer),
+                context != null ? context.getTokenCount(tokenizer) : 0);
+    }
 
-        try {
-            String requestBody = formatRequestBody(messages, settings, provider);
-            Request request = new Request.Builder()
-                    .url(settings.getEndpoint(provider))
-                    .post(RequestBody.create(requestBody, MediaType.parse("application/json")))
-                    .addHeader("Content-Type", "application/json")
-                    .addHeader("Authorization", "Bearer " + settings.getApiKey(provider))
-                    .build();
-
-            client.newCall(request).enqueue(new Callback() {
-                @Override
-                public void onFailure(Call call, IOException e) {
-                    future.completeExceptionally(e);
-                }
-
-                @Override
-                public void onResponse(Call call, Response response) throws IOException {
-                    try (ResponseBody responseBody = response.body()) {
-                        if (!response.isSuccessful() || responseBody == null) {
-                            future.completeExceptionally(
-                                    new IOException("Unexpected response " + response)
-                            );
-                            return;
-                        }
-
-                        String responseText = responseBody.string();
-                        String result = parseResponse(responseText, provider);
-                        future.complete(result);
-                    }
-                }
-            });
-        } catch (Exception e) {
-            future.completeExceptionally(e);
-        }
-
-        return future;
+    /**
+     * Send a request through the model cascade: on the fast model first if {@code tier} says so, then on the main
+     * model if the fast one fails or sounds unsure.
+     *
+     * @param send Sends the request with the options of the tier tried, e.g. {@code o -> sendPrompt(messages, o)}
+     * @return CompletableFuture with the accepted answer
+     */
+    public CompletableFuture<String> sendCascaded(ModelTier tier, List<ChatMessage> messages, PromptOptions options,
+                                                  Function<PromptOptions, CompletableFuture<String>> send) {
+        return cascade.send(tier, messages, options, SettingsService.getInstance().getSettings(), send);
     }
 
     /**
-     * Format the request body according to the provider's API expectations.
+     * Send a request through the model cascade, escalating fast results that the caller does not accept.
+     *
+     * @param text The answer text of a result, for the token statistics
+     * @param acceptable Whether a fast result is good enough, e.g. whether generated code compiles
      */
-    private String formatRequestBody(List<ChatMessage> messages, PromptlySettings settings, LLMProvider provider) throws Exception {
-        ObjectNode rootNode = objectMapper.createObjectNode();
-
-        switch (provider) {
-            case OPENAI:
-                // Format for OpenAI API
-                rootNode.put("model", settings.getModelName(provider));
-                rootNode.put("max_tokens", settings.getMaxTokens());
-                rootNode.put("temperature", settings.getTemperature());
-                
-                ArrayNode messagesNode = rootNode.putArray("messages");
-                for (ChatMessage message : messages) {
-                    ObjectNode messageNode = messagesNode.addObject();
-                    messageNode.put("role", message.getRole().name().toLowerCase());
-                    messageNode.put("content", message.getContent());
-                }
-                break;
-                
-            case ANTHROPIC:
-                // Format for Anthropic API
-                rootNode.put("model", settings.getModelName(provider));
-                rootNode.put("max_tokens", settings.getMaxTokens());
-                rootNode.put("temperature", settings.getTemperature());
-                
-                ArrayNode messagesArray = rootNode.putArray("messages");
-                for (ChatMessage message : messages) {
-                    ObjectNode messageObj = messagesArray.addObject();
-                    messageObj.put("role", message.getRole() == ChatMessage.Role.USER ? "user" : "assistant");
-                    messageObj.put("content", message.getContent());
-                }
-                break;
-                
-            case GOOGLE:
-                // Format for Google Gemini API
-                rootNode.put("model", settings.getModelName(provider));
-                
-                ObjectNode generationConfig = rootNode.putObject("generationConfig");
-                generationConfig.put("maxOutputTokens", settings.getMaxTokens());
-                generationConfig.put("temperature", settings.getTemperature());
-                
-                ArrayNode contentsArray = rootNode.putArray("contents");
-                for (ChatMessage message : messages) {
-                    ObjectNode contentObj = contentsArray.addObject();
-                    contentObj.put("role", message.getRole() == ChatMessage.Role.USER ? "user" : "model");
-                    
-                    ArrayNode partsArray = contentObj.putArray("parts");
-                    ObjectNode partObj = partsArray.addObject();
-                    partObj.put("text", message.getContent());
-                }
-                break;
-                
-            case CUSTOM:
-                // Generic format - may need customization based on the specific API
-                rootNode.put("model", settings.getModelName(provider));
-                rootNode.put("max_tokens", settings.getMaxTokens());
-                rootNode.put("temperature", settings.getTemperature());
-                
-                ArrayNode messagesArray2 = rootNode.putArray("messages");
-                for (ChatMessage message : messages) {
-                    ObjectNode messageObj = messagesArray2.addObject();
-                    messageObj.put("role", message.getRole().name().toLowerCase());
-                    messageObj.put("content", message.getContent());
-                }
-                break;
-                
-            default:
-                throw new IllegalArgumentException("Unsupported provider: " + provider);
-        }
-
-        return objectMapper.writeValueAsString(rootNode);
+    public <T> CompletableFuture<T> sendCascaded(ModelTier tier, List<ChatMessage> messages, PromptOptions options,
+                                                 Function<PromptOptions, CompletableFuture<T>> send,
+                                                 Function<T, String> text, Predicate<T> acceptable) {
+        return cascade.send(tier, messages, options, SettingsService.getInstance().getSettings(), send, text,
+                acceptable);
+    }
+
+    @Override
+    public void dispose() {
+        client.shutdown();
     }
 
     /**
-     * Parse the API response based on the provider.
+     * Summarize older conversation turns with the provider's cheaper summary model.
+     * Used by {@link ConversationCompactor} to replace them with a single SYSTEM message.
+     *
+     * @param turns Messages to condense, oldest first; may start with an earlier summary
+     * @return CompletableFuture with the summary text
      */
-    private String parseResponse(String responseJson, LLMProvider provider) throws IOException {
-        JsonNode rootNode = objectMapper.readTree(responseJson);
-
-        switch (provider) {
-            case OPENAI:
-                return rootNode.path("choices").path(0).path("message").path("content").asText();
-                
-            case ANTHROPIC:
-                return rootNode.path("content").path(0).path("text").asText();
-                
-            case GOOGLE:
-                return rootNode.path("candidates").path(0).path("content").path("parts").path(0).path("text").asText();
-                
-            case CUSTOM:
-                // Default parsing - adjust based on the actual API response structure
-                if (rootNode.has("response")) {
-                    return rootNode.path("response").asText();
-                } else if (rootNode.has("output")) {
-                    return rootNode.path("output").asText();
-                } else if (rootNode.has("content")) {
-                    return rootNode.path("content").asText();
-                } else if (rootNode.has("message")) {
-                    return rootNode.path("message").asText();
-                } else if (rootNode.has("text")) {
-                    return rootNode.path("text").asText();
-                } else {
-                    return responseJson; // Return the entire response if structure is unknown
-                }
-                
-            default:
-                throw new IllegalArgumentException("Unsupported provider: " + provider);
-        }
-    }
-} 
\ No newline at end of file
+    public CompletableFuture<String> summarize(List<ChatMessage> turns) {
+        return client.summarize(turns, SettingsService.getInstance().getSettings());
+    }
+}
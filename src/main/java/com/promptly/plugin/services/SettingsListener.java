@@ -0,0 +1,16 @@
+package com.promptly.plugin.services;
+
+import com.intellij.util.messages.Topic;
+import com.promptly.plugin.models.PromptlySettings;
+
+/**
+ * Notified on the application message bus when the Promptly settings were saved or loaded.
+ */
+public interface SettingsListener {
+    Topic<SettingsListener> TOPIC = Topic.create("Promptly settings", SettingsListener.class);
+
+    /**
+     * @param settings The new snapshot, also returned by {@link SettingsService#getSettings()} from now on
+     */
+    void settingsChanged(PromptlySettings settings);
+}
@@ -16,6 +16,8 @@ import java.util.Map;
 
 /**
  * Service for persisting and retrieving Promptly settings.
+ * Hands out one frozen snapshot until the settings are saved or loaded again, and announces each new one
+ * on {@link SettingsListener#TOPIC}.
  */
 @Service(Service.Level.APP)
 @State(
@@ -24,6 +26,7 @@ import java.util.Map;
 )
 public final class SettingsService implements PersistentStateComponent<SettingsService.State> {
     private State myState = new State();
+    private volatile PromptlySettings snapshot;
 
     public static SettingsService getInstance() {
         return ApplicationManager.getApplication().getService(SettingsService.class);
@@ -37,9 +40,38 @@ public final class SettingsService implements PersistentStateComponent<SettingsS
         public Map<String, String> apiKeys = new HashMap<>();
         public Map<String, String> endpoints = new HashMap<>();
         public Map<String, String> modelNames = new HashMap<>();
+        public Map<String, String> summaryModelNames = new HashMap<>();
+        public Map<String, String> fastModelNames = new HashMap<>();
+        public boolean cascadeEnabled = true;
         public boolean sendProjectContext = true;
         public int maxTokens = 2048;
+        public int maxInputTokens = 100_000;
         public double temperature = 0.7;
+        public int compactionThresholdTokens = 12000;
+        public int compactionKeepTurns = 4;
+        public boolean recordingEnabled = false;
+        public String cassettePath = "";
+        public boolean replayRealTiming = true;
+        public boolean inlineCompletionEnabled = false;
+        public int completionDebounceMs = 300;
+        public int completionLatencyBudgetMs = 1500;
+        public boolean semanticCacheEnabled = false;
+        public double semanticCacheThreshold = 0.9;
+        public int semanticCacheMaxEntries = 1000;
+        public boolean projectToolsEnabled = true;
+        public int toolResultTokenBudget = 6000;
+        public int generationCandidates = 3;
+        public boolean minifyContext = true;
+        public boolean prepareWhileTyping = true;
+        public int relatedFileSummaries = 0;
+        public String localKeepAlive = "30m";
+        public int localContextLength = 8192;
+        public int localSlots = 4;
+        public Map<String, Integer> readTimeoutSeconds = new HashMap<>();
+        public int connectTimeoutSeconds = 30;
+        public int maxIdleConnections = 5;
+        public Map<String, Boolean> compressRequests = new HashMap<>();
+        public int compressionThresholdBytes = 32 * 1024;
     }
 
     @Override
@@ -50,12 +82,28 @@ public final class SettingsService implements PersistentStateComponent<SettingsS
     @Override
     public void loadState(@NotNull State state) {
         XmlSerializerUtil.copyBean(state, myState);
+        publish();
     }
 
     /**
-     * Converts the internal state to a PromptlySettings object
+     * Returns the current settings. The snapshot is read-only and shared, so this is cheap enough to call
+     * for every request; use {@link #getEditableSettings()} to make changes.
      */
     public PromptlySettings getSettings() {
+        PromptlySettings settings = snapshot;
+        if (settings == null) {
+            settings = getEditableSettings();
+            settings.freeze();
+            snapshot = settings;
+        }
+        return settings;
+    }
+
+    /**
+     * Converts the internal state to a new, modifiable PromptlySettings object, to be passed to
+     * {@link #saveSettings} after editing.
+     */
+    public PromptlySettings getEditableSettings() {
         PromptlySettings settings = new PromptlySettings();
 
         try {
@@ -88,9 +136,66 @@ public final class SettingsService implements PersistentStateComponent<SettingsS
             }
         }
 
+        // Load summary model names
+        for (LLMProvider provider : LLMProvider.values()) {
+            String modelName = myState.summaryModelNames.get(provider.name());
+            if (modelName != null) {
+                settings.setSummaryModelName(provider, modelName);
+            }
+        }
+
+        // Load fast model names
+        for (LLMProvider provider : LLMProvider.values()) {
+            String modelName = myState.fastModelNames.get(provider.name());
+            if (modelName != null) {
+                settings.setFastModelName(provider, modelName);
+            }
+        }
+
+        // Load read timeouts
+        for (LLMProvider provider : LLMProvider.values()) {
+            Integer timeout = myState.readTimeoutSeconds.get(provider.name());
+            if (timeout != null) {
+                settings.setReadTimeoutSeconds(provider, timeout);
+            }
+        }
+
+        // Load request compression
+        for (LLMProvider provider : LLMProvider.values()) {
+            Boolean compress = myState.compressRequests.get(provider.name());
+            if (compress != null) {
+                settings.setCompressRequests(provider, compress);
+            }
+        }
+
+        settings.setCascadeEnabled(myState.cascadeEnabled);
         settings.setSendProjectContext(myState.sendProjectContext);
         settings.setMaxTokens(myState.maxTokens);
+        settings.setMaxInputTokens(myState.maxInputTokens);
         settings.setTemperature(myState.temperature);
+        settings.setCompactionThresholdTokens(myState.compactionThresholdTokens);
+        settings.setCompactionKeepTurns(myState.compactionKeepTurns);
+        settings.setRecordingEnabled(myState.recordingEnabled);
+        settings.setCassettePath(myState.cassettePath);
+        settings.setReplayRealTiming(myState.replayRealTiming);
+        settings.setInlineCompletionEnabled(myState.inlineCompletionEnabled);
+        settings.setCompletionDebounceMs(myState.completionDebounceMs);
+        settings.setCompletionLatencyBudgetMs(myState.completionLatencyBudgetMs);
+        settings.setSemanticCacheEnabled(myState.semanticCacheEnabled);
+        settings.setSemanticCacheThreshold(myState.semanticCacheThreshold);
+        settings.setSemanticCacheMaxEntries(myState.semanticCacheMaxEntries);
+        settings.setProjectToolsEnabled(myState.projectToolsEnabled);
+        settings.setToolResultTokenBudget(myState.toolResultTokenBudget);
+        settings.setGenerationCandidates(myState.generationCandidates);
+        settings.setMinifyContext(myState.minifyContext);
+        settings.setPrepareWhileTyping(myState.prepareWhileTyping);
+        settings.setRelatedFileSummaries(myState.relatedFileSummaries);
+        settings.setLocalKeepAlive(myState.localKeepAlive);
+        settings.setLocalContextLength(myState.localContextLength);
+        settings.setLocalSlots(myState.localSlots);
+        settings.setConnectTimeoutSeconds(myState.connectTimeoutSeconds);
+        settings.setMaxIdleConnections(myState.maxIdleConnections);
+        settings.setCompressionThresholdBytes(myState.compressionThresholdBytes);
 
         return settings;
     }
@@ -116,8 +221,63 @@ public final class SettingsService implements PersistentStateComponent<SettingsS
             myState.modelNames.put(provider.name(), settings.getModelName(provider));
         }
 
+        // Save summary model names
+        for (LLMProvider provider : LLMProvider.values()) {
+            myState.summaryModelNames.put(provider.name(), settings.getSummaryModelName(provider));
+        }
+
+        // Save fast model names
+        for (LLMProvider provider : LLMProvider.values()) {
+            myState.fastModelNames.put(provider.name(), settings.getFastModelName(provider));
+        }
+
+        // Save read timeouts
+        for (LLMProvider provider : LLMProvider.values()) {
+            myState.readTimeoutSeconds.put(provider.name(), settings.getReadTimeoutSeconds(provider));
+        }
+
+        // Save request compression
+        for (LLMProvider provider : LLMProvider.values()) {
+            myState.compressRequests.put(provider.name(), settings.isCompressRequests(provider));
+        }
+
+        myState.cascadeEnabled = settings.isCascadeEnabled();
         myState.sendProjectContext = settings.isSendProjectContext();
         myState.maxTokens = settings.getMaxTokens();
+        myState.maxInputTokens = settings.getMaxInputTokens();
         myState.temperature = settings.getTemperature();
+        myState.compactionThresholdTokens = settings.getCompactionThresholdTokens();
+        myState.compactionKeepTurns = settings.getCompactionKeepTurns();
+        myState.recordingEnabled = settings.isRecordingEnabled();
+        myState.cassettePath = settings.getCassettePath();
+        myState.replayRealTiming = settings.isReplayRealTiming();
+        myState.inlineCompletionEnabled = settings.isInlineCompletionEnabled();
+        myState.completionDebounceMs = settings.getCompletionDebounceMs();
+        myState.completionLatencyBudgetMs = settings.getCompletionLatencyBudgetMs();
+        myState.semanticCacheEnabled = settings.isSemanticCacheEnabled();
+        myState.semanticCacheThreshold = settings.getSemanticCacheThreshold();
+        myState.semanticCacheMaxEntries = settings.getSemanticCacheMaxEntries();
+        myState.projectToolsEnabled = settings.isProjectToolsEnabled();
+        myState.toolResultTokenBudget = settings.getToolResultTokenBudget();
+        myState.generationCandidates = settings.getGenerationCandidates();
+        myState.minifyContext = settings.isMinifyContext();
+        myState.prepareWhileTyping = settings.isPrepareWhileTyping();
+        myState.relatedFileSummaries = settings.getRelatedFileSummaries();
+        myState.localKeepAlive = settings.getLocalKeepAlive();
+        myState.localContextLength = settings.getLocalContextLength();
+        myState.localSlots = settings.getLocalSlots();
+        myState.connectTimeoutSeconds = settings.getConnectTimeoutSeconds();
+        myState.maxIdleConnections = settings.getMaxIdleConnections();
+        myState.compressionThresholdBytes = settings.getCompressionThresholdBytes();
+        publish();
+    }
+
+    /**
+     * Replaces the snapshot and tells the listeners about it.
+     */
+    private void publish() {
+        snapshot = null;
+        PromptlySettings settings = getSettings();
+        ApplicationManager.getApplication().getMessageBus().syncPublisher(SettingsListener.TOPIC).settingsChanged(settings);
     }
 } 
\ No newline at end of file
@@ -12,6 +12,7 @@ import com.intellij.util.ui.JBUI;
 import com.intellij.util.ui.UI;
 import com.promptly.plugin.models.LLMProvider;
 import com.promptly.plugin.models.PromptlySettings;
+import com.promptly.plugin.replay.CassetteFile;
 import com.promptly.plugin.services.SettingsService;
 import org.jetbrains.annotations.Nullable;
 
@@ -31,8 +32,37 @@ public class PromptlySettingsConfigurable implements Configurable {
     private Map<LLMProvider, JBPasswordField> apiKeyFields = new HashMap<>();
     private Map<LLMProvider, JBTextField> endpointFields = new HashMap<>();
     private Map<LLMProvider, JBTextField> modelNameFields = new HashMap<>();
+    private Map<LLMProvider, JBTextField> summaryModelNameFields = new HashMap<>();
+    private Map<LLMProvider, JBTextField> fastModelNameFields = new HashMap<>();
+    private JBCheckBox cascadeCheckBox;
+    private Map<LLMProvider, JSpinner> readTimeoutSpinners = new HashMap<>();
+    private JSpinner connectTimeoutSpinner;
+    private JSpinner maxIdleConnectionsSpinner;
+    private Map<LLMProvider, JBCheckBox> compressRequestsCheckBoxes = new HashMap<>();
+    private JSpinner compressionThresholdSpinner;
     private JBCheckBox sendContextCheckBox;
     private JSpinner maxTokensSpinner;
+    private JSpinner maxInputTokensSpinner;
+    private JSpinner compactionThresholdSpinner;
+    private JSpinner compactionKeepTurnsSpinner;
+    private JBCheckBox recordingCheckBox;
+    private JBTextField cassettePathField;
+    private JBCheckBox replayRealTimingCheckBox;
+    private JBCheckBox inlineCompletionCheckBox;
+    private JSpinner completionDebounceSpinner;
+    private JSpinner completionBudgetSpinner;
+    private JBCheckBox semanticCacheCheckBox;
+    private JSpinner semanticThresholdSpinner;
+    private JSpinner semanticCacheSizeSpinner;
+    private JBCheckBox projectToolsCheckBox;
+    private JSpinner toolBudgetSpinner;
+    private JSpinner generationCandidatesSpinner;
+    private JBCheckBox minifyContextCheckBox;
+    private JBCheckBox prepareWhileTypingCheckBox;
+    private JSpinner relatedFileSummariesSpinner;
+    private JBTextField localKeepAliveField;
+    private JSpinner localContextLengthSpinner;
+    private JSpinner localSlotsSpinner;
     private JSlider temperatureSlider;
     private JLabel temperatureValueLabel;
     private boolean modified = false;
@@ -67,6 +97,20 @@ public class PromptlySettingsConfigurable implements Configurable {
 
             modelNameFields.put(provider, new JBTextField());
             modelNameFields.get(provider).getDocument().addDocumentListener(createModificationListener());
+
+            summaryModelNameFields.put(provider, new JBTextField());
+            summaryModelNameFields.get(provider).getEmptyText().setText("Same as model name");
+            summaryModelNameFields.get(provider).getDocument().addDocumentListener(createModificationListener());
+
+            fastModelNameFields.put(provider, new JBTextField());
+            fastModelNameFields.get(provider).getEmptyText().setText("None, always use the model above");
+            fastModelNameFields.get(provider).getDocument().addDocumentListener(createModificationListener());
+
+            readTimeoutSpinners.put(provider, new JSpinner(new SpinnerNumberModel(30, 5, 3600, 5)));
+            readTimeoutSpinners.get(provider).addChangeListener(e -> setModified(true));
+
+            compressRequestsCheckBoxes.put(provider, new JBCheckBox("Compress large requests (gzip)"));
+            compressRequestsCheckBoxes.get(provider).addChangeListener(e -> setModified(true));
         }
 
         sendContextCheckBox = new JBCheckBox("Send project context with requests");
@@ -75,6 +119,83 @@ public class PromptlySettingsConfigurable implements Configurable {
         maxTokensSpinner = new JSpinner(new SpinnerNumberModel(2048, 100, 16000, 100));
         maxTokensSpinner.addChangeListener(e -> setModified(true));
 
+        maxInputTokensSpinner = new JSpinner(new SpinnerNumberModel(100_000, 0, 2_000_000, 1000));
+        maxInputTokensSpinner.addChangeListener(e -> setModified(true));
+
+        compactionThresholdSpinner = new JSpinner(new SpinnerNumberModel(12000, 1000, 200000, 1000));
+        compactionThresholdSpinner.addChangeListener(e -> setModified(true));
+
+        compactionKeepTurnsSpinner = new JSpinner(new SpinnerNumberModel(4, 1, 50, 1));
+        compactionKeepTurnsSpinner.addChangeListener(e -> setModified(true));
+
+        recordingCheckBox = new JBCheckBox("Record requests and responses to the cassette");
+        recordingCheckBox.addChangeListener(e -> setModified(true));
+
+        connectTimeoutSpinner = new JSpinner(new SpinnerNumberModel(30, 1, 300, 1));
+        connectTimeoutSpinner.addChangeListener(e -> setModified(true));
+
+        maxIdleConnectionsSpinner = new JSpinner(new SpinnerNumberModel(5, 0, 100, 1));
+        maxIdleConnectionsSpinner.addChangeListener(e -> setModified(true));
+
+        compressionThresholdSpinner = new JSpinner(new SpinnerNumberModel(32, 1, 16384, 16));
+        compressionThresholdSpinner.addChangeListener(e -> setModified(true));
+
+        localKeepAliveField = new JBTextField();
+        localKeepAliveField.getEmptyText().setText("30m");
+        localKeepAliveField.getDocument().addDocumentListener(createModificationListener());
+
+        localContextLengthSpinner = new JSpinner(new SpinnerNumberModel(8192, 2048, 262144, 1024));
+        localContextLengthSpinner.addChangeListener(e -> setModified(true));
+
+        localSlotsSpinner = new JSpinner(new SpinnerNumberModel(4, 0, 64, 1));
+        localSlotsSpinner.addChangeListener(e -> setModified(true));
+
+        cassettePathField = new JBTextField();
+        cassettePathField.getEmptyText().setText(CassetteFile.defaultPath().toString());
+        cassettePathField.getDocument().addDocumentListener(createModificationListener());
+
+        replayRealTimingCheckBox = new JBCheckBox("Replay with original timing (otherwise at full speed)");
+        replayRealTimingCheckBox.addChangeListener(e -> setModified(true));
+
+        inlineCompletionCheckBox = new JBCheckBox("Suggest inline completions while typing (Tab to accept)");
+        inlineCompletionCheckBox.addChangeListener(e -> setModified(true));
+
+        completionDebounceSpinner = new JSpinner(new SpinnerNumberModel(300, 50, 2000, 50));
+        completionDebounceSpinner.addChangeListener(e -> setModified(true));
+
+        completionBudgetSpinner = new JSpinner(new SpinnerNumberModel(1500, 200, 10000, 100));
+        completionBudgetSpinner.addChangeListener(e -> setModified(true));
+
+        semanticCacheCheckBox = new JBCheckBox("Reuse answers to similar chat questions about the same code");
+        semanticCacheCheckBox.addChangeListener(e -> setModified(true));
+
+        semanticThresholdSpinner = new JSpinner(new SpinnerNumberModel(0.9, 0.5, 1.0, 0.01));
+        semanticThresholdSpinner.addChangeListener(e -> setModified(true));
+
+        semanticCacheSizeSpinner = new JSpinner(new SpinnerNumberModel(1000, 10, 100000, 100));
+        semanticCacheSizeSpinner.addChangeListener(e -> setModified(true));
+
+        projectToolsCheckBox = new JBCheckBox("Let the model look up symbols, usages and files in the project");
+        projectToolsCheckBox.addChangeListener(e -> setModified(true));
+
+        toolBudgetSpinner = new JSpinner(new SpinnerNumberModel(6000, 500, 100000, 500));
+        toolBudgetSpinner.addChangeListener(e -> setModified(true));
+
+        cascadeCheckBox = new JBCheckBox("Answer simple requests with the fast model first");
+        cascadeCheckBox.addChangeListener(e -> setModified(true));
+
+        minifyContextCheckBox = new JBCheckBox("Strip license headers, imports and indentation from context");
+        minifyContextCheckBox.addChangeListener(e -> setModified(true));
+
+        prepareWhileTypingCheckBox = new JBCheckBox("Prepare context and connect while typing the prompt");
+        prepareWhileTypingCheckBox.addChangeListener(e -> setModified(true));
+
+        relatedFileSummariesSpinner = new JSpinner(new SpinnerNumberModel(0, 0, 50, 1));
+        relatedFileSummariesSpinner.addChangeListener(e -> setModified(true));
+
+        generationCandidatesSpinner = new JSpinner(new SpinnerNumberModel(3, 1, 8, 1));
+        generationCandidatesSpinner.addChangeListener(e -> setModified(true));
+
         temperatureSlider = new JSlider(0, 100, 70);
         temperatureSlider.setMajorTickSpacing(25);
         temperatureSlider.setMinorTickSpacing(5);
@@ -107,12 +228,43 @@ public class PromptlySettingsConfigurable implements Configurable {
                 .addComponent(providerPanel)
                 .addComponent(apiKeyPanel)
                 .addLabeledComponent("Max Tokens:", maxTokensSpinner)
+                .addLabeledComponent("Max request size (tokens, 0 = no limit):", maxInputTokensSpinner)
                 .addLabeledComponent("Temperature:", UI.PanelFactory.panel(temperatureSlider)
                         .withComment("Controls creativity (0.0 = deterministic, 1.0 = creative)")
                         .resizeX(true)
                         .createPanel())
                 .addLabeledComponent("", temperatureValueLabel)
                 .addComponent(sendContextCheckBox)
+                .addComponent(cascadeCheckBox)
+                .addComponent(minifyContextCheckBox)
+                .addComponent(prepareWhileTypingCheckBox)
+                .addLabeledComponent("Summaries of related files in context (sends those files to the provider):",
+                        relatedFileSummariesSpinner)
+                .addLabeledComponent("Summarize history above (tokens):", compactionThresholdSpinner)
+                .addLabeledComponent("Keep recent turns verbatim:", compactionKeepTurnsSpinner)
+                .addComponent(projectToolsCheckBox)
+                .addLabeledComponent("Tool results per turn (tokens):", toolBudgetSpinner)
+                .addLabeledComponent("Generate Code candidates:", generationCandidatesSpinner)
+                .addSeparator()
+                .addLabeledComponent("Connect timeout (s):", connectTimeoutSpinner)
+                .addLabeledComponent("Idle connections kept per provider:", maxIdleConnectionsSpinner)
+                .addLabeledComponent("Compress requests larger than (KB):", compressionThresholdSpinner)
+                .addSeparator()
+                .addLabeledComponent("Keep local model loaded for:", localKeepAliveField)
+                .addLabeledComponent("Local context window (tokens):", localContextLengthSpinner)
+                .addLabeledComponent("Local server slots:", localSlotsSpinner)
+                .addSeparator()
+                .addComponent(recordingCheckBox)
+                .addLabeledComponent("Cassette file:", cassettePathField)
+                .addComponent(replayRealTimingCheckBox)
+                .addSeparator()
+                .addComponent(inlineCompletionCheckBox)
+                .addLabeledComponent("Request after typing pause (ms):", completionDebounceSpinner)
+                .addLabeledComponent("Drop suggestions slower than (ms):", completionBudgetSpinner)
+                .addSeparator()
+                .addComponent(semanticCacheCheckBox)
+                .addLabeledComponent("Minimum question similarity:", semanticThresholdSpinner)
+                .addLabeledComponent("Cached answers:", semanticCacheSizeSpinner)
                 .getPanel();
 
         mainPanel = FormBuilder.createFormBuilder()
@@ -126,6 +278,10 @@ public class PromptlySettingsConfigurable implements Configurable {
                 .addLabeledComponent("API Key:", apiKeyFields.get(provider))
                 .addLabeledComponent("Endpoint:", endpointFields.get(provider))
                 .addLabeledComponent("Model Name:", modelNameFields.get(provider))
+                .addLabeledComponent("Summary Model:", summaryModelNameFields.get(provider))
+                .addLabeledComponent("Fast Model:", fastModelNameFields.get(provider))
+                .addLabeledComponent("Read timeout (s):", readTimeoutSpinners.get(provider))
+                .addComponent(compressRequestsCheckBoxes.get(provider))
                 .getPanel();
     }
 
@@ -164,7 +320,7 @@ public class PromptlySettingsConfigurable implements Configurable {
 
     @Override
     public void apply() throws ConfigurationException {
-        PromptlySettings settings = SettingsService.getInstance().getSettings();
+        PromptlySettings settings = SettingsService.getInstance().getEditableSettings();
         
         settings.setSelectedProvider((LLMProvider) providerComboBox.getSelectedItem());
 
@@ -173,11 +329,41 @@ public class PromptlySettingsConfigurable implements Configurable {
             settings.setApiKey(provider, new String(apiKeyFields.get(provider).getPassword()));
             settings.setEndpoint(provider, endpointFields.get(provider).getText());
             settings.setModelName(provider, modelNameFields.get(provider).getText());
+            settings.setSummaryModelName(provider, summaryModelNameFields.get(provider).getText());
+            settings.setFastModelName(provider, fastModelNameFields.get(provider).getText());
+            settings.setReadTimeoutSeconds(provider, (Integer) readTimeoutSpinners.get(provider).getValue());
+            settings.setCompressRequests(provider, compressRequestsCheckBoxes.get(provider).isSelected());
         }
 
         settings.setSendProjectContext(sendContextCheckBox.isSelected());
+        settings.setCascadeEnabled(cascadeCheckBox.isSelected());
         settings.setMaxTokens((Integer) maxTokensSpinner.getValue());
+        settings.setMaxInputTokens((Integer) maxInputTokensSpinner.getValue());
         settings.setTemperature(temperatureSlider.getValue() / 100.0);
+        settings.setCompactionThresholdTokens((Integer) compactionThresholdSpinner.getValue());
+        settings.setCompactionKeepTurns((Integer) compactionKeepTurnsSpinner.getValue());
+        settings.setRecordingEnabled(recordingCheckBox.isSelected());
+        settings.setCassettePath(cassettePathField.getText().trim());
+        settings.setReplayRealTiming(replayRealTimingCheckBox.isSelected());
+        settings.setInlineCompletionEnabled(inlineCompletionCheckBox.isSelected());
+        settings.setCompletionDebounceMs((Integer) completionDebounceSpinner.getValue());
+        settings.setCompletionLatencyBudgetMs((Integer) completionBudgetSpinner.getValue());
+        settings.setSemanticCacheEnabled(semanticCacheCheckBox.isSelected());
+        settings.setSemanticCacheThreshold((Double) semanticThresholdSpinner.getValue());
+        settings.setSemanticCacheMaxEntries((Integer) semanticCacheSizeSpinner.getValue());
+        settings.setProjectToolsEnabled(projectToolsCheckBox.isSelected());
+        settings.setToolResultTokenBudget((Integer) toolBudgetSpinner.getValue());
+        settings.setGenerationCandidates((Integer) generationCandidatesSpinner.getValue());
+        settings.setMinifyContext(minifyContextCheckBox.isSelected());
+        settings.setPrepareWhileTyping(prepareWhileTypingCheckBox.isSelected());
+        settings.setRelatedFileSummaries((Integer) relatedFileSummariesSpinner.getValue());
+        String keepAlive = localKeepAliveField.getText().trim();
+        settings.setLocalKeepAlive(keepAlive.isEmpty() ? "30m" : keepAlive);
+        settings.setLocalContextLength((Integer) localContextLengthSpinner.getValue());
+        settings.setLocalSlots((Integer) localSlotsSpinner.getValue());
+        settings.setConnectTimeoutSeconds((Integer) connectTimeoutSpinner.getValue());
+        settings.setMaxIdleConnections((Integer) maxIdleConnectionsSpinner.getValue());
+        settings.setCompressionThresholdBytes((Integer) compressionThresholdSpinner.getValue() * 1024);
 
         SettingsService.getInstance().saveSettings(settings);
         setModified(false);
@@ -194,11 +380,40 @@ public class PromptlySettingsConfigurable implements Configurable {
             apiKeyFields.get(provider).setText(settings.getApiKey(provider));
             endpointFields.get(provider).setText(settings.getEndpoint(provider));
             modelNameFields.get(provider).setText(settings.getModelName(provider));
+            summaryModelNameFields.get(provider).setText(settings.getSummaryModelName(provider));
+            fastModelNameFields.get(provider).setText(settings.getFastModelName(provider));
+            readTimeoutSpinners.get(provider).setValue(settings.getReadTimeoutSeconds(provider));
+            compressRequestsCheckBoxes.get(provider).setSelected(settings.isCompressRequests(provider));
         }
 
         sendContextCheckBox.setSelected(settings.isSendProjectContext());
+        cascadeCheckBox.setSelected(settings.isCascadeEnabled());
         maxTokensSpinner.setValue(settings.getMaxTokens());
+        maxInputTokensSpinner.setValue(settings.getMaxInputTokens());
         temperatureSlider.setValue((int) (settings.getTemperature() * 100));
+        compactionThresholdSpinner.setValue(settings.getCompactionThresholdTokens());
+        compactionKeepTurnsSpinner.setValue(settings.getCompactionKeepTurns());
+        recordingCheckBox.setSelected(settings.isRecordingEnabled());
+        cassettePathField.setText(settings.getCassettePath());
+        replayRealTimingCheckBox.setSelected(settings.isReplayRealTiming());
+        inlineCompletionCheckBox.setSelected(settings.isInlineCompletionEnabled());
+        completionDebounceSpinner.setValue(settings.getCompletionDebounceMs());
+        completionBudgetSpinner.setValue(settings.getCompletionLatencyBudgetMs());
+        semanticCacheCheckBox.setSelected(settings.isSemanticCacheEnabled());
+        semanticThresholdSpinner.setValue(settings.getSemanticCacheThreshold());
+        semanticCacheSizeSpinner.setValue(settings.getSemanticCacheMaxEntries());
+        projectToolsCheckBox.setSelected(settings.isProjectToolsEnabled());
+        toolBudgetSpinner.setValue(settings.getToolResultTokenBudget());
+        generationCandidatesSpinner.setValue(settings.getGenerationCandidates());
+        minifyContextCheckBox.setSelected(settings.isMinifyContext());
+        prepareWhileTypingCheckBox.setSelected(settings.isPrepareWhileTyping());
+        relatedFileSummariesSpinner.setValue(settings.getRelatedFileSummaries());
+        localKeepAliveField.setText(settings.getLocalKeepAlive());
+        localContextLengthSpinner.setValue(settings.getLocalContextLength());
+        localSlotsSpinner.setValue(settings.getLocalSlots());
+        connectTimeoutSpinner.setValue(settings.getConnectTimeoutSeconds());
+        maxIdleConnectionsSpinner.setValue(settings.getMaxIdleConnections());
+        compressionThresholdSpinner.setValue(Math.max(1, settings.getCompressionThresholdBytes() / 1024));
 
         updateVisibleFields(settings.getSelectedProvider());
         setModified(false);
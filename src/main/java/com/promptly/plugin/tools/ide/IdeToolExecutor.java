@@ -0,0 +1,71 @@
+package com.promptly.plugin.tools.ide;
+
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.DumbService;
+import com.intellij.openapi.project.Project;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import com.promptly.plugin.tools.ToolCall;
+import com.promptly.plugin.tools.ToolExecutor;
+import org.jetbrains.concurrency.CancellablePromise;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Runs {@link ProjectTools} calls as non-blocking read actions, all of a turn's calls at once.
+ * Read actions give way to writes and restart afterwards, so a model exploring the project never freezes the editor.
+ * A call that has not finished after {@value #TIMEOUT_SECONDS} seconds, typically because indexing keeps the project
+ * out of smart mode, is answered with an error instead of holding up the conversation.
+ */
+public final class IdeToolExecutor implements ToolExecutor {
+    private static final Logger LOG = Logger.getInstance(IdeToolExecutor.class);
+    private static final long TIMEOUT_SECONDS = 30;
+
+    private final Project project;
+
+    public IdeToolExecutor(Project project) {
+        this.project = project;
+    }
+
+    @Override
+    public CompletableFuture<List<String>> execute(List<ToolCall> calls) {
+        List<CompletableFuture<String>> results = new ArrayList<>();
+        List<CancellablePromise<String>> promises = new ArrayList<>();
+        for (ToolCall call : calls) {
+            CompletableFuture<String> result = new CompletableFuture<>();
+            CancellablePromise<String> promise = ReadAction.nonBlocking(() -> ProjectTools.run(project, call))
+                    .inSmartMode(project)
+                    .expireWith(project)
+                    .submit(AppExecutorUtil.getAppExecutorService());
+            promise.onSuccess(result::complete);
+            promise.onError(e -> {
+                LOG.debug("Tool call " + call + " failed", e);
+                result.complete("Error: " + (e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName()));
+            });
+            ScheduledFuture<?> timeout = AppExecutorUtil.getAppScheduledExecutorService().schedule(() -> {
+                if (result.complete(DumbService.isDumb(project)
+                        ? "Error: the project is still being indexed; try again later or answer without this tool"
+                        : "Error: no result within " + TIMEOUT_SECONDS + " seconds")) {
+                    promise.cancel();
+                }
+            }, TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            result.whenComplete((value, error) -> timeout.cancel(false));
+            results.add(result);
+            promises.add(promise);
+        }
+
+        CompletableFuture<List<String>> all = CompletableFuture.allOf(results.toArray(new CompletableFuture[0]))
+                .thenApply(v -> results.stream().map(CompletableFuture::join).collect(Collectors.toList()));
+        all.whenComplete((value, error) -> {
+            if (all.isCancelled()) {
+                promises.forEach(promise -> promise.cancel());
+            }
+        });
+        return all;
+    }
+}
@@ -0,0 +1,259 @@
+package com.promptly.plugin.tools.ide;
+
+import com.intellij.navigation.ChooseByNameContributor;
+import com.intellij.navigation.ChooseByNameContributorEx;
+import com.intellij.navigation.NavigationItem;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.extensions.ExtensionPointName;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.project.ProjectUtil;
+import com.intellij.openapi.roots.ProjectFileIndex;
+import com.intellij.openapi.util.TextRange;
+import com.intellij.openapi.vfs.LocalFileSystem;
+import com.intellij.openapi.vfs.VfsUtilCore;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiDocumentManager;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiNamedElement;
+import com.intellij.psi.PsiReference;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.search.PsiSearchHelper;
+import com.intellij.psi.search.searches.ReferencesSearch;
+import com.intellij.util.indexing.FindSymbolParameters;
+import com.promptly.plugin.tools.ToolCall;
+import com.promptly.plugin.tools.ToolDefinition;
+import com.promptly.plugin.tools.ToolDefinition.Parameter;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Tools that let the model look around the project: symbol lookup, usages, text search and reading files.
+ * Every tool answers from the IDE's indices and PSI, so {@link #run} must be called inside a read action.
+ */
+public final class ProjectTools {
+    static final String FIND_SYMBOL = "find_symbol";
+    static final String FIND_USAGES = "find_usages";
+    static final String SEARCH_TEXT = "search_text";
+    static final String READ_FILE_RANGE = "read_file_range";
+
+    private static final int MAX_RESULTS = 50;
+    private static final int MAX_LINES = 200;
+
+    public static final List<ToolDefinition> DEFINITIONS = List.of(
+            new ToolDefinition(FIND_SYMBOL,
+                    "Find classes, methods and fields with the given name in the project. Returns file:line locations.",
+                    List.of(Parameter.string("name", "Exact symbol name, e.g. PromptlySettings or sendPrompt", true))),
+            new ToolDefinition(FIND_USAGES,
+                    "Find where a symbol is used in the project. Returns file:line with the line text.",
+                    List.of(Parameter.string("symbol", "Exact name of the class, method or field", true))),
+            new ToolDefinition(SEARCH_TEXT,
+                    "Search project files for lines containing the text. Returns file:line with the line text.",
+                    List.of(Parameter.string("query", "Text to look for, matched case-insensitively", true))),
+            new ToolDefinition(READ_FILE_RANGE,
+                    "Read lines of a project file. Paths are relative to the project root.",
+                    List.of(Parameter.string("path", "File path relative to the project root", true),
+                            Parameter.integer("startLine", "First line to read, 1-based", false),
+                            Parameter.integer("endLine", "Last line to read, inclusive", false))));
+
+    private ProjectTools() {
+    }
+
+    /**
+     * Runs one call and returns its result as text for the model. Must be called in a read action.
+     */
+    public static String run(Project project, ToolCall call) {
+        switch (call.getName()) {
+            case FIND_SYMBOL:
+                return findSymbol(project, required(call, "name"));
+            case FIND_USAGES:
+                return findUsages(project, required(call, "symbol"));
+            case SEARCH_TEXT:
+                return searchText(project, required(call, "query"));
+            case READ_FILE_RANGE:
+                return readFileRange(project, required(call, "path"),
+                        call.getInt("startLine", 1), call.getInt("endLine", -1));
+            default:
+                throw new IllegalArgumentException("Unknown tool " + call.getName());
+        }
+    }
+
+    private static String findSymbol(Project project, String name) {
+        StringBuilder result = new StringBuilder();
+        int count = 0;
+        for (PsiElement element : declarations(project, name)) {
+            if (count++ >= MAX_RESULTS) {
+                result.append("... more results omitted\n");
+                break;
+            }
+            result.append(location(project, element)).append(' ').append(firstLine(element)).append('\n');
+        }
+        return result.length() == 0 ? "No symbol named " + name : result.toString();
+    }
+
+    private static String findUsages(Project project, String symbol) {
+        Set<PsiElement> declarations = declarations(project, symbol);
+        if (declarations.isEmpty()) {
+            return "No symbol named " + symbol;
+        }
+
+        GlobalSearchScope scope = GlobalSearchScope.projectScope(project);
+        Set<String> lines = new LinkedHashSet<>();
+        for (PsiElement declaration : declarations) {
+            ReferencesSearch.search(declaration, scope).forEach((PsiReference reference) -> {
+                ProgressManager.checkCanceled();
+                PsiElement element = reference.getElement();
+                lines.add(location(project, element) + " " + lineText(element));
+                return lines.size() < MAX_RESULTS;
+            });
+            if (lines.size() >= MAX_RESULTS) {
+                break;
+            }
+        }
+        return lines.isEmpty() ? "No usages of " + symbol : String.join("\n", lines);
+    }
+
+    private static String searchText(Project project, String query) {
+        String word = longestWord(query);
+        if (word == null) {
+            return "The query needs at least one letter or digit";
+        }
+
+        // The word index narrows the files down; the lines are then matched against the whole query
+        String needle = query.toLowerCase();
+        List<String> lines = new ArrayList<>();
+        PsiSearchHelper.getInstance(project).processAllFilesWithWord(word, GlobalSearchScope.projectScope(project), file -> {
+            ProgressManager.checkCanceled();
+            Document document = PsiDocumentManager.getInstance(project).getDocument(file);
+            if (document == null) {
+                return true;
+            }
+            for (int line = 0; line < document.getLineCount() && lines.size() < MAX_RESULTS; line++) {
+                String text = document.getText(new TextRange(document.getLineStartOffset(line), document.getLineEndOffset(line)));
+                if (text.toLowerCase().contains(needle)) {
+                    lines.add(relativePath(project, file.getVirtualFile()) + ":" + (line + 1) + " " + text.trim());
+                }
+            }
+            return lines.size() < MAX_RESULTS;
+        }, false);
+        return lines.isEmpty() ? "No matches for " + query : String.join("\n", lines);
+    }
+
+    private static String readFileRange(Project project, String path, int startLine, int endLine) {
+        VirtualFile file = resolve(project, path);
+        if (file == null || file.isDirectory() || !ProjectFileIndex.getInstance(project).isInContent(file)) {
+            return "No project file at " + path;
+        }
+        Document document = FileDocumentManager.getInstance().getDocument(file);
+        if (document == null) {
+            return path + " is not a text file";
+        }
+
+        int lineCount = document.getLineCount();
+        int first = Math.max(1, startLine);
+        int last = Math.min(lineCount, endLine < first ? first + MAX_LINES - 1 : Math.min(endLine, first + MAX_LINES - 1));
+        if (first > lineCount) {
+            return path + " has only " + lineCount + " lines";
+        }
+
+        StringBuilder result = new StringBuilder();
+        for (int line = first; line <= last; line++) {
+            result.append(line).append(": ")
+                    .append(document.getText(new TextRange(document.getLineStartOffset(line - 1), document.getLineEndOffset(line - 1))))
+                    .append('\n');
+        }
+        if (last < lineCount) {
+            result.append("(").append(lineCount - last).append(" more lines)\n");
+        }
+        return result.toString();
+    }
+
+    private static Set<PsiElement> declarations(Project project, String name) {
+        Set<PsiElement> result = new LinkedHashSet<>();
+        collect(ChooseByNameContributor.CLASS_EP_NAME, project, name, result);
+        collect(ChooseByNameContributor.SYMBOL_EP_NAME, project, name, result);
+        return result;
+    }
+
+    private static void collect(ExtensionPointName<ChooseByNameContributor> extensionPoint, Project project, String name,
+                                Set<PsiElement> result) {
+        for (ChooseByNameContributor contributor : extensionPoint.getExtensionList()) {
+            ProgressManager.checkCanceled();
+            if (contributor instanceof ChooseByNameContributorEx) {
+                ((ChooseByNameContributorEx) contributor).processElementsWithName(name, item -> {
+                    add(item, result);
+                    return result.size() <= MAX_RESULTS;
+                }, FindSymbolParameters.wrap(name, project, false));
+            } else {
+                for (NavigationItem item : contributor.getItemsByName(name, name, project, false)) {
+                    add(item, result);
+                }
+            }
+        }
+    }
+
+    private static void add(NavigationItem item, Set<PsiElement> result) {
+        // Results from libraries have no file in the project and are of no use to the model
+        if (item instanceof PsiElement && ((PsiElement) item).getContainingFile() != null
+                && ((PsiElement) item).getContainingFile().getVirtualFile() != null) {
+            result.add(((PsiElement) item).getNavigationElement());
+        }
+    }
+
+    private static String location(Project project, PsiElement element) {
+        PsiFile file = element.getContainingFile();
+        Document document = PsiDocumentManager.getInstance(project).getDocument(file);
+        int line = document != null ? document.getLineNumber(element.getTextOffset()) + 1 : 0;
+        return relativePath(project, file.getVirtualFile()) + ":" + line;
+    }
+
+    private static String firstLine(PsiElement element) {
+        String name = element instanceof PsiNamedElement ? ((PsiNamedElement) element).getName() : null;
+        String text = lineText(element);
+        return text.isEmpty() && name != null ? name : text;
+    }
+
+    private static String lineText(PsiElement element) {
+        Document document = PsiDocumentManager.getInstance(element.getProject()).getDocument(element.getContainingFile());
+        if (document == null) {
+            return "";
+        }
+        int line = document.getLineNumber(element.getTextOffset());
+        return document.getText(new TextRange(document.getLineStartOffset(line), document.getLineEndOffset(line))).trim();
+    }
+
+    private static VirtualFile resolve(Project project, String path) {
+        VirtualFile root = ProjectUtil.guessProjectDir(project);
+        VirtualFile file = root != null ? root.findFileByRelativePath(path) : null;
+        return file != null ? file : LocalFileSystem.getInstance().findFileByPath(path);
+    }
+
+    private static String relativePath(Project project, VirtualFile file) {
+        VirtualFile root = ProjectUtil.guessProjectDir(project);
+        String relative = root != null ? VfsUtilCore.getRelativePath(file, root) : null;
+        return relative != null ? relative : file.getPath();
+    }
+
+    private static String longestWord(String query) {
+        String longest = null;
+        for (String word : query.split("[^\\p{L}\\p{N}_]+")) {
+            if (!word.isEmpty() && (longest == null || word.length() > longest.length())) {
+                longest = word;
+            }
+        }
+        return longest;
+    }
+
+    private static String required(ToolCall call, String argument) {
+        String value = call.getString(argument);
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException("Missing argument " + argument);
+        }
+        return value;
+    }
+}
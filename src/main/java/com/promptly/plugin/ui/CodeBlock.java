@@ -0,0 +1,134 @@
+package com.promptly.plugin.ui;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.editor.ex.EditorEx;
+import com.intellij.openapi.fileTypes.FileType;
+import com.intellij.openapi.fileTypes.FileTypeManager;
+import com.intellij.openapi.fileTypes.PlainTextFileType;
+import com.intellij.openapi.fileTypes.UnknownFileType;
+import com.intellij.ui.JBColor;
+import com.intellij.util.ui.JBUI;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * A fenced code block of an assistant message. While on screen it shows its code in a highlighting viewer
+ * borrowed from the {@link CodeViewerPool}, and in a plain text area while the pool has none to spare.
+ * Its height only depends on its line count, so swapping the two does not move the transcript.
+ */
+final class CodeBlock extends JPanel {
+    private static final int MAX_VISIBLE_LINES = 30;
+    private static final Map<String, String> LANGUAGE_ALIASES = Map.of(
+            "python", "py", "javascript", "js", "typescript", "ts", "kotlin", "kt", "bash", "sh",
+            "shell", "sh", "rust", "rs", "golang", "go", "csharp", "cs", "c++", "cpp");
+
+    private final CodeViewerPool pool;
+    private final FileType fileType;
+    private final StringBuilder code = new StringBuilder();
+    private final JTextArea fallback = new JTextArea();
+    private EditorEx viewer;
+    private int lines = 1;
+
+    CodeBlock(CodeViewerPool pool, String language) {
+        super(new BorderLayout());
+        this.pool = pool;
+        this.fileType = fileTypeOf(language);
+        setBorder(JBUI.Borders.customLine(JBColor.border()));
+
+        fallback.setEditable(false);
+        fallback.setFont(JBUI.Fonts.create(Font.MONOSPACED, fallback.getFont().getSize()));
+        add(fallback, BorderLayout.CENTER);
+        pool.track(this);
+    }
+
+    /**
+     * Appends complete lines or the start of one; streamed text arrives in pieces.
+     */
+    void append(String text) {
+        if (text.isEmpty()) {
+            return;
+        }
+        code.append(text);
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '\n') {
+                lines++;
+            }
+        }
+        if (viewer != null) {
+            Document document = viewer.getDocument();
+            ApplicationManager.getApplication().runWriteAction(() ->
+                    document.insertString(document.getTextLength(), text));
+        } else {
+            fallback.append(text);
+        }
+        revalidate();
+    }
+
+    String getCode() {
+        return code.toString();
+    }
+
+    /**
+     * Borrows a viewer from the pool, if it has one to spare, and shows the code in it.
+     */
+    void attach() {
+        if (viewer != null) {
+            return;
+        }
+        viewer = pool.acquire(fileType);
+        if (viewer == null) {
+            return;
+        }
+        String text = code.toString();
+        ApplicationManager.getApplication().runWriteAction(() -> viewer.getDocument().setText(text));
+        fallback.setText("");
+        remove(fallback);
+        add(viewer.getComponent(), BorderLayout.CENTER);
+        revalidate();
+        repaint();
+    }
+
+    /**
+     * Returns the viewer to the pool and shows the code as plain text again.
+     */
+    void detach() {
+        if (viewer == null) {
+            return;
+        }
+        remove(viewer.getComponent());
+        pool.release(viewer);
+        viewer = null;
+        fallback.setText(code.toString());
+        add(fallback, BorderLayout.CENTER);
+        revalidate();
+        repaint();
+    }
+
+    @Override
+    public Dimension getPreferredSize() {
+        Dimension size = super.getPreferredSize();
+        Insets insets = getInsets();
+        int lineHeight = viewer != null ? viewer.getLineHeight() : fallback.getFontMetrics(fallback.getFont()).getHeight();
+        // Long blocks scroll inside the viewer instead of stretching the transcript
+        int visibleLines = Math.min(lines, MAX_VISIBLE_LINES);
+        return new Dimension(size.width, visibleLines * lineHeight + insets.top + insets.bottom + JBUI.scale(4));
+    }
+
+    @Override
+    public Dimension getMaximumSize() {
+        return new Dimension(Integer.MAX_VALUE, getPreferredSize().height);
+    }
+
+    private static FileType fileTypeOf(String language) {
+        String name = language.trim().toLowerCase(Locale.ROOT);
+        if (name.isEmpty()) {
+            return PlainTextFileType.INSTANCE;
+        }
+        FileType type = FileTypeManager.getInstance().getFileTypeByExtension(LANGUAGE_ALIASES.getOrDefault(name, name));
+        return type instanceof UnknownFileType ? PlainTextFileType.INSTANCE : type;
+    }
+}
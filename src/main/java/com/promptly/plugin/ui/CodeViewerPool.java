@@ -0,0 +1,154 @@
+package com.promptly.plugin.ui;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.editor.EditorFactory;
+import com.intellij.openapi.editor.EditorKind;
+import com.intellij.openapi.editor.EditorSettings;
+import com.intellij.openapi.editor.ex.EditorEx;
+import com.intellij.openapi.editor.highlighter.EditorHighlighterFactory;
+import com.intellij.openapi.fileTypes.FileType;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Disposer;
+import org.jetbrains.annotations.Nullable;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read-only editors for the code blocks of a chat transcript.
+ * Editors are heavyweight, so only code blocks on or near the screen hold one: the pool hands out at most
+ * {@link #MAX_VIEWERS}, takes them back from blocks scrolled away and keeps a few idle ones for reuse.
+ * All methods must be called on the EDT.
+ */
+final class CodeViewerPool implements Disposable {
+    static final int MAX_VIEWERS = 12;
+    private static final int MAX_IDLE = 4;
+
+    private final Project project;
+    private final List<EditorEx> idle = new ArrayList<>();
+    private final List<CodeBlock> blocks = new ArrayList<>();
+    private int inUse;
+    private boolean updateScheduled;
+    private boolean disposed;
+
+    CodeViewerPool(Project project, Disposable parent) {
+        this.project = project;
+        Disposer.register(parent, this);
+    }
+
+    /**
+     * Returns a viewer highlighting the given file type, or null if all viewers are in use.
+     */
+    @Nullable
+    EditorEx acquire(FileType fileType) {
+        if (disposed || inUse >= MAX_VIEWERS) {
+            return null;
+        }
+        EditorEx viewer = idle.isEmpty() ? createViewer() : idle.remove(idle.size() - 1);
+        viewer.setHighlighter(EditorHighlighterFactory.getInstance().createEditorHighlighter(project, fileType));
+        inUse++;
+        return viewer;
+    }
+
+    void release(EditorEx viewer) {
+        inUse--;
+        if (!disposed && idle.size() < MAX_IDLE) {
+            ApplicationManager.getApplication().runWriteAction(() -> viewer.getDocument().setText(""));
+            idle.add(viewer);
+        } else {
+            EditorFactory.getInstance().releaseEditor(viewer);
+        }
+    }
+
+    /**
+     * Starts managing a code block's viewer by its visibility.
+     */
+    void track(CodeBlock block) {
+        blocks.add(block);
+    }
+
+    void untrack(CodeBlock block) {
+        block.detach();
+        blocks.remove(block);
+    }
+
+    /**
+     * Takes the viewers back from all tracked blocks, e.g. when the transcript is cleared.
+     */
+    void releaseAll() {
+        for (CodeBlock block : blocks) {
+            block.detach();
+        }
+        blocks.clear();
+    }
+
+    /**
+     * Coalesces the visibility updates of a burst of scroll and resize events into one.
+     */
+    void scheduleVisibilityUpdate(JViewport viewport) {
+        if (updateScheduled || disposed) {
+            return;
+        }
+        updateScheduled = true;
+        SwingUtilities.invokeLater(() -> {
+            updateScheduled = false;
+            if (!disposed) {
+                updateVisibility(viewport);
+            }
+        });
+    }
+
+    /**
+     * Gives viewers to the blocks within a screen of the visible area and takes them from the others.
+     */
+    private void updateVisibility(JViewport viewport) {
+        Component view = viewport.getView();
+        Rectangle near = viewport.getViewRect();
+        near.grow(0, near.height);
+
+        List<CodeBlock> visible = new ArrayList<>();
+        for (CodeBlock block : blocks) {
+            Container parent = block.getParent();
+            if (parent != null && view != null && SwingUtilities.isDescendingFrom(block, view)
+                    && SwingUtilities.convertRectangle(parent, block.getBounds(), view).intersects(near)) {
+                visible.add(block);
+            } else {
+                // Detach first, so the viewers are free for the blocks coming into view
+                block.detach();
+            }
+        }
+        for (CodeBlock block : visible) {
+            block.attach();
+        }
+    }
+
+    private EditorEx createViewer() {
+        EditorEx viewer = (EditorEx) EditorFactory.getInstance().createViewer(
+                EditorFactory.getInstance().createDocument(""), project, EditorKind.PREVIEW);
+        EditorSettings settings = viewer.getSettings();
+        settings.setLineNumbersShown(false);
+        settings.setFoldingOutlineShown(false);
+        settings.setLineMarkerAreaShown(false);
+        settings.setGutterIconsShown(false);
+        settings.setIndentGuidesShown(false);
+        settings.setRightMarginShown(false);
+        settings.setCaretRowShown(false);
+        settings.setAdditionalLinesCount(0);
+        settings.setAdditionalColumnsCount(0);
+        settings.setUseSoftWraps(false);
+        return viewer;
+    }
+
+    @Override
+    public void dispose() {
+        releaseAll();
+        disposed = true;
+        for (EditorEx viewer : idle) {
+            EditorFactory.getInstance().releaseEditor(viewer);
+        }
+        idle.clear();
+    }
+}
@@ -0,0 +1,268 @@
+package com.promptly.plugin.ui;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.ui.JBColor;
+import com.intellij.util.ui.JBUI;
+import com.intellij.util.ui.UIUtil;
+
+import javax.swing.*;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.SimpleAttributeSet;
+import javax.swing.text.StyleConstants;
+import javax.swing.text.StyledDocument;
+import java.awt.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Renders an assistant message as markdown while it streams in.
+ * Text is only ever appended: complete lines are styled once into the current text pane, or into the current
+ * {@link CodeBlock} inside a fence, and only the unfinished last line is re-rendered as more of it arrives.
+ * A token costs time proportional to the line it extends, not to the message.
+ */
+final class MarkdownMessageView extends JPanel {
+    private static final Pattern INLINE = Pattern.compile(
+            "\\*\\*(.+?)\\*\\*|`([^`]+)`|\\[([^\\]]+)]\\(([^)\\s]+)\\)|(?<![*\\w])\\*([^*\\s][^*]*?)\\*(?!\\w)");
+    private static final Pattern HEADING = Pattern.compile("^(#{1,6})\\s+(.*)$");
+    private static final Pattern BULLET = Pattern.compile("^(\\s*)[-*+]\\s+(.*)$");
+
+    private final CodeViewerPool pool;
+    private final StringBuilder rendered = new StringBuilder();
+    private final StringBuilder pending = new StringBuilder();
+    private boolean flushScheduled;
+    private JTextPane textPane;
+    private CodeBlock codeBlock;
+    /** Whether the current code block already got the start of the unfinished last line. */
+    private boolean codeLineStarted;
+    private int lineStart;
+    /** Where the unfinished last line starts in the document of the current text pane. */
+    private int tailOffset;
+    private boolean tailHasContent;
+
+    MarkdownMessageView(CodeViewerPool pool) {
+        this.pool = pool;
+        setLayout(new BoxLayout(this, BoxLayout.Y_AXIS));
+        setOpaque(false);
+    }
+
+    /**
+     * Queues a streamed chunk from any thread. Chunks arriving faster than the EDT takes them are joined into
+     * one update.
+     */
+    void appendLater(String chunk) {
+        synchronized (pending) {
+            pending.append(chunk);
+            if (flushScheduled) {
+                return;
+            }
+            flushScheduled = true;
+        }
+        ApplicationManager.getApplication().invokeLater(this::flush);
+    }
+
+    /**
+     * Shows the complete message. If the streamed text differs, e.g. because the request was answered by a
+     * different model after all, the message is rendered again from scratch.
+     */
+    void finish(String text) {
+        flush();
+        if (!text.contentEquals(rendered)) {
+            reset();
+            append(text);
+        }
+        // The last line has no line break to complete it
+        if (!rendered.isEmpty() && rendered.charAt(rendered.length() - 1) != '\n') {
+            append("\n");
+        }
+    }
+
+    private void flush() {
+        String chunk;
+        synchronized (pending) {
+            chunk = pending.toString();
+            pending.setLength(0);
+            flushScheduled = false;
+        }
+        append(chunk);
+    }
+
+    private void append(String text) {
+        if (text.isEmpty()) {
+            return;
+        }
+        int from = rendered.length();
+        rendered.append(text);
+        int end = rendered.indexOf("\n", from);
+        while (end >= 0) {
+            completeLine(rendered.substring(lineStart, end));
+            lineStart = end + 1;
+            end = rendered.indexOf("\n", lineStart);
+        }
+        String tail = rendered.substring(lineStart);
+        if (codeBlock != null) {
+            // Code is shown verbatim, so even a partial line can go in for good, unless it may be the closing fence
+            if (codeLineStarted || !tail.isBlank() && !tail.stripLeading().startsWith("`")) {
+                codeBlock.append(tail);
+                codeLineStarted = !tail.isEmpty();
+                lineStart = rendered.length();
+            }
+        } else {
+            renderTail(tail);
+        }
+        revalidate();
+        repaint();
+    }
+
+    private void completeLine(String line) {
+        if (codeBlock != null) {
+            if (!codeLineStarted && isFence(line)) {
+                codeBlock = null;
+            } else {
+                codeBlock.append(line + "\n");
+            }
+            codeLineStarted = false;
+            return;
+        }
+        clearTail();
+        if (isFence(line)) {
+            codeBlock = new CodeBlock(pool, line.strip().substring(3));
+            codeBlock.setAlignmentX(LEFT_ALIGNMENT);
+            add(codeBlock);
+            textPane = null;
+            return;
+        }
+        renderLine(line, true);
+    }
+
+    private void renderTail(String tail) {
+        clearTail();
+        if (!tail.isEmpty()) {
+            renderLine(tail, false);
+            tailHasContent = true;
+        }
+    }
+
+    /**
+     * Removes the previous rendering of the unfinished last line.
+     */
+    private void clearTail() {
+        if (!tailHasContent) {
+            return;
+        }
+        StyledDocument document = textPane.getStyledDocument();
+        try {
+            document.remove(tailOffset, document.getLength() - tailOffset);
+        } catch (BadLocationException e) {
+            throw new IllegalStateException(e);
+        }
+        tailHasContent = false;
+    }
+
+    private void renderLine(String line, boolean complete) {
+        JTextPane pane = currentTextPane();
+        StyledDocument document = pane.getStyledDocument();
+        tailOffset = document.getLength();
+        if (document.getLength() > 0) {
+            insert(document, "\n", new SimpleAttributeSet());
+        }
+
+        SimpleAttributeSet base = new SimpleAttributeSet();
+        String content = line;
+        Matcher heading = HEADING.matcher(line);
+        Matcher bullet = BULLET.matcher(line);
+        if (heading.matches()) {
+            StyleConstants.setBold(base, true);
+            int level = heading.group(1).length();
+            StyleConstants.setFontSize(base, pane.getFont().getSize() + Math.max(0, 4 - level) * 2);
+            content = heading.group(2);
+        } else if (bullet.matches()) {
+            insert(document, bullet.group(1) + "\u2022 ", base);
+            content = bullet.group(2);
+        } else if (line.startsWith(">")) {
+            StyleConstants.setItalic(base, true);
+            StyleConstants.setForeground(base, UIUtil.getContextHelpForeground());
+            content = line.substring(1).stripLeading();
+        }
+        insertInline(document, content, base);
+        if (complete) {
+            tailOffset = document.getLength();
+        }
+    }
+
+    private static void insertInline(StyledDocument document, String text, SimpleAttributeSet base) {
+        Matcher matcher = INLINE.matcher(text);
+        int last = 0;
+        while (matcher.find()) {
+            insert(document, text.substring(last, matcher.start()), base);
+            SimpleAttributeSet style = new SimpleAttributeSet(base);
+            String content;
+            if (matcher.group(1) != null) {
+                StyleConstants.setBold(style, true);
+                content = matcher.group(1);
+            } else if (matcher.group(2) != null) {
+                StyleConstants.setFontFamily(style, Font.MONOSPACED);
+                StyleConstants.setBackground(style, JBColor.namedColor("Editor.SearchField.background",
+                        UIUtil.getPanelBackground()));
+                content = matcher.group(2);
+            } else if (matcher.group(3) != null) {
+                StyleConstants.setForeground(style, JBUI.CurrentTheme.Link.Foreground.ENABLED);
+                StyleConstants.setUnderline(style, true);
+                content = matcher.group(3);
+            } else {
+                StyleConstants.setItalic(style, true);
+                content = matcher.group(5);
+            }
+            insert(document, content, style);
+            last = matcher.end();
+        }
+        insert(document, text.substring(last), base);
+    }
+
+    private static void insert(StyledDocument document, String text, SimpleAttributeSet style) {
+        if (text.isEmpty()) {
+            return;
+        }
+        try {
+            document.insertString(document.getLength(), text, style);
+        } catch (BadLocationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * The text pane that prose goes into; a new one starts after each code block.
+     */
+    private JTextPane currentTextPane() {
+        if (textPane == null) {
+            textPane = new JTextPane();
+            textPane.setEditable(false);
+            textPane.setOpaque(false);
+            textPane.setBorder(JBUI.Borders.empty(2, 0));
+            textPane.setAlignmentX(LEFT_ALIGNMENT);
+            tailOffset = 0;
+            tailHasContent = false;
+            add(textPane);
+        }
+        return textPane;
+    }
+
+    private void reset() {
+        for (Component component : getComponents()) {
+            if (component instanceof CodeBlock) {
+                pool.untrack((CodeBlock) component);
+            }
+        }
+        removeAll();
+        rendered.setLength(0);
+        textPane = null;
+        codeBlock = null;
+        codeLineStarted = false;
+        lineStart = 0;
+        tailOffset = 0;
+        tailHasContent = false;
+    }
+
+    private static boolean isFence(String line) {
+        return line.strip().startsWith("```");
+    }
+}
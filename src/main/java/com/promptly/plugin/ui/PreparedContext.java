@@ -0,0 +1,112 @@
+package com.promptly.plugin.ui;
+
+import com.intellij.openapi.editor.Editor;
+import com.intellij.openapi.fileEditor.FileEditor;
+import com.intellij.openapi.fileEditor.FileEditorManager;
+import com.intellij.openapi.project.Project;
+import com.promptly.plugin.context.ContextBuilder;
+import com.promptly.plugin.context.ContextMinifier;
+import com.promptly.plugin.context.MinifiedText;
+import com.promptly.plugin.models.ChatMessage;
+import com.promptly.plugin.services.FileSummaryService;
+import com.promptly.plugin.services.SettingsService;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * File context for a chat request, built from a snapshot of the selected editor.
+ * The chat builds it in the background while the prompt is typed and reuses it on Send as long as the editor
+ * still shows the same file, text and selection.
+ */
+final class PreparedContext {
+    private final Source source;
+    private final boolean minify;
+    private final ChatMessage message;
+    private final @Nullable MinifiedText minified;
+
+    private PreparedContext(Source source, boolean minify, String context, @Nullable MinifiedText minified) {
+        this.source = source;
+        this.minify = minify;
+        this.message = new ChatMessage(ChatMessage.Role.SYSTEM, context);
+        this.minified = minified;
+    }
+
+    boolean matches(Source other, boolean minify) {
+        return this.minify == minify && source.sameAs(other);
+    }
+
+    /**
+     * The context as a SYSTEM message. Reused across requests, so its memoized token count is too.
+     */
+    ChatMessage getMessage() {
+        return message;
+    }
+
+    /**
+     * The minified code that was sent, to restore its indentation in answers; null if it was sent as is.
+     */
+    @Nullable
+    MinifiedText getMinified() {
+        return minified;
+    }
+
+    /**
+     * What the context is built from. Taken on the EDT; the content is an immutable snapshot, so building
+     * may then run on any thread.
+     */
+    static final class Source {
+        private final String filePath;
+        private final long modificationStamp;
+        private final CharSequence content;
+        private final @Nullable String selectedText;
+        private final Map<String, String> relatedSummaries;
+
+        private Source(String filePath, long modificationStamp, CharSequence content, @Nullable String selectedText,
+                       Map<String, String> relatedSummaries) {
+            this.filePath = filePath;
+            this.modificationStamp = modificationStamp;
+            this.content = content;
+            this.selectedText = selectedText;
+            this.relatedSummaries = relatedSummaries;
+        }
+
+        /**
+         * Snapshots the selected editor, or returns null if no text editor is open.
+         */
+        @Nullable
+        static Source of(Project project) {
+            Editor editor = FileEditorManager.getInstance(project).getSelectedTextEditor();
+            FileEditor fileEditor = FileEditorManager.getInstance(project).getSelectedEditor();
+            if (editor == null || fileEditor == null || fileEditor.getFile() == null) {
+                return null;
+            }
+            // Related files go in as their summaries; the ones not summarized yet join a later context
+            int related = SettingsService.getInstance().getSettings().getRelatedFileSummaries();
+            Map<String, String> summaries = related > 0
+                    ? FileSummaryService.getInstance(project).relatedSummaries(fileEditor.getFile(), related) : Map.of();
+            return new Source(fileEditor.getFile().getPath(), editor.getDocument().getModificationStamp(),
+                    editor.getDocument().getImmutableCharSequence(), editor.getSelectionModel().getSelectedText(),
+                    summaries);
+        }
+
+        PreparedContext build(boolean minify) {
+            if (minify) {
+                MinifiedText minified = ContextMinifier.minify(filePath,
+                        ContextBuilder.codeToSend(content, selectedText));
+                return new PreparedContext(this, true, ContextBuilder.withRelatedSummaries(
+                        ContextBuilder.build(filePath, minified, selectedText), relatedSummaries), minified);
+            }
+            return new PreparedContext(this, false, ContextBuilder.withRelatedSummaries(
+                    ContextBuilder.build(filePath, content, selectedText), relatedSummaries), null);
+        }
+
+        private boolean sameAs(Source other) {
+            return filePath.equals(other.filePath)
+                    && modificationStamp == other.modificationStamp
+                    && Objects.equals(selectedText, other.selectedText)
+                    && relatedSummaries.equals(other.relatedSummaries);
+        }
+    }
+}
@@ -1,21 +1,76 @@
 package com.promptly.plugin.ui;
 
+import com.intellij.icons.AllIcons;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.project.DumbAwareAction;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Key;
 import com.intellij.openapi.wm.ToolWindow;
 import com.intellij.openapi.wm.ToolWindowFactory;
 import com.intellij.ui.content.Content;
 import com.intellij.ui.content.ContentFactory;
+import com.intellij.ui.content.ContentManager;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
 /**
  * Factory for creating the Promptly chat tool window.
+ * Chats are closeable tabs ahead of the Stats and Traces tabs; each has its own conversation.
  */
 public class PrompltyChatToolWindowFactory implements ToolWindowFactory {
+    private static final Key<PromptlyChatPanel> CHAT_PANEL = Key.create("promptly.chatPanel");
+
     @Override
     public void createToolWindowContent(@NotNull Project project, @NotNull ToolWindow toolWindow) {
-        PromptlyChatPanel chatPanel = new PromptlyChatPanel(project, toolWindow);
+        addChat(project, toolWindow);
+
         ContentFactory contentFactory = ContentFactory.getInstance();
-        Content content = contentFactory.createContent(chatPanel.getContent(), "", false);
-        toolWindow.getContentManager().addContent(content);
+        PromptlyStatsPanel statsPanel = new PromptlyStatsPanel(project, toolWindow);
+        Content statsContent = contentFactory.createContent(statsPanel.getContent(), "Stats", false);
+        statsContent.setCloseable(false);
+        toolWindow.getContentManager().addContent(statsContent);
+
+        PromptlyTracesPanel tracesPanel = new PromptlyTracesPanel(project, toolWindow);
+        Content tracesContent = contentFactory.createContent(tracesPanel.getContent(), "Traces", false);
+        tracesContent.setCloseable(false);
+        toolWindow.getContentManager().addContent(tracesContent);
+
+        toolWindow.setTitleActions(List.of(new DumbAwareAction("New Chat", "Open another chat session", AllIcons.General.Add) {
+            @Override
+            public void actionPerformed(@NotNull AnActionEvent e) {
+                addChat(project, toolWindow);
+            }
+        }));
+    }
+
+    /**
+     * Adds a chat tab after the existing ones and selects it.
+     */
+    private static void addChat(Project project, ToolWindow toolWindow) {
+        ContentManager contentManager = toolWindow.getContentManager();
+        Set<String> names = new HashSet<>();
+        int chats = 0;
+        for (Content content : contentManager.getContents()) {
+            if (content.getUserData(CHAT_PANEL) != null) {
+                names.add(content.getDisplayName());
+                chats++;
+            }
+        }
+        String name = "Chat";
+        for (int i = 2; names.contains(name); i++) {
+            name = "Chat " + i;
+        }
+
+        PromptlyChatPanel chatPanel = new PromptlyChatPanel(project, toolWindow);
+        Content content = ContentFactory.getInstance().createContent(chatPanel.getContent(), name, false);
+        content.putUserData(CHAT_PANEL, chatPanel);
+        content.setCloseable(true);
+        // Closing the tab cancels its request and releases its editor
+        content.setDisposer(chatPanel);
+        contentManager.addContent(content, chats);
+        contentManager.setSelectedContent(content);
     }
-} 
\ No newline at end of file
+}
@@ -1,5 +1,6 @@
 package com.promptly.plugin.ui;
 
+import com.intellij.openapi.Disposable;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.editor.Document;
 import com.intellij.openapi.editor.Editor;
@@ -17,48 +18,88 @@ import com.intellij.ui.JBSplitter;
 import com.intellij.ui.components.JBLabel;
 import com.intellij.ui.components.JBPanel;
 import com.intellij.ui.components.JBScrollPane;
+import com.intellij.util.Alarm;
 import com.intellij.util.ui.JBUI;
+import com.intellij.util.ui.UIUtil;
+import com.promptly.plugin.cascade.RequestKind;
+import com.promptly.plugin.context.MinifiedText;
 import com.promptly.plugin.models.ChatMessage;
+import com.promptly.plugin.models.ModelTier;
+import com.promptly.plugin.models.PromptOptions;
 import com.promptly.plugin.models.PromptlySettings;
+import com.promptly.plugin.services.ConversationCompactor;
 import com.promptly.plugin.services.LLMService;
 import com.promptly.plugin.services.SettingsService;
+import com.promptly.plugin.tokenizer.Tokenizer;
+import com.promptly.plugin.tools.ide.IdeToolExecutor;
+import com.promptly.plugin.tools.ide.ProjectTools;
+import com.promptly.plugin.tokenizer.Tokenizers;
+import com.promptly.plugin.tracing.Span;
+import com.promptly.plugin.tracing.Trace;
+import com.promptly.plugin.util.MarkdownUtils;
+import org.jetbrains.annotations.TestOnly;
 
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
+import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Main chat panel for interacting with LLMs.
+ * Each chat tab has its own panel with its own conversation; their requests share the service's connections,
+ * and the client's scheduler lets the tabs take turns when more are pending than can be in flight.
  */
-public class PromptlyChatPanel {
+public class PromptlyChatPanel implements Disposable {
+    private static final AtomicInteger SESSION_IDS = new AtomicInteger();
+
     private final Project project;
+    private final String sessionId = "chat-" + SESSION_IDS.incrementAndGet();
     private final ToolWindow toolWindow;
     private final SimpleToolWindowPanel panel;
     private final List<ChatMessage> chatHistory = new ArrayList<>();
+    private final ConversationCompactor compactor = new ConversationCompactor(chatHistory);
     private final JPanel chatMessagesPanel;
+    private final CodeViewerPool codeViewerPool;
     private Editor inputEditor;
     private JButton sendButton;
     private JButton applyToEditorButton;
     private JButton clearButton;
+    private JButton stopButton;
+    private JBLabel tokenCountLabel;
+    private final Alarm tokenCountAlarm;
+    private final Alarm prepareAlarm;
+    private volatile PreparedContext preparedContext;
     private String lastResponse = "";
+    private CompletableFuture<String> pendingResponse;
+    private MinifiedText lastContext;
+    private String lastPrompt;
+    private boolean disposed;
     
     public PromptlyChatPanel(Project project, ToolWindow toolWindow) {
         this.project = project;
         this.toolWindow = toolWindow;
         this.panel = new SimpleToolWindowPanel(true, true);
+        this.tokenCountAlarm = new Alarm(Alarm.ThreadToUse.POOLED_THREAD, this);
+        this.prepareAlarm = new Alarm(Alarm.ThreadToUse.SWING_THREAD, this);
         
-        chatMessagesPanel = new JPanel();
-        chatMessagesPanel.setLayout(new BoxLayout(chatMessagesPanel, BoxLayout.Y_AXIS));
+        chatMessagesPanel = new TranscriptPanel();
+        codeViewerPool = new CodeViewerPool(project, this);
         
         JBScrollPane scrollPane = new JBScrollPane(chatMessagesPanel);
         scrollPane.setHorizontalScrollBarPolicy(JBScrollPane.HORIZONTAL_SCROLLBAR_NEVER);
         scrollPane.setVerticalScrollBarPolicy(JBScrollPane.VERTICAL_SCROLLBAR_AS_NEEDED);
+        // Code blocks scrolled away give their viewers back to the pool
+        JViewport viewport = scrollPane.getViewport();
+        viewport.addChangeListener(e -> codeViewerPool.scheduleVisibilityUpdate(viewport));
         
         // Initialize the input area
         JPanel inputPanel = createInputPanel();
@@ -80,6 +121,7 @@ public class PromptlyChatPanel {
         
         // Add a system welcome message
         addMessage(new ChatMessage(ChatMessage.Role.SYSTEM, "Welcome to Promptly! How can I assist you with your code today?"));
+        scheduleTokenCountUpdate();
     }
     
     private JPanel createInputPanel() {
@@ -94,6 +136,8 @@ public class PromptlyChatPanel {
             @Override
             public void documentChanged(DocumentEvent event) {
                 updateSendButton();
+                scheduleTokenCountUpdate();
+                schedulePreparation();
             }
         });
         
@@ -101,31 +145,93 @@ public class PromptlyChatPanel {
             @Override
             public void keyPressed(KeyEvent e) {
                 if (e.isControlDown() && e.getKeyCode() == KeyEvent.VK_ENTER) {
-                    sendMessage();
+                    measureEdt(PromptlyChatPanel.this::sendMessage);
                 }
             }
         });
         
+        tokenCountLabel = new JBLabel();
+        tokenCountLabel.setForeground(UIUtil.getContextHelpForeground());
+        tokenCountLabel.setBorder(JBUI.Borders.emptyTop(3));
+        
         inputPanel.add(inputEditor.getComponent(), BorderLayout.CENTER);
+        inputPanel.add(tokenCountLabel, BorderLayout.SOUTH);
         return inputPanel;
     }
     
+    /**
+     * Recounts prompt and conversation tokens off the EDT once typing pauses.
+     * Conversation messages reuse their memoized counts, so only the prompt is re-tokenized.
+     */
+    private void scheduleTokenCountUpdate() {
+        CharSequence prompt = inputEditor.getDocument().getImmutableCharSequence();
+        List<ChatMessage> history = new ArrayList<>(chatHistory);
+        
+        tokenCountAlarm.cancelAllRequests();
+        tokenCountAlarm.addRequest(() -> {
+            PromptlySettings settings = SettingsService.getInstance().getSettings();
+            Tokenizer tokenizer = Tokenizers.forModel(settings.getSelectedProvider(),
+                    settings.getModelName(settings.getSelectedProvider()));
+            int promptTokens = tokenizer.countTokens(prompt);
+            int historyTokens = Tokenizers.countMessages(history, tokenizer);
+            
+            String text = String.format("%,d prompt tokens | %,d in conversation", promptTokens, historyTokens);
+            ApplicationManager.getApplication().invokeLater(() -> tokenCountLabel.setText(text));
+        }, 150);
+    }
+    
+    /**
+     * Once typing pauses, builds the context for the next request in the background and opens a connection to
+     * the provider, so that Send only has to add the prompt. Send checks the prepared context against the editor
+     * again and rebuilds it if the file or selection changed in the meantime.
+     */
+    private void schedulePreparation() {
+        if (inputEditor.getDocument().getTextLength() == 0) {
+            return;
+        }
+        prepareAlarm.cancelAllRequests();
+        prepareAlarm.addRequest(() -> {
+            PromptlySettings settings = SettingsService.getInstance().getSettings();
+            if (!settings.isPrepareWhileTyping()) {
+                return;
+            }
+            PreparedContext.Source source = settings.isSendProjectContext() ? PreparedContext.Source.of(project) : null;
+            PreparedContext prepared = preparedContext;
+            boolean stale = source != null && (prepared == null || !prepared.matches(source, settings.isMinifyContext()));
+            ApplicationManager.getApplication().executeOnPooledThread(() -> {
+                if (stale) {
+                    PreparedContext built = source.build(settings.isMinifyContext());
+                    // Counted now, Send can classify the request without tokenizing the file on the EDT
+                    built.getMessage().getTokenCount(Tokenizers.forModel(settings.getSelectedProvider(),
+                            settings.getModelName(settings.getSelectedProvider())));
+                    preparedContext = built;
+                }
+                LLMService.getInstance().warmUp();
+            });
+        }, 300);
+    }
+    
     private JPanel createButtonPanel() {
         JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
         
         clearButton = new JButton("Clear Chat");
-        clearButton.addActionListener(e -> clearChat());
+        clearButton.addActionListener(e -> measureEdt(this::clearChat));
         
         applyToEditorButton = new JButton("Apply to Editor");
-        applyToEditorButton.addActionListener(e -> applyToEditor());
+        applyToEditorButton.addActionListener(e -> measureEdt(this::applyToEditor));
         applyToEditorButton.setEnabled(false);
         
+        stopButton = new JButton("Stop");
+        stopButton.addActionListener(e -> measureEdt(this::stopResponse));
+        stopButton.setEnabled(false);
+        
         sendButton = new JButton("Send");
-        sendButton.addActionListener(e -> sendMessage());
+        sendButton.addActionListener(e -> measureEdt(this::sendMessage));
         sendButton.setEnabled(false);
         
         buttonPanel.add(clearButton);
         buttonPanel.add(applyToEditorButton);
+        buttonPanel.add(stopButton);
         buttonPanel.add(sendButton);
         
         return buttonPanel;
@@ -133,15 +239,18 @@ public class PromptlyChatPanel {
     
     private void updateSendButton() {
         String text = inputEditor.getDocument().getText();
-        sendButton.setEnabled(!text.trim().isEmpty());
+        sendButton.setEnabled(!text.trim().isEmpty() && pendingResponse == null);
     }
     
-    private void sendMessage() {
+    void sendMessage() {
         String prompt = inputEditor.getDocument().getText().trim();
-        if (prompt.isEmpty()) {
+        if (prompt.isEmpty() || pendingResponse != null) {
             return;
         }
         
+        Trace trace = new Trace("chat");
+        Span submitSpan = trace.begin("submit", Trace.CATEGORY_UI);
+        
         // Add user message to the chat
         ChatMessage userMessage = new ChatMessage(ChatMessage.Role.USER, prompt);
         addMessage(userMessage);
@@ -154,10 +263,18 @@ public class PromptlyChatPanel {
         
         // Prepare context if enabled
         PromptlySettings settings = SettingsService.getInstance().getSettings();
+        ChatMessage contextMessage = null;
         if (settings.isSendProjectContext()) {
-            addContextToMessages();
+            Span contextSpan = trace.begin("gather context", Trace.CATEGORY_CONTEXT);
+            contextMessage = addContextToMessages();
+            contextSpan.end();
         }
         
+        // Simple requests go to the fast model first; asking the same again means its answer was not good enough
+        ModelTier tier = prompt.equals(lastPrompt) ? ModelTier.LARGE
+                : LLMService.getInstance().classify(RequestKind.CHAT, userMessage, contextMessage);
+        lastPrompt = prompt;
+        
         // Show loading indicator
         JPanel loadingPanel = createLoadingPanel();
         chatMessagesPanel.add(loadingPanel);
@@ -165,59 +282,128 @@ public class PromptlyChatPanel {
         chatMessagesPanel.repaint();
         
         // Send to LLM service
-        CompletableFuture<String> responseFuture = LLMService.getInstance().sendPrompt(chatHistory);
-        responseFuture.thenAccept(response -> {
-            // Remove loading indicator
-            chatMessagesPanel.remove(loadingPanel);
-            
-            // Add response to chat
-            ChatMessage assistantMessage = new ChatMessage(ChatMessage.Role.ASSISTANT, response);
-            addMessage(assistantMessage);
-            chatHistory.add(assistantMessage);
-            
-            // Enable "Apply to Editor" button
-            lastResponse = response;
-            applyToEditorButton.setEnabled(true);
-        }).exceptionally(ex -> {
-            // Remove loading indicator
-            chatMessagesPanel.remove(loadingPanel);
-            
+        PromptOptions options = new PromptOptions();
+        options.setTrace(trace);
+        options.setUseSemanticCache(true);
+        options.setSessionId(sessionId);
+        
+        // Providers that stream show the answer as it arrives, in place of the loading indicator
+        MarkdownMessageView replyView = new MarkdownMessageView(codeViewerPool);
+        AtomicBoolean streaming = new AtomicBoolean();
+        options.setStreamListener(chunk -> {
+            if (streaming.compareAndSet(false, true)) {
+                ApplicationManager.getApplication().invokeLater(() -> {
+                    removeLoadingPanel(loadingPanel);
+                    addReply(replyView);
+                }, o -> disposed);
+            }
+            replyView.appendLater(chunk);
+        });
+        List<ChatMessage> conversation = new ArrayList<>(chatHistory);
+        CompletableFuture<String> responseFuture;
+        if (settings.isProjectToolsEnabled() && settings.getSelectedProvider().supportsTools()) {
+            // Let the model look things up in the project instead of guessing
+            options.setTools(ProjectTools.DEFINITIONS);
+            IdeToolExecutor tools = new IdeToolExecutor(project);
+            responseFuture = LLMService.getInstance().sendCascaded(tier, conversation, options,
+                    o -> LLMService.getInstance().sendPromptWithTools(conversation, o, tools));
+        } else {
+            responseFuture = LLMService.getInstance().sendCascaded(tier, conversation, options,
+                    o -> LLMService.getInstance().sendPrompt(conversation, o));
+        }
+        submitSpan.end();
+        pendingResponse = responseFuture;
+        stopButton.setEnabled(true);
+        updateSendButton();
+        responseFuture.whenComplete((response, ex) -> {
+            Span dispatchSpan = trace.begin("wait for EDT", Trace.CATEGORY_UI);
+            ApplicationManager.getApplication().invokeLater(() -> measureEdt(() -> {
+                dispatchSpan.end();
+                Span renderSpan = trace.begin("render response", Trace.CATEGORY_UI);
+                try {
+                    pendingResponse = null;
+                    stopButton.setEnabled(false);
+                    updateSendButton();
+                    showResponse(response, ex, loadingPanel, replyView);
+                } finally {
+                    renderSpan.end();
+                    LLMService.getInstance().getTraceRecorder().finish(trace);
+                }
+            }), o -> disposed);
+        });
+    }
+    
+    private void showResponse(String response, Throwable ex, JPanel loadingPanel, MarkdownMessageView replyView) {
+        // Remove loading indicator
+        removeLoadingPanel(loadingPanel);
+        
+        if (ex instanceof CancellationException) {
+            addMessage(new ChatMessage(ChatMessage.Role.SYSTEM, "Request stopped."));
+            return;
+        }
+        if (ex != null) {
             // Show error message
             ChatMessage errorMessage = new ChatMessage(ChatMessage.Role.SYSTEM, 
                     "Error: " + ex.getMessage());
             addMessage(errorMessage);
-            return null;
-        });
+            return;
+        }
+        
+        // Add response to chat, unless it already streamed in
+        ChatMessage assistantMessage = new ChatMessage(ChatMessage.Role.ASSISTANT, response);
+        if (replyView.getParent() == null) {
+            addReply(replyView);
+        }
+        replyView.finish(response);
+        chatHistory.add(assistantMessage);
+        scheduleTokenCountUpdate();
+        
+        // Condense older turns in the background once the conversation gets long
+        compactor.scheduleIfNeeded();
+        
+        // Enable "Apply to Editor" button
+        lastResponse = response;
+        applyToEditorButton.setEnabled(true);
     }
     
-    private void addContextToMessages() {
-        // Get the current file content
-        Editor selectedTextEditor = FileEditorManager.getInstance(project).getSelectedTextEditor();
-        if (selectedTextEditor != null) {
-            String filePath = FileEditorManager.getInstance(project).getSelectedEditor().getFile().getPath();
-            String fileContent = selectedTextEditor.getDocument().getText();
-            String selectedText = selectedTextEditor.getSelectionModel().getSelectedText();
-            
-            StringBuilder contextBuilder = new StringBuilder();
-            contextBuilder.append("CONTEXT:\n");
-            contextBuilder.append("File: ").append(filePath).append("\n");
-            
-            if (selectedText != null && !selectedText.isEmpty()) {
-                contextBuilder.append("Selected code:\n```\n").append(selectedText).append("\n```\n");
-            } else {
-                contextBuilder.append("File content:\n```\n").append(fileContent).append("\n```\n");
+    /**
+     * Cancels this tab's request in flight; other tabs are unaffected.
+     */
+    private void stopResponse() {
+        if (pendingResponse != null) {
+            pendingResponse.cancel(true);
+        }
+    }
+    
+    private ChatMessage addContextToMessages() {
+        // Snapshot the current file; reuse the context prepared while typing if the file has not changed since
+        PreparedContext.Source source = PreparedContext.Source.of(project);
+        if (source != null) {
+            boolean minify = SettingsService.getInstance().getSettings().isMinifyContext();
+            PreparedContext prepared = preparedContext;
+            if (prepared == null || !prepared.matches(source, minify)) {
+                prepared = source.build(minify);
+                preparedContext = prepared;
+            }
+            lastContext = prepared.getMinified();
+            if (lastContext != null) {
+                LLMService.getInstance().reportMinification(lastContext);
             }
             
-            ChatMessage contextMessage = new ChatMessage(ChatMessage.Role.SYSTEM, contextBuilder.toString());
-            chatHistory.add(contextMessage);
+            chatHistory.add(prepared.getMessage());
+            return prepared.getMessage();
         }
+        return null;
     }
     
-    private void clearChat() {
+    void clearChat() {
         chatHistory.clear();
+        stopLoadingTimers();
+        codeViewerPool.releaseAll();
         chatMessagesPanel.removeAll();
         chatMessagesPanel.revalidate();
         chatMessagesPanel.repaint();
+        scheduleTokenCountUpdate();
         
         // Add a system welcome message
         addMessage(new ChatMessage(ChatMessage.Role.SYSTEM, "Chat cleared. How can I assist you with your code today?"));
@@ -231,7 +417,9 @@ public class PromptlyChatPanel {
         Editor selectedTextEditor = FileEditorManager.getInstance(project).getSelectedTextEditor();
         if (selectedTextEditor != null) {
             // Extract code blocks from markdown: look for ```[language] ... ``` patterns
-            String codeToInsert = extractCodeFromMarkdown(lastResponse);
+            String extracted = MarkdownUtils.extractCodeFromMarkdown(lastResponse);
+            // Answers may copy the narrowed indentation of a minified context
+            String codeToInsert = lastContext != null ? lastContext.restoreIndentation(extracted) : extracted;
             
             // Insert at current cursor position
             int offset = selectedTextEditor.getCaretModel().getOffset();
@@ -241,32 +429,6 @@ public class PromptlyChatPanel {
         }
     }
     
-    private String extractCodeFromMarkdown(String markdown) {
-        // Simple extraction - find code blocks between ``` markers
-        StringBuilder result = new StringBuilder();
-        
-        int codeBlockStart = markdown.indexOf("```");
-        while (codeBlockStart != -1) {
-            // Find the end of the opening ``` line
-            int lineEnd = markdown.indexOf('\n', codeBlockStart);
-            if (lineEnd == -1) break;
-            
-            // Find the closing ```
-            int codeBlockEnd = markdown.indexOf("```", lineEnd);
-            if (codeBlockEnd == -1) break;
-            
-            // Extract the code (without the backticks and language identifier)
-            String code = markdown.substring(lineEnd + 1, codeBlockEnd).trim();
-            result.append(code).append("\n\n");
-            
-            // Continue search for more code blocks
-            codeBlockStart = markdown.indexOf("```", codeBlockEnd + 3);
-        }
-        
-        // If no code blocks found, return the original text
-        return result.length() > 0 ? result.toString() : markdown;
-    }
-    
     private JPanel createLoadingPanel() {
         JPanel loadingPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
         loadingPanel.setBorder(JBUI.Borders.empty(5));
@@ -294,18 +456,58 @@ public class PromptlyChatPanel {
         return loadingPanel;
     }
     
+    private void removeLoadingPanel(JPanel loadingPanel) {
+        stopTimer(loadingPanel);
+        chatMessagesPanel.remove(loadingPanel);
+    }
+    
+    /**
+     * Stops the animation of every loading indicator still shown. A running Swing timer is referenced from
+     * the shared timer queue, so one left running keeps its label and the whole chat panel reachable.
+     */
+    private void stopLoadingTimers() {
+        for (Component component : chatMessagesPanel.getComponents()) {
+            if (component instanceof JComponent) {
+                stopTimer((JComponent) component);
+            }
+        }
+    }
+    
+    private static void stopTimer(JComponent loadingPanel) {
+        if (loadingPanel.getClientProperty("timer") instanceof Timer) {
+            ((Timer) loadingPanel.getClientProperty("timer")).stop();
+            loadingPanel.putClientProperty("timer", null);
+        }
+    }
+    
     private void addMessage(ChatMessage message) {
+        // Message content
+        JTextArea contentArea = new JTextArea(message.getContent());
+        contentArea.setWrapStyleWord(true);
+        contentArea.setLineWrap(true);
+        contentArea.setEditable(false);
+        contentArea.setOpaque(false);
+        addMessagePanel(message.getRole(), message.getTimestamp(), contentArea);
+    }
+    
+    /**
+     * Adds an assistant message rendered as markdown; it may still be streaming in.
+     */
+    private void addReply(MarkdownMessageView replyView) {
+        addMessagePanel(ChatMessage.Role.ASSISTANT, LocalDateTime.now(), replyView);
+    }
+    
+    private void addMessagePanel(ChatMessage.Role role, LocalDateTime timestamp, JComponent content) {
         JPanel messagePanel = new JPanel(new BorderLayout());
         messagePanel.setBorder(JBUI.Borders.empty(10));
         
         // Role label with timestamp
         DateTimeFormatter formatter = DateTimeFormatter.ofPattern("HH:mm:ss");
-        JBLabel roleLabel = new JBLabel(message.getRole().getDisplayName() + 
-                " [" + formatter.format(message.getTimestamp()) + "]");
+        JBLabel roleLabel = new JBLabel(role.getDisplayName() + " [" + formatter.format(timestamp) + "]");
         roleLabel.setFont(roleLabel.getFont().deriveFont(Font.BOLD));
         
         // Style based on role
-        switch (message.getRole()) {
+        switch (role) {
             case USER:
                 messagePanel.setBackground(JBUI.CurrentTheme.Editor.selectedText());
                 break;
@@ -320,25 +522,9 @@ public class PromptlyChatPanel {
         
         messagePanel.add(roleLabel, BorderLayout.NORTH);
         
-        // Message content
-        JTextArea contentArea = new JTextArea(message.getContent());
-        contentArea.setWrapStyleWord(true);
-        contentArea.setLineWrap(true);
-        contentArea.setEditable(false);
-        contentArea.setOpaque(false);
-        contentArea.setBorder(JBUI.Borders.empty(5, 0, 0, 0));
-        
-        // For non-system messages, use a scroll pane to handle long content
-        if (message.getRole() != ChatMessage.Role.SYSTEM) {
-            JBScrollPane contentScrollPane = new JBScrollPane(contentArea);
-            contentScrollPane.setBorder(null);
-            contentScrollPane.setOpaque(false);
-            contentScrollPane.getViewport().setOpaque(false);
-            contentScrollPane.setPreferredSize(new Dimension(0, 200));
-            messagePanel.add(contentScrollPane, BorderLayout.CENTER);
-        } else {
-            messagePanel.add(contentArea, BorderLayout.CENTER);
-        }
+        // Messages grow to their full height; the transcript scrolls as a whole
+        content.setBorder(JBUI.Borders.empty(5, 0, 0, 0));
+        messagePanel.add(content, BorderLayout.CENTER);
         
         chatMessagesPanel.add(messagePanel);
         chatMessagesPanel.revalidate();
@@ -351,7 +537,66 @@ public class PromptlyChatPanel {
         });
     }
     
+    /**
+     * Runs EDT work and accounts its duration in the plugin's EDT-time statistics.
+     */
+    private static void measureEdt(Runnable task) {
+        LLMService.getInstance().getMetrics().measureEdt(task);
+    }
+    
     public JComponent getContent() {
         return panel;
     }
+    
+    @TestOnly
+    Editor getInputEditor() {
+        return inputEditor;
+    }
+    
+    @TestOnly
+    boolean isResponsePending() {
+        return pendingResponse != null;
+    }
+    
+    /**
+     * Lays messages out top to bottom at the width of the viewport, so text wraps instead of scrolling sideways.
+     */
+    private static final class TranscriptPanel extends JPanel implements Scrollable {
+        TranscriptPanel() {
+            setLayout(new BoxLayout(this, BoxLayout.Y_AXIS));
+        }
+        
+        @Override
+        public Dimension getPreferredScrollableViewportSize() {
+            return getPreferredSize();
+        }
+        
+        @Override
+        public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation, int direction) {
+            return JBUI.scale(16);
+        }
+        
+        @Override
+        public int getScrollableBlockIncrement(Rectangle visibleRect, int orientation, int direction) {
+            return orientation == SwingConstants.VERTICAL ? visibleRect.height : visibleRect.width;
+        }
+        
+        @Override
+        public boolean getScrollableTracksViewportWidth() {
+            return true;
+        }
+        
+        @Override
+        public boolean getScrollableTracksViewportHeight() {
+            return false;
+        }
+    }
+    
+    @Override
+    public void dispose() {
+        disposed = true;
+        stopResponse();
+        stopLoadingTimers();
+        EditorFactory.getInstance().releaseEditor(inputEditor);
+    }
 } 
\ No newline at end of file
@@ -0,0 +1,220 @@
+package com.promptly.plugin.ui;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.fileChooser.FileChooserFactory;
+import com.intellij.openapi.fileChooser.FileSaverDescriptor;
+import com.intellij.openapi.ide.CopyPasteManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.Messages;
+import com.intellij.openapi.ui.SimpleToolWindowPanel;
+import com.intellij.openapi.util.Disposer;
+import com.intellij.openapi.vfs.VirtualFileWrapper;
+import com.intellij.openapi.wm.ToolWindow;
+import com.intellij.ui.components.JBLabel;
+import com.intellij.ui.components.JBScrollPane;
+import com.intellij.ui.table.JBTable;
+import com.intellij.util.ui.JBUI;
+import com.promptly.plugin.metrics.LatencyHistogram;
+import com.promptly.plugin.metrics.MetricsRegistry;
+import com.promptly.plugin.metrics.ModelMetrics;
+import com.promptly.plugin.metrics.TierMetrics;
+import com.promptly.plugin.models.ModelTier;
+import com.promptly.plugin.services.LLMService;
+
+import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
+import java.awt.*;
+import java.awt.datatransfer.StringSelection;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.function.Supplier;
+
+/**
+ * "Stats" tab of the Promptly tool window: request latency and throughput per provider and model.
+ */
+public class PromptlyStatsPanel implements Disposable {
+    private static final int REFRESH_INTERVAL_MS = 2000;
+    private static final String[] COLUMNS = {
+            "Provider", "Model", "Requests", "Errors", "Cancelled", "Cache hits",
+            "Queue p50/p95", "TTFB p50/p95", "Total p50/p95/p99", "Tokens/s p50", "Request size p50"
+    };
+
+    private final Project project;
+    private final SimpleToolWindowPanel panel;
+    private final DefaultTableModel tableModel;
+    private final JBLabel edtLabel;
+    private final JBLabel minificationLabel;
+    private final JBLabel cascadeLabel;
+    private final Timer refreshTimer;
+
+    public PromptlyStatsPanel(Project project, ToolWindow toolWindow) {
+        this.project = project;
+        this.panel = new SimpleToolWindowPanel(true, true);
+
+        tableModel = new DefaultTableModel(COLUMNS, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+        JBTable table = new JBTable(tableModel);
+        table.setAutoResizeMode(JTable.AUTO_RESIZE_OFF);
+
+        edtLabel = new JBLabel();
+        edtLabel.setBorder(JBUI.Borders.empty(5));
+        minificationLabel = new JBLabel();
+        minificationLabel.setBorder(JBUI.Borders.empty(0, 5, 5, 5));
+        cascadeLabel = new JBLabel();
+        cascadeLabel.setBorder(JBUI.Borders.empty(0, 5, 5, 5));
+
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        JButton resetButton = new JButton("Reset");
+        resetButton.addActionListener(e -> {
+            metrics().reset();
+            refresh();
+        });
+        JButton copyJsonButton = new JButton("Copy JSON");
+        copyJsonButton.addActionListener(e -> copy(metrics().exportJson()));
+        JButton copyPrometheusButton = new JButton("Copy Prometheus");
+        copyPrometheusButton.addActionListener(e -> copy(metrics().exportPrometheus()));
+        JButton exportButton = new JButton("Export...");
+        exportButton.addActionListener(e -> export());
+        buttonPanel.add(resetButton);
+        buttonPanel.add(copyJsonButton);
+        buttonPanel.add(copyPrometheusButton);
+        buttonPanel.add(exportButton);
+
+        JPanel bottomPanel = new JPanel(new BorderLayout());
+        JPanel labels = new JPanel(new BorderLayout());
+        labels.add(edtLabel, BorderLayout.NORTH);
+        labels.add(minificationLabel, BorderLayout.CENTER);
+        labels.add(cascadeLabel, BorderLayout.SOUTH);
+        bottomPanel.add(labels, BorderLayout.CENTER);
+        bottomPanel.add(buttonPanel, BorderLayout.SOUTH);
+
+        JPanel content = new JPanel(new BorderLayout());
+        content.add(new JBScrollPane(table), BorderLayout.CENTER);
+        content.add(bottomPanel, BorderLayout.SOUTH);
+        panel.setContent(content);
+
+        // Only refresh while the panel is on screen
+        refreshTimer = new Timer(REFRESH_INTERVAL_MS, e -> {
+            if (panel.isShowing()) {
+                refresh();
+            }
+        });
+        refreshTimer.start();
+        Disposer.register(toolWindow.getDisposable(), this);
+
+        refresh();
+    }
+
+    private static MetricsRegistry metrics() {
+        return LLMService.getInstance().getMetrics();
+    }
+
+    private void refresh() {
+        tableModel.setRowCount(0);
+        for (ModelMetrics model : metrics().getModels()) {
+            tableModel.addRow(new Object[]{
+                    model.getProvider().getDisplayName(),
+                    model.getModel(),
+                    model.getRequests(),
+                    String.format("%d (%.1f%%)", model.getErrors(), model.getErrorRate() * 100),
+                    model.getCancellations(),
+                    String.format("%.1f%%", model.getCacheHitRate() * 100),
+                    durations(model.getQueueWait(), 50, 95),
+                    durations(model.getTimeToFirstByte(), 50, 95),
+                    durations(model.getTotalLatency(), 50, 95, 99),
+                    model.getTokensPerSecond().getValueAtPercentile(50),
+                    bytes(model.getRequestBytes().getValueAtPercentile(50))
+            });
+        }
+
+        LatencyHistogram edt = metrics().getEdtTime();
+        edtLabel.setText(String.format("Plugin EDT time: %d tasks, p50 %s, p99 %s, max %s, total %s",
+                edt.getCount(),
+                millis(edt.getValueAtPercentile(50)),
+                millis(edt.getValueAtPercentile(99)),
+                millis(edt.getMax()),
+                millis(edt.getSum())));
+        minificationLabel.setText(String.format("Context minification: %d contexts, %,d -> %,d tokens (%.1f%% saved)",
+                metrics().getMinifiedContexts(),
+                metrics().getContextTokensBefore(),
+                metrics().getContextTokensAfter(),
+                metrics().getContextTokenSavings() * 100)
+                + String.format(" | Request compression: %d requests, %s -> %s (%.1fx)",
+                metrics().getCompressedRequests(),
+                bytes(metrics().getUncompressedBytes()),
+                bytes(metrics().getCompressedBytes()),
+                metrics().getCompressionRatio()));
+
+        StringBuilder cascade = new StringBuilder("Model cascade:");
+        for (ModelTier tier : ModelTier.values()) {
+            TierMetrics stats = metrics().forTier(tier);
+            cascade.append(String.format(" %s %d requests, p50 %s, %,d in / %,d out tokens, %.0f%% escalated;",
+                    tier.getDisplayName(), stats.getRequests(), millis(stats.getLatency().getValueAtPercentile(50)),
+                    stats.getInputTokens(), stats.getOutputTokens(), stats.getEscalationRate() * 100));
+        }
+        cascadeLabel.setText(cascade.substring(0, cascade.length() - 1));
+    }
+
+    private void copy(String text) {
+        CopyPasteManager.getInstance().setContents(new StringSelection(text));
+    }
+
+    private void export() {
+        FileSaverDescriptor descriptor = new FileSaverDescriptor(
+                "Export Promptly Statistics", "Save as JSON (.json) or Prometheus text (.prom)", "json", "prom");
+        VirtualFileWrapper target = FileChooserFactory.getInstance()
+                .createSaveFileDialog(descriptor, project)
+                .save("promptly-stats.json");
+        if (target == null) {
+            return;
+        }
+
+        Supplier<String> exporter = target.getFile().getName().endsWith(".prom")
+                ? metrics()::exportPrometheus
+                : metrics()::exportJson;
+        try {
+            Files.writeString(target.getFile().toPath(), exporter.get(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            Messages.showErrorDialog(project, "Failed to export statistics: " + e.getMessage(), "Promptly Error");
+        }
+    }
+
+    private static String durations(LatencyHistogram histogram, double... percentiles) {
+        if (histogram.getCount() == 0) {
+            return "-";
+        }
+        StringBuilder sb = new StringBuilder();
+        for (double percentile : percentiles) {
+            if (sb.length() > 0) {
+                sb.append(" / ");
+            }
+            sb.append(millis(histogram.getValueAtPercentile(percentile)));
+        }
+        return sb.toString();
+    }
+
+    private static String millis(long micros) {
+        return micros >= 10_000 ? (micros / 1000) + " ms" : String.format("%.1f ms", micros / 1000.0);
+    }
+
+    private static String bytes(long bytes) {
+        if (bytes >= 1024 * 1024) {
+            return String.format("%.1f MB", bytes / (1024.0 * 1024));
+        }
+        return bytes >= 1024 ? String.format("%.1f KB", bytes / 1024.0) : bytes + " B";
+    }
+
+    @Override
+    public void dispose() {
+        refreshTimer.stop();
+    }
+
+    public JComponent getContent() {
+        return panel;
+    }
+}
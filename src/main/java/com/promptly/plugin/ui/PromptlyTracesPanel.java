@@ -0,0 +1,128 @@
+package com.promptly.plugin.ui;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.fileChooser.FileChooserFactory;
+import com.intellij.openapi.fileChooser.FileSaverDescriptor;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.Messages;
+import com.intellij.openapi.ui.SimpleToolWindowPanel;
+import com.intellij.openapi.util.Disposer;
+import com.intellij.openapi.vfs.VirtualFileWrapper;
+import com.intellij.openapi.wm.ToolWindow;
+import com.intellij.ui.JBSplitter;
+import com.intellij.ui.SimpleListCellRenderer;
+import com.intellij.ui.components.JBList;
+import com.intellij.ui.components.JBScrollPane;
+import com.promptly.plugin.services.LLMService;
+import com.promptly.plugin.tracing.Trace;
+import com.promptly.plugin.tracing.TraceRecorder;
+
+import javax.swing.*;
+import java.awt.*;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * "Traces" tab of the Promptly tool window: recent requests and a timeline of their phases.
+ */
+public class PromptlyTracesPanel implements Disposable {
+    private static final int REFRESH_INTERVAL_MS = 1000;
+
+    private final Project project;
+    private final SimpleToolWindowPanel panel;
+    private final DefaultListModel<Trace> listModel = new DefaultListModel<>();
+    private final JBList<Trace> traceList = new JBList<>(listModel);
+    private final TraceTimelineComponent timeline = new TraceTimelineComponent();
+    private final Timer refreshTimer;
+
+    public PromptlyTracesPanel(Project project, ToolWindow toolWindow) {
+        this.project = project;
+        this.panel = new SimpleToolWindowPanel(true, true);
+
+        SimpleDateFormat timeFormat = new SimpleDateFormat("HH:mm:ss");
+        traceList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        traceList.setCellRenderer(SimpleListCellRenderer.create("", trace -> String.format("%s  %s  %.0f ms",
+                timeFormat.format(new Date(trace.getStartEpochMillis())),
+                trace.getLabel(),
+                trace.getDurationNanos() / 1e6)));
+        traceList.addListSelectionListener(e -> timeline.setTrace(traceList.getSelectedValue()));
+
+        JBSplitter splitter = new JBSplitter(false, 0.3f);
+        splitter.setFirstComponent(new JBScrollPane(traceList));
+        splitter.setSecondComponent(new JBScrollPane(timeline));
+
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        JButton clearButton = new JButton("Clear");
+        clearButton.addActionListener(e -> {
+            recorder().clear();
+            refresh();
+        });
+        JButton saveButton = new JButton("Save Trace...");
+        saveButton.addActionListener(e -> save());
+        buttonPanel.add(clearButton);
+        buttonPanel.add(saveButton);
+
+        JPanel content = new JPanel(new BorderLayout());
+        content.add(splitter, BorderLayout.CENTER);
+        content.add(buttonPanel, BorderLayout.SOUTH);
+        panel.setContent(content);
+
+        refreshTimer = new Timer(REFRESH_INTERVAL_MS, e -> {
+            if (panel.isShowing()) {
+                refresh();
+            }
+        });
+        refreshTimer.start();
+        Disposer.register(toolWindow.getDisposable(), this);
+
+        refresh();
+    }
+
+    private static TraceRecorder recorder() {
+        return LLMService.getInstance().getTraceRecorder();
+    }
+
+    private void refresh() {
+        List<Trace> traces = recorder().getTraces();
+        if (traces.size() == listModel.size() && (traces.isEmpty() || traces.get(0) == listModel.get(0))) {
+            return;
+        }
+
+        Trace selected = traceList.getSelectedValue();
+        listModel.clear();
+        listModel.addAll(traces);
+        if (selected != null && traces.contains(selected)) {
+            traceList.setSelectedValue(selected, false);
+        } else {
+            timeline.setTrace(null);
+        }
+    }
+
+    private void save() {
+        FileSaverDescriptor descriptor = new FileSaverDescriptor(
+                "Save Promptly Traces", "Chrome Trace Event Format, opens in chrome://tracing or Perfetto", "json");
+        VirtualFileWrapper target = FileChooserFactory.getInstance()
+                .createSaveFileDialog(descriptor, project)
+                .save("promptly-trace.json");
+        if (target == null) {
+            return;
+        }
+
+        try {
+            recorder().dump(target.getFile().toPath());
+        } catch (IOException e) {
+            Messages.showErrorDialog(project, "Failed to save traces: " + e.getMessage(), "Promptly Error");
+        }
+    }
+
+    @Override
+    public void dispose() {
+        refreshTimer.stop();
+    }
+
+    public JComponent getContent() {
+        return panel;
+    }
+}
@@ -0,0 +1,101 @@
+package com.promptly.plugin.ui;
+
+import com.intellij.ui.JBColor;
+import com.intellij.util.ui.JBUI;
+import com.intellij.util.ui.UIUtil;
+import com.promptly.plugin.tracing.Span;
+import com.promptly.plugin.tracing.Trace;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Paints the spans of one trace as a timeline, one row per span in start order.
+ */
+class TraceTimelineComponent extends JComponent {
+    private static final int ROW_HEIGHT = 20;
+    private static final int LABEL_WIDTH = 180;
+    private static final Map<String, Color> CATEGORY_COLORS = Map.of(
+            Trace.CATEGORY_UI, new JBColor(new Color(0x7CB342), new Color(0x558B2F)),
+            Trace.CATEGORY_CONTEXT, new JBColor(new Color(0xFFB300), new Color(0xC68400)),
+            Trace.CATEGORY_CODEC, new JBColor(new Color(0xAB47BC), new Color(0x7B1FA2)),
+            Trace.CATEGORY_NETWORK, new JBColor(new Color(0x42A5F5), new Color(0x1976D2))
+    );
+    private static final Color DEFAULT_COLOR = JBColor.GRAY;
+
+    private Trace trace;
+    private List<Span> spans = List.of();
+
+    void setTrace(Trace trace) {
+        this.trace = trace;
+        this.spans = trace == null ? List.of() : trace.getSpans();
+        if (trace != null) {
+            spans.sort(Comparator.comparingLong(Span::getStartNanos));
+        }
+        revalidate();
+        repaint();
+    }
+
+    @Override
+    public Dimension getPreferredSize() {
+        return new Dimension(JBUI.scale(LABEL_WIDTH + 300), JBUI.scale(ROW_HEIGHT) * (spans.size() + 1));
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        super.paintComponent(g);
+        Graphics2D g2 = (Graphics2D) g.create();
+        try {
+            UIUtil.applyRenderingHints(g2);
+            g2.setColor(UIUtil.getPanelBackground());
+            g2.fillRect(0, 0, getWidth(), getHeight());
+            if (trace == null) {
+                return;
+            }
+
+            int rowHeight = JBUI.scale(ROW_HEIGHT);
+            int labelWidth = JBUI.scale(LABEL_WIDTH);
+            int barWidth = Math.max(1, getWidth() - labelWidth - JBUI.scale(10));
+            long origin = trace.getStartNanos();
+            double nanosPerPixel = Math.max(1, trace.getDurationNanos()) / (double) barWidth;
+            FontMetrics metrics = g2.getFontMetrics();
+
+            g2.setColor(UIUtil.getLabelForeground());
+            g2.drawString(String.format("Total %.1f ms", trace.getDurationNanos() / 1e6), JBUI.scale(4),
+                    rowHeight - metrics.getDescent() - JBUI.scale(3));
+
+            for (int i = 0; i < spans.size(); i++) {
+                Span span = spans.get(i);
+                int y = rowHeight * (i + 1);
+                long end = span.getEndNanos() == 0 ? origin + trace.getDurationNanos() : span.getEndNanos();
+
+                int x = labelWidth + (int) ((span.getStartNanos() - origin) / nanosPerPixel);
+                int width = Math.max(2, (int) ((end - span.getStartNanos()) / nanosPerPixel));
+                g2.setColor(CATEGORY_COLORS.getOrDefault(span.getCategory(), DEFAULT_COLOR));
+                g2.fillRect(x, y + JBUI.scale(3), width, rowHeight - JBUI.scale(6));
+
+                g2.setColor(UIUtil.getLabelForeground());
+                String label = String.format("%s  %.1f ms", span.getName(), (end - span.getStartNanos()) / 1e6);
+                g2.drawString(truncate(label, metrics, labelWidth - JBUI.scale(8)), JBUI.scale(4),
+                        y + rowHeight - metrics.getDescent() - JBUI.scale(3));
+            }
+        } finally {
+            g2.dispose();
+        }
+    }
+
+    private static String truncate(String text, FontMetrics metrics, int width) {
+        if (metrics.stringWidth(text) <= width) {
+            return text;
+        }
+        String ellipsis = "...";
+        int end = text.length();
+        while (end > 0 && metrics.stringWidth(text.substring(0, end) + ellipsis) > width) {
+            end--;
+        }
+        return text.substring(0, end) + ellipsis;
+    }
+}
@@ -0,0 +1,127 @@
+package com.promptly.plugin.loadtest;
+
+import com.promptly.plugin.batch.BatchRecord;
+import com.promptly.plugin.batch.BatchRequest;
+import com.promptly.plugin.batch.BatchResult;
+import com.promptly.plugin.batch.BatchStore;
+import com.promptly.plugin.client.BatchTransport;
+import com.promptly.plugin.client.LLMClient;
+import com.promptly.plugin.models.ChatMessage;
+import com.promptly.plugin.models.LLMProvider;
+import com.promptly.plugin.models.PromptlySettings;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs the {@link BatchTransport} against the batch APIs of the {@link MockLlmServer}.
+ */
+public class BatchProtocolTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final MockLlmServer.Behavior behavior = new MockLlmServer.Behavior();
+    private final MockLlmServer server = new MockLlmServer(behavior);
+    private final LLMClient client = new LLMClient();
+    private BatchTransport transport;
+
+    @Before
+    public void setUp() throws Exception {
+        behavior.batchCompletionMillis = 200;
+        behavior.responseChars = 100;
+        server.start();
+        transport = new BatchTransport(client, new BatchStore(folder.getRoot().toPath()), Duration.ofMillis(20));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        transport.shutdown();
+        client.shutdown();
+        server.close();
+    }
+
+    @Test
+    public void openAiBatchReturnsEveryResultInOrder() throws Exception {
+        assertRoundTrip(LLMProvider.OPENAI);
+    }
+
+    @Test
+    public void anthropicBatchReturnsEveryResultInOrder() throws Exception {
+        assertRoundTrip(LLMProvider.ANTHROPIC);
+    }
+
+    @Test
+    public void finishedJobsAreResumedFromTheStore() throws Exception {
+        transport.submit(requests(3), settings(LLMProvider.OPENAI)).get(30, TimeUnit.SECONDS);
+        int requestsBefore = server.getRequestCount();
+        String id = transport.getStore().list().get(0).getId();
+
+        List<BatchResult> resumed = transport.resume(id, settings(LLMProvider.OPENAI)).get(30, TimeUnit.SECONDS);
+
+        assertEquals(3, resumed.size());
+        assertEquals(requestsBefore, server.getRequestCount());
+    }
+
+    @Test
+    public void cancellingStopsPolling() throws Exception {
+        behavior.batchCompletionMillis = 60_000;
+        CompletableFuture<List<BatchResult>> results = transport.submit(requests(2), settings(LLMProvider.ANTHROPIC));
+        long deadline = System.currentTimeMillis() + 30_000;
+        while (transport.getStore().list().isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Thread.sleep(100);
+
+        results.cancel(true);
+        Thread.sleep(100);
+        int requestsAfterCancel = server.getRequestCount();
+        Thread.sleep(300);
+
+        assertEquals(requestsAfterCancel, server.getRequestCount());
+        List<BatchRecord> unfinished = transport.unfinished();
+        assertEquals(1, unfinished.size());
+    }
+
+    private void assertRoundTrip(LLMProvider provider) throws Exception {
+        List<BatchResult> results = transport.submit(requests(5), settings(provider)).get(30, TimeUnit.SECONDS);
+
+        assertEquals(5, results.size());
+        for (int i = 0; i < results.size(); i++) {
+            BatchResult result = results.get(i);
+            assertEquals("request-" + i, result.getId());
+            assertEquals("src/File" + i + ".java", result.getSource());
+            assertTrue(result.getError(), result.isSuccess());
+            assertTrue(!result.getText().isEmpty());
+        }
+        assertEquals(5, server.getBatchedRequestCount());
+        assertTrue(transport.unfinished().isEmpty());
+    }
+
+    private PromptlySettings settings(LLMProvider provider) {
+        PromptlySettings settings = new PromptlySettings();
+        settings.setSelectedProvider(provider);
+        settings.setEndpoint(provider, server.endpoint(provider));
+        settings.setApiKey(provider, "test");
+        return settings;
+    }
+
+    private static List<BatchRequest> requests(int count) {
+        List<BatchRequest> requests = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            requests.add(new BatchRequest("request-" + i, "src/File" + i + ".java",
+                    List.of(new ChatMessage(ChatMessage.Role.USER, "Document File" + i)), null, null));
+        }
+        return requests;
+    }
+}
@@ -0,0 +1,276 @@
+package com.promptly.plugin.ui;
+
+import com.intellij.openapi.application.WriteAction;
+import com.intellij.openapi.editor.EditorFactory;
+import com.intellij.openapi.ui.TestDialog;
+import com.intellij.openapi.ui.TestDialogManager;
+import com.intellij.openapi.ui.TestInputDialog;
+import com.intellij.openapi.util.Disposer;
+import com.intellij.openapi.wm.impl.ToolWindowHeadlessManagerImpl;
+import com.intellij.testFramework.EdtTestUtil;
+import com.intellij.testFramework.fixtures.BasePlatformTestCase;
+import com.promptly.plugin.actions.GenerateCodeAction;
+import com.promptly.plugin.loadtest.MockLlmServer;
+import com.promptly.plugin.metrics.LatencyHistogram;
+import com.promptly.plugin.models.LLMProvider;
+import com.promptly.plugin.models.PromptlySettings;
+import com.promptly.plugin.services.SettingsService;
+
+import javax.swing.*;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Long-session soak test: runs thousands of chat, clear and generate-code cycles against the local mock
+ * provider and fails if retained heap, live Swing timers, open editors, threads or EDT latency keep growing.
+ * <p>
+ * Excluded from {@code test}; run with {@code ./gradlew soakTest -PsoakCycles=5000}.
+ */
+public class PromptlySoakTest extends BasePlatformTestCase {
+    private static final int CYCLES = Integer.getInteger("promptly.soak.cycles", 2000);
+    private static final int SAMPLES = 10;
+    private static final int CLEAR_EVERY = 20;
+    private static final int NEW_TAB_EVERY = 100;
+    private static final long WAIT_TIMEOUT_MILLIS = 30_000;
+    private static final String SOURCE = "class Cycle {\n    <selection>int answer() {\n        return 42;\n    }</selection>\n}\n";
+
+    private MockLlmServer server;
+    private PromptlySettings originalSettings;
+    private PromptlyChatPanel panel;
+    private volatile LatencyHistogram edtLatency = new LatencyHistogram(60_000_000);
+    private volatile boolean probing;
+
+    @Override
+    protected boolean runInDispatchThread() {
+        // The EDT has to keep dispatching while the test waits for responses and probes its latency
+        return false;
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        MockLlmServer.Behavior behavior = new MockLlmServer.Behavior();
+        behavior.timeToFirstByteMillis = 0;
+        behavior.responseChars = 400;
+        server = new MockLlmServer(behavior);
+        server.start();
+
+        originalSettings = SettingsService.getInstance().getEditableSettings();
+        PromptlySettings settings = SettingsService.getInstance().getEditableSettings();
+        settings.setSelectedProvider(LLMProvider.OPENAI);
+        settings.setEndpoint(LLMProvider.OPENAI, server.endpoint(LLMProvider.OPENAI));
+        settings.setApiKey(LLMProvider.OPENAI, "soak-test");
+        settings.setGenerationCandidates(1); // The candidate chooser popup needs a user
+        SettingsService.getInstance().saveSettings(settings);
+
+        TestDialogManager.setTestDialog(TestDialog.OK);
+        TestDialogManager.setTestInputDialog(message -> "Make it shorter");
+        EdtTestUtil.runInEdtAndWait(() -> panel = newPanel());
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        try {
+            probing = false;
+            EdtTestUtil.runInEdtAndWait(() -> Disposer.dispose(panel));
+            TestDialogManager.setTestDialog(TestDialog.DEFAULT);
+            TestDialogManager.setTestInputDialog(TestInputDialog.DEFAULT);
+            SettingsService.getInstance().saveSettings(originalSettings);
+            server.close();
+        } catch (Throwable e) {
+            addSuppressedException(e);
+        } finally {
+            super.tearDown();
+        }
+    }
+
+    public void testLongSessionStaysBounded() throws Exception {
+        startEdtProbe();
+        int sampleEvery = Math.max(1, CYCLES / SAMPLES);
+        List<Sample> samples = new ArrayList<>();
+
+        for (int cycle = 1; cycle <= CYCLES; cycle++) {
+            chat(cycle);
+            if (cycle % CLEAR_EVERY == 0) {
+                EdtTestUtil.runInEdtAndWait(() -> panel.clearChat());
+            }
+            if (cycle % NEW_TAB_EVERY == 0) {
+                // Closing a tab and opening another must release its editor and timers
+                EdtTestUtil.runInEdtAndWait(() -> {
+                    Disposer.dispose(panel);
+                    panel = newPanel();
+                });
+            }
+            generateCode();
+
+            if (cycle % sampleEvery == 0) {
+                samples.add(sample(cycle));
+            }
+        }
+
+        // The first window warms up the JIT, thread pools and connection pool; compare against the second
+        assertTrue("Too few cycles to compare, got " + samples.size() + " samples", samples.size() >= 3);
+        List<Sample> measured = samples.subList(1, samples.size());
+        Sample baseline = measured.get(0);
+        Sample last = measured.get(measured.size() - 1);
+        String history = describe(samples);
+        assertTrue("Swing timers leak:" + history, last.timers <= baseline.timers + 2);
+        assertTrue("Editors leak:" + history, last.editors <= baseline.editors);
+        assertTrue("Threads leak:" + history, last.threads <= baseline.threads + 8);
+        // A fitted trend, so that one sample taken right after a collection cannot hide a leak
+        double heapGrowthMb = heapSlopeMbPerCycle(measured) * (last.cycle - baseline.cycle);
+        assertTrue(String.format("Retained heap grows by %.1f MB:%s", heapGrowthMb, history),
+                heapGrowthMb <= baseline.heapMb * 0.25 + 32);
+        assertTrue("EDT latency degrades:" + history,
+                last.edtP99Micros <= Math.max(baseline.edtP99Micros * 3, baseline.edtP99Micros + 50_000));
+    }
+
+    private PromptlyChatPanel newPanel() {
+        return new PromptlyChatPanel(getProject(), new ToolWindowHeadlessManagerImpl.MockToolWindow(getProject()));
+    }
+
+    private void chat(int cycle) {
+        EdtTestUtil.runInEdtAndWait(() -> {
+            PromptlyChatPanel current = panel;
+            WriteAction.run(() ->
+                    current.getInputEditor().getDocument().setText("Explain step " + cycle));
+            current.sendMessage();
+        });
+        waitUntil("chat response", () -> !panel.isResponsePending());
+    }
+
+    private void generateCode() {
+        String before = EdtTestUtil.runInEdtAndGet(() -> {
+            myFixture.configureByText("Cycle.java", SOURCE);
+            String text = myFixture.getEditor().getDocument().getText();
+            myFixture.testAction(new GenerateCodeAction());
+            return text;
+        });
+        waitUntil("generated code", () -> !myFixture.getEditor().getDocument().getText().equals(before));
+    }
+
+    private static void waitUntil(String what, BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + WAIT_TIMEOUT_MILLIS;
+        while (!EdtTestUtil.runInEdtAndGet(condition::getAsBoolean)) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("Timed out waiting for " + what);
+            }
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail("Interrupted waiting for " + what);
+            }
+        }
+    }
+
+    /**
+     * Posts an event to the EDT every 10 ms from a daemon thread and records how long it waited to run.
+     */
+    private void startEdtProbe() {
+        probing = true;
+        Thread probe = new Thread(() -> {
+            while (probing) {
+                long posted = System.nanoTime();
+                SwingUtilities.invokeLater(() -> edtLatency.record((System.nanoTime() - posted) / 1000));
+                try {
+                    Thread.sleep(10);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }, "Promptly soak EDT probe");
+        probe.setDaemon(true);
+        probe.start();
+    }
+
+    private Sample sample(int cycle) throws Exception {
+        LatencyHistogram latency = edtLatency;
+        edtLatency = new LatencyHistogram(60_000_000);
+        int editors = EdtTestUtil.runInEdtAndGet(() -> EditorFactory.getInstance().getAllEditors().length);
+        return new Sample(cycle, retainedHeapMb(), liveSwingTimers(), editors,
+                ManagementFactory.getThreadMXBean().getThreadCount(),
+                latency.getValueAtPercentile(50), latency.getValueAtPercentile(99));
+    }
+
+    private static long retainedHeapMb() throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed() / (1024 * 1024);
+    }
+
+    /**
+     * Counts the timers in Swing's shared timer queue; needs {@code --add-opens java.desktop/javax.swing}.
+     */
+    private static int liveSwingTimers() throws Exception {
+        Class<?> timerQueue = Class.forName("javax.swing.TimerQueue");
+        Method sharedInstance = timerQueue.getDeclaredMethod("sharedInstance");
+        sharedInstance.setAccessible(true);
+        Field queue = timerQueue.getDeclaredField("queue");
+        queue.setAccessible(true);
+        return ((Collection<?>) queue.get(sharedInstance.invoke(null))).size();
+    }
+
+    /**
+     * Least-squares slope of retained heap over cycles.
+     */
+    private static double heapSlopeMbPerCycle(List<Sample> samples) {
+        double meanCycle = 0;
+        double meanHeap = 0;
+        for (Sample sample : samples) {
+            meanCycle += sample.cycle;
+            meanHeap += sample.heapMb;
+        }
+        meanCycle /= samples.size();
+        meanHeap /= samples.size();
+
+        double covariance = 0;
+        double variance = 0;
+        for (Sample sample : samples) {
+            covariance += (sample.cycle - meanCycle) * (sample.heapMb - meanHeap);
+            variance += (sample.cycle - meanCycle) * (sample.cycle - meanCycle);
+        }
+        return variance > 0 ? covariance / variance : 0;
+    }
+
+    private static String describe(List<Sample> samples) {
+        StringBuilder description = new StringBuilder();
+        for (Sample sample : samples) {
+            description.append("\n  ").append(sample);
+        }
+        return description.toString();
+    }
+
+    private static final class Sample {
+        final int cycle;
+        final long heapMb;
+        final int timers;
+        final int editors;
+        final int threads;
+        final long edtP50Micros;
+        final long edtP99Micros;
+
+        Sample(int cycle, long heapMb, int timers, int editors, int threads, long edtP50Micros, long edtP99Micros) {
+            this.cycle = cycle;
+            this.heapMb = heapMb;
+            this.timers = timers;
+            this.editors = editors;
+            this.threads = threads;
+            this.edtP50Micros = edtP50Micros;
+            this.edtP99Micros = edtP99Micros;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("cycle %d: heap %d MB, %d timers, %d editors, %d threads, EDT p50 %d us, p99 %d us",
+                    cycle, heapMb, timers, editors, threads, edtP50Micros, edtP99Micros);
+        }
+    }
+}